@@ -0,0 +1,115 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http;
+
+/**
+ * <p>A content coding that compresses response content on the fly.</p>
+ * <p>A codec creates an {@link Encoder} for each response to compress;
+ * implementations typically pool the resources used by the encoders,
+ * for example the {@link java.util.zip.Deflater}s of the "gzip" codec,
+ * and take them back when the encoder is {@link Encoder#release() released}.</p>
+ * <p>Encodings for which the JVM has no encoder, such as "br" or "zstd",
+ * can be supported by implementing this interface.</p>
+ *
+ * @see GzipCompressionCodec
+ * @see DeflateCompressionCodec
+ */
+public interface CompressionCodec
+{
+    /**
+     * @return the format of the compressed content, whose encoding is the
+     * {@code Content-Encoding} value produced by this codec
+     */
+    CompressedContentFormat getFormat();
+
+    /**
+     * @return the encoding produced by this codec
+     */
+    default String getEncoding()
+    {
+        return getFormat()._encoding;
+    }
+
+    /**
+     * @return the min length of the content to compress, when the length is known
+     */
+    int getMinCompressSize();
+
+    /**
+     * @return a new encoder, that must be released after use
+     */
+    Encoder newEncoder();
+
+    /**
+     * <p>A streaming encoder, modelled after {@link java.util.zip.Deflater}.</p>
+     */
+    interface Encoder
+    {
+        /**
+         * @return the format of the encoded content
+         */
+        CompressedContentFormat getFormat();
+
+        /**
+         * @return whether all the input has been consumed, so that more input can be set
+         */
+        boolean needsInput();
+
+        /**
+         * <p>Sets the next input to encode. The bytes must not be modified until
+         * {@link #needsInput()} returns true.</p>
+         *
+         * @param bytes the input bytes
+         * @param offset the offset of the input in the array
+         * @param length the length of the input
+         */
+        void setInput(byte[] bytes, int offset, int length);
+
+        /**
+         * <p>Indicates that the current input is the last one.</p>
+         */
+        void finish();
+
+        /**
+         * <p>Encodes the input into the given array.</p>
+         *
+         * @param bytes the array to encode into
+         * @param offset the offset in the array
+         * @param length the max number of bytes to encode
+         * @param flush whether to flush all the encoded bytes of the input set so far
+         * @return the number of bytes encoded
+         */
+        int encode(byte[] bytes, int offset, int length, boolean flush);
+
+        /**
+         * @return whether the input has been fully encoded after {@link #finish()}
+         */
+        boolean finished();
+
+        /**
+         * @return the number of input bytes consumed so far
+         */
+        long getBytesRead();
+
+        /**
+         * <p>Releases the resources of this encoder, that cannot be used anymore.</p>
+         */
+        void release();
+    }
+}
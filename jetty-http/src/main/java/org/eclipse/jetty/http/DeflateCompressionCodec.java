@@ -0,0 +1,87 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http;
+
+import java.util.zip.Deflater;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.compression.CompressionPool;
+import org.eclipse.jetty.util.compression.DeflaterPool;
+
+/**
+ * <p>The "deflate" {@link CompressionCodec}, that produces zlib wrapped deflate data as
+ * required by RFC 7230, and pools its {@link Deflater}s in a {@link DeflaterPool}.</p>
+ */
+@ManagedObject("The deflate compression codec")
+public class DeflateCompressionCodec extends ContainerLifeCycle implements CompressionCodec
+{
+    private final DeflaterPool _pool;
+    private final int _compressionLevel;
+    private final int _minCompressSize;
+
+    public DeflateCompressionCodec()
+    {
+        this(Deflater.DEFAULT_COMPRESSION, 16);
+    }
+
+    /**
+     * @param compressionLevel the {@link Deflater} compression level
+     * @param minCompressSize the min length of the content to compress
+     */
+    public DeflateCompressionCodec(int compressionLevel, int minCompressSize)
+    {
+        _pool = new DeflaterPool(CompressionPool.INFINITE_CAPACITY, compressionLevel, false);
+        _compressionLevel = compressionLevel;
+        _minCompressSize = minCompressSize;
+        addBean(_pool);
+    }
+
+    @Override
+    public CompressedContentFormat getFormat()
+    {
+        return CompressedContentFormat.DEFLATE;
+    }
+
+    @ManagedAttribute("The Deflater compression level")
+    public int getCompressionLevel()
+    {
+        return _compressionLevel;
+    }
+
+    @Override
+    @ManagedAttribute("The min length of the content to compress")
+    public int getMinCompressSize()
+    {
+        return _minCompressSize;
+    }
+
+    @Override
+    public Encoder newEncoder()
+    {
+        return new DeflaterEncoder(CompressedContentFormat.DEFLATE, _pool.acquire(), _pool::release, false);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{level=%d,minSize=%d}", getClass().getSimpleName(), hashCode(), _compressionLevel, _minCompressSize);
+    }
+}
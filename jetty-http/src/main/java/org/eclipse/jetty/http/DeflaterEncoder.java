@@ -0,0 +1,148 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http;
+
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * <p>An encoder for the "gzip" and "deflate" encodings, backed by a {@link Deflater}.</p>
+ * <p>For "gzip" the deflater must produce raw deflate data (nowrap), that this
+ * encoder frames with the gzip header and trailer.</p>
+ */
+class DeflaterEncoder implements CompressionCodec.Encoder
+{
+    private static final byte[] GZIP_HEADER = new byte[]{(byte)0x1f, (byte)0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+    private static final byte[] NO_BYTES = new byte[0];
+
+    private final CompressedContentFormat _format;
+    private final Consumer<Deflater> _recycler;
+    private final CRC32 _crc;
+    private final byte[] _header;
+    private Deflater _deflater;
+    private int _headerIndex;
+    private byte[] _trailer;
+    private int _trailerIndex;
+
+    DeflaterEncoder(CompressedContentFormat format, Deflater deflater, Consumer<Deflater> recycler, boolean gzip)
+    {
+        _format = format;
+        _deflater = deflater;
+        _recycler = recycler;
+        _crc = gzip ? new CRC32() : null;
+        _header = gzip ? GZIP_HEADER : NO_BYTES;
+    }
+
+    @Override
+    public CompressedContentFormat getFormat()
+    {
+        return _format;
+    }
+
+    @Override
+    public boolean needsInput()
+    {
+        return _deflater.needsInput();
+    }
+
+    @Override
+    public void setInput(byte[] bytes, int offset, int length)
+    {
+        if (_crc != null)
+            _crc.update(bytes, offset, length);
+        _deflater.setInput(bytes, offset, length);
+    }
+
+    @Override
+    public void finish()
+    {
+        _deflater.finish();
+    }
+
+    @Override
+    public int encode(byte[] bytes, int offset, int length, boolean flush)
+    {
+        int encoded = 0;
+        if (_headerIndex < _header.length)
+        {
+            int n = Math.min(length, _header.length - _headerIndex);
+            System.arraycopy(_header, _headerIndex, bytes, offset, n);
+            _headerIndex += n;
+            encoded += n;
+        }
+
+        if (!_deflater.finished() && encoded < length)
+            encoded += _deflater.deflate(bytes, offset + encoded, length - encoded, flush ? Deflater.SYNC_FLUSH : Deflater.NO_FLUSH);
+
+        if (_deflater.finished() && _crc != null)
+        {
+            if (_trailer == null)
+                _trailer = newTrailer();
+            int n = Math.min(length - encoded, _trailer.length - _trailerIndex);
+            System.arraycopy(_trailer, _trailerIndex, bytes, offset + encoded, n);
+            _trailerIndex += n;
+            encoded += n;
+        }
+        return encoded;
+    }
+
+    private byte[] newTrailer()
+    {
+        byte[] trailer = new byte[8];
+        int v = (int)_crc.getValue();
+        trailer[0] = (byte)(v & 0xFF);
+        trailer[1] = (byte)((v >>> 8) & 0xFF);
+        trailer[2] = (byte)((v >>> 16) & 0xFF);
+        trailer[3] = (byte)((v >>> 24) & 0xFF);
+        v = _deflater.getTotalIn();
+        trailer[4] = (byte)(v & 0xFF);
+        trailer[5] = (byte)((v >>> 8) & 0xFF);
+        trailer[6] = (byte)((v >>> 16) & 0xFF);
+        trailer[7] = (byte)((v >>> 24) & 0xFF);
+        return trailer;
+    }
+
+    @Override
+    public boolean finished()
+    {
+        return _deflater.finished() && (_crc == null || (_trailer != null && _trailerIndex == _trailer.length));
+    }
+
+    @Override
+    public long getBytesRead()
+    {
+        return _deflater.getBytesRead();
+    }
+
+    @Override
+    public void release()
+    {
+        Deflater deflater = _deflater;
+        _deflater = null;
+        if (deflater != null)
+            _recycler.accept(deflater);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{%s,%s}", getClass().getSimpleName(), hashCode(), _format._encoding, _deflater);
+    }
+}
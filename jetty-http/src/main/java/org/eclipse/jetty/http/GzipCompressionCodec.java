@@ -0,0 +1,100 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http;
+
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.compression.CompressionPool;
+import org.eclipse.jetty.util.compression.DeflaterPool;
+
+/**
+ * <p>The "gzip" {@link CompressionCodec}, that pools its {@link Deflater}s in a {@link DeflaterPool}.</p>
+ */
+@ManagedObject("The gzip compression codec")
+public class GzipCompressionCodec extends ContainerLifeCycle implements CompressionCodec
+{
+    private final DeflaterPool _pool;
+    private final int _compressionLevel;
+    private final int _minCompressSize;
+
+    public GzipCompressionCodec()
+    {
+        this(Deflater.DEFAULT_COMPRESSION, 16);
+    }
+
+    /**
+     * @param compressionLevel the {@link Deflater} compression level
+     * @param minCompressSize the min length of the content to compress
+     */
+    public GzipCompressionCodec(int compressionLevel, int minCompressSize)
+    {
+        _pool = new DeflaterPool(CompressionPool.INFINITE_CAPACITY, compressionLevel, true);
+        _compressionLevel = compressionLevel;
+        _minCompressSize = minCompressSize;
+        addBean(_pool);
+    }
+
+    /**
+     * <p>Returns an encoder that frames the raw deflate data of the given {@link Deflater}
+     * in the gzip format, for the callers that manage their own deflaters.</p>
+     *
+     * @param deflater a {@link Deflater} that produces raw deflate data
+     * @param recycler the function called with the deflater when the encoder is released
+     * @return a "gzip" encoder
+     */
+    public static Encoder newEncoder(Deflater deflater, Consumer<Deflater> recycler)
+    {
+        return new DeflaterEncoder(CompressedContentFormat.GZIP, deflater, recycler, true);
+    }
+
+    @Override
+    public CompressedContentFormat getFormat()
+    {
+        return CompressedContentFormat.GZIP;
+    }
+
+    @ManagedAttribute("The Deflater compression level")
+    public int getCompressionLevel()
+    {
+        return _compressionLevel;
+    }
+
+    @Override
+    @ManagedAttribute("The min length of the content to compress")
+    public int getMinCompressSize()
+    {
+        return _minCompressSize;
+    }
+
+    @Override
+    public Encoder newEncoder()
+    {
+        return newEncoder(_pool.acquire(), _pool::release);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{level=%d,minSize=%d}", getClass().getSimpleName(), hashCode(), _compressionLevel, _minCompressSize);
+    }
+}
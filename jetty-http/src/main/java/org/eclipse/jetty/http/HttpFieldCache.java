@@ -0,0 +1,324 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.ArrayTernaryTrie;
+import org.eclipse.jetty.util.FrequencySketch;
+import org.eclipse.jetty.util.Trie;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.annotation.Name;
+
+/**
+ * <p>A bounded cache of {@link HttpField}s shared by the {@link HttpParser}s of many connections.</p>
+ * <p>Unlike the per parser field cache, which only lives as long as a persistent connection,
+ * this cache learns the name:value pairs that are frequently seen across connections, such as
+ * the {@code Host} and {@code User-Agent} of the clients, so that short lived connections
+ * can also parse them without allocating a new {@link HttpField}.</p>
+ * <p>The parsers look up the cache without locking, in an immutable {@link Trie} that is
+ * replaced when fields are admitted. A field missing from the cache is admitted only when
+ * a {@link FrequencySketch} estimates that it has been seen frequently enough and, if the cache
+ * is full, more frequently than the least frequently hit field, which is then evicted.</p>
+ * <p>The sketch is updated under its own short lock, as it is not thread safe. A candidate is
+ * first compared, without scanning the cache, with the victim chosen by the last admission,
+ * so that the cache is only scanned when the candidate may replace a cached field.</p>
+ */
+@ManagedObject("A cache of HTTP fields shared by parsers")
+public class HttpFieldCache
+{
+    public static final int DEFAULT_CAPACITY = 256;
+    public static final int DEFAULT_MAX_FIELD_LENGTH = 256;
+    public static final int DEFAULT_ADMISSION_FREQUENCY = 4;
+
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+    private final LongAdder _evictions = new LongAdder();
+    private final int _capacity;
+    private final int _maxFieldLength;
+    private final int _admissionFrequency;
+    private final FrequencySketch _sketch;
+    private volatile Snapshot _snapshot = new Snapshot(Collections.emptyList());
+    private volatile Entry _victim;
+    // Guarded by this, like the admissions.
+    private int _victimFrequency;
+
+    public HttpFieldCache()
+    {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_FIELD_LENGTH, DEFAULT_ADMISSION_FREQUENCY);
+    }
+
+    /**
+     * @param capacity the max number of cached fields
+     * @param maxFieldLength the max length of the name and value of a cached field
+     * @param admissionFrequency the estimated number of times a field must have been
+     * seen before being admitted, from 1 to {@link FrequencySketch#MAX_FREQUENCY}
+     */
+    public HttpFieldCache(@Name("capacity") int capacity, @Name("maxFieldLength") int maxFieldLength, @Name("admissionFrequency") int admissionFrequency)
+    {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        _capacity = capacity;
+        _maxFieldLength = maxFieldLength;
+        _admissionFrequency = Math.max(1, Math.min(FrequencySketch.MAX_FREQUENCY, admissionFrequency));
+        // Size the sketch for the candidates, not only the cached fields.
+        _sketch = new FrequencySketch(capacity * 8);
+    }
+
+    @ManagedAttribute("The max number of cached fields")
+    public int getCapacity()
+    {
+        return _capacity;
+    }
+
+    @ManagedAttribute("The max length of the name and value of a cached field")
+    public int getMaxFieldLength()
+    {
+        return _maxFieldLength;
+    }
+
+    @ManagedAttribute("The estimated number of times a field must be seen before being cached")
+    public int getAdmissionFrequency()
+    {
+        return _admissionFrequency;
+    }
+
+    @ManagedAttribute("The number of cached fields")
+    public int getSize()
+    {
+        return _snapshot._entries.size();
+    }
+
+    @ManagedAttribute("The number of lookups that found a cached field")
+    public long getHits()
+    {
+        return _hits.sum();
+    }
+
+    @ManagedAttribute("The number of cacheable fields that were not cached")
+    public long getMisses()
+    {
+        return _misses.sum();
+    }
+
+    @ManagedAttribute("The number of evicted fields")
+    public long getEvictions()
+    {
+        return _evictions.sum();
+    }
+
+    /**
+     * <p>Looks up, without locking, the longest cached field that is a prefix of the given buffer.</p>
+     *
+     * @param buffer the buffer containing the field
+     * @param offset the offset of the field from the buffer position
+     * @param length the max length of the field
+     * @return the cached entry or null
+     * @see Trie#getBest(ByteBuffer, int, int)
+     */
+    public Entry getBest(ByteBuffer buffer, int offset, int length)
+    {
+        return _snapshot._trie.getBest(buffer, offset, length);
+    }
+
+    /**
+     * @param field the field to test
+     * @return whether the given field may be cached
+     */
+    public boolean isCacheable(HttpField field)
+    {
+        String value = field.getValue();
+        return value != null && field.getName().length() + value.length() <= _maxFieldLength;
+    }
+
+    /**
+     * <p>Records that a cacheable field was parsed without being found in the cache,
+     * and admits it in the cache if it is seen frequently enough.</p>
+     *
+     * @param field the parsed field
+     */
+    public void miss(HttpField field)
+    {
+        if (!isCacheable(field))
+            return;
+
+        _misses.increment();
+        int hash = field.hashCode();
+        Entry victim = _victim;
+        int frequency;
+        int victimFrequency;
+        // An unsynchronized increment racing with the aging of the sketch
+        // could write back a counter that was not halved.
+        synchronized (_sketch)
+        {
+            _sketch.increment(hash);
+            frequency = _sketch.frequency(hash);
+            victimFrequency = victim == null ? 0 : _sketch.frequency(victim._hash);
+        }
+        // Recording the hits of the victim in the sketch can only increase its estimate,
+        // so a candidate that is not more frequent than the estimate cannot replace it.
+        // The victim is only chosen again when the cache is scanned by an admission.
+        if (frequency >= _admissionFrequency && frequency > victimFrequency)
+            admit(field, hash, frequency);
+    }
+
+    private synchronized void admit(HttpField field, int hash, int frequency)
+    {
+        Snapshot snapshot = _snapshot;
+        String key = field.toString();
+        if (snapshot._trie.get(key) != null)
+            return;
+
+        List<Entry> entries = new ArrayList<>(snapshot._entries);
+        if (entries.size() >= _capacity)
+        {
+            Entry victim = findVictim(entries);
+            if (victim == null || _victimFrequency >= frequency)
+                return;
+            entries.remove(victim);
+            _evictions.increment();
+        }
+        entries.add(new Entry(field, key, hash));
+        _snapshot = snapshot = new Snapshot(entries);
+        if (snapshot._entries.size() >= _capacity)
+            findVictim(snapshot._entries);
+    }
+
+    /**
+     * <p>Finds the least frequently hit entry, and records it as the victim of the next admission.</p>
+     *
+     * @param entries the cached entries
+     * @return the victim
+     */
+    private Entry findVictim(List<Entry> entries)
+    {
+        Entry victim = null;
+        int victimFrequency = Integer.MAX_VALUE;
+        synchronized (_sketch)
+        {
+            // Record the hits of the cached fields in the sketch,
+            // so that they are compared with the candidate on equal terms.
+            for (Entry entry : entries)
+            {
+                long hits = Math.min(FrequencySketch.MAX_FREQUENCY, entry._hits.sumThenReset());
+                for (int i = 0; i < hits; ++i)
+                {
+                    _sketch.increment(entry._hash);
+                }
+                int entryFrequency = _sketch.frequency(entry._hash);
+                if (entryFrequency < victimFrequency)
+                {
+                    victim = entry;
+                    victimFrequency = entryFrequency;
+                }
+            }
+        }
+        _victim = victim;
+        _victimFrequency = victimFrequency;
+        return victim;
+    }
+
+    @ManagedOperation(value = "Clears the cache", impact = "ACTION")
+    public synchronized void clear()
+    {
+        _snapshot = new Snapshot(Collections.emptyList());
+        _victim = null;
+        synchronized (_sketch)
+        {
+            _sketch.clear();
+        }
+        _hits.reset();
+        _misses.reset();
+        _evictions.reset();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{size=%d/%d,hits=%d,misses=%d,evictions=%d}", getClass().getSimpleName(), hashCode(), getSize(), getCapacity(), getHits(), getMisses(), getEvictions());
+    }
+
+    /**
+     * <p>A cached field.</p>
+     */
+    public class Entry
+    {
+        private final LongAdder _hits = new LongAdder();
+        private final HttpField _field;
+        private final String _key;
+        private final int _hash;
+
+        private Entry(HttpField field, String key, int hash)
+        {
+            _field = field;
+            _key = key;
+            _hash = hash;
+        }
+
+        public HttpField getField()
+        {
+            return _field;
+        }
+
+        /**
+         * <p>Records that this entry has been used to parse a field.</p>
+         */
+        public void hit()
+        {
+            _hits.increment();
+            HttpFieldCache.this._hits.increment();
+        }
+
+        @Override
+        public String toString()
+        {
+            return _key;
+        }
+    }
+
+    private static class Snapshot
+    {
+        private final List<Entry> _entries = new ArrayList<>();
+        private final Trie<Entry> _trie;
+
+        private Snapshot(List<Entry> entries)
+        {
+            // At most one row per character and one terminal row per key, plus a spare row.
+            int capacity = 1;
+            for (Entry entry : entries)
+            {
+                capacity += entry._key.length() + 1;
+            }
+            // The trie is immutable once built, so that it can be read without locking.
+            Trie<Entry> trie = new ArrayTernaryTrie<>(true, Math.min(Character.MAX_VALUE, capacity));
+            for (Entry entry : entries)
+            {
+                if (trie.put(entry._key, entry))
+                    _entries.add(entry);
+            }
+            _trie = trie;
+        }
+    }
+}
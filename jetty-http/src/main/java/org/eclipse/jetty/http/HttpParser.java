@@ -68,7 +68,10 @@ import static org.eclipse.jetty.http.HttpComplianceSection.TRANSFER_ENCODING_WIT
  * (eg. "Connection: close"), or just header names (eg. "Connection:" ).
  * For headers who's value is not known statically (eg. Host, COOKIE) then a
  * per parser dynamic Trie of {@link HttpFields} from previous parsed messages
- * is used to help the parsing of subsequent messages.
+ * is used to help the parsing of subsequent messages.  An optional
+ * {@link HttpFieldCache} may also be shared by many parsers, so that the
+ * header values frequently seen across connections (eg. Host, User-Agent)
+ * are also found by the parsers of new and non persistent connections.
  * </p>
  * <p>
  * The parser can work in varying compliance modes:
@@ -177,6 +180,7 @@ public class HttpParser
     private boolean _cr;
     private ByteBuffer _contentChunk;
     private Trie<HttpField> _fieldCache;
+    private HttpFieldCache _sharedFieldCache;
 
     private int _length;
     private final StringBuilder _string = new StringBuilder();
@@ -550,6 +554,61 @@ public class HttpParser
         _length = s.length();
     }
 
+    /**
+     * @param buffer the buffer to scan
+     * @return the max absolute index to which the buffer can be scanned without exceeding the max header bytes
+     */
+    private int scanLimit(ByteBuffer buffer)
+    {
+        int limit = buffer.limit();
+        if (_maxHeaderBytes > 0)
+            limit = (int)Math.min(limit, (long)buffer.position() + Math.max(0, _maxHeaderBytes - _headerBytes));
+        return limit;
+    }
+
+    /* Fast path for the URI that consumes the run of visible characters
+     * that follows, falling back to the state machine for anything else.
+     */
+    private void appendVisibleUri(ByteBuffer buffer)
+    {
+        int position = buffer.position();
+        int count = HttpTokens.countVisibleChars(buffer, position, scanLimit(buffer));
+        if (count == 0)
+            return;
+        if (buffer.hasArray())
+        {
+            _uri.append(buffer.array(), buffer.arrayOffset() + position, count);
+        }
+        else
+        {
+            for (int i = position; i < position + count; i++)
+            {
+                _uri.append(buffer.get(i));
+            }
+        }
+        buffer.position(position + count);
+        _headerBytes += count;
+    }
+
+    /* Fast path for field values that consumes the run of visible characters
+     * that follows, falling back to the state machine for whitespace, CR, LF
+     * and anything unusual, so that it is handled with the same compliance.
+     */
+    private void appendVisibleValue(ByteBuffer buffer)
+    {
+        int position = buffer.position();
+        int count = HttpTokens.countVisibleChars(buffer, position, scanLimit(buffer));
+        if (count == 0)
+            return;
+        _string.ensureCapacity(_string.length() + count);
+        for (int i = position; i < position + count; i++)
+        {
+            _string.append((char)buffer.get(i));
+        }
+        buffer.position(position + count);
+        _headerBytes += count;
+    }
+
     private String takeString()
     {
         _string.setLength(_length);
@@ -695,31 +754,9 @@ public class HttpParser
                             {
                                 _uri.reset();
                                 setState(State.URI);
+                                _uri.append(t.getByte());
                                 // quick scan for space or EoBuffer
-                                if (buffer.hasArray())
-                                {
-                                    byte[] array = buffer.array();
-                                    int p = buffer.arrayOffset() + buffer.position();
-                                    int l = buffer.arrayOffset() + buffer.limit();
-                                    int i = p;
-                                    while (i < l && array[i] > HttpTokens.SPACE)
-                                    {
-                                        i++;
-                                    }
-
-                                    int len = i - p;
-                                    _headerBytes += len;
-
-                                    if (_maxHeaderBytes > 0 && ++_headerBytes > _maxHeaderBytes)
-                                    {
-                                        LOG.warn("URI is too large >" + _maxHeaderBytes);
-                                        throw new BadMessageException(HttpStatus.URI_TOO_LONG_414);
-                                    }
-                                    _uri.append(array, p - 1, len + 1);
-                                    buffer.position(i - buffer.arrayOffset());
-                                }
-                                else
-                                    _uri.append(t.getByte());
+                                appendVisibleUri(buffer);
                             }
                             break;
 
@@ -775,6 +812,7 @@ public class HttpParser
                         case COLON:
                         case OTEXT:
                             _uri.append(t.getByte());
+                            appendVisibleUri(buffer);
                             break;
 
                         default:
@@ -952,6 +990,7 @@ public class HttpParser
             if (_header != null)
             {
                 boolean addToConnectionTrie = false;
+                boolean addToSharedCache = false;
                 switch (_header)
                 {
                     case CONTENT_LENGTH:
@@ -1008,6 +1047,7 @@ public class HttpParser
                                 _compliances.contains(HttpComplianceSection.FIELD_NAME_CASE_INSENSITIVE) ? _header.asString() : _headerString,
                                 _valueString);
                             addToConnectionTrie = _fieldCache != null;
+                            addToSharedCache = _sharedFieldCache != null;
                         }
                         break;
 
@@ -1018,14 +1058,19 @@ public class HttpParser
                         break;
 
                     case AUTHORIZATION:
+                    case COOKIE:
+                        // Credentials are specific to a client, so they are not shared
+                        addToConnectionTrie = _fieldCache != null && _field == null;
+                        break;
+
                     case ACCEPT:
                     case ACCEPT_CHARSET:
                     case ACCEPT_ENCODING:
                     case ACCEPT_LANGUAGE:
-                    case COOKIE:
                     case CACHE_CONTROL:
                     case USER_AGENT:
                         addToConnectionTrie = _fieldCache != null && _field == null;
+                        addToSharedCache = _sharedFieldCache != null && _field == null;
                         break;
 
                     default:
@@ -1038,6 +1083,19 @@ public class HttpParser
                         _field = new HttpField(_header, caseInsensitiveHeader(_headerString, _header.asString()), _valueString);
                     _fieldCache.put(_field);
                 }
+
+                if (addToSharedCache && _valueString != null)
+                {
+                    if (_field == null)
+                        _field = new HttpField(_header, caseInsensitiveHeader(_headerString, _header.asString()), _valueString);
+                    _sharedFieldCache.miss(_field);
+                }
+            }
+            else if (_sharedFieldCache != null && _field == null && _headerString != null && _valueString != null)
+            {
+                // Unknown headers may be frequent too (eg. headers added by a gateway)
+                _field = new HttpField(null, _headerString, _valueString);
+                _sharedFieldCache.miss(_field);
             }
             _handler.parsedHeader(_field != null ? _field : new HttpField(_header, _headerString, _valueString));
         }
@@ -1211,6 +1269,13 @@ public class HttpParser
                             {
                                 // Try a look ahead for the known header name and value.
                                 HttpField cachedField = _fieldCache == null ? null : _fieldCache.getBest(buffer, -1, buffer.remaining());
+                                HttpFieldCache.Entry sharedEntry = null;
+                                if (cachedField == null && _sharedFieldCache != null)
+                                {
+                                    sharedEntry = _sharedFieldCache.getBest(buffer, -1, buffer.remaining());
+                                    if (sharedEntry != null)
+                                        cachedField = sharedEntry.getField();
+                                }
                                 if (cachedField == null)
                                     cachedField = CACHE.getBest(buffer, -1, buffer.remaining());
 
@@ -1263,6 +1328,8 @@ public class HttpParser
                                         _field = cachedField;
                                         _valueString = v;
                                         setState(FieldState.IN_VALUE);
+                                        if (sharedEntry != null)
+                                            sharedEntry.hit();
 
                                         if (peek == HttpTokens.CARRIAGE_RETURN)
                                         {
@@ -1422,6 +1489,7 @@ public class HttpParser
                         case COLON:
                         case OTEXT: // TODO review? should this be a utf8 string?
                             _string.append(t.getChar());
+                            appendVisibleValue(buffer);
                             _length = _string.length();
                             break;
 
@@ -1845,6 +1913,19 @@ public class HttpParser
         return _fieldCache;
     }
 
+    public HttpFieldCache getSharedFieldCache()
+    {
+        return _sharedFieldCache;
+    }
+
+    /**
+     * @param sharedFieldCache the cache of fields shared with other parsers, or null for no shared cache
+     */
+    public void setSharedFieldCache(HttpFieldCache sharedFieldCache)
+    {
+        _sharedFieldCache = sharedFieldCache;
+    }
+
     @Override
     public String toString()
     {
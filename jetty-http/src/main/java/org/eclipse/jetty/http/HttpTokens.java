@@ -18,6 +18,8 @@
 
 package org.eclipse.jetty.http;
 
+import java.nio.ByteBuffer;
+
 import org.eclipse.jetty.util.TypeUtil;
 
 /**
@@ -31,6 +33,9 @@ public class HttpTokens
     static final byte CARRIAGE_RETURN = 0x0D;
     static final byte SPACE = 0x20;
     static final byte[] CRLF = {CARRIAGE_RETURN, LINE_FEED};
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long VISIBLE_MIN = 0x21 * ONES;
 
     public enum EndOfContent
     {
@@ -188,5 +193,42 @@ public class HttpTokens
             }
         }
     }
-}
 
+    /**
+     * <p>Counts the visible characters (VCHAR, %x21-7E) found from the given index of the buffer.</p>
+     * <p>The buffer is read 8 bytes at a time, so that long runs of visible characters (for example
+     * in cookies, tokens or URIs) are validated with a few arithmetic operations per {@code long}
+     * rather than a {@link #TOKENS} lookup per byte.</p>
+     *
+     * @param buffer the buffer to scan
+     * @param index the absolute index to scan from
+     * @param limit the absolute index to scan to
+     * @return the number of visible characters from the index, stopping at the first other byte
+     */
+    public static int countVisibleChars(ByteBuffer buffer, int index, int limit)
+    {
+        int i = index;
+        while (limit - i >= 8 && isVisible(buffer.getLong(i)))
+        {
+            i += 8;
+        }
+        while (i < limit)
+        {
+            byte b = buffer.get(i);
+            if (b < 0x21 || b > 0x7E)
+                break;
+            i++;
+        }
+        return i - index;
+    }
+
+    private static boolean isVisible(long word)
+    {
+        // A byte is not visible if it has the high bit set (obs-text), if the subtraction
+        // borrows into its high bit (below 0x21) or if the addition carries into it (DEL).
+        // Borrows and carries only cross bytes that are already not visible.
+        long below = (word - VISIBLE_MIN) & ~word;
+        long above = word + ONES;
+        return ((word | below | above) & HIGH_BITS) == 0;
+    }
+}
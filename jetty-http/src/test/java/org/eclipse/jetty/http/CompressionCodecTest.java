@@ -0,0 +1,116 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.eclipse.jetty.util.IO;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompressionCodecTest
+{
+    private static byte[] newContent()
+    {
+        // Compressible, but not trivially so.
+        Random random = new Random();
+        byte[] content = new byte[100 * 1024];
+        for (int i = 0; i < content.length; i++)
+        {
+            content[i] = (byte)('a' + random.nextInt(8));
+        }
+        return content;
+    }
+
+    private static byte[] encode(CompressionCodec codec, byte[] content, int chunk, int space)
+    {
+        CompressionCodec.Encoder encoder = codec.newEncoder();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[space];
+        int offset = 0;
+        while (!encoder.finished())
+        {
+            if (encoder.needsInput())
+            {
+                if (offset < content.length)
+                {
+                    int length = Math.min(chunk, content.length - offset);
+                    encoder.setInput(content, offset, length);
+                    offset += length;
+                }
+                if (offset == content.length)
+                    encoder.finish();
+            }
+            int encoded = encoder.encode(buffer, 0, buffer.length, false);
+            output.write(buffer, 0, encoded);
+        }
+        assertEquals(content.length, encoder.getBytesRead());
+        encoder.release();
+        return output.toByteArray();
+    }
+
+    @Test
+    public void testGzip() throws Exception
+    {
+        GzipCompressionCodec codec = new GzipCompressionCodec();
+        codec.start();
+        byte[] content = newContent();
+
+        // A small output space splits the gzip header and trailer.
+        for (int space : new int[]{3, 7, 4096})
+        {
+            byte[] encoded = encode(codec, content, 1000, space);
+            assertTrue(encoded.length < content.length);
+            InputStream input = new GZIPInputStream(new ByteArrayInputStream(encoded));
+            ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+            IO.copy(input, decoded);
+            assertArrayEquals(content, decoded.toByteArray());
+        }
+        codec.stop();
+    }
+
+    @Test
+    public void testDeflate() throws Exception
+    {
+        DeflateCompressionCodec codec = new DeflateCompressionCodec();
+        codec.start();
+        byte[] content = newContent();
+
+        byte[] encoded = encode(codec, content, 4096, 512);
+        assertTrue(encoded.length < content.length);
+        InputStream input = new InflaterInputStream(new ByteArrayInputStream(encoded));
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        IO.copy(input, decoded);
+        assertArrayEquals(content, decoded.toByteArray());
+        assertEquals("deflate", codec.getEncoding());
+
+        // Empty content is a valid stream.
+        encoded = encode(codec, new byte[0], 4096, 512);
+        assertArrayEquals(new byte[0], IO.readBytes(new InflaterInputStream(new ByteArrayInputStream(encoded))));
+        codec.stop();
+    }
+}
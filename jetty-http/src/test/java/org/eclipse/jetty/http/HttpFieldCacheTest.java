@@ -0,0 +1,113 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class HttpFieldCacheTest
+{
+    private static ByteBuffer toBuffer(String line)
+    {
+        return BufferUtil.toBuffer(line + "\r\n");
+    }
+
+    @Test
+    public void testAdmission()
+    {
+        HttpFieldCache cache = new HttpFieldCache(8, 256, 3);
+        HttpField field = new HttpField(HttpHeader.USER_AGENT, "Agent/1.0");
+
+        cache.miss(field);
+        cache.miss(field);
+        assertNull(cache.getBest(toBuffer("User-Agent: Agent/1.0"), 0, 23));
+        assertEquals(0, cache.getSize());
+
+        cache.miss(field);
+        assertEquals(1, cache.getSize());
+        assertEquals(3, cache.getMisses());
+
+        ByteBuffer buffer = toBuffer("user-agent: Agent/1.0");
+        HttpFieldCache.Entry entry = cache.getBest(buffer, 0, buffer.remaining());
+        assertNotNull(entry);
+        assertSame(field, entry.getField());
+
+        entry.hit();
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void testNotCacheable()
+    {
+        HttpFieldCache cache = new HttpFieldCache(8, 16, 1);
+        HttpField field = new HttpField(HttpHeader.USER_AGENT, "A long user agent");
+        assertFalse(cache.isCacheable(field));
+        cache.miss(field);
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    public void testEviction()
+    {
+        HttpFieldCache cache = new HttpFieldCache(2, 256, 1);
+        HttpField frequent = new HttpField("X-Frequent", "1");
+        HttpField rare = new HttpField("X-Rare", "1");
+        cache.miss(frequent);
+        cache.miss(rare);
+        assertEquals(2, cache.getSize());
+
+        // The frequent field is hit, so the candidate must be more frequent than the rare field.
+        ByteBuffer buffer = toBuffer("X-Frequent: 1");
+        for (int i = 0; i < 10; ++i)
+        {
+            cache.getBest(buffer, 0, buffer.remaining()).hit();
+        }
+
+        HttpField candidate = new HttpField("X-Candidate", "1");
+        cache.miss(candidate);
+        // As frequent as the rare field, not admitted.
+        assertEquals(0, cache.getEvictions());
+
+        for (int i = 0; i < 3; ++i)
+        {
+            cache.miss(candidate);
+        }
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.getSize());
+        buffer = toBuffer("X-Rare: 1");
+        assertNull(cache.getBest(buffer, 0, buffer.remaining()));
+        buffer = toBuffer("X-Frequent: 1");
+        assertNotNull(cache.getBest(buffer, 0, buffer.remaining()));
+        buffer = toBuffer("X-Candidate: 1");
+        assertNotNull(cache.getBest(buffer, 0, buffer.remaining()));
+
+        cache.clear();
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getEvictions());
+    }
+}
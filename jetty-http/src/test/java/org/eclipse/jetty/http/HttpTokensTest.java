@@ -0,0 +1,97 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class HttpTokensTest
+{
+    private static boolean isVisible(byte b)
+    {
+        switch (HttpTokens.TOKENS[0xff & b].getType())
+        {
+            case ALPHA:
+            case DIGIT:
+            case TCHAR:
+            case VCHAR:
+            case COLON:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static int expected(ByteBuffer buffer, int index, int limit)
+    {
+        int i = index;
+        while (i < limit && isVisible(buffer.get(i)))
+        {
+            i++;
+        }
+        return i - index;
+    }
+
+    @Test
+    public void testCountVisibleCharsEveryByte()
+    {
+        for (int b = 0; b < 256; b++)
+        {
+            for (int at = 0; at < 20; at++)
+            {
+                for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.allocate(20), ByteBuffer.allocateDirect(20)})
+                {
+                    for (int i = 0; i < 20; i++)
+                    {
+                        buffer.put(i, (byte)'a');
+                    }
+                    buffer.put(at, (byte)b);
+                    int expected = isVisible((byte)b) ? 20 : at;
+                    assertEquals(expected, HttpTokens.countVisibleChars(buffer, 0, 20), "byte " + b + " at " + at);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCountVisibleCharsRandom()
+    {
+        Random random = new Random();
+        byte[] visible = "abcXYZ019!#$%&'*+-.^_`|~\"(),/:;<=>?@[\\]{}".getBytes();
+        byte[] other = {0, '\t', '\n', '\r', ' ', 0x7F, (byte)0x80, (byte)0xFF};
+        for (int run = 0; run < 1000; run++)
+        {
+            ByteBuffer buffer = random.nextBoolean() ? ByteBuffer.allocate(64) : ByteBuffer.allocateDirect(64);
+            for (int i = 0; i < 64; i++)
+            {
+                if (random.nextInt(24) == 0)
+                    buffer.put(i, other[random.nextInt(other.length)]);
+                else
+                    buffer.put(i, visible[random.nextInt(visible.length)]);
+            }
+            int index = random.nextInt(64);
+            int limit = index + random.nextInt(64 - index + 1);
+            assertEquals(expected(buffer, index, limit), HttpTokens.countVisibleChars(buffer, index, limit));
+        }
+    }
+}
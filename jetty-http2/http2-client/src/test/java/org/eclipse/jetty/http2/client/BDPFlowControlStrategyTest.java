@@ -0,0 +1,149 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http2.client;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.http2.BDPFlowControlStrategy;
+import org.eclipse.jetty.http2.FlowControlStrategy;
+import org.eclipse.jetty.http2.HTTP2Session;
+import org.eclipse.jetty.http2.api.Session;
+import org.eclipse.jetty.http2.api.Stream;
+import org.eclipse.jetty.http2.api.server.ServerSessionListener;
+import org.eclipse.jetty.http2.frames.DataFrame;
+import org.eclipse.jetty.http2.frames.HeadersFrame;
+import org.eclipse.jetty.http2.frames.PingFrame;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.FuturePromise;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BDPFlowControlStrategyTest extends AbstractTest
+{
+    private static final int MAX_WINDOW = 16 * 1024 * 1024;
+
+    private void startServer(byte[] content) throws Exception
+    {
+        start(new ServerSessionListener.Adapter()
+        {
+            @Override
+            public Stream.Listener onNewStream(Stream stream, HeadersFrame frame)
+            {
+                MetaData.Response metaData = new MetaData.Response(HttpVersion.HTTP_2, 200, new HttpFields());
+                stream.headers(new HeadersFrame(stream.getId(), metaData, null, false), Callback.from(() ->
+                    stream.data(new DataFrame(stream.getId(), ByteBuffer.wrap(content), true), Callback.NOOP)));
+                return null;
+            }
+        });
+    }
+
+    private byte[] download(Session session, int length) throws Exception
+    {
+        ByteBuffer content = ByteBuffer.allocate(length);
+        CountDownLatch latch = new CountDownLatch(1);
+        MetaData.Request metaData = newRequest("GET", new HttpFields());
+        session.newStream(new HeadersFrame(metaData, null, true), new FuturePromise<>(), new Stream.Listener.Adapter()
+        {
+            @Override
+            public void onData(Stream stream, DataFrame frame, Callback callback)
+            {
+                content.put(frame.getData());
+                callback.succeeded();
+                if (frame.isEndStream())
+                    latch.countDown();
+            }
+        });
+        assertTrue(latch.await(15, TimeUnit.SECONDS));
+        return content.array();
+    }
+
+    @Test
+    public void testInvalidMaxWindow()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new BDPFlowControlStrategy(FlowControlStrategy.DEFAULT_WINDOW_SIZE - 1));
+    }
+
+    @Test
+    public void testDownloadTunesReceiveWindows() throws Exception
+    {
+        byte[] content = new byte[8 * 1024 * 1024];
+        new Random().nextBytes(content);
+        startServer(content);
+        client.setFlowControlStrategyFactory(() -> new BDPFlowControlStrategy(MAX_WINDOW));
+
+        AtomicInteger pings = new AtomicInteger();
+        Session session = newClient(new Session.Listener.Adapter()
+        {
+            @Override
+            public void onPing(Session session, PingFrame frame)
+            {
+                pings.incrementAndGet();
+            }
+        });
+
+        assertArrayEquals(content, download(session, content.length));
+
+        BDPFlowControlStrategy strategy = (BDPFlowControlStrategy)((HTTP2Session)session).getFlowControlStrategy();
+        // The PINGs used to measure the round trip time are not notified to the application.
+        assertThat(pings.get(), is(0));
+        assertThat(strategy.getRoundTripTime(), greaterThan(0L));
+        assertThat(strategy.getSessionRecvWindowTarget(), greaterThanOrEqualTo(FlowControlStrategy.DEFAULT_WINDOW_SIZE));
+        assertThat(strategy.getSessionRecvWindowTarget(), lessThanOrEqualTo(MAX_WINDOW));
+        assertThat(strategy.getStreamRecvWindowTarget(), lessThanOrEqualTo(MAX_WINDOW));
+        // The window granted to the server never exceeds the max window.
+        assertThat(((HTTP2Session)session).getRecvWindow(), lessThanOrEqualTo(MAX_WINDOW));
+    }
+
+    @Test
+    public void testApplicationPingIsNotified() throws Exception
+    {
+        startServer(new byte[1024]);
+        client.setFlowControlStrategyFactory(() -> new BDPFlowControlStrategy(MAX_WINDOW));
+
+        CountDownLatch latch = new CountDownLatch(1);
+        Session session = newClient(new Session.Listener.Adapter()
+        {
+            @Override
+            public void onPing(Session session, PingFrame frame)
+            {
+                if (frame.isReply())
+                    latch.countDown();
+            }
+        });
+
+        download(session, 1024);
+        session.ping(new PingFrame(0, false), Callback.NOOP);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,228 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http2.client;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.http2.FrameScheduler;
+import org.eclipse.jetty.http2.HTTP2Session;
+import org.eclipse.jetty.http2.WeightedFrameScheduler;
+import org.eclipse.jetty.http2.api.Session;
+import org.eclipse.jetty.http2.api.Stream;
+import org.eclipse.jetty.http2.api.server.ServerSessionListener;
+import org.eclipse.jetty.http2.frames.DataFrame;
+import org.eclipse.jetty.http2.frames.Frame;
+import org.eclipse.jetty.http2.frames.HeadersFrame;
+import org.eclipse.jetty.http2.frames.PriorityFrame;
+import org.eclipse.jetty.http2.server.RawHTTP2ServerConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.FuturePromise;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FrameSchedulerTest extends AbstractTest
+{
+    private static final Logger LOG = Log.getLogger(FrameSchedulerTest.class);
+    private static final int BULK_LENGTH = 32 * 1024 * 1024;
+
+    private void start(FrameScheduler frameScheduler, ServerSessionListener listener) throws Exception
+    {
+        RawHTTP2ServerConnectionFactory connectionFactory = new RawHTTP2ServerConnectionFactory(new HttpConfiguration(), listener);
+        connectionFactory.setFrameScheduler(frameScheduler);
+        prepareServer(connectionFactory);
+        server.start();
+
+        prepareClient();
+        // Large windows so that the bulk streams are never stalled by flow control.
+        client.setInitialSessionRecvWindow(4 * BULK_LENGTH);
+        client.setInitialStreamRecvWindow(2 * BULK_LENGTH);
+        client.start();
+    }
+
+    @Test
+    public void testSmallStreamIsNotDelayedByBulkStream() throws Exception
+    {
+        AtomicReference<HTTP2Session> serverSession = new AtomicReference<>();
+        start(new WeightedFrameScheduler(), new ServerSessionListener.Adapter()
+        {
+            @Override
+            public Stream.Listener onNewStream(Stream stream, HeadersFrame frame)
+            {
+                serverSession.set((HTTP2Session)stream.getSession());
+                MetaData.Request request = (MetaData.Request)frame.getMetaData();
+                int length = request.getURI().getPath().endsWith("/bulk") ? BULK_LENGTH : 1024;
+                MetaData.Response response = new MetaData.Response(HttpVersion.HTTP_2, HttpStatus.OK_200, new HttpFields());
+                stream.headers(new HeadersFrame(stream.getId(), response, null, false), new Callback()
+                {
+                    @Override
+                    public void succeeded()
+                    {
+                        stream.data(new DataFrame(stream.getId(), ByteBuffer.allocate(length), true), NOOP);
+                    }
+                });
+                return null;
+            }
+        });
+
+        Session session = newClient(new Session.Listener.Adapter());
+
+        CountDownLatch bulkDataLatch = new CountDownLatch(1);
+        AtomicLong bulkBytes = new AtomicLong();
+        AtomicLong bulkEnd = new AtomicLong();
+        CountDownLatch bulkLatch = new CountDownLatch(1);
+        session.newStream(new HeadersFrame(newRequest("GET", "/bulk", new HttpFields()), null, true), new FuturePromise<>(), new Stream.Listener.Adapter()
+        {
+            @Override
+            public void onData(Stream stream, DataFrame frame, Callback callback)
+            {
+                bulkBytes.addAndGet(frame.remaining());
+                callback.succeeded();
+                bulkDataLatch.countDown();
+                if (frame.isEndStream())
+                {
+                    bulkEnd.set(System.nanoTime());
+                    bulkLatch.countDown();
+                }
+            }
+        });
+
+        // Request the small stream while the bulk stream is downloading.
+        assertTrue(bulkDataLatch.await(5, TimeUnit.SECONDS));
+        long smallBegin = System.nanoTime();
+        AtomicLong smallEnd = new AtomicLong();
+        AtomicLong bulkBytesAtSmallHeaders = new AtomicLong();
+        AtomicLong bulkBytesAtSmallEnd = new AtomicLong();
+        CountDownLatch smallLatch = new CountDownLatch(1);
+        session.newStream(new HeadersFrame(newRequest("GET", "/small", new HttpFields()), null, true), new FuturePromise<>(), new Stream.Listener.Adapter()
+        {
+            @Override
+            public void onHeaders(Stream stream, HeadersFrame frame)
+            {
+                bulkBytesAtSmallHeaders.set(bulkBytes.get());
+            }
+
+            @Override
+            public void onData(Stream stream, DataFrame frame, Callback callback)
+            {
+                callback.succeeded();
+                if (frame.isEndStream())
+                {
+                    bulkBytesAtSmallEnd.set(bulkBytes.get());
+                    smallEnd.set(System.nanoTime());
+                    smallLatch.countDown();
+                }
+            }
+        });
+
+        assertTrue(smallLatch.await(5, TimeUnit.SECONDS));
+        assertTrue(bulkLatch.await(15, TimeUnit.SECONDS));
+        LOG.info("Small stream latency {} us, completed {} us before the bulk stream",
+            TimeUnit.NANOSECONDS.toMicros(smallEnd.get() - smallBegin),
+            TimeUnit.NANOSECONDS.toMicros(bulkEnd.get() - smallEnd.get()));
+        assertThat(smallEnd.get(), lessThan(bulkEnd.get()));
+
+        // The frames are notified in the order they arrive, so the bulk bytes received
+        // between the response HEADERS and the DATA of the small stream are those the
+        // bulk stream was scheduled meanwhile: the write in flight when the small DATA
+        // was queued, up to the write threshold plus a pass, and then at most a pass.
+        // Without scheduling, the small DATA would wait for the rest of the bulk DATA.
+        int quantum = Frame.DEFAULT_MAX_LENGTH;
+        long bulkBytesInBetween = bulkBytesAtSmallEnd.get() - bulkBytesAtSmallHeaders.get();
+        int maxQuanta = (serverSession.get().getWriteThreshold() + quantum - 1) / quantum + 2;
+        assertThat(bulkBytesInBetween, lessThanOrEqualTo((long)maxQuanta * quantum));
+    }
+
+    @Test
+    public void testStreamWeightsAreHonoured() throws Exception
+    {
+        CountDownLatch serverStreamsLatch = new CountDownLatch(2);
+        Map<Integer, Stream> serverStreams = new ConcurrentHashMap<>();
+        start(new WeightedFrameScheduler(Frame.DEFAULT_MAX_LENGTH, true), new ServerSessionListener.Adapter()
+        {
+            @Override
+            public Stream.Listener onNewStream(Stream stream, HeadersFrame frame)
+            {
+                serverStreams.put(frame.getPriority().getWeight(), stream);
+                serverStreamsLatch.countDown();
+                return null;
+            }
+        });
+
+        Session session = newClient(new Session.Listener.Adapter());
+
+        AtomicReference<Integer> firstCompleted = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(2);
+        for (int weight : new int[]{1, 256})
+        {
+            PriorityFrame priority = new PriorityFrame(0, weight, false);
+            session.newStream(new HeadersFrame(newRequest("GET", new HttpFields()), priority, true), new FuturePromise<>(), new Stream.Listener.Adapter()
+            {
+                @Override
+                public void onData(Stream stream, DataFrame frame, Callback callback)
+                {
+                    callback.succeeded();
+                    if (frame.isEndStream())
+                    {
+                        firstCompleted.compareAndSet(null, weight);
+                        latch.countDown();
+                    }
+                }
+            });
+        }
+        assertTrue(serverStreamsLatch.await(5, TimeUnit.SECONDS));
+
+        Stream lightStream = serverStreams.get(1);
+        Stream heavyStream = serverStreams.get(256);
+        MetaData.Response response = new MetaData.Response(HttpVersion.HTTP_2, HttpStatus.OK_200, new HttpFields());
+        lightStream.headers(new HeadersFrame(lightStream.getId(), response, null, false), Callback.NOOP);
+        heavyStream.headers(new HeadersFrame(heavyStream.getId(), response, null, false), new Callback()
+        {
+            @Override
+            public void succeeded()
+            {
+                // Write the light stream first, from within the callback so that the DATA is queued together.
+                lightStream.data(new DataFrame(lightStream.getId(), ByteBuffer.allocate(BULK_LENGTH), true), NOOP);
+                heavyStream.data(new DataFrame(heavyStream.getId(), ByteBuffer.allocate(BULK_LENGTH), true), NOOP);
+            }
+        });
+
+        assertTrue(latch.await(15, TimeUnit.SECONDS));
+        assertThat(firstCompleted.get(), is(256));
+        assertThat(((HTTP2Session)heavyStream.getSession()).getFlushYields(), greaterThan(0L));
+    }
+}
@@ -0,0 +1,332 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http2;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.http2.frames.Frame;
+import org.eclipse.jetty.http2.frames.PingFrame;
+import org.eclipse.jetty.http2.frames.WindowUpdateFrame;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+
+/**
+ * <p>A flow control strategy that sizes the receive windows after the
+ * bandwidth-delay product (BDP) of the connection.</p>
+ * <p>While DATA frames are received, the strategy sends a PING frame and counts
+ * the DATA bytes received until the PING reply arrives: that count is a sample
+ * of the BDP, and the time to the reply a sample of the round trip time.
+ * When a sample shows that the sender filled at least 2/3 of the session receive
+ * window during a round trip, the window was likely what limited the sender,
+ * so the target of the session and stream receive windows is raised to twice the
+ * sample, up to {@link #getMaxWindow() the max window}. When a sample shows that the
+ * sender filled less than 1/4 of the target, the target is lowered to twice the
+ * sample, but not below the initial session receive window.</p>
+ * <p>The window granted to the sender, net of the consumed bytes, is brought back
+ * to the target with a {@code WINDOW_UPDATE} frame once it falls below half of the
+ * target, so the window growth is added to the first update after the target is
+ * raised. A window that is larger than its target is shrunk by withholding the
+ * {@code WINDOW_UPDATE} frames until the sender has used it.</p>
+ * <p>Stream windows grow from the initial stream window, doubling their target at
+ * each update up to the session target, and go back to the initial stream window
+ * when a stream receives DATA after being idle for longer than
+ * {@link #getIdleStreamTime() the idle stream time}, so that streams that have
+ * not been busy do not hold large windows.</p>
+ */
+@ManagedObject
+public class BDPFlowControlStrategy extends AbstractFlowControlStrategy
+{
+    private final Map<IStream, StreamWindow> streamWindows = new ConcurrentHashMap<>();
+    private final long pingPayload = ThreadLocalRandom.current().nextLong();
+    private final int maxWindow;
+    private long idleStreamTime = 1000;
+    private int initialSessionTarget;
+    private int sessionTarget;
+    private int sessionUnconsumed;
+    private int streamTarget;
+    private long pingTime;
+    private long pingBytes;
+    private volatile long roundTripTime;
+    private volatile long bandwidthDelayProduct;
+
+    public BDPFlowControlStrategy(int maxWindow)
+    {
+        this(DEFAULT_WINDOW_SIZE, maxWindow);
+    }
+
+    public BDPFlowControlStrategy(int initialStreamSendWindow, int maxWindow)
+    {
+        super(initialStreamSendWindow);
+        if (maxWindow < DEFAULT_WINDOW_SIZE)
+            throw new IllegalArgumentException("Invalid max window: " + maxWindow);
+        this.maxWindow = maxWindow;
+    }
+
+    @ManagedAttribute(value = "The max size of the receive windows", readonly = true)
+    public int getMaxWindow()
+    {
+        return maxWindow;
+    }
+
+    @ManagedAttribute("The time, in milliseconds, after which an idle stream receive window is shrunk")
+    public long getIdleStreamTime()
+    {
+        return idleStreamTime;
+    }
+
+    public void setIdleStreamTime(long idleStreamTime)
+    {
+        this.idleStreamTime = idleStreamTime;
+    }
+
+    @ManagedAttribute(value = "The smoothed round trip time, in microseconds", readonly = true)
+    public long getRoundTripTime()
+    {
+        return TimeUnit.NANOSECONDS.toMicros(roundTripTime);
+    }
+
+    @ManagedAttribute(value = "The last sample of the bandwidth-delay product, in bytes", readonly = true)
+    public long getBandwidthDelayProduct()
+    {
+        return bandwidthDelayProduct;
+    }
+
+    @ManagedAttribute(value = "The target size of the session receive window", readonly = true)
+    public synchronized int getSessionRecvWindowTarget()
+    {
+        return sessionTarget;
+    }
+
+    @ManagedAttribute(value = "The max target size of the stream receive windows", readonly = true)
+    public synchronized int getStreamRecvWindowTarget()
+    {
+        return streamTarget;
+    }
+
+    @Override
+    public void onStreamCreated(IStream stream)
+    {
+        super.onStreamCreated(stream);
+        streamWindows.put(stream, new StreamWindow(getInitialStreamRecvWindow()));
+    }
+
+    @Override
+    public void onStreamDestroyed(IStream stream)
+    {
+        streamWindows.remove(stream);
+        super.onStreamDestroyed(stream);
+    }
+
+    @Override
+    public void onDataReceived(ISession session, IStream stream, int length)
+    {
+        boolean ping = false;
+        synchronized (this)
+        {
+            super.onDataReceived(session, stream, length);
+            sessionUnconsumed += length;
+            if (sessionTarget == 0)
+            {
+                // The session window is enlarged by the session before any
+                // DATA is received, so this is the initial session window.
+                sessionTarget = Math.min(maxWindow, Math.max(DEFAULT_WINDOW_SIZE, session.updateRecvWindow(0) + sessionUnconsumed));
+                initialSessionTarget = sessionTarget;
+                streamTarget = Math.max(sessionTarget, getInitialStreamRecvWindow());
+            }
+
+            if (pingTime != 0)
+            {
+                pingBytes += length;
+            }
+            else
+            {
+                pingTime = System.nanoTime();
+                pingBytes = length;
+                ping = true;
+            }
+        }
+
+        if (stream != null)
+        {
+            StreamWindow streamWindow = streamWindows.get(stream);
+            if (streamWindow != null)
+                streamWindow.onDataReceived(length);
+        }
+
+        if (ping)
+            session.ping(new PingFrame(pingPayload, false), Callback.NOOP);
+    }
+
+    @Override
+    public boolean onPingReply(ISession session, PingFrame frame)
+    {
+        if (frame.getPayloadAsLong() != pingPayload)
+            return false;
+
+        synchronized (this)
+        {
+            if (pingTime == 0)
+                return true;
+
+            long rtt = System.nanoTime() - pingTime;
+            long bdp = pingBytes;
+            pingTime = 0;
+            pingBytes = 0;
+
+            long smoothed = roundTripTime;
+            roundTripTime = smoothed == 0 ? rtt : (7 * smoothed + rtt) / 8;
+            bandwidthDelayProduct = bdp;
+
+            if (3 * bdp >= 2L * sessionTarget)
+            {
+                int target = (int)Math.min(maxWindow, 2 * bdp);
+                if (target > sessionTarget)
+                {
+                    if (LOG.isDebugEnabled())
+                        LOG.debug("BDP {} bytes, RTT {} us, growing receive windows {} -> {} for {}",
+                            bdp, TimeUnit.NANOSECONDS.toMicros(rtt), sessionTarget, target, session);
+                    sessionTarget = target;
+                    streamTarget = Math.max(streamTarget, target);
+                }
+            }
+            else if (4 * bdp < sessionTarget)
+            {
+                int target = (int)Math.max(initialSessionTarget, 2 * bdp);
+                if (target < sessionTarget)
+                {
+                    if (LOG.isDebugEnabled())
+                        LOG.debug("BDP {} bytes, RTT {} us, shrinking receive windows {} -> {} for {}",
+                            bdp, TimeUnit.NANOSECONDS.toMicros(rtt), sessionTarget, target, session);
+                    sessionTarget = target;
+                    streamTarget = Math.max(target, getInitialStreamRecvWindow());
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void onDataConsumed(ISession session, IStream stream, int length)
+    {
+        if (length <= 0)
+            return;
+
+        WindowUpdateFrame sessionFrame = null;
+        synchronized (this)
+        {
+            sessionUnconsumed -= length;
+            // The window granted to the sender, net of the consumed bytes.
+            // While it is larger than half the target, no update is sent.
+            int window = session.updateRecvWindow(0) + sessionUnconsumed;
+            int delta = sessionTarget - window;
+            if (delta > sessionTarget / 2)
+            {
+                session.updateRecvWindow(delta);
+                sessionFrame = new WindowUpdateFrame(0, delta);
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Data consumed, {} bytes, updated session recv window by {}, target {} for {}", length, delta, sessionTarget, session);
+            }
+        }
+
+        WindowUpdateFrame streamFrame = null;
+        if (stream != null)
+        {
+            if (stream.isRemotelyClosed())
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Data consumed, {} bytes, ignoring update stream recv window for remotely closed {}", length, stream);
+            }
+            else
+            {
+                StreamWindow streamWindow = streamWindows.get(stream);
+                if (streamWindow != null)
+                    streamFrame = streamWindow.onDataConsumed(stream, length, getStreamRecvWindowTarget());
+            }
+        }
+
+        if (sessionFrame != null)
+        {
+            if (streamFrame != null)
+                session.frames(stream, Callback.NOOP, sessionFrame, streamFrame);
+            else
+                session.frames(null, Callback.NOOP, sessionFrame, Frame.EMPTY_ARRAY);
+        }
+        else if (streamFrame != null)
+        {
+            session.frames(stream, Callback.NOOP, streamFrame, Frame.EMPTY_ARRAY);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[max=%d,target=%d/%d,rtt=%dus,bdp=%d,sessionStallTime=%dms,streamsStallTime=%dms]",
+            getClass().getSimpleName(),
+            hashCode(),
+            maxWindow,
+            getSessionRecvWindowTarget(),
+            getStreamRecvWindowTarget(),
+            getRoundTripTime(),
+            getBandwidthDelayProduct(),
+            getSessionStallTime(),
+            getStreamsStallTime());
+    }
+
+    private class StreamWindow
+    {
+        private int target;
+        private int unconsumed;
+        private long lastDataTime = System.nanoTime();
+
+        private StreamWindow(int target)
+        {
+            this.target = target;
+        }
+
+        private synchronized void onDataReceived(int length)
+        {
+            unconsumed += length;
+            long now = System.nanoTime();
+            if (TimeUnit.NANOSECONDS.toMillis(now - lastDataTime) > getIdleStreamTime())
+                target = getInitialStreamRecvWindow();
+            lastDataTime = now;
+        }
+
+        private synchronized WindowUpdateFrame onDataConsumed(IStream stream, int length, int maxTarget)
+        {
+            unconsumed -= length;
+            int window = stream.updateRecvWindow(0) + unconsumed;
+            int delta = target - window;
+            if (delta > target / 2)
+            {
+                stream.updateRecvWindow(delta);
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Data consumed, {} bytes, updated stream recv window by {}, target {} for {}", length, delta, target, stream);
+                // Grow like a slow start, so only busy streams get large windows.
+                target = (int)Math.min(Math.max(maxTarget, getInitialStreamRecvWindow()), 2L * target);
+                return new WindowUpdateFrame(stream.getId(), delta);
+            }
+            return null;
+        }
+    }
+}
@@ -18,6 +18,7 @@
 
 package org.eclipse.jetty.http2;
 
+import org.eclipse.jetty.http2.frames.PingFrame;
 import org.eclipse.jetty.http2.frames.WindowUpdateFrame;
 
 public interface FlowControlStrategy
@@ -42,6 +43,18 @@ public interface FlowControlStrategy
 
     void onDataSent(IStream stream, int length);
 
+    /**
+     * <p>Invoked when a PING reply is received, before it is notified to the session listener.</p>
+     *
+     * @param session the session
+     * @param frame the PING reply
+     * @return whether the PING was sent by this strategy, in which case the session listener is not notified
+     */
+    default boolean onPingReply(ISession session, PingFrame frame)
+    {
+        return false;
+    }
+
     interface Factory
     {
         FlowControlStrategy newFlowControlStrategy();
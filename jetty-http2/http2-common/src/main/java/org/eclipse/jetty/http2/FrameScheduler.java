@@ -0,0 +1,36 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http2;
+
+/**
+ * <p>Decides how the DATA frames of concurrent streams share the writes of a session.</p>
+ * <p>{@link HTTP2Flusher} fills a write by passing repeatedly over the queued frames.
+ * In each pass, the DATA of a stream is credited with the {@link #getQuantum(IStream) quantum}
+ * returned by the scheduler and may write as many bytes as its credit, in the style of
+ * deficit round-robin, so that a large download cannot delay the other streams of the
+ * session by more than a quantum per pass.</p>
+ */
+public interface FrameScheduler
+{
+    /**
+     * @param stream the stream that has DATA to write
+     * @return the positive number of DATA bytes that the stream is credited with in each pass
+     */
+    int getQuantum(IStream stream);
+}
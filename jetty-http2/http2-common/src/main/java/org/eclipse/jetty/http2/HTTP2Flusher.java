@@ -27,6 +27,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.eclipse.jetty.http2.frames.Frame;
 import org.eclipse.jetty.http2.frames.WindowUpdateFrame;
@@ -49,6 +51,9 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
     private final Set<Entry> processedEntries = new HashSet<>();
     private final HTTP2Session session;
     private final ByteBufferPool.Lease lease;
+    private final LongAdder yields = new LongAdder();
+    private final LongAdder contendedWrites = new LongAdder();
+    private final DoubleAdder fairness = new DoubleAdder();
     private Throwable terminated;
     private Entry stalledEntry;
 
@@ -126,6 +131,30 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
         }
     }
 
+    /**
+     * @return the number of times the DATA of a stream exhausted its credit
+     * and was deferred to the next pass, after the other streams
+     * @see FrameScheduler
+     */
+    public long getYields()
+    {
+        return yields.sum();
+    }
+
+    /**
+     * <p>Returns the mean Jain's fairness index of the writes shared by two or more streams
+     * with DATA left to write, computed on the DATA bytes written by each stream divided by
+     * its quantum: 1 means that the streams shared writes exactly as the scheduler specified,
+     * 1/N that a single stream out of N used the whole write.</p>
+     *
+     * @return the mean fairness index of the writes shared by several streams
+     */
+    public double getFairness()
+    {
+        long writes = contendedWrites.sum();
+        return writes == 0 ? 1.0D : fairness.sum() / writes;
+    }
+
     @Override
     protected Action process() throws Throwable
     {
@@ -184,7 +213,7 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
 
                 try
                 {
-                    if (entry.generate(lease))
+                    if (generate(entry))
                     {
                         if (LOG.isDebugEnabled())
                             LOG.debug("Generated {} frame bytes for {}", entry.getFrameBytesGenerated(), entry);
@@ -239,6 +268,8 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
             return Action.IDLE;
         }
 
+        updateFairness();
+
         if (LOG.isDebugEnabled())
             LOG.debug("Writing {} buffers ({} bytes) - entries processed/pending {}/{}: {}/{}",
                 byteBuffers.size(),
@@ -252,6 +283,66 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
         return Action.SCHEDULED;
     }
 
+    private boolean generate(Entry entry)
+    {
+        int dataRemaining = entry.getDataBytesRemaining();
+        if (dataRemaining == 0)
+            return entry.generate(lease);
+
+        // Deficit round-robin: each pass credits the entry with
+        // the stream quantum, and the entry writes up to its credit.
+        int quantum = session.getFrameScheduler().getQuantum(entry.stream);
+        entry.quantum = quantum;
+        entry.credit = (int)Math.min(Integer.MAX_VALUE, (long)entry.credit + quantum);
+        boolean generated = false;
+        while (entry.credit > 0 && dataRemaining > 0)
+        {
+            if (!entry.generate(lease, entry.credit))
+            {
+                // Stalled by flow control, the credit does not accumulate.
+                entry.credit = 0;
+                return generated;
+            }
+            generated = true;
+            int remaining = entry.getDataBytesRemaining();
+            int dataBytes = dataRemaining - remaining;
+            entry.credit -= dataBytes;
+            entry.scheduledBytes += dataBytes;
+            dataRemaining = remaining;
+            if (dataBytes == 0)
+                break;
+        }
+        if (dataRemaining == 0)
+            entry.credit = 0;
+        else if (entry.credit <= 0)
+            yields.increment();
+        return generated;
+    }
+
+    private void updateFairness()
+    {
+        int count = 0;
+        double sum = 0;
+        double sumOfSquares = 0;
+        for (Entry entry : processedEntries)
+        {
+            int scheduled = entry.scheduledBytes;
+            entry.scheduledBytes = 0;
+            // Only the streams that have more DATA to write compete for the write.
+            if (scheduled == 0 || entry.getDataBytesRemaining() == 0)
+                continue;
+            double share = (double)scheduled / entry.quantum;
+            sum += share;
+            sumOfSquares += share * share;
+            ++count;
+        }
+        if (count > 1)
+        {
+            fairness.add(sum * sum / (count * sumOfSquares));
+            contendedWrites.increment();
+        }
+    }
+
     void onFlushed(long bytes) throws IOException
     {
         // A single EndPoint write may be flushed multiple times (for example with SSL).
@@ -382,6 +473,9 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
     {
         protected final Frame frame;
         protected final IStream stream;
+        private int quantum;
+        private int credit;
+        private int scheduledBytes;
 
         protected Entry(Frame frame, IStream stream, Callback callback)
         {
@@ -399,6 +493,19 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
 
         protected abstract boolean generate(ByteBufferPool.Lease lease);
 
+        /**
+         * <p>Generates the frames of this entry, writing at most {@code maxDataBytes}
+         * bytes of DATA, as allowed by the {@link FrameScheduler}.</p>
+         *
+         * @param lease the lease to add the generated buffers to
+         * @param maxDataBytes the max number of DATA bytes to generate
+         * @return whether bytes were generated
+         */
+        protected boolean generate(ByteBufferPool.Lease lease, int maxDataBytes)
+        {
+            return generate(lease);
+        }
+
         public abstract long onFlushed(long bytes) throws IOException;
 
         @Override
@@ -25,8 +25,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -72,7 +71,7 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
 {
     private static final Logger LOG = Log.getLogger(HTTP2Session.class);
 
-    private final ConcurrentMap<Integer, IStream> streams = new ConcurrentHashMap<>();
+    private final StreamMap streams = new StreamMap();
     private final AtomicInteger localStreamIds = new AtomicInteger();
     private final AtomicInteger lastRemoteStreamId = new AtomicInteger();
     private final AtomicInteger localStreamCount = new AtomicInteger();
@@ -87,6 +86,7 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
     private final Session.Listener listener;
     private final FlowControlStrategy flowControl;
     private final HTTP2Flusher flusher;
+    private FrameScheduler frameScheduler;
     private int maxLocalStreams;
     private int maxRemoteStreams;
     private long streamIdleTimeout;
@@ -112,6 +112,7 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
         this.sendWindow.set(FlowControlStrategy.DEFAULT_WINDOW_SIZE);
         this.recvWindow.set(FlowControlStrategy.DEFAULT_WINDOW_SIZE);
         this.writeThreshold = 32 * 1024;
+        this.frameScheduler = new WeightedFrameScheduler();
         this.pushEnabled = true; // SPEC: by default, push is enabled.
         this.idleTime = System.nanoTime();
         addBean(flowControl);
@@ -202,6 +203,29 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
         this.writeThreshold = writeThreshold;
     }
 
+    @ManagedAttribute("The scheduler of the DATA frames of concurrent streams")
+    public FrameScheduler getFrameScheduler()
+    {
+        return frameScheduler;
+    }
+
+    public void setFrameScheduler(FrameScheduler frameScheduler)
+    {
+        this.frameScheduler = Objects.requireNonNull(frameScheduler);
+    }
+
+    @ManagedAttribute("The number of times the DATA of a stream was deferred to the next pass")
+    public long getFlushYields()
+    {
+        return flusher.getYields();
+    }
+
+    @ManagedAttribute("The mean fairness index of the writes shared by several streams, from 0 to 1")
+    public double getFlushFairness()
+    {
+        return flusher.getFairness();
+    }
+
     public EndPoint getEndPoint()
     {
         return endPoint;
@@ -279,6 +303,10 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
     {
         if (LOG.isDebugEnabled())
             LOG.debug("Received {}", frame);
+
+        IStream stream = getStream(frame.getStreamId());
+        if (stream != null)
+            stream.setWeight(frame.getWeight());
     }
 
     @Override
@@ -391,7 +419,8 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
 
         if (frame.isReply())
         {
-            notifyPing(this, frame);
+            if (!flowControl.onPingReply(this, frame))
+                notifyPing(this, frame);
         }
         else
         {
@@ -772,7 +801,7 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
         }
 
         IStream stream = newStream(streamId, true);
-        if (streams.putIfAbsent(streamId, stream) == null)
+        if (streams.putIfAbsent(stream) == null)
         {
             stream.setIdleTimeout(getStreamIdleTimeout());
             flowControl.onStreamCreated(stream);
@@ -808,7 +837,7 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
         IStream stream = newStream(streamId, false);
 
         // SPEC: duplicate stream is treated as connection error.
-        if (streams.putIfAbsent(streamId, stream) == null)
+        if (streams.putIfAbsent(stream) == null)
         {
             updateLastRemoteStreamId(streamId);
             stream.setIdleTimeout(getStreamIdleTimeout());
@@ -1399,6 +1428,12 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
 
         @Override
         protected boolean generate(ByteBufferPool.Lease lease)
+        {
+            return generate(lease, Integer.MAX_VALUE);
+        }
+
+        @Override
+        protected boolean generate(ByteBufferPool.Lease lease, int maxDataBytes)
         {
             int dataRemaining = getDataBytesRemaining();
 
@@ -1408,7 +1443,7 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
             if (window <= 0 && dataRemaining > 0)
                 return false;
 
-            int length = Math.min(dataRemaining, window);
+            int length = Math.min(dataRemaining, Math.min(window, maxDataBytes));
 
             // Only one DATA frame is generated.
             DataFrame dataFrame = (DataFrame)frame;
@@ -36,6 +36,7 @@ import org.eclipse.jetty.http2.frames.DataFrame;
 import org.eclipse.jetty.http2.frames.FailureFrame;
 import org.eclipse.jetty.http2.frames.Frame;
 import org.eclipse.jetty.http2.frames.HeadersFrame;
+import org.eclipse.jetty.http2.frames.PriorityFrame;
 import org.eclipse.jetty.http2.frames.PushPromiseFrame;
 import org.eclipse.jetty.http2.frames.ResetFrame;
 import org.eclipse.jetty.http2.frames.WindowUpdateFrame;
@@ -65,6 +66,7 @@ public class HTTP2Stream extends IdleTimeout implements IStream, Callback, Dumpa
     private Listener listener;
     private boolean remoteReset;
     private long dataLength;
+    private volatile int weight;
 
     public HTTP2Stream(Scheduler scheduler, ISession session, int streamId, boolean local)
     {
@@ -73,6 +75,7 @@ public class HTTP2Stream extends IdleTimeout implements IStream, Callback, Dumpa
         this.streamId = streamId;
         this.local = local;
         this.dataLength = Long.MIN_VALUE;
+        this.weight = PriorityFrame.DEFAULT_WEIGHT;
     }
 
     @Override
@@ -99,6 +102,18 @@ public class HTTP2Stream extends IdleTimeout implements IStream, Callback, Dumpa
         return local;
     }
 
+    @Override
+    public int getWeight()
+    {
+        return weight;
+    }
+
+    @Override
+    public void setWeight(int weight)
+    {
+        this.weight = weight;
+    }
+
     @Override
     public ISession getSession()
     {
@@ -276,6 +291,10 @@ public class HTTP2Stream extends IdleTimeout implements IStream, Callback, Dumpa
 
     private void onHeaders(HeadersFrame frame, Callback callback)
     {
+        PriorityFrame priority = frame.getPriority();
+        if (priority != null)
+            setWeight(priority.getWeight());
+
         MetaData metaData = frame.getMetaData();
         if (metaData.isRequest() || metaData.isResponse())
         {
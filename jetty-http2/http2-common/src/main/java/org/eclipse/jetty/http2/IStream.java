@@ -49,6 +49,18 @@ public interface IStream extends Stream, Closeable
      */
     boolean isLocal();
 
+    /**
+     * @return the weight of this stream, from 1 to 256, as last specified by the remote peer
+     * @see #setWeight(int)
+     */
+    int getWeight();
+
+    /**
+     * @param weight the weight of this stream, from 1 to 256
+     * @see #getWeight()
+     */
+    void setWeight(int weight);
+
     @Override
     ISession getSession();
 
@@ -0,0 +1,213 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>A concurrent map of the streams of a session, keyed by the primitive stream id.</p>
+ * <p>The streams are stored in an open-addressing table with linear probing, so that
+ * lookups do not box the stream id and insertions do not allocate a map node.
+ * Lookups do not lock, while modifications are serialized: removed streams leave a
+ * tombstone rather than shifting the other streams, so that a concurrent lookup never
+ * misses a stream that is in the map, and the tombstones are purged when the table
+ * is rebuilt.</p>
+ */
+public class StreamMap
+{
+    private static final Object TOMBSTONE = new Object();
+
+    private volatile AtomicReferenceArray<Object> table;
+    private int size;
+    private int used;
+
+    public StreamMap()
+    {
+        this(16);
+    }
+
+    public StreamMap(int capacity)
+    {
+        int length = 8;
+        while (length < 2 * capacity)
+        {
+            length <<= 1;
+        }
+        table = new AtomicReferenceArray<>(length);
+    }
+
+    private static int index(int streamId, int mask)
+    {
+        // Stream ids are sequential and all odd or all even, spread them.
+        int hash = streamId * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * @param streamId the stream id
+     * @return the stream with the given id, or null if there is no such stream
+     */
+    public IStream get(int streamId)
+    {
+        AtomicReferenceArray<Object> table = this.table;
+        int mask = table.length() - 1;
+        int index = index(streamId, mask);
+        while (true)
+        {
+            Object value = table.get(index);
+            if (value == null)
+                return null;
+            if (value != TOMBSTONE && ((IStream)value).getId() == streamId)
+                return (IStream)value;
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * @param stream the stream to add
+     * @return the stream with the same id already in the map, or null if the given stream was added
+     */
+    public synchronized IStream putIfAbsent(IStream stream)
+    {
+        int streamId = stream.getId();
+        AtomicReferenceArray<Object> table = this.table;
+        int mask = table.length() - 1;
+        int index = index(streamId, mask);
+        int tombstone = -1;
+        while (true)
+        {
+            Object value = table.get(index);
+            if (value == null)
+                break;
+            if (value == TOMBSTONE)
+            {
+                if (tombstone < 0)
+                    tombstone = index;
+            }
+            else if (((IStream)value).getId() == streamId)
+            {
+                return (IStream)value;
+            }
+            index = (index + 1) & mask;
+        }
+
+        if (tombstone >= 0)
+        {
+            table.set(tombstone, stream);
+        }
+        else
+        {
+            table.set(index, stream);
+            ++used;
+        }
+        ++size;
+
+        // Keep at least half of the slots empty so that the probes are short.
+        if (2 * used > table.length())
+            rebuild(2 * size > table.length() / 2 ? 2 * table.length() : table.length());
+        return null;
+    }
+
+    /**
+     * @param streamId the id of the stream to remove
+     * @return the removed stream, or null if there was no stream with the given id
+     */
+    public synchronized IStream remove(int streamId)
+    {
+        AtomicReferenceArray<Object> table = this.table;
+        int mask = table.length() - 1;
+        int index = index(streamId, mask);
+        while (true)
+        {
+            Object value = table.get(index);
+            if (value == null)
+                return null;
+            if (value != TOMBSTONE && ((IStream)value).getId() == streamId)
+            {
+                table.set(index, TOMBSTONE);
+                --size;
+                return (IStream)value;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private void rebuild(int length)
+    {
+        AtomicReferenceArray<Object> oldTable = this.table;
+        AtomicReferenceArray<Object> newTable = new AtomicReferenceArray<>(length);
+        int mask = length - 1;
+        for (int i = 0; i < oldTable.length(); ++i)
+        {
+            Object value = oldTable.get(i);
+            if (value == null || value == TOMBSTONE)
+                continue;
+            int index = index(((IStream)value).getId(), mask);
+            while (newTable.get(index) != null)
+            {
+                index = (index + 1) & mask;
+            }
+            newTable.set(index, value);
+        }
+        used = size;
+        this.table = newTable;
+    }
+
+    /**
+     * @return the number of streams in the map
+     */
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    /**
+     * @return a snapshot of the streams in the map
+     */
+    public List<IStream> values()
+    {
+        AtomicReferenceArray<Object> table = this.table;
+        List<IStream> result = new ArrayList<>();
+        for (int i = 0; i < table.length(); ++i)
+        {
+            Object value = table.get(i);
+            if (value != null && value != TOMBSTONE)
+                result.add((IStream)value);
+        }
+        return result;
+    }
+
+    /**
+     * <p>Removes all the streams from the map.</p>
+     */
+    public synchronized void clear()
+    {
+        table = new AtomicReferenceArray<>(table.length());
+        size = 0;
+        used = 0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[size=%d]", getClass().getSimpleName(), hashCode(), size());
+    }
+}
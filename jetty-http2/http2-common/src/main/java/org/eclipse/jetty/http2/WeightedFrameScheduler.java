@@ -0,0 +1,77 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http2;
+
+import org.eclipse.jetty.http2.frames.Frame;
+import org.eclipse.jetty.http2.frames.PriorityFrame;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+
+/**
+ * <p>A {@link FrameScheduler} that credits every stream with the same quantum or,
+ * when priorities are honoured, with a quantum proportional to the stream weight
+ * specified by the remote peer, where the default weight of 16 gets the base quantum.</p>
+ * <p>Stream dependencies are not taken into account.</p>
+ */
+@ManagedObject
+public class WeightedFrameScheduler implements FrameScheduler
+{
+    private final int quantum;
+    private final boolean honourPriorities;
+
+    public WeightedFrameScheduler()
+    {
+        this(Frame.DEFAULT_MAX_LENGTH, false);
+    }
+
+    public WeightedFrameScheduler(int quantum, boolean honourPriorities)
+    {
+        if (quantum <= 0)
+            throw new IllegalArgumentException("Invalid quantum: " + quantum);
+        this.quantum = quantum;
+        this.honourPriorities = honourPriorities;
+    }
+
+    @ManagedAttribute(value = "The number of DATA bytes a stream of default weight writes in each pass", readonly = true)
+    public int getQuantum()
+    {
+        return quantum;
+    }
+
+    @ManagedAttribute(value = "Whether the stream weights are honoured", readonly = true)
+    public boolean isHonourPriorities()
+    {
+        return honourPriorities;
+    }
+
+    @Override
+    public int getQuantum(IStream stream)
+    {
+        if (!honourPriorities)
+            return quantum;
+        long weighted = (long)quantum * stream.getWeight() / PriorityFrame.DEFAULT_WEIGHT;
+        return (int)Math.max(1, Math.min(Integer.MAX_VALUE, weighted));
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[quantum=%d,priorities=%b]", getClass().getSimpleName(), hashCode(), quantum, honourPriorities);
+    }
+}
@@ -0,0 +1,197 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jetty.http2.api.Session;
+import org.eclipse.jetty.http2.frames.Frame;
+import org.eclipse.jetty.http2.frames.HeadersFrame;
+import org.eclipse.jetty.http2.frames.PingFrame;
+import org.eclipse.jetty.http2.frames.PushPromiseFrame;
+import org.eclipse.jetty.http2.frames.ResetFrame;
+import org.eclipse.jetty.http2.frames.WindowUpdateFrame;
+import org.eclipse.jetty.http2.generator.Generator;
+import org.eclipse.jetty.io.ByteArrayEndPoint;
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.eclipse.jetty.util.Callback;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+public class BDPFlowControlStrategyTest
+{
+    private static final int CHUNK = 16383;
+
+    private final List<WindowUpdateFrame> windowUpdates = new ArrayList<>();
+    private BDPFlowControlStrategy strategy;
+    private HTTP2Session session;
+    private HTTP2Stream stream;
+    private PingFrame ping;
+    private int unconsumed;
+
+    @BeforeEach
+    public void prepare()
+    {
+        strategy = new BDPFlowControlStrategy(1024 * 1024);
+        session = new HTTP2Session(null, new ByteArrayEndPoint(), new Generator(new MappedByteBufferPool()), new Session.Listener.Adapter(), strategy, 1)
+        {
+            @Override
+            public void onHeaders(HeadersFrame frame)
+            {
+            }
+
+            @Override
+            public void onPushPromise(PushPromiseFrame frame)
+            {
+            }
+
+            @Override
+            protected void onResetForUnknownStream(ResetFrame frame)
+            {
+            }
+
+            @Override
+            public void ping(PingFrame frame, Callback callback)
+            {
+                ping = frame;
+                callback.succeeded();
+            }
+
+            @Override
+            public void frames(IStream stream, Callback callback, Frame frame, Frame... frames)
+            {
+                windowUpdates.add((WindowUpdateFrame)frame);
+                for (Frame f : frames)
+                {
+                    windowUpdates.add((WindowUpdateFrame)f);
+                }
+                callback.succeeded();
+            }
+        };
+        stream = new HTTP2Stream(null, session, 1, true);
+        strategy.onStreamCreated(stream);
+    }
+
+    private void receive(int length)
+    {
+        unconsumed += length;
+        strategy.onDataReceived(session, stream, length);
+    }
+
+    private void consume(int length)
+    {
+        unconsumed -= length;
+        strategy.onDataConsumed(session, stream, length);
+    }
+
+    private void pingReply()
+    {
+        assertThat(ping, notNullValue());
+        PingFrame reply = new PingFrame(ping.getPayloadAsLong(), true);
+        ping = null;
+        strategy.onPingReply(session, reply);
+    }
+
+    private WindowUpdateFrame pollWindowUpdate(int streamId)
+    {
+        for (int i = 0; i < windowUpdates.size(); ++i)
+        {
+            if (windowUpdates.get(i).getStreamId() == streamId)
+                return windowUpdates.remove(i);
+        }
+        return null;
+    }
+
+    private void growWindows()
+    {
+        // The sender fills the initial window during a round trip.
+        for (int i = 0; i < 4; ++i)
+        {
+            receive(CHUNK);
+        }
+        pingReply();
+        assertThat(strategy.getSessionRecvWindowTarget(), is(8 * CHUNK));
+        assertThat(strategy.getStreamRecvWindowTarget(), is(8 * CHUNK));
+        for (int i = 0; i < 4; ++i)
+        {
+            consume(CHUNK);
+        }
+    }
+
+    @Test
+    public void testSessionWindowShrinksWhenBDPDrops()
+    {
+        growWindows();
+        assertThat(session.getRecvWindow() + unconsumed, greaterThanOrEqualTo(strategy.getSessionRecvWindowTarget() / 2));
+
+        // The sender only sends a little during the next round trip.
+        receive(1024);
+        pingReply();
+        int target = strategy.getSessionRecvWindowTarget();
+        assertThat(target, is(FlowControlStrategy.DEFAULT_WINDOW_SIZE));
+        assertThat(strategy.getStreamRecvWindowTarget(), is(FlowControlStrategy.DEFAULT_WINDOW_SIZE));
+        consume(1024);
+        windowUpdates.clear();
+
+        // The window larger than the target is not replenished while the sender uses it.
+        WindowUpdateFrame update = null;
+        while (update == null)
+        {
+            int window = session.getRecvWindow() + unconsumed;
+            assertThat(window, greaterThanOrEqualTo(target / 2));
+            receive(CHUNK);
+            consume(CHUNK);
+            update = pollWindowUpdate(0);
+        }
+
+        // The update brings the window back to the new target, not to the old one.
+        assertThat(session.getRecvWindow() + unconsumed, is(target));
+    }
+
+    @Test
+    public void testStreamWindowShrinksWhenIdle() throws Exception
+    {
+        growWindows();
+        windowUpdates.clear();
+        assertThat(stream.getRecvWindow() + unconsumed, is(strategy.getStreamRecvWindowTarget()));
+
+        strategy.setIdleStreamTime(1);
+        Thread.sleep(10);
+
+        // The stream target goes back to the initial stream window, and the
+        // window is not replenished until the sender has used the excess.
+        int target = strategy.getInitialStreamRecvWindow();
+        WindowUpdateFrame update = null;
+        while (update == null)
+        {
+            int window = stream.getRecvWindow() + unconsumed;
+            assertThat(window, greaterThanOrEqualTo(target / 2));
+            receive(CHUNK);
+            consume(CHUNK);
+            update = pollWindowUpdate(stream.getId());
+        }
+        assertThat(stream.getRecvWindow() + unconsumed, is(target));
+    }
+}
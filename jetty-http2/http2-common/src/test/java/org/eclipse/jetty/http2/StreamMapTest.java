@@ -0,0 +1,148 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http2;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StreamMapTest
+{
+    private static IStream newStream(int streamId)
+    {
+        return new HTTP2Stream(null, null, streamId, false);
+    }
+
+    @Test
+    public void testPutGetRemove()
+    {
+        StreamMap map = new StreamMap();
+        IStream stream1 = newStream(1);
+        IStream stream3 = newStream(3);
+
+        assertNull(map.putIfAbsent(stream1));
+        assertNull(map.putIfAbsent(stream3));
+        assertSame(stream1, map.putIfAbsent(newStream(1)));
+        assertThat(map.size(), is(2));
+        assertSame(stream1, map.get(1));
+        assertSame(stream3, map.get(3));
+        assertNull(map.get(5));
+        assertThat(map.values(), containsInAnyOrder(stream1, stream3));
+
+        assertSame(stream1, map.remove(1));
+        assertNull(map.remove(1));
+        assertNull(map.get(1));
+        assertSame(stream3, map.get(3));
+        assertThat(map.size(), is(1));
+
+        map.clear();
+        assertNull(map.get(3));
+        assertThat(map.size(), is(0));
+    }
+
+    @Test
+    public void testSlidingWindowOfStreams()
+    {
+        // Streams are created with increasing ids and closed
+        // in random order, leaving many tombstones behind.
+        StreamMap map = new StreamMap(4);
+        Map<Integer, IStream> expected = new HashMap<>();
+        Random random = new Random();
+        int streamId = 1;
+        for (int i = 0; i < 100_000; ++i)
+        {
+            if (expected.size() < 100 && random.nextBoolean())
+            {
+                IStream stream = newStream(streamId);
+                assertNull(map.putIfAbsent(stream));
+                expected.put(streamId, stream);
+                streamId += 2;
+            }
+            else if (!expected.isEmpty())
+            {
+                int id = 2 * random.nextInt(streamId / 2) + 1;
+                assertSame(expected.remove(id), map.remove(id));
+            }
+            assertThat(map.size(), is(expected.size()));
+        }
+
+        for (int id = 1; id < streamId; id += 2)
+        {
+            assertSame(expected.get(id), map.get(id));
+        }
+    }
+
+    @Test
+    public void testConcurrentLookupsDoNotMissStreams() throws Exception
+    {
+        StreamMap map = new StreamMap(4);
+        // Even ids stay in the map, while odd ids are added and removed.
+        int stable = 64;
+        for (int i = 0; i < stable; ++i)
+        {
+            map.putIfAbsent(newStream(2 * i));
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger misses = new AtomicInteger();
+        int readers = 4;
+        CountDownLatch latch = new CountDownLatch(readers);
+        for (int r = 0; r < readers; ++r)
+        {
+            new Thread(() ->
+            {
+                Random random = new Random();
+                while (running.get())
+                {
+                    int id = 2 * random.nextInt(stable);
+                    IStream stream = map.get(id);
+                    if (stream == null || stream.getId() != id)
+                        misses.incrementAndGet();
+                }
+                latch.countDown();
+            }).start();
+        }
+
+        int streamId = 1;
+        for (int i = 0; i < 200_000; ++i)
+        {
+            map.putIfAbsent(newStream(streamId));
+            if (streamId > 50)
+                map.remove(streamId - 50);
+            streamId += 2;
+        }
+        running.set(false);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertThat(misses.get(), is(0));
+    }
+}
@@ -30,7 +30,6 @@ import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpMethod;
 import org.eclipse.jetty.http.HttpScheme;
 import org.eclipse.jetty.util.ArrayTernaryTrie;
-import org.eclipse.jetty.util.StringUtil;
 import org.eclipse.jetty.util.Trie;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
@@ -190,8 +189,8 @@ public class HpackContext
     private int _maxDynamicTableSizeInBytes;
     private int _dynamicTableSizeInBytes;
     private final DynamicTable _dynamicTable;
-    private final Map<HttpField, Entry> _fieldMap = new HashMap<>();
-    private final Map<String, Entry> _nameMap = new HashMap<>();
+    private final EntryTable _fieldTable = new EntryTable(false);
+    private final EntryTable _nameTable = new EntryTable(true);
 
     HpackContext(int maxDynamicTableSize)
     {
@@ -212,7 +211,7 @@ public class HpackContext
 
     public Entry get(HttpField field)
     {
-        Entry entry = _fieldMap.get(field);
+        Entry entry = _fieldTable.get(field);
         if (entry == null)
             entry = __staticFieldMap.get(field);
         return entry;
@@ -223,7 +222,7 @@ public class HpackContext
         Entry entry = __staticNameMap.get(name);
         if (entry != null)
             return entry;
-        return _nameMap.get(StringUtil.asciiToLowerCase(name));
+        return _nameTable.get(name);
     }
 
     public Entry get(int index)
@@ -260,8 +259,8 @@ public class HpackContext
         }
         _dynamicTableSizeInBytes += size;
         _dynamicTable.add(entry);
-        _fieldMap.put(field, entry);
-        _nameMap.put(StringUtil.asciiToLowerCase(field.getName()), entry);
+        _fieldTable.put(entry);
+        _nameTable.put(entry);
 
         if (LOG.isDebugEnabled())
             LOG.debug(String.format("HdrTbl[%x] added %s", hashCode(), entry));
@@ -382,10 +381,8 @@ public class HpackContext
                     LOG.debug(String.format("HdrTbl[%x] evict %s", HpackContext.this.hashCode(), entry));
                 _dynamicTableSizeInBytes -= entry.getSize();
                 entry._slot = -1;
-                _fieldMap.remove(entry.getHttpField());
-                String lc = StringUtil.asciiToLowerCase(entry.getHttpField().getName());
-                if (entry == _nameMap.get(lc))
-                    _nameMap.remove(lc);
+                _fieldTable.remove(entry);
+                _nameTable.remove(entry);
             }
             if (LOG.isDebugEnabled())
                 LOG.debug(String.format("HdrTbl[%x] entries=%d, size=%d, max=%d", HpackContext.this.hashCode(), _dynamicTable.size(), _dynamicTableSizeInBytes, _maxDynamicTableSizeInBytes));
@@ -395,8 +392,8 @@ public class HpackContext
         {
             if (LOG.isDebugEnabled())
                 LOG.debug(String.format("HdrTbl[%x] evictAll", HpackContext.this.hashCode()));
-            _fieldMap.clear();
-            _nameMap.clear();
+            _fieldTable.clear();
+            _nameTable.clear();
             _offset = 0;
             _size = 0;
             _dynamicTableSizeInBytes = 0;
@@ -404,20 +401,174 @@ public class HpackContext
         }
     }
 
+    /**
+     * <p>An open addressing hash table, with linear probing, of the entries of the
+     * dynamic table, that looks up entries either by field or by case insensitive
+     * name without allocating.</p>
+     * <p>An entry replaces any entry with the same key, and is removed only if it is
+     * still the entry mapped to its key.</p>
+     */
+    private static class EntryTable
+    {
+        private final boolean _byName;
+        private Entry[] _slots = new Entry[32];
+        private int _size;
+
+        private EntryTable(boolean byName)
+        {
+            _byName = byName;
+        }
+
+        private int hash(Entry entry)
+        {
+            return _byName ? entry._nameHash : entry._fieldHash;
+        }
+
+        private int slot(int hash)
+        {
+            return (hash ^ (hash >>> 16)) & (_slots.length - 1);
+        }
+
+        public Entry get(HttpField field)
+        {
+            int hash = field.hashCode();
+            for (int i = slot(hash); ; i = (i + 1) & (_slots.length - 1))
+            {
+                Entry entry = _slots[i];
+                if (entry == null)
+                    return null;
+                if (entry._fieldHash == hash && entry._field.equals(field))
+                    return entry;
+            }
+        }
+
+        public Entry get(String name)
+        {
+            int hash = nameHash(name);
+            for (int i = slot(hash); ; i = (i + 1) & (_slots.length - 1))
+            {
+                Entry entry = _slots[i];
+                if (entry == null)
+                    return null;
+                if (entry._nameHash == hash && entry._field.getName().equalsIgnoreCase(name))
+                    return entry;
+            }
+        }
+
+        private int find(Entry entry)
+        {
+            int hash = hash(entry);
+            for (int i = slot(hash); ; i = (i + 1) & (_slots.length - 1))
+            {
+                Entry e = _slots[i];
+                if (e == null)
+                    return -1;
+                if (hash(e) == hash && (_byName ? e._field.getName().equalsIgnoreCase(entry._field.getName()) : e._field.equals(entry._field)))
+                    return i;
+            }
+        }
+
+        public void put(Entry entry)
+        {
+            int i = find(entry);
+            if (i >= 0)
+            {
+                _slots[i] = entry;
+                return;
+            }
+
+            if (2 * (_size + 1) > _slots.length)
+            {
+                Entry[] slots = _slots;
+                _slots = new Entry[2 * slots.length];
+                for (Entry e : slots)
+                {
+                    if (e != null)
+                        insert(e);
+                }
+            }
+            insert(entry);
+            _size++;
+        }
+
+        private void insert(Entry entry)
+        {
+            int i = slot(hash(entry));
+            while (_slots[i] != null)
+            {
+                i = (i + 1) & (_slots.length - 1);
+            }
+            _slots[i] = entry;
+        }
+
+        public void remove(Entry entry)
+        {
+            int i = find(entry);
+            if (i < 0 || _slots[i] != entry)
+                return;
+
+            // Shift back the following entries of the probe sequence, so that they remain reachable.
+            int mask = _slots.length - 1;
+            _slots[i] = null;
+            _size--;
+            for (int j = (i + 1) & mask; _slots[j] != null; j = (j + 1) & mask)
+            {
+                int k = slot(hash(_slots[j]));
+                boolean reachable = i <= j ? (i < k && k <= j) : (i < k || k <= j);
+                if (!reachable)
+                {
+                    _slots[i] = _slots[j];
+                    _slots[j] = null;
+                    i = j;
+                }
+            }
+        }
+
+        public void clear()
+        {
+            Arrays.fill(_slots, null);
+            _size = 0;
+        }
+    }
+
+    /**
+     * @param name the header name
+     * @return a case insensitive hash of the name, consistent with {@link String#equalsIgnoreCase(String)}
+     * for US-ASCII names
+     */
+    static int nameHash(String name)
+    {
+        int hash = 0;
+        for (int i = 0; i < name.length(); i++)
+        {
+            char c = name.charAt(i);
+            if (c >= 'A' && c <= 'Z')
+                c += 0x20;
+            hash = 31 * hash + c;
+        }
+        return hash;
+    }
+
     public static class Entry
     {
         final HttpField _field;
+        final int _fieldHash;
+        final int _nameHash;
         int _slot; // The index within it's array
 
         Entry()
         {
             _slot = -1;
             _field = null;
+            _fieldHash = 0;
+            _nameHash = 0;
         }
 
         Entry(HttpField field)
         {
             _field = field;
+            _fieldHash = field.hashCode();
+            _nameHash = nameHash(field.getName());
         }
 
         public int getSize()
@@ -19,6 +19,7 @@
 package org.eclipse.jetty.http2.hpack;
 
 import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -26,6 +27,7 @@ import java.util.stream.Collectors;
 import org.eclipse.jetty.http.HttpField;
 import org.eclipse.jetty.http.HttpFields;
 import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpMethod;
 import org.eclipse.jetty.http.HttpScheme;
 import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.http.HttpVersion;
@@ -50,10 +52,14 @@ public class HpackEncoder
             HttpHeader.CONTENT_MD5,
             HttpHeader.PROXY_AUTHENTICATE,
             HttpHeader.PROXY_AUTHORIZATION);
+    /**
+     * The headers whose values usually change, that are indexed only once
+     * their value has been repeated on the connection.
+     */
     static final EnumSet<HttpHeader> __DO_NOT_INDEX =
         EnumSet.of(
-            // HttpHeader.C_PATH,  // TODO more data needed
-            // HttpHeader.DATE,    // TODO more data needed
+            HttpHeader.C_PATH,
+            HttpHeader.DATE,
             HttpHeader.AUTHORIZATION,
             HttpHeader.CONTENT_MD5,
             HttpHeader.CONTENT_RANGE,
@@ -68,13 +74,24 @@ public class HpackEncoder
             HttpHeader.RETRY_AFTER,
             // HttpHeader.EXPIRES,
             HttpHeader.LAST_MODIFIED,
+            HttpHeader.COOKIE,
+            HttpHeader.PROXY_AUTHORIZATION,
             HttpHeader.SET_COOKIE,
             HttpHeader.SET_COOKIE2);
+    /**
+     * The headers whose values are sensitive or high entropy, that are never indexed.
+     */
     static final EnumSet<HttpHeader> __NEVER_INDEX =
         EnumSet.of(
             HttpHeader.AUTHORIZATION,
+            HttpHeader.COOKIE,
+            HttpHeader.PROXY_AUTHORIZATION,
             HttpHeader.SET_COOKIE,
             HttpHeader.SET_COOKIE2);
+    private static final int SEEN_FIELDS = 256;
+    private static final HttpField C_SCHEME_HTTP = new HttpField(HttpHeader.C_SCHEME, HttpScheme.HTTP.asString());
+    private static final HttpField C_SCHEME_HTTPS = new HttpField(HttpHeader.C_SCHEME, HttpScheme.HTTPS.asString());
+    private static final HttpField[] __methods = new HttpField[HttpMethod.values().length];
     private static final PreEncodedHttpField CONNECTION_TE = new PreEncodedHttpField(HttpHeader.CONNECTION, "te");
     private static final PreEncodedHttpField TE_TRAILERS = new PreEncodedHttpField(HttpHeader.TE, "trailers");
     private static final Trie<Boolean> specialHopHeaders = new ArrayTrie<>(6);
@@ -85,11 +102,16 @@ public class HpackEncoder
         {
             __status[code.getCode()] = new PreEncodedHttpField(HttpHeader.C_STATUS, Integer.toString(code.getCode()));
         }
+        for (HttpMethod method : HttpMethod.values())
+        {
+            __methods[method.ordinal()] = new HttpField(HttpHeader.C_METHOD, method.asString());
+        }
         specialHopHeaders.put("close", true);
         specialHopHeaders.put("te", true);
     }
 
     private final HpackContext _context;
+    private final int[] _seenFields = new int[SEEN_FIELDS];
     private final boolean _debug;
     private int _remoteMaxDynamicTableSize;
     private int _localMaxDynamicTableSize;
@@ -163,10 +185,21 @@ public class HpackEncoder
         {
             MetaData.Request request = (MetaData.Request)metadata;
 
-            // TODO optimise these to avoid HttpField creation
             String scheme = request.getURI().getScheme();
-            encode(buffer, new HttpField(HttpHeader.C_SCHEME, scheme == null ? HttpScheme.HTTP.asString() : scheme));
-            encode(buffer, new HttpField(HttpHeader.C_METHOD, request.getMethod()));
+            HttpField schemeField;
+            if (scheme == null || HttpScheme.HTTP.asString().equals(scheme))
+                schemeField = C_SCHEME_HTTP;
+            else if (HttpScheme.HTTPS.asString().equals(scheme))
+                schemeField = C_SCHEME_HTTPS;
+            else
+                schemeField = new HttpField(HttpHeader.C_SCHEME, scheme);
+            encode(buffer, schemeField);
+            String method = request.getMethod();
+            HttpMethod httpMethod = HttpMethod.CACHE.get(method);
+            if (httpMethod != null && httpMethod.asString().equals(method))
+                encode(buffer, __methods[httpMethod.ordinal()]);
+            else
+                encode(buffer, new HttpField(HttpHeader.C_METHOD, method));
             encode(buffer, new HttpField(HttpHeader.C_AUTHORITY, request.getURI().getAuthority()));
             encode(buffer, new HttpField(HttpHeader.C_PATH, request.getURI().getPathQuery()));
         }
@@ -184,7 +217,7 @@ public class HpackEncoder
         HttpFields fields = metadata.getFields();
         if (fields != null)
         {
-            Set<String> hopHeaders = fields.getCSV(HttpHeader.CONNECTION, false).stream()
+            Set<String> hopHeaders = !fields.contains(HttpHeader.CONNECTION) ? Collections.emptySet() : fields.getCSV(HttpHeader.CONNECTION, false).stream()
                 .filter(v -> specialHopHeaders.get(v) == Boolean.TRUE)
                 .map(StringUtil::asciiToLowerCase)
                 .collect(Collectors.toSet());
@@ -293,6 +326,15 @@ public class HpackEncoder
                     if (_debug)
                         encoding = "LitHuffNHuffVIdx";
                 }
+                else if (fieldSize < _context.getMaxDynamicTableSize() && isRepeated(field))
+                {
+                    // known custom name, with a value repeated on this connection, so index.
+                    indexed = true;
+                    encodeName(buffer, (byte)0x40, 6, field.getName(), name);
+                    encodeValue(buffer, true, field.getValue());
+                    if (_debug)
+                        encoding = "LitIdxN" + (1 + NBitInteger.octectsNeeded(6, _context.index(name))) + "HuffVIdx";
+                }
                 else
                 {
                     // known custom name, but unknown value.
@@ -319,9 +361,9 @@ public class HpackEncoder
                     if (_debug)
                         encoding = indexed ? "PreEncodedIdx" : "PreEncoded";
                 }
-                else if (__DO_NOT_INDEX.contains(header))
+                else if (__NEVER_INDEX.contains(header) || __DO_NOT_INDEX.contains(header) && (fieldSize >= _context.getMaxDynamicTableSize() || !isRepeated(field)))
                 {
-                    // Non indexed field
+                    // Non indexed field, unless its value is repeated on this connection
                     indexed = false;
                     boolean neverIndex = __NEVER_INDEX.contains(header);
                     boolean huffman = !__DO_NOT_HUFFMAN.contains(header);
@@ -334,9 +376,9 @@ public class HpackEncoder
                             (huffman ? "HuffV" : "LitV") +
                             (neverIndex ? "!!Idx" : "!Idx");
                 }
-                else if (fieldSize >= _context.getMaxDynamicTableSize() || header == HttpHeader.CONTENT_LENGTH && field.getValue().length() > 2)
+                else if (fieldSize >= _context.getMaxDynamicTableSize() || header == HttpHeader.CONTENT_LENGTH && field.getValue().length() > 2 && !isRepeated(field))
                 {
-                    // Non indexed if field too large or a content length for 3 digits or more
+                    // Non indexed if field too large or a content length for 3 digits or more not repeated on this connection
                     indexed = false;
                     encodeName(buffer, (byte)0x00, 4, header.asString(), name);
                     encodeValue(buffer, true, field.getValue());
@@ -369,6 +411,26 @@ public class HpackEncoder
         }
     }
 
+    /**
+     * <p>Records the given field as seen on this connection, in a small direct mapped table
+     * of field hashes that does not allocate.</p>
+     *
+     * @param field the field
+     * @return whether the field, or a field with the same hash, has been seen before
+     */
+    private boolean isRepeated(HttpField field)
+    {
+        int hash = field.hashCode();
+        // The table is initialized with zeros, which mean an empty slot.
+        if (hash == 0)
+            hash = 1;
+        int slot = (hash ^ (hash >>> 16)) & (SEEN_FIELDS - 1);
+        if (_seenFields[slot] == hash)
+            return true;
+        _seenFields[slot] = hash;
+        return false;
+    }
+
     private void encodeName(ByteBuffer buffer, byte mask, int bits, String name, Entry entry)
     {
         buffer.put(mask);
@@ -19,6 +19,8 @@
 package org.eclipse.jetty.http2.hpack;
 
 import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.Random;
 
 import org.eclipse.jetty.http.HttpField;
 import org.eclipse.jetty.http2.hpack.HpackContext.Entry;
@@ -450,4 +452,36 @@ public class HpackContextTest
         assertEquals("Wibble", ctx.get("wibble").getHttpField().getName());
         assertEquals("Wibble", ctx.get("Wibble").getHttpField().getName());
     }
+
+    @Test
+    public void testLookupsAfterManyEvictions()
+    {
+        HpackContext ctx = new HpackContext(1024);
+        Random random = new Random();
+        for (int i = 0; i < 10000; i++)
+        {
+            ctx.add(new HttpField("name" + random.nextInt(50), "value" + random.nextInt(20)));
+
+            // Every entry of the dynamic table can be looked up by field and by name.
+            for (int index = HpackContext.STATIC_SIZE + 1; index <= HpackContext.STATIC_SIZE + ctx.size(); index++)
+            {
+                HttpField field = ctx.get(index).getHttpField();
+                Entry byField = ctx.get(field);
+                assertNotNull(byField);
+                assertEquals(field, byField.getHttpField());
+                Entry byName = ctx.get(field.getName().toUpperCase(Locale.ENGLISH));
+                assertNotNull(byName);
+                assertEquals(field.getName(), byName.getHttpField().getName());
+                assertTrue(ctx.index(byName) > HpackContext.STATIC_SIZE);
+            }
+        }
+
+        // The evicted entries cannot be looked up.
+        ctx.resize(0);
+        assertEquals(0, ctx.size());
+        for (int i = 0; i < 50; i++)
+        {
+            assertNull(ctx.get("name" + i));
+        }
+    }
 }
@@ -0,0 +1,521 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.component.DumpableCollection;
+
+/**
+ * <p>A {@link ByteBufferPool} that carves direct ByteBuffers out of large direct slabs.</p>
+ * <p>Rather than allocating each pooled direct ByteBuffer with its own native allocation
+ * (and its own {@code Cleaner}), this pool allocates direct slabs of {@code slabSize}
+ * bytes (by default 4 MiB) and slices each slab into chunks of the same capacity.
+ * Given a capacity {@code factor} of 1024, chunks of capacity 1024 are carved from
+ * one set of slabs, chunks of capacity 2048 from another set of slabs, and so on.</p>
+ * <p>Idle slabs, whose chunks are all released, are reclaimed once more than twice
+ * {@code maxIdleSlabs} idle slabs of the same capacity exist, until {@code maxIdleSlabs}
+ * idle slabs remain, so that the off-heap footprint of this pool is bounded by the number
+ * of chunks in use, without reclaiming and allocating a slab each time the number of
+ * chunks in use crosses a slab boundary.</p>
+ * <p>Heap ByteBuffers, and direct ByteBuffers larger than {@code maxCapacity},
+ * are delegated to another ByteBufferPool.</p>
+ * <p>Reference counting is available via {@link #acquireRetainable(int)}, that
+ * returns a {@link RetainableByteBuffer} that is released to this pool when its
+ * reference count reaches zero.</p>
+ */
+@ManagedObject
+public class ArenaByteBufferPool extends ContainerLifeCycle implements ByteBufferPool
+{
+    private final ByteBufferPool _delegate;
+    private final int _factor;
+    private final int _maxCapacity;
+    private final int _slabSize;
+    private final int _maxIdleSlabs;
+    private final Arena[] _arenas;
+
+    /**
+     * Creates a new ArenaByteBufferPool with a default configuration.
+     */
+    public ArenaByteBufferPool()
+    {
+        this(-1, -1, -1, -1);
+    }
+
+    /**
+     * Creates a new ArenaByteBufferPool with the given configuration.
+     *
+     * @param factor the capacity factor
+     * @param maxCapacity the maximum capacity of ByteBuffers carved from slabs
+     * @param slabSize the size in bytes of each slab
+     * @param maxIdleSlabs the number of idle slabs retained for each capacity when idle slabs are reclaimed
+     */
+    public ArenaByteBufferPool(int factor, int maxCapacity, int slabSize, int maxIdleSlabs)
+    {
+        this(factor, maxCapacity, slabSize, maxIdleSlabs, null);
+    }
+
+    /**
+     * Creates a new ArenaByteBufferPool with the given configuration.
+     *
+     * @param factor the capacity factor
+     * @param maxCapacity the maximum capacity of ByteBuffers carved from slabs
+     * @param slabSize the size in bytes of each slab
+     * @param maxIdleSlabs the number of idle slabs retained for each capacity when idle slabs are reclaimed
+     * @param delegate the ByteBufferPool for heap and large ByteBuffers
+     */
+    public ArenaByteBufferPool(int factor, int maxCapacity, int slabSize, int maxIdleSlabs, ByteBufferPool delegate)
+    {
+        _factor = factor <= 0 ? 1024 : factor;
+        _maxCapacity = maxCapacity <= 0 ? 64 * 1024 : maxCapacity;
+        _slabSize = slabSize <= 0 ? 4 * 1024 * 1024 : slabSize;
+        _maxIdleSlabs = maxIdleSlabs < 0 ? 1 : maxIdleSlabs;
+        if ((_maxCapacity % _factor) != 0 || _factor > _maxCapacity)
+            throw new IllegalArgumentException("The capacity factor must be a divisor of maxCapacity");
+        if (_slabSize < _maxCapacity)
+            throw new IllegalArgumentException("The slab size must not be less than maxCapacity");
+        _delegate = delegate != null ? delegate : new ArrayByteBufferPool();
+        _arenas = new Arena[_maxCapacity / _factor];
+        for (int i = 0; i < _arenas.length; ++i)
+        {
+            _arenas[i] = new Arena((i + 1) * _factor);
+        }
+        addBean(_delegate);
+    }
+
+    public ByteBufferPool getByteBufferPool()
+    {
+        return _delegate;
+    }
+
+    @ManagedAttribute("The capacity factor")
+    public int getCapacityFactor()
+    {
+        return _factor;
+    }
+
+    @ManagedAttribute("The maximum capacity of ByteBuffers carved from slabs")
+    public int getMaxCapacity()
+    {
+        return _maxCapacity;
+    }
+
+    @ManagedAttribute("The size in bytes of each slab")
+    public int getSlabSize()
+    {
+        return _slabSize;
+    }
+
+    @ManagedAttribute("The number of idle slabs retained for each capacity when idle slabs are reclaimed")
+    public int getMaxIdleSlabs()
+    {
+        return _maxIdleSlabs;
+    }
+
+    @Override
+    public ByteBuffer acquire(int size, boolean direct)
+    {
+        Arena arena = direct ? arenaFor(size) : null;
+        if (arena == null)
+            return _delegate.acquire(size, direct);
+        return arena.acquire();
+    }
+
+    /**
+     * <p>Acquires a direct ByteBuffer carved from a slab, wrapped in
+     * a reference counted {@link RetainableByteBuffer}.</p>
+     *
+     * @param size the size of the buffer
+     * @return a RetainableByteBuffer with reference count of 1
+     */
+    public RetainableByteBuffer acquireRetainable(int size)
+    {
+        return new RetainableByteBuffer(this, size, true);
+    }
+
+    @Override
+    public void release(ByteBuffer buffer)
+    {
+        if (buffer == null)
+            return;
+        Arena arena = null;
+        int capacity = buffer.capacity();
+        if (buffer.isDirect() && (capacity % _factor) == 0)
+            arena = arenaFor(capacity);
+        if (arena == null || !arena.release(buffer))
+            _delegate.release(buffer);
+    }
+
+    private Arena arenaFor(int size)
+    {
+        if (size <= 0 || size > _maxCapacity)
+            return null;
+        return _arenas[(size - 1) / _factor];
+    }
+
+    @ManagedAttribute("The number of direct slabs")
+    public int getSlabCount()
+    {
+        int result = 0;
+        for (Arena arena : _arenas)
+        {
+            result += arena.getSlabCount();
+        }
+        return result;
+    }
+
+    @ManagedAttribute("The bytes of direct memory allocated for slabs")
+    public long getSlabMemory()
+    {
+        return (long)getSlabCount() * _slabSize;
+    }
+
+    @ManagedAttribute("The bytes of slab memory handed out as ByteBuffers")
+    public long getUsedMemory()
+    {
+        long result = 0;
+        for (Arena arena : _arenas)
+        {
+            result += arena.getUsedMemory();
+        }
+        return result;
+    }
+
+    @ManagedAttribute("The number of slabs reclaimed because idle")
+    public long getReclaimedSlabCount()
+    {
+        long result = 0;
+        for (Arena arena : _arenas)
+        {
+            result += arena.getReclaimed();
+        }
+        return result;
+    }
+
+    @ManagedAttribute("The usage of each slab")
+    public List<String> getSlabUsage()
+    {
+        List<String> result = new ArrayList<>();
+        for (Arena arena : _arenas)
+        {
+            arena.collectUsage(result);
+        }
+        return result;
+    }
+
+    /**
+     * <p>Reclaims all the idle slabs and clears the delegate pool.</p>
+     * <p>Slabs that have ByteBuffers in use are retained.</p>
+     */
+    @ManagedOperation(value = "Reclaims the idle slabs", impact = "ACTION")
+    public void clear()
+    {
+        for (Arena arena : _arenas)
+        {
+            arena.reclaim(0);
+        }
+        if (_delegate instanceof AbstractByteBufferPool)
+            ((AbstractByteBufferPool)_delegate).clear();
+    }
+
+    @Override
+    public void dump(Appendable out, String indent) throws IOException
+    {
+        dumpObjects(out, indent, new DumpableCollection("slabs", getSlabUsage()));
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{factor=%d,max=%d,slab=%d,slabs=%d,used=%d}",
+            getClass().getSimpleName(), hashCode(), _factor, _maxCapacity, _slabSize, getSlabCount(), getUsedMemory());
+    }
+
+    /**
+     * <p>The set of slabs that are carved into chunks of the same capacity.</p>
+     * <p>Each slab keeps its own free chunks, so that a slab is reclaimed without scanning
+     * the free chunks of the other slabs. Chunks are acquired from the oldest slabs first,
+     * so that the newest slabs become idle when the load decreases. The lock is only taken
+     * to add a new slab or to reclaim the idle slabs, which updates the copy-on-write map
+     * used to find the chunk of a released ByteBuffer.</p>
+     */
+    private class Arena
+    {
+        private final List<Slab> _slabs = new CopyOnWriteArrayList<>();
+        private final AtomicInteger _idle = new AtomicInteger();
+        private final AtomicLong _reclaimed = new AtomicLong();
+        private final int _capacity;
+        private volatile Map<ByteBuffer, Chunk> _chunks = new IdentityHashMap<>();
+
+        private Arena(int capacity)
+        {
+            _capacity = capacity;
+        }
+
+        private ByteBuffer acquire()
+        {
+            Chunk chunk = null;
+            for (Slab slab : _slabs)
+            {
+                chunk = slab.acquire();
+                if (chunk != null)
+                    break;
+            }
+            if (chunk == null)
+                chunk = newSlab();
+            chunk._inUse.set(true);
+            ByteBuffer buffer = chunk._buffer;
+            BufferUtil.clear(buffer);
+            return buffer;
+        }
+
+        private Chunk newSlab()
+        {
+            Slab slab = new Slab(_capacity);
+            synchronized (this)
+            {
+                Map<ByteBuffer, Chunk> chunks = new IdentityHashMap<>(_chunks);
+                for (Chunk chunk : slab._chunks)
+                {
+                    chunks.put(chunk._buffer, chunk);
+                }
+                _chunks = chunks;
+                _slabs.add(slab);
+            }
+            return slab._chunks[0];
+        }
+
+        private boolean release(ByteBuffer buffer)
+        {
+            Chunk chunk = _chunks.get(buffer);
+            if (chunk == null)
+                return false;
+            if (!chunk._inUse.compareAndSet(true, false))
+                throw new IllegalStateException("Already released " + BufferUtil.toDetailString(buffer));
+            // Hysteresis, so that a slab is not reclaimed and allocated again
+            // each time the number of chunks in use crosses a slab boundary.
+            if (chunk._slab.release(chunk) && _idle.incrementAndGet() > 2 * _maxIdleSlabs)
+                reclaim(_maxIdleSlabs);
+            return true;
+        }
+
+        private void reclaim(int maxIdleSlabs)
+        {
+            synchronized (this)
+            {
+                // Reclaim the newest idle slabs first.
+                List<Slab> reclaimed = new ArrayList<>();
+                int idle = 0;
+                for (int i = _slabs.size(); i-- > 0; )
+                {
+                    Slab slab = _slabs.get(i);
+                    if (slab.isIdle() && ++idle > maxIdleSlabs && slab.reclaim())
+                        reclaimed.add(slab);
+                }
+                if (reclaimed.isEmpty())
+                    return;
+
+                Map<ByteBuffer, Chunk> chunks = new IdentityHashMap<>(_chunks);
+                for (Slab slab : reclaimed)
+                {
+                    _slabs.remove(slab);
+                    for (Chunk chunk : slab._chunks)
+                    {
+                        chunks.remove(chunk._buffer);
+                    }
+                }
+                _chunks = chunks;
+            }
+        }
+
+        private int getSlabCount()
+        {
+            return _slabs.size();
+        }
+
+        private long getUsedMemory()
+        {
+            long result = 0;
+            for (Slab slab : _slabs)
+            {
+                result += (long)slab.getUsed() * _capacity;
+            }
+            return result;
+        }
+
+        private long getReclaimed()
+        {
+            return _reclaimed.get();
+        }
+
+        private void collectUsage(List<String> usage)
+        {
+            for (Slab slab : _slabs)
+            {
+                usage.add(slab.toString());
+            }
+        }
+
+        /**
+         * <p>A direct slab sliced into chunks of the same capacity.</p>
+         * <p>The free chunks are kept in a lock-free stack of chunk indexes, whose head is
+         * stamped with a version to avoid the ABA problem, so that releasing a chunk does not
+         * allocate. A chunk is first reserved by decrementing the number of free chunks, that
+         * is never more than the number of chunks in the stack, and becomes {@link #RECLAIMED}
+         * when the slab is reclaimed, so that no chunk can be reserved afterwards.</p>
+         */
+        private class Slab
+        {
+            private static final int RECLAIMED = -1;
+            private static final int EMPTY = -1;
+
+            private final Chunk[] _chunks;
+            private final int[] _next;
+            private final AtomicLong _head = new AtomicLong();
+            private final AtomicInteger _free;
+            private final int _capacity;
+
+            private Slab(int capacity)
+            {
+                _capacity = capacity;
+                int count = _slabSize / capacity;
+                ByteBuffer slab = BufferUtil.allocateDirect(count * capacity);
+                _chunks = new Chunk[count];
+                _next = new int[count];
+                for (int i = 0; i < count; ++i)
+                {
+                    slab.limit((i + 1) * capacity).position(i * capacity);
+                    _chunks[i] = new Chunk(this, i, slab.slice());
+                    _next[i] = i + 1 < count ? i + 1 : EMPTY;
+                }
+                // The first chunk is acquired by the thread that creates the slab,
+                // and the others are handed out in address order.
+                _head.set(count > 1 ? 1 : EMPTY);
+                _free = new AtomicInteger(count - 1);
+            }
+
+            private Chunk acquire()
+            {
+                while (true)
+                {
+                    int free = _free.get();
+                    if (free <= 0)
+                        return null;
+                    if (_free.compareAndSet(free, free - 1))
+                    {
+                        if (free == _chunks.length)
+                            _idle.decrementAndGet();
+                        return _chunks[pop()];
+                    }
+                }
+            }
+
+            private int pop()
+            {
+                while (true)
+                {
+                    long head = _head.get();
+                    int index = (int)head;
+                    // Chunks are pushed before the free count is incremented.
+                    if (index == EMPTY)
+                        throw new IllegalStateException("No free chunk in " + this);
+                    long version = (head >>> 32) + 1;
+                    if (_head.compareAndSet(head, (version << 32) | (_next[index] & 0xFFFFFFFFL)))
+                        return index;
+                }
+            }
+
+            /**
+             * @param chunk the released chunk
+             * @return whether the slab became idle
+             */
+            private boolean release(Chunk chunk)
+            {
+                while (true)
+                {
+                    long head = _head.get();
+                    _next[chunk._index] = (int)head;
+                    long version = (head >>> 32) + 1;
+                    if (_head.compareAndSet(head, (version << 32) | chunk._index))
+                        break;
+                }
+                return _free.incrementAndGet() == _chunks.length;
+            }
+
+            private boolean reclaim()
+            {
+                if (!_free.compareAndSet(_chunks.length, RECLAIMED))
+                    return false;
+                _idle.decrementAndGet();
+                _reclaimed.incrementAndGet();
+                return true;
+            }
+
+            private boolean isIdle()
+            {
+                return _free.get() == _chunks.length;
+            }
+
+            private int getUsed()
+            {
+                int free = _free.get();
+                return free == RECLAIMED ? 0 : _chunks.length - free;
+            }
+
+            @Override
+            public String toString()
+            {
+                return String.format("%s@%x{capacity=%d,used=%d/%d}", getClass().getSimpleName(), hashCode(),
+                    _capacity, getUsed(), _chunks.length);
+            }
+        }
+    }
+
+    /**
+     * <p>A chunk of a slab, handed out as a ByteBuffer.</p>
+     */
+    private static class Chunk
+    {
+        private final AtomicBoolean _inUse = new AtomicBoolean();
+        private final Arena.Slab _slab;
+        private final int _index;
+        private final ByteBuffer _buffer;
+
+        private Chunk(Arena.Slab slab, int index, ByteBuffer buffer)
+        {
+            _slab = slab;
+            _index = index;
+            _buffer = buffer;
+        }
+    }
+}
@@ -23,11 +23,14 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ByteChannel;
 import java.nio.channels.CancelledKeyException;
+import java.nio.channels.FileChannel;
 import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
+import java.nio.channels.WritePendingException;
 
 import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 import org.eclipse.jetty.util.thread.Invocable;
@@ -46,6 +49,7 @@ public abstract class ChannelEndPoint extends AbstractEndPoint implements Manage
     protected final ManagedSelector _selector;
     protected final SelectionKey _key;
     private boolean _updatePending;
+    private volatile FileTransfer _transfer;
 
     /**
      * The current value for {@link SelectionKey#interestOps()}.
@@ -251,9 +255,90 @@ public abstract class ChannelEndPoint extends AbstractEndPoint implements Manage
         return filled;
     }
 
+    /**
+     * @return whether {@link #transferFrom(Callback, FileChannel, long, long)} is supported
+     */
+    public boolean isFileTransferSupported()
+    {
+        return true;
+    }
+
+    /**
+     * <p>Writes a region of a file with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)},
+     * that the operating system may implement without copying the file content to user space.</p>
+     * <p>Like {@link #write(Callback, ByteBuffer...)}, this method does not block: the callback
+     * is notified when the whole region has been written, which may require to wait for the
+     * channel to be writable.</p>
+     *
+     * @param callback the callback to notify when the region has been written
+     * @param file the file to write
+     * @param position the position of the region in the file
+     * @param count the length of the region
+     * @throws WritePendingException if another write operation is pending
+     */
+    public void transferFrom(Callback callback, FileChannel file, long position, long count) throws WritePendingException
+    {
+        if (!getWriteFlusher().isIdle())
+            throw new WritePendingException();
+        _transfer = new FileTransfer(file, position, count);
+        // The transfer is performed by flush(), so that the WriteFlusher handles the write interest.
+        getWriteFlusher().write(new Callback.Nested(callback)
+        {
+            @Override
+            public void failed(Throwable x)
+            {
+                _transfer = null;
+                super.failed(x);
+            }
+        }, BufferUtil.EMPTY_BUFFER);
+    }
+
+    private boolean transfer(FileTransfer transfer) throws IOException
+    {
+        while (transfer._count > 0)
+        {
+            long transferred;
+            try
+            {
+                transferred = transfer._file.transferTo(transfer._position, transfer._count, _channel);
+            }
+            catch (IOException e)
+            {
+                throw new EofException(e);
+            }
+
+            if (LOG.isDebugEnabled())
+                LOG.debug("transferred {} {}", transferred, this);
+
+            if (transferred <= 0)
+            {
+                if (transfer._position >= transfer._file.size())
+                    throw new IOException("File truncated at " + transfer._position);
+                return false;
+            }
+
+            transfer._position += transferred;
+            transfer._count -= transferred;
+            notIdle();
+
+            Connection connection = getConnection();
+            if (connection instanceof WriteFlusher.Listener)
+                ((WriteFlusher.Listener)connection).onFlushed(transferred);
+        }
+        return true;
+    }
+
     @Override
     public boolean flush(ByteBuffer... buffers) throws IOException
     {
+        FileTransfer transfer = _transfer;
+        if (transfer != null)
+        {
+            if (!transfer(transfer))
+                return false;
+            _transfer = null;
+        }
+
         long flushed = 0;
         try
         {
@@ -432,4 +517,18 @@ public abstract class ChannelEndPoint extends AbstractEndPoint implements Manage
             ManagedSelector.safeInterestOps(_key),
             ManagedSelector.safeReadyOps(_key));
     }
+
+    private static class FileTransfer
+    {
+        private final FileChannel _file;
+        private long _position;
+        private long _count;
+
+        private FileTransfer(FileChannel file, long position, long count)
+        {
+            _file = file;
+            _position = position;
+            _count = count;
+        }
+    }
 }
@@ -19,6 +19,10 @@
 package org.eclipse.jetty.io;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
@@ -51,6 +55,7 @@ public class ConnectionStatistics extends AbstractLifeCycle implements Connectio
     private final AtomicLong _messagesInStamp = new AtomicLong();
     private final LongAdder _messagesOut = new LongAdder();
     private final AtomicLong _messagesOutStamp = new AtomicLong();
+    private final ConcurrentMap<String, LongAdder> _accepted = new ConcurrentHashMap<>();
 
     @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
     public void reset()
@@ -65,6 +70,7 @@ public class ConnectionStatistics extends AbstractLifeCycle implements Connectio
         _messagesInStamp.set(System.nanoTime());
         _messagesOut.reset();
         _messagesOutStamp.set(System.nanoTime());
+        _accepted.clear();
     }
 
     @Override
@@ -108,6 +114,24 @@ public class ConnectionStatistics extends AbstractLifeCycle implements Connectio
             _messagesOut.add(messagesOut);
     }
 
+    /**
+     * <p>Records a connection accepted from the given listening channel.</p>
+     * <p>This method is called by connectors that listen on more than one channel,
+     * such as a {@code ServerConnector} with {@code reusePort} enabled.</p>
+     *
+     * @param channel the name of the listening channel
+     */
+    public void onAccepted(String channel)
+    {
+        if (!isStarted())
+            return;
+
+        LongAdder accepted = _accepted.get(channel);
+        if (accepted == null)
+            accepted = _accepted.computeIfAbsent(channel, k -> new LongAdder());
+        accepted.increment();
+    }
+
     @ManagedAttribute("Total number of bytes received by tracked connections")
     public long getReceivedBytes()
     {
@@ -174,6 +198,14 @@ public class ConnectionStatistics extends AbstractLifeCycle implements Connectio
         return _connections.getMax();
     }
 
+    @ManagedAttribute("The number of connections accepted per listening channel")
+    public Map<String, Long> getAcceptedConnections()
+    {
+        Map<String, Long> result = new TreeMap<>();
+        _accepted.forEach((channel, accepted) -> result.put(channel, accepted.sum()));
+        return result;
+    }
+
     @ManagedAttribute("The total number of messages received")
     public long getReceivedMessages()
     {
@@ -217,7 +249,8 @@ public class ConnectionStatistics extends AbstractLifeCycle implements Connectio
             String.format("connections=%s", _connections),
             String.format("durations=%s", _connectionsDuration),
             String.format("bytes in/out=%s/%s", getReceivedBytes(), getSentBytes()),
-            String.format("messages in/out=%s/%s", getReceivedMessages(), getSentMessages()));
+            String.format("messages in/out=%s/%s", getReceivedMessages(), getSentMessages()),
+            String.format("accepted=%s", getAcceptedConnections()));
     }
 
     @Override
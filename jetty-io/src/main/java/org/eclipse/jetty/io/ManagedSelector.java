@@ -36,19 +36,28 @@ import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
 import org.eclipse.jetty.util.component.ContainerLifeCycle;
 import org.eclipse.jetty.util.component.Dumpable;
 import org.eclipse.jetty.util.component.DumpableCollection;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.statistic.SampleStatistic;
 import org.eclipse.jetty.util.thread.ExecutionStrategy;
+import org.eclipse.jetty.util.thread.ReservedThreadExecutor;
 import org.eclipse.jetty.util.thread.Scheduler;
 import org.eclipse.jetty.util.thread.strategy.EatWhatYouKill;
 
@@ -57,7 +66,13 @@ import org.eclipse.jetty.util.thread.strategy.EatWhatYouKill;
  * <p>{@link ManagedSelector} runs the select loop, which waits on {@link Selector#select()} until events
  * happen for registered channels. When events happen, it notifies the {@link EndPoint} associated
  * with the channel.</p>
+ * <p>{@link SelectorUpdate}s are submitted to a lock-free queue and applied in batches by the
+ * select loop. The selector is woken up only if it is blocked in {@link Selector#select()}, and
+ * at most once per select cycle, however many updates are submitted.
+ * Interest changes are coalesced per {@link SelectionKey} by the {@link Selectable}s
+ * (see {@link ChannelEndPoint}), which submit at most one pending update each.</p>
  */
+@ManagedObject("A NIO Selector and its select loop")
 public class ManagedSelector extends ContainerLifeCycle implements Dumpable
 {
     private static final Logger LOG = Log.getLogger(ManagedSelector.class);
@@ -78,12 +93,16 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
     }
 
     private final AtomicBoolean _started = new AtomicBoolean(false);
-    private boolean _selecting = false;
+    private final AtomicBoolean _selecting = new AtomicBoolean();
+    private final AtomicInteger _connections = new AtomicInteger();
+    private final Queue<SelectorUpdate> _updates = new ConcurrentLinkedQueue<>();
+    private final LongAdder _wakeups = new LongAdder();
+    private final SampleStatistic _updatesPerCycle = new SampleStatistic();
+    private final SampleStatistic _keysPerSelect = new SampleStatistic();
     private final SelectorManager _selectorManager;
     private final int _id;
     private final ExecutionStrategy _strategy;
     private Selector _selector;
-    private Deque<SelectorUpdate> _updates = new ArrayDeque<>();
     private Deque<SelectorUpdate> _updateable = new ArrayDeque<>();
 
     public ManagedSelector(SelectorManager selectorManager, int id)
@@ -92,11 +111,28 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
         _id = id;
         SelectorProducer producer = new SelectorProducer();
         Executor executor = selectorManager.getExecutor();
+        int affinity = selectorManager.getSelectorAffinity();
+        if (affinity > 0)
+        {
+            // Tasks are executed by the shared executor, but the production
+            // is only handed off to the threads reserved by this selector.
+            ReservedThreadExecutor reserved = new ReservedThreadExecutor(executor, affinity);
+            addBean(reserved, true);
+            executor = reserved;
+        }
         _strategy = new EatWhatYouKill(producer, executor);
         addBean(_strategy, true);
         setStopTimeout(5000);
     }
 
+    /**
+     * @return the identifier of this selector, from 0 to {@link SelectorManager#getSelectorCount()} excluded
+     */
+    public int getId()
+    {
+        return _id;
+    }
+
     public Selector getSelector()
     {
         return _selector;
@@ -130,6 +166,20 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
         return s.keys().size();
     }
 
+    /**
+     * <p>Returns the number of connections assigned to this selector, including
+     * those that have been accepted or are connecting but are not yet registered,
+     * so that it is accurate also when the selector has not run yet.</p>
+     *
+     * @return the number of connections assigned to this selector
+     * @see SelectorChooser.LeastConnections
+     */
+    @ManagedAttribute("The number of connections assigned to this selector")
+    public int getConnectionCount()
+    {
+        return _connections.get();
+    }
+
     @Override
     protected void doStop() throws Exception
     {
@@ -161,44 +211,71 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
         if (LOG.isDebugEnabled())
             LOG.debug("Queued change {} on {}", update, this);
 
-        Selector selector = null;
-        synchronized (ManagedSelector.this)
-        {
-            _updates.offer(update);
+        // The update must be queued before checking whether the selector
+        // is selecting, see SelectorProducer.processUpdates().
+        _updates.offer(update);
+        wakeup();
+    }
 
-            if (_selecting)
+    private void wakeup()
+    {
+        // Only the first wakeup of a select cycle wakes the selector,
+        // and only if it is blocked, or about to block, in select().
+        if (_selecting.compareAndSet(true, false))
+        {
+            Selector selector = _selector;
+            if (selector != null)
             {
-                selector = _selector;
-                // To avoid the extra select wakeup.
-                _selecting = false;
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Wakeup {}", this);
+                _wakeups.increment();
+                selector.wakeup();
             }
         }
+    }
 
-        if (selector != null)
-        {
-            if (LOG.isDebugEnabled())
-                LOG.debug("Wakeup on submit {}", this);
-            selector.wakeup();
-        }
+    @ManagedAttribute("The number of times the selector was woken up")
+    public long getWakeups()
+    {
+        return _wakeups.sum();
     }
 
-    private void wakeup()
+    @ManagedAttribute("The number of select cycles")
+    public long getSelectCycles()
     {
-        if (LOG.isDebugEnabled())
-            LOG.debug("Wakeup {}", this);
+        return _keysPerSelect.getCount();
+    }
 
-        Selector selector = null;
-        synchronized (ManagedSelector.this)
-        {
-            if (_selecting)
-            {
-                selector = _selector;
-                _selecting = false;
-            }
-        }
+    @ManagedAttribute("The mean number of updates applied per select cycle")
+    public double getUpdatesPerCycleMean()
+    {
+        return _updatesPerCycle.getMean();
+    }
+
+    @ManagedAttribute("The max number of updates applied per select cycle")
+    public long getUpdatesPerCycleMax()
+    {
+        return _updatesPerCycle.getMax();
+    }
+
+    @ManagedAttribute("The mean number of keys selected per select cycle")
+    public double getSelectedKeysMean()
+    {
+        return _keysPerSelect.getMean();
+    }
+
+    @ManagedAttribute("The max number of keys selected per select cycle")
+    public long getSelectedKeysMax()
+    {
+        return _keysPerSelect.getMax();
+    }
 
-        if (selector != null)
-            selector.wakeup();
+    @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
+    public void resetStatistics()
+    {
+        _wakeups.reset();
+        _updatesPerCycle.reset();
+        _keysPerSelect.reset();
     }
 
     private void execute(Runnable task)
@@ -265,13 +342,32 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
         Connection connection = _selectorManager.newConnection(channel, endPoint, selectionKey.attachment());
         endPoint.setConnection(connection);
         selectionKey.attach(endPoint);
-        endPoint.onOpen();
-        _selectorManager.endPointOpened(endPoint);
-        _selectorManager.connectionOpened(connection);
+        try
+        {
+            endPoint.onOpen();
+            _selectorManager.endPointOpened(endPoint);
+            _selectorManager.connectionOpened(connection);
+        }
+        catch (Throwable x)
+        {
+            // The attached endpoint is destroyed when closed, which releases its connection.
+            closeNoExceptions(endPoint);
+            throw x;
+        }
         if (LOG.isDebugEnabled())
             LOG.debug("Created {}", endPoint);
     }
 
+    /**
+     * @param selectionKey the key of a channel
+     * @return whether an endpoint is attached to the key, so that the connection
+     * of the channel is released when the endpoint is destroyed
+     */
+    private static boolean hasEndPoint(SelectionKey selectionKey)
+    {
+        return selectionKey != null && selectionKey.attachment() instanceof EndPoint;
+    }
+
     public void destroyEndPoint(final EndPoint endPoint)
     {
         // Waking up the selector is necessary to clean the
@@ -283,10 +379,7 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
 
     private int getActionSize()
     {
-        synchronized (ManagedSelector.this)
-        {
-            return _updates.size();
-        }
+        return _updates.size();
     }
 
     static int safeReadyOps(SelectionKey selectionKey)
@@ -325,15 +418,10 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
         {
             DumpKeys dump = new DumpKeys();
             String updatesAt = DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(ZonedDateTime.now());
-            synchronized (ManagedSelector.this)
-            {
-                updates = new ArrayList<>(_updates);
-                _updates.addFirst(dump);
-                _selecting = false;
-            }
+            updates = new ArrayList<>(_updates);
             if (LOG.isDebugEnabled())
                 LOG.debug("wakeup on dump {}", this);
-            selector.wakeup();
+            submit(dump);
             keys = dump.get(5, TimeUnit.SECONDS);
             String keysAt = DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(ZonedDateTime.now());
             if (keys == null)
@@ -407,12 +495,16 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
 
         private void processUpdates()
         {
-            synchronized (ManagedSelector.this)
+            // Drain the updates submitted so far; the updates
+            // submitted while applying them are left for the next cycle.
+            while (true)
             {
-                Deque<SelectorUpdate> updates = _updates;
-                _updates = _updateable;
-                _updateable = updates;
+                SelectorUpdate update = _updates.poll();
+                if (update == null)
+                    break;
+                _updateable.offer(update);
             }
+            _updatesPerCycle.record(_updateable.size());
 
             if (LOG.isDebugEnabled())
                 LOG.debug("updateable {}", _updateable.size());
@@ -434,24 +526,16 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
             }
             _updateable.clear();
 
-            Selector selector;
-            int updates;
-            synchronized (ManagedSelector.this)
-            {
-                updates = _updates.size();
-                _selecting = updates == 0;
-                selector = _selecting ? null : _selector;
-            }
+            // Publish that the selector is about to block before checking for new updates:
+            // either a submitter sees the selector selecting and wakes it up,
+            // or here the new update is seen and the selector does not block.
+            _selecting.set(true);
+            boolean updates = !_updates.isEmpty();
+            if (updates)
+                _selecting.compareAndSet(true, false);
 
             if (LOG.isDebugEnabled())
                 LOG.debug("updates {}", updates);
-
-            if (selector != null)
-            {
-                if (LOG.isDebugEnabled())
-                    LOG.debug("wakeup on updates {}", this);
-                selector.wakeup();
-            }
         }
 
         private boolean select()
@@ -463,8 +547,10 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
                 {
                     if (LOG.isDebugEnabled())
                         LOG.debug("Selector {} waiting with {} keys", selector, selector.keys().size());
-                    int selected = selector.select();
-                    if (selected == 0)
+                    // Do not block if there are updates to process.
+                    boolean blocking = _selecting.get();
+                    int selected = blocking ? selector.select() : selector.selectNow();
+                    if (selected == 0 && blocking)
                     {
                         if (LOG.isDebugEnabled())
                             LOG.debug("Selector {} woken with none selected", selector);
@@ -478,18 +564,14 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
                     if (LOG.isDebugEnabled())
                         LOG.debug("Selector {} woken up from select, {}/{}/{} selected", selector, selected, selector.selectedKeys().size(), selector.keys().size());
 
-                    int updates;
-                    synchronized (ManagedSelector.this)
-                    {
-                        // finished selecting
-                        _selecting = false;
-                        updates = _updates.size();
-                    }
+                    // Finished selecting.
+                    _selecting.set(false);
 
                     _keys = selector.selectedKeys();
+                    _keysPerSelect.record(_keys.size());
                     _cursor = _keys.isEmpty() ? Collections.emptyIterator() : _keys.iterator();
                     if (LOG.isDebugEnabled())
-                        LOG.debug("Selector {} processing {} keys, {} updates", selector, _keys.size(), updates);
+                        LOG.debug("Selector {} processing {} keys, {} updates", selector, _keys.size(), getActionSize());
 
                     return true;
                 }
@@ -678,7 +760,7 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
                     channel = _selectorManager.doAccept(server);
                     if (channel == null)
                         break;
-                    _selectorManager.accepted(channel);
+                    _selectorManager.accepted(channel, ManagedSelector.this);
                 }
             }
             catch (Throwable x)
@@ -715,6 +797,7 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
         {
             this.channel = channel;
             this.attachment = attachment;
+            _connections.incrementAndGet();
             _selectorManager.onAccepting(channel);
         }
 
@@ -723,6 +806,7 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
         {
             LOG.debug("closed accept of {}", channel);
             closeNoExceptions(channel);
+            _connections.decrementAndGet();
         }
 
         @Override
@@ -736,6 +820,7 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
             catch (Throwable x)
             {
                 closeNoExceptions(channel);
+                _connections.decrementAndGet();
                 _selectorManager.onAcceptFailed(channel, x);
                 LOG.debug(x);
             }
@@ -759,6 +844,8 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
         protected void failed(Throwable failure)
         {
             closeNoExceptions(channel);
+            if (!hasEndPoint(key))
+                _connections.decrementAndGet();
             LOG.warn(String.valueOf(failure));
             LOG.debug(failure);
             _selectorManager.onAcceptFailed(channel, failure);
@@ -776,6 +863,7 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
         {
             this.channel = channel;
             this.attachment = attachment;
+            _connections.incrementAndGet();
             this.timeout = ManagedSelector.this._selectorManager.getScheduler().schedule(this, ManagedSelector.this._selectorManager.getConnectTimeout(), TimeUnit.MILLISECONDS);
         }
 
@@ -804,11 +892,18 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
         }
 
         public void failed(Throwable failure)
+        {
+            failed(failure, true);
+        }
+
+        private void failed(Throwable failure, boolean release)
         {
             if (failed.compareAndSet(false, true))
             {
                 timeout.cancel();
                 closeNoExceptions(channel);
+                if (release)
+                    _connections.decrementAndGet();
                 ManagedSelector.this._selectorManager.connectionFailed(channel, failure, attachment);
             }
         }
@@ -927,7 +1022,7 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
                 closeNoExceptions(_connect.channel);
                 LOG.warn(String.valueOf(failure));
                 LOG.debug(failure);
-                _connect.failed(failure);
+                _connect.failed(failure, !hasEndPoint(_key));
             }
         }
 
@@ -952,6 +1047,7 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
         {
             if (LOG.isDebugEnabled())
                 LOG.debug("Destroyed {}", endPoint);
+            _connections.decrementAndGet();
             Connection connection = endPoint.getConnection();
             if (connection != null)
                 _selectorManager.connectionClosed(connection);
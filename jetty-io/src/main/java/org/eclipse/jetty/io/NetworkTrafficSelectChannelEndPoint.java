@@ -70,6 +70,13 @@ public class NetworkTrafficSelectChannelEndPoint extends SelectChannelEndPoint
         return flushed;
     }
 
+    @Override
+    public boolean isFileTransferSupported()
+    {
+        // Transferred file content cannot be notified to the listeners.
+        return false;
+    }
+
     @Override
     public void onOpen()
     {
@@ -0,0 +1,141 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+/**
+ * <p>Chooses the {@link ManagedSelector} that a {@link SelectorManager}
+ * registers a channel with.</p>
+ *
+ * @see SelectorManager#setSelectorChooser(SelectorChooser)
+ */
+public interface SelectorChooser
+{
+    /**
+     * @param selectors the selectors to choose from, never empty
+     * @param channel the channel to register, which may be a server channel
+     * @return the chosen selector
+     */
+    ManagedSelector choose(ManagedSelector[] selectors, SelectableChannel channel);
+
+    /**
+     * <p>Chooses the selectors in turn.</p>
+     */
+    class RoundRobin implements SelectorChooser
+    {
+        private final AtomicInteger _index = new AtomicInteger();
+
+        @Override
+        public ManagedSelector choose(ManagedSelector[] selectors, SelectableChannel channel)
+        {
+            int length = selectors.length;
+            return selectors[_index.updateAndGet(index -> (index + 1) % length)];
+        }
+
+        @Override
+        public String toString()
+        {
+            return getClass().getSimpleName();
+        }
+    }
+
+    /**
+     * <p>Chooses the selector with the least connections.</p>
+     * <p>Connections are counted by {@link ManagedSelector#getConnectionCount()}
+     * as soon as they are assigned to a selector, so a burst of accepted channels
+     * is spread across the selectors even before they are registered.</p>
+     */
+    class LeastConnections implements SelectorChooser
+    {
+        @Override
+        public ManagedSelector choose(ManagedSelector[] selectors, SelectableChannel channel)
+        {
+            ManagedSelector result = selectors[0];
+            int least = result.getConnectionCount();
+            for (int i = 1; i < selectors.length; ++i)
+            {
+                ManagedSelector selector = selectors[i];
+                int count = selector.getConnectionCount();
+                if (count < least)
+                {
+                    least = count;
+                    result = selector;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public String toString()
+        {
+            return getClass().getSimpleName();
+        }
+    }
+
+    /**
+     * <p>Chooses the selector from a hash of the remote IP address of the channel,
+     * so that the connections from the same remote host are handled by the same selector.</p>
+     * <p>Channels that have no remote address are chosen round robin.</p>
+     */
+    class RemoteAddressHash implements SelectorChooser
+    {
+        private static final Logger LOG = Log.getLogger(RemoteAddressHash.class);
+
+        private final RoundRobin _fallback = new RoundRobin();
+
+        @Override
+        public ManagedSelector choose(ManagedSelector[] selectors, SelectableChannel channel)
+        {
+            if (channel instanceof SocketChannel)
+            {
+                try
+                {
+                    SocketAddress address = ((SocketChannel)channel).getRemoteAddress();
+                    if (address instanceof InetSocketAddress && ((InetSocketAddress)address).getAddress() != null)
+                    {
+                        int hash = ((InetSocketAddress)address).getAddress().hashCode();
+                        // Spread the bits, as consecutive addresses differ in the low bits only.
+                        hash ^= (hash >>> 16);
+                        return selectors[(hash & Integer.MAX_VALUE) % selectors.length];
+                    }
+                }
+                catch (IOException x)
+                {
+                    LOG.ignore(x);
+                }
+            }
+            return _fallback.choose(selectors, channel);
+        }
+
+        @Override
+        public String toString()
+        {
+            return getClass().getSimpleName();
+        }
+    }
+}
@@ -31,9 +31,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EventListener;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.Executor;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.IntUnaryOperator;
 
 import org.eclipse.jetty.util.ProcessorUtils;
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
@@ -62,8 +61,8 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
     private final Executor executor;
     private final Scheduler scheduler;
     private final ManagedSelector[] _selectors;
-    private final AtomicInteger _selectorIndex = new AtomicInteger();
-    private final IntUnaryOperator _selectorIndexUpdate;
+    private SelectorChooser _selectorChooser = new SelectorChooser.RoundRobin();
+    private int _selectorAffinity;
     private final List<AcceptListener> _acceptListeners = new ArrayList<>();
     private long _connectTimeout = DEFAULT_CONNECT_TIMEOUT;
     private ThreadPoolBudget.Lease _lease;
@@ -97,7 +96,6 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
         this.executor = executor;
         this.scheduler = scheduler;
         _selectors = new ManagedSelector[selectors];
-        _selectorIndexUpdate = index -> (index + 1) % _selectors.length;
     }
 
     @ManagedAttribute("The Executor")
@@ -172,9 +170,56 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
         return _selectors.length;
     }
 
-    private ManagedSelector chooseSelector()
+    /**
+     * @return the strategy that chooses the selector a channel is registered with
+     */
+    @ManagedAttribute("The selector chooser")
+    public SelectorChooser getSelectorChooser()
+    {
+        return _selectorChooser;
+    }
+
+    /**
+     * @param selectorChooser the strategy that chooses the selector a channel is registered with
+     */
+    public void setSelectorChooser(SelectorChooser selectorChooser)
+    {
+        _selectorChooser = Objects.requireNonNull(selectorChooser);
+    }
+
+    /**
+     * @return the number of threads reserved by each selector, or 0 if selectors share the threads of the executor
+     * @see #setSelectorAffinity(int)
+     */
+    @ManagedAttribute("The number of threads reserved by each selector")
+    public int getSelectorAffinity()
     {
-        return _selectors[_selectorIndex.updateAndGet(_selectorIndexUpdate)];
+        return _selectorAffinity;
+    }
+
+    /**
+     * <p>Sets the number of threads reserved by each selector.</p>
+     * <p>When greater than zero, each {@link ManagedSelector} has its own
+     * {@link org.eclipse.jetty.util.thread.ReservedThreadExecutor} of threads taken
+     * from the executor, so that the production handed off by its execution strategy
+     * is always taken over by one of the same few threads, which tend to keep
+     * the selector state and the connection data hot in the same CPU caches.
+     * When zero, the selectors share the reserved threads of the executor, if any.</p>
+     * <p>The reserved threads are leased from the executor {@link ThreadPoolBudget}.
+     * This property must be set before the SelectorManager is started.</p>
+     *
+     * @param threads the number of threads reserved by each selector, or 0 to share the executor threads
+     */
+    public void setSelectorAffinity(int threads)
+    {
+        if (isStarted())
+            throw new IllegalStateException(getState());
+        _selectorAffinity = Math.max(0, threads);
+    }
+
+    private ManagedSelector chooseSelector(SelectableChannel channel)
+    {
+        return _selectorChooser.choose(_selectors, channel);
     }
 
     /**
@@ -189,7 +234,7 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
      */
     public void connect(SelectableChannel channel, Object attachment)
     {
-        ManagedSelector set = chooseSelector();
+        ManagedSelector set = chooseSelector(channel);
         set.submit(set.new Connect(channel, attachment));
     }
 
@@ -214,7 +259,20 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
      */
     public void accept(SelectableChannel channel, Object attachment)
     {
-        final ManagedSelector selector = chooseSelector();
+        accept(channel, attachment, chooseSelector(channel));
+    }
+
+    /**
+     * <p>Registers a channel to perform non-blocking read/write operations
+     * with the given selector, rather than with the one chosen by the {@link SelectorChooser}.</p>
+     *
+     * @param channel the channel to register
+     * @param attachment the attachment object
+     * @param selector the selector to register the channel with
+     * @see #accept(SelectableChannel, Object)
+     */
+    public void accept(SelectableChannel channel, Object attachment, ManagedSelector selector)
+    {
         selector.submit(selector.new Accept(channel, attachment));
     }
 
@@ -229,7 +287,25 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
      */
     public Closeable acceptor(SelectableChannel server)
     {
-        final ManagedSelector selector = chooseSelector();
+        return acceptor(server, chooseSelector(server));
+    }
+
+    /**
+     * <p>Registers a server channel for accept operations with the selector with the given index,
+     * rather than with the one chosen by the {@link SelectorChooser}.</p>
+     *
+     * @param server the server channel to register
+     * @param selector the index of the selector, between 0 and {@link #getSelectorCount()} excluded
+     * @return A Closable that allows the acceptor to be cancelled
+     * @see #accepted(SelectableChannel, ManagedSelector)
+     */
+    public Closeable acceptor(SelectableChannel server, int selector)
+    {
+        return acceptor(server, _selectors[selector]);
+    }
+
+    private Closeable acceptor(SelectableChannel server, ManagedSelector selector)
+    {
         ManagedSelector.Acceptor acceptor = selector.new Acceptor(server);
         selector.submit(acceptor);
         return acceptor;
@@ -249,6 +325,22 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * <p>Callback method when a channel is accepted by the given selector from
+     * a server channel passed to {@link #acceptor(SelectableChannel)}.</p>
+     * <p>The default implementation calls {@link #accepted(SelectableChannel)};
+     * it may be overridden to register the channel with the same selector that
+     * accepted it, via {@link #accept(SelectableChannel, Object, ManagedSelector)}.</p>
+     *
+     * @param channel the accepted channel
+     * @param selector the selector that accepted the channel
+     * @throws IOException if unable to accept channel
+     */
+    protected void accepted(SelectableChannel channel, ManagedSelector selector) throws IOException
+    {
+        accepted(channel);
+    }
+
     @Override
     protected void doStart() throws Exception
     {
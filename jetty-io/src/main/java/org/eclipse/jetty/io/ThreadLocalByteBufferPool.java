@@ -0,0 +1,369 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.component.DumpableCollection;
+
+/**
+ * <p>A {@link ByteBufferPool} that keeps small per-thread magazines of
+ * ByteBuffers in front of a shared, delegate ByteBufferPool.</p>
+ * <p>Buffers acquired and released by the same thread (for example a thread
+ * that reads from an EndPoint, parses and then releases the buffer) are
+ * recycled through the thread's magazine without any atomic operation and
+ * without allocating queue nodes.
+ * When a magazine is full, half of its buffers are returned to the delegate
+ * pool in a single batch; when a magazine is empty, buffers are acquired from
+ * the delegate pool.</p>
+ * <p>Memory retained by the magazines is accounted lazily: each magazine keeps
+ * a plain counter that is only summed when the retained memory is queried,
+ * for example via JMX.</p>
+ * <p>Buffers whose capacity is not a multiple of the capacity factor, or that
+ * are larger than the max capacity, bypass the magazines entirely.</p>
+ */
+@ManagedObject
+public class ThreadLocalByteBufferPool extends ContainerLifeCycle implements ByteBufferPool
+{
+    private final ThreadLocal<Magazine> _magazines = ThreadLocal.withInitial(this::newMagazine);
+    private final Queue<Magazine> _allMagazines = new ConcurrentLinkedQueue<>();
+    private final LongAdder _flushes = new LongAdder();
+    private final ByteBufferPool _delegate;
+    private final int _factor;
+    private final int _maxCapacity;
+    private final int _magazineSize;
+    private volatile int _generation;
+
+    /**
+     * Creates a new ThreadLocalByteBufferPool with a default configuration,
+     * delegating to an {@link ArrayByteBufferPool}.
+     */
+    public ThreadLocalByteBufferPool()
+    {
+        this(new ArrayByteBufferPool());
+    }
+
+    /**
+     * Creates a new ThreadLocalByteBufferPool with a default configuration.
+     *
+     * @param delegate the shared ByteBufferPool
+     */
+    public ThreadLocalByteBufferPool(ByteBufferPool delegate)
+    {
+        this(delegate, -1, -1, -1);
+    }
+
+    /**
+     * Creates a new ThreadLocalByteBufferPool with the given configuration.
+     *
+     * @param delegate the shared ByteBufferPool
+     * @param factor the capacity factor, which should be the same as the delegate's
+     * @param maxCapacity the max capacity of ByteBuffers held in the magazines
+     * @param magazineSize the max number of ByteBuffers of the same capacity held by each magazine
+     */
+    public ThreadLocalByteBufferPool(ByteBufferPool delegate, int factor, int maxCapacity, int magazineSize)
+    {
+        _delegate = delegate;
+        _factor = factor <= 0 ? 1024 : factor;
+        _maxCapacity = maxCapacity <= 0 ? 64 * 1024 : maxCapacity;
+        if ((_maxCapacity % _factor) != 0 || _factor > _maxCapacity)
+            throw new IllegalArgumentException("The capacity factor must be a divisor of maxCapacity");
+        _magazineSize = magazineSize <= 0 ? 8 : magazineSize;
+        addBean(delegate);
+    }
+
+    public ByteBufferPool getByteBufferPool()
+    {
+        return _delegate;
+    }
+
+    @ManagedAttribute("The capacity factor")
+    public int getCapacityFactor()
+    {
+        return _factor;
+    }
+
+    @ManagedAttribute("The max capacity of ByteBuffers held in thread magazines")
+    public int getMaxCapacity()
+    {
+        return _maxCapacity;
+    }
+
+    @ManagedAttribute("The max number of ByteBuffers of the same capacity held by a thread magazine")
+    public int getMagazineSize()
+    {
+        return _magazineSize;
+    }
+
+    @Override
+    public ByteBuffer acquire(int size, boolean direct)
+    {
+        int index = indexFor(size);
+        if (index < 0)
+            return _delegate.acquire(size, direct);
+        ByteBuffer buffer = magazine().pop(index, direct);
+        if (buffer == null)
+            buffer = _delegate.acquire(index * _factor, direct);
+        return buffer;
+    }
+
+    @Override
+    public void release(ByteBuffer buffer)
+    {
+        if (buffer == null)
+            return;
+        int capacity = buffer.capacity();
+        int index = (capacity % _factor) == 0 ? indexFor(capacity) : -1;
+        if (index < 0)
+        {
+            _delegate.release(buffer);
+            return;
+        }
+        BufferUtil.clear(buffer);
+        magazine().push(index, buffer);
+    }
+
+    @Override
+    public ByteBuffer newByteBuffer(int capacity, boolean direct)
+    {
+        return _delegate.newByteBuffer(capacity, direct);
+    }
+
+    private int indexFor(int size)
+    {
+        if (size <= 0 || size > _maxCapacity)
+            return -1;
+        return (size + _factor - 1) / _factor;
+    }
+
+    private Magazine magazine()
+    {
+        Magazine magazine = _magazines.get();
+        int generation = _generation;
+        if (magazine._generation != generation)
+            magazine.drop(generation);
+        return magazine;
+    }
+
+    private Magazine newMagazine()
+    {
+        Magazine magazine = new Magazine(Thread.currentThread(), _generation);
+        prune();
+        _allMagazines.offer(magazine);
+        return magazine;
+    }
+
+    @ManagedAttribute("The number of thread magazines")
+    public int getMagazineCount()
+    {
+        return (int)magazines().count();
+    }
+
+    @ManagedAttribute("The number of batched returns from thread magazines to the shared pool")
+    public long getFlushCount()
+    {
+        return _flushes.sum();
+    }
+
+    @ManagedAttribute("The bytes retained by direct ByteBuffers in thread magazines")
+    public long getDirectMemory()
+    {
+        return getMemory(true);
+    }
+
+    @ManagedAttribute("The bytes retained by heap ByteBuffers in thread magazines")
+    public long getHeapMemory()
+    {
+        return getMemory(false);
+    }
+
+    public long getMemory(boolean direct)
+    {
+        return magazines().mapToLong(magazine -> direct ? magazine._directMemory : magazine._heapMemory).sum();
+    }
+
+    private Stream<Magazine> magazines()
+    {
+        prune();
+        return _allMagazines.stream();
+    }
+
+    private void prune()
+    {
+        // Forget the magazines of threads that have exited.
+        for (Iterator<Magazine> iterator = _allMagazines.iterator(); iterator.hasNext(); )
+        {
+            Thread thread = iterator.next()._thread.get();
+            if (thread == null || !thread.isAlive())
+                iterator.remove();
+        }
+    }
+
+    /**
+     * <p>Clears the shared pool and the thread magazines.</p>
+     * <p>Thread magazines are owned by their thread and are only
+     * dropped the next time their thread uses this pool.</p>
+     */
+    @ManagedOperation(value = "Clears this ByteBufferPool", impact = "ACTION")
+    public void clear()
+    {
+        ++_generation;
+        if (_delegate instanceof AbstractByteBufferPool)
+            ((AbstractByteBufferPool)_delegate).clear();
+    }
+
+    @Override
+    public void dump(Appendable out, String indent) throws IOException
+    {
+        dumpObjects(out, indent, new DumpableCollection("magazines", _allMagazines));
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{factor=%d,max=%d,magazine=%d,delegate=%s}",
+            getClass().getSimpleName(), hashCode(), _factor, _maxCapacity, _magazineSize, _delegate);
+    }
+
+    /**
+     * <p>The per-thread ByteBuffer stacks, indexed by capacity.</p>
+     * <p>Only the owner thread modifies a Magazine; other threads
+     * only read the memory counters, which may be stale.</p>
+     */
+    private class Magazine
+    {
+        private final WeakReference<Thread> _thread;
+        private final ByteBuffer[][] _direct;
+        private final ByteBuffer[][] _heap;
+        private final int[] _directSizes;
+        private final int[] _heapSizes;
+        private int _generation;
+        private long _directMemory;
+        private long _heapMemory;
+
+        private Magazine(Thread thread, int generation)
+        {
+            _thread = new WeakReference<>(thread);
+            int length = _maxCapacity / _factor;
+            _direct = new ByteBuffer[length][];
+            _heap = new ByteBuffer[length][];
+            _directSizes = new int[length];
+            _heapSizes = new int[length];
+            _generation = generation;
+        }
+
+        private ByteBuffer pop(int index, boolean direct)
+        {
+            int i = index - 1;
+            int[] sizes = direct ? _directSizes : _heapSizes;
+            int size = sizes[i];
+            if (size == 0)
+                return null;
+            ByteBuffer[] stack = (direct ? _direct : _heap)[i];
+            ByteBuffer buffer = stack[--size];
+            stack[size] = null;
+            sizes[i] = size;
+            updateMemory(direct, -buffer.capacity());
+            return buffer;
+        }
+
+        private void push(int index, ByteBuffer buffer)
+        {
+            int i = index - 1;
+            boolean direct = buffer.isDirect();
+            ByteBuffer[][] stacks = direct ? _direct : _heap;
+            ByteBuffer[] stack = stacks[i];
+            if (stack == null)
+                stacks[i] = stack = new ByteBuffer[_magazineSize];
+            int[] sizes = direct ? _directSizes : _heapSizes;
+            int size = sizes[i];
+            if (size == stack.length)
+                size = flush(stack, size, direct);
+            stack[size++] = buffer;
+            sizes[i] = size;
+            updateMemory(direct, buffer.capacity());
+        }
+
+        /**
+         * Returns the older half of the given stack to the shared pool.
+         */
+        private int flush(ByteBuffer[] stack, int size, boolean direct)
+        {
+            _flushes.increment();
+            int half = Math.max(1, size / 2);
+            for (int i = 0; i < half; ++i)
+            {
+                ByteBuffer buffer = stack[i];
+                updateMemory(direct, -buffer.capacity());
+                _delegate.release(buffer);
+            }
+            System.arraycopy(stack, half, stack, 0, size - half);
+            int remaining = size - half;
+            for (int i = remaining; i < size; ++i)
+            {
+                stack[i] = null;
+            }
+            return remaining;
+        }
+
+        /**
+         * Drops all the buffers of this magazine after a {@link #clear()}.
+         */
+        private void drop(int generation)
+        {
+            _generation = generation;
+            for (int i = 0; i < _direct.length; ++i)
+            {
+                _direct[i] = null;
+                _directSizes[i] = 0;
+                _heap[i] = null;
+                _heapSizes[i] = 0;
+            }
+            _directMemory = 0;
+            _heapMemory = 0;
+        }
+
+        private void updateMemory(boolean direct, int delta)
+        {
+            if (direct)
+                _directMemory += delta;
+            else
+                _heapMemory += delta;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x{%s,direct=%d,heap=%d}", getClass().getSimpleName(), hashCode(),
+                _thread.get(), _directMemory, _heapMemory);
+        }
+    }
+}
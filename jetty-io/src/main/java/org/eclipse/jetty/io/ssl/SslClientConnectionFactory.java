@@ -48,6 +48,7 @@ public class SslClientConnectionFactory implements ClientConnectionFactory
     private boolean _directBuffersForEncryption = true;
     private boolean _directBuffersForDecryption = true;
     private boolean allowMissingCloseMessage = true;
+    private boolean coalescingWrites;
 
     public SslClientConnectionFactory(SslContextFactory sslContextFactory, ByteBufferPool byteBufferPool, Executor executor, ClientConnectionFactory connectionFactory)
     {
@@ -87,6 +88,20 @@ public class SslClientConnectionFactory implements ClientConnectionFactory
         this.allowMissingCloseMessage = allowMissingCloseMessage;
     }
 
+    public boolean isCoalescingWrites()
+    {
+        return coalescingWrites;
+    }
+
+    /**
+     * @param coalescingWrites whether the connections coalesce the TLS records of a flush
+     * @see SslConnection#setCoalescingWrites(boolean)
+     */
+    public void setCoalescingWrites(boolean coalescingWrites)
+    {
+        this.coalescingWrites = coalescingWrites;
+    }
+
     @Override
     public org.eclipse.jetty.io.Connection newConnection(EndPoint endPoint, Map<String, Object> context) throws IOException
     {
@@ -122,6 +137,7 @@ public class SslClientConnectionFactory implements ClientConnectionFactory
             sslConnection.setRenegotiationAllowed(sslContextFactory.isRenegotiationAllowed());
             sslConnection.setRenegotiationLimit(sslContextFactory.getRenegotiationLimit());
             sslConnection.setAllowMissingCloseMessage(isAllowMissingCloseMessage());
+            sslConnection.setCoalescingWrites(isCoalescingWrites());
             ContainerLifeCycle connector = (ContainerLifeCycle)context.get(ClientConnectionFactory.CONNECTOR_CONTEXT_KEY);
             connector.getBeans(SslHandshakeListener.class).forEach(sslConnection::addHandshakeListener);
         }
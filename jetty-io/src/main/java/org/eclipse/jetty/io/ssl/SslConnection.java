@@ -24,6 +24,7 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
 import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLEngineResult;
@@ -79,6 +80,7 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
 {
     private static final Logger LOG = Log.getLogger(SslConnection.class);
     private static final String TLS_1_3 = "TLSv1.3";
+    private static final int COALESCED_RECORDS = 4;
 
     private enum Handshake
     {
@@ -91,14 +93,16 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
     {
         IDLE, // Not Filling any data
         INTERESTED, // We have a pending read interest
-        WAIT_FOR_FLUSH // Waiting for a flush to happen
+        WAIT_FOR_FLUSH, // Waiting for a flush to happen
+        WAIT_FOR_TASK // Waiting for a delegated task to complete
     }
 
     private enum FlushState
     {
         IDLE, // Not flushing any data
         WRITING, // We have a pending write of encrypted data
-        WAIT_FOR_FILL // Waiting for a fill to happen
+        WAIT_FOR_FILL, // Waiting for a fill to happen
+        WAIT_FOR_TASK // Waiting for a delegated task to complete
     }
 
     private final List<SslHandshakeListener> handshakeListeners = new ArrayList<>();
@@ -114,6 +118,9 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
     private int _renegotiationLimit = -1;
     private boolean _closedOutbound;
     private boolean _allowMissingCloseMessage = true;
+    private boolean _coalescingWrites;
+    private Executor _handshakeExecutor;
+    private boolean _delegatedTask;
     private FlushState _flushState = FlushState.IDLE;
     private FillState _fillState = FillState.IDLE;
     private AtomicReference<Handshake> _handshake = new AtomicReference<>(Handshake.INITIAL);
@@ -259,6 +266,46 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
         this._allowMissingCloseMessage = allowMissingCloseMessage;
     }
 
+    public boolean isCoalescingWrites()
+    {
+        return _coalescingWrites;
+    }
+
+    /**
+     * <p>Sets whether the TLS records produced by a flush are coalesced before being written.</p>
+     * <p>By default each TLS record is written to the network as soon as it is wrapped.
+     * When writes are coalesced, the application buffers are wrapped into up to
+     * {@value #COALESCED_RECORDS} full TLS records that are then written with a single
+     * network write, trading a larger encrypted output buffer for fewer system calls.</p>
+     *
+     * @param coalescingWrites whether the TLS records of a flush are coalesced
+     */
+    public void setCoalescingWrites(boolean coalescingWrites)
+    {
+        _coalescingWrites = coalescingWrites;
+    }
+
+    public Executor getHandshakeExecutor()
+    {
+        return _handshakeExecutor;
+    }
+
+    /**
+     * <p>Sets the executor that runs the {@link SSLEngine#getDelegatedTask() delegated tasks}
+     * of the TLS handshakes, which perform the expensive cryptographic operations.</p>
+     * <p>By default the delegated tasks are run by the thread that fills or flushes the
+     * connection. When a handshake executor is set, the delegated tasks are run by it,
+     * and the connection is resumed when they complete; if the handshake executor rejects
+     * a delegated task, the TLS handshake fails and the connection is closed.</p>
+     *
+     * @param handshakeExecutor the executor of the TLS handshake delegated tasks, or null
+     * to run them inline
+     */
+    public void setHandshakeExecutor(Executor handshakeExecutor)
+    {
+        _handshakeExecutor = handshakeExecutor;
+    }
+
     private void acquireEncryptedInput()
     {
         if (_encryptedInput == null)
@@ -503,7 +550,7 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
                     int filled = -2;
                     try
                     {
-                        if (_fillState != FillState.IDLE)
+                        if (_fillState != FillState.IDLE || _delegatedTask)
                             return filled = 0;
 
                         // Do we already have some decrypted data?
@@ -523,8 +570,9 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
                                     break;
 
                                 case NEED_TASK:
-                                    _sslEngine.getDelegatedTask().run();
-                                    continue;
+                                    if (runDelegatedTask())
+                                        continue;
+                                    return filled = 0;
 
                                 case NEED_WRAP:
                                     if (_flushState == FlushState.IDLE && flush(BufferUtil.EMPTY_BUFFER))
@@ -702,6 +750,13 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
                     if (_fillState != FillState.IDLE)
                         return;
 
+                    // Wait for the delegated task, that will make us fillable again.
+                    if (_delegatedTask)
+                    {
+                        _fillState = FillState.WAIT_FOR_TASK;
+                        return;
+                    }
+
                     // Fillable if we have decrypted Input OR encrypted input that has not yet been underflown.
                     fillable = BufferUtil.hasContent(_decryptedInput) || (BufferUtil.hasContent(_encryptedInput) && !_underflown);
 
@@ -775,6 +830,74 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
             }
         }
 
+        /**
+         * @return true if the delegated task has been run, false if it has been
+         * submitted to the handshake executor
+         */
+        private boolean runDelegatedTask() throws SSLHandshakeException
+        {
+            Runnable task = _sslEngine.getDelegatedTask();
+            if (task == null)
+                return true;
+
+            Executor executor = _handshakeExecutor;
+            if (executor == null)
+            {
+                task.run();
+                return true;
+            }
+
+            _delegatedTask = true;
+            try
+            {
+                executor.execute(() ->
+                {
+                    try
+                    {
+                        task.run();
+                    }
+                    finally
+                    {
+                        onDelegatedTaskCompleted();
+                    }
+                });
+                return false;
+            }
+            catch (RejectedExecutionException x)
+            {
+                _delegatedTask = false;
+                throw (SSLHandshakeException)new SSLHandshakeException("Rejected TLS handshake task").initCause(x);
+            }
+        }
+
+        private void onDelegatedTaskCompleted()
+        {
+            boolean fillable = false;
+            boolean flushable = false;
+            synchronized (_decryptedEndPoint)
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("delegated task completed {}", SslConnection.this);
+
+                _delegatedTask = false;
+                if (_fillState == FillState.WAIT_FOR_TASK)
+                {
+                    _fillState = FillState.IDLE;
+                    fillable = true;
+                }
+                if (_flushState == FlushState.WAIT_FOR_TASK)
+                {
+                    _flushState = FlushState.IDLE;
+                    flushable = true;
+                }
+            }
+
+            if (fillable)
+                getExecutor().execute(_runFillable);
+            if (flushable)
+                getExecutor().execute(() -> _decryptedEndPoint.getWriteFlusher().completeWrite());
+        }
+
         private void handshakeFailed(Throwable failure)
         {
             if (_handshake.compareAndSet(Handshake.INITIAL, Handshake.FAILED))
@@ -845,7 +968,7 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
                     Boolean result = null;
                     try
                     {
-                        if (_flushState != FlushState.IDLE)
+                        if (_flushState != FlushState.IDLE || _delegatedTask)
                             return result = false;
 
                         // Keep going while we can make progress or until we are done
@@ -861,8 +984,9 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
                                     break;
 
                                 case NEED_TASK:
-                                    _sslEngine.getDelegatedTask().run();
-                                    continue;
+                                    if (runDelegatedTask())
+                                        continue;
+                                    return result = false;
 
                                 case NEED_UNWRAP:
                                     if (_fillState == FillState.IDLE)
@@ -879,8 +1003,9 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
                                     throw new IllegalStateException("Unexpected HandshakeStatus " + status);
                             }
 
+                            int packetBufferSize = _sslEngine.getSession().getPacketBufferSize();
                             if (_encryptedOutput == null)
-                                _encryptedOutput = _bufferPool.acquire(_sslEngine.getSession().getPacketBufferSize(), _encryptedDirectBuffers);
+                                _encryptedOutput = _bufferPool.acquire(_coalescingWrites ? COALESCED_RECORDS * packetBufferSize : packetBufferSize, _encryptedDirectBuffers);
 
                             // We call sslEngine.wrap to try to take bytes from appOut buffers and encrypt them into the _netOut buffer
                             BufferUtil.compact(_encryptedOutput);
@@ -904,13 +1029,17 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
                             // Was all the data consumed?
                             isEmpty = BufferUtil.isEmpty(appOuts);
 
-                            // if we have net bytes, let's try to flush them
+                            // if we have net bytes, let's try to flush them, unless we can wrap another record first
                             boolean flushed = true;
-                            if (BufferUtil.hasContent(_encryptedOutput))
+                            boolean coalesce = _coalescingWrites && !isEmpty &&
+                                wrapResult.getStatus() == Status.OK &&
+                                wrapResult.getHandshakeStatus() == HandshakeStatus.NOT_HANDSHAKING &&
+                                BufferUtil.space(_encryptedOutput) >= packetBufferSize;
+                            if (BufferUtil.hasContent(_encryptedOutput) && !coalesce)
                                 flushed = getEndPoint().flush(_encryptedOutput);
 
                             if (LOG.isDebugEnabled())
-                                LOG.debug("net flushed={}, ac={}", flushed, isEmpty);
+                                LOG.debug("net flushed={}, ac={}, coalesce={}", flushed, isEmpty, coalesce);
 
                             // Now deal with the results returned from the wrap
                             Status wrap = wrapResult.getStatus();
@@ -1001,6 +1130,13 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
                     if (_flushState != FlushState.IDLE)
                         return;
 
+                    // Wait for the delegated task, that will complete the write.
+                    if (_delegatedTask)
+                    {
+                        _flushState = FlushState.WAIT_FOR_TASK;
+                        return;
+                    }
+
                     while (true)
                     {
                         HandshakeStatus status = _sslEngine.getHandshakeStatus();
@@ -1212,7 +1348,10 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
             for (SslHandshakeListener listener : handshakeListeners)
             {
                 if (event == null)
-                    event = new SslHandshakeListener.Event(sslEngine);
+                {
+                    long duration = System.currentTimeMillis() - SslConnection.this.getCreatedTimeStamp();
+                    event = new SslHandshakeListener.Event(sslEngine, isSessionResumed(sslEngine), duration);
+                }
                 try
                 {
                     listener.handshakeSucceeded(event);
@@ -1228,6 +1367,17 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
             }
         }
 
+        private boolean isSessionResumed(SSLEngine sslEngine)
+        {
+            // Best-effort: the JDK does not tell whether the handshake was abbreviated,
+            // and session IDs cannot be compared with previous handshakes, because with
+            // TLS 1.3 a resumed session gets a new ID, and with stateless session tickets
+            // no SSLSession is shared between connections. A resumed session however
+            // retains the creation time of the session it resumes, which predates this
+            // connection, unless the wall clock steps back in between.
+            return sslEngine.getSession().getCreationTime() < SslConnection.this.getCreatedTimeStamp();
+        }
+
         private void notifyHandshakeFailed(SSLEngine sslEngine, Throwable failure)
         {
             SslHandshakeListener.Event event = null;
@@ -55,9 +55,19 @@ public interface SslHandshakeListener extends EventListener
      */
     class Event extends EventObject
     {
+        private final boolean resumed;
+        private final long duration;
+
         public Event(Object source)
+        {
+            this(source, false, -1);
+        }
+
+        public Event(Object source, boolean resumed, long duration)
         {
             super(source);
+            this.resumed = resumed;
+            this.duration = duration;
         }
 
         /**
@@ -67,5 +77,28 @@ public interface SslHandshakeListener extends EventListener
         {
             return (SSLEngine)getSource();
         }
+
+        /**
+         * <p>Returns whether the TLS handshake resumed a previous TLS session,
+         * performing an abbreviated handshake rather than a full handshake.</p>
+         * <p>The JDK does not expose whether a handshake was abbreviated, so this is
+         * a best-effort indication: a session is deemed resumed when it was created
+         * before the connection, which may be wrong if the wall clock steps back.</p>
+         *
+         * @return whether the TLS handshake resumed a previous TLS session
+         */
+        public boolean isResumed()
+        {
+            return resumed;
+        }
+
+        /**
+         * @return the time in milliseconds from the creation of the connection to the
+         * completion of the TLS handshake, or -1 if not known
+         */
+        public long getDuration()
+        {
+            return duration;
+        }
     }
 }
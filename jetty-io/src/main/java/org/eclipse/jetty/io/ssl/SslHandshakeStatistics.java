@@ -0,0 +1,143 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.io.ssl;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.statistic.SampleStatistic;
+
+/**
+ * <p>A {@link SslHandshakeListener} that tracks TLS handshake statistics.</p>
+ * <p>Adding an instance of this class as a bean to a server Connector
+ * (for the server) or to HttpClient (for the client) will trigger the
+ * tracking of the TLS handshakes of all the connections managed by the
+ * server Connector or by HttpClient.</p>
+ * <p>Full handshakes are distinguished from the abbreviated handshakes that
+ * resume a previous TLS session, so that the effectiveness of TLS session
+ * resumption, configured via {@link org.eclipse.jetty.util.ssl.SslContextFactory#setSslSessionCacheSize(int)}
+ * and {@link org.eclipse.jetty.util.ssl.SslContextFactory#setSslSessionTimeout(int)}, can be monitored.
+ * Resumed handshakes are detected on a best-effort basis, see {@link Event#isResumed()}.</p>
+ */
+@ManagedObject("Tracks statistics on TLS handshakes")
+public class SslHandshakeStatistics extends AbstractLifeCycle implements SslHandshakeListener
+{
+    private final LongAdder _fullHandshakes = new LongAdder();
+    private final LongAdder _resumedHandshakes = new LongAdder();
+    private final LongAdder _failedHandshakes = new LongAdder();
+    private final SampleStatistic _handshakesDuration = new SampleStatistic();
+
+    @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
+    public void reset()
+    {
+        _fullHandshakes.reset();
+        _resumedHandshakes.reset();
+        _failedHandshakes.reset();
+        _handshakesDuration.reset();
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        reset();
+    }
+
+    @Override
+    public void handshakeSucceeded(Event event)
+    {
+        if (!isStarted())
+            return;
+
+        if (event.isResumed())
+            _resumedHandshakes.increment();
+        else
+            _fullHandshakes.increment();
+
+        long duration = event.getDuration();
+        if (duration >= 0)
+            _handshakesDuration.record(duration);
+    }
+
+    @Override
+    public void handshakeFailed(Event event, Throwable failure)
+    {
+        if (!isStarted())
+            return;
+
+        _failedHandshakes.increment();
+    }
+
+    @ManagedAttribute("Total number of full TLS handshakes")
+    public long getFullHandshakes()
+    {
+        return _fullHandshakes.sum();
+    }
+
+    @ManagedAttribute("Total number of abbreviated TLS handshakes that resumed a TLS session")
+    public long getResumedHandshakes()
+    {
+        return _resumedHandshakes.sum();
+    }
+
+    @ManagedAttribute("Total number of failed TLS handshakes")
+    public long getFailedHandshakes()
+    {
+        return _failedHandshakes.sum();
+    }
+
+    @ManagedAttribute("Ratio of successful TLS handshakes that resumed a TLS session")
+    public double getResumedRatio()
+    {
+        long resumed = getResumedHandshakes();
+        long total = resumed + getFullHandshakes();
+        return total == 0 ? 0.0D : (double)resumed / total;
+    }
+
+    @ManagedAttribute("The max duration of a TLS handshake in ms")
+    public long getHandshakeDurationMax()
+    {
+        return _handshakesDuration.getMax();
+    }
+
+    @ManagedAttribute("The mean duration of a TLS handshake in ms")
+    public double getHandshakeDurationMean()
+    {
+        return _handshakesDuration.getMean();
+    }
+
+    @ManagedAttribute("The standard deviation of the duration of a TLS handshake")
+    public double getHandshakeDurationStdDev()
+    {
+        return _handshakesDuration.getStdDev();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{full=%d,resumed=%d,failed=%d}",
+            getClass().getSimpleName(),
+            hashCode(),
+            getFullHandshakes(),
+            getResumedHandshakes(),
+            getFailedHandshakes());
+    }
+}
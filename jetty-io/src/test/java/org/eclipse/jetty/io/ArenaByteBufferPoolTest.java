@@ -0,0 +1,210 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ArenaByteBufferPoolTest
+{
+    @Test
+    public void testAcquireCarvesFromSlab()
+    {
+        ArenaByteBufferPool bufferPool = new ArenaByteBufferPool(1024, 8 * 1024, 16 * 1024, 1);
+
+        ByteBuffer buffer1 = bufferPool.acquire(1000, true);
+        ByteBuffer buffer2 = bufferPool.acquire(1024, true);
+        assertTrue(buffer1.isDirect());
+        assertEquals(1024, buffer1.capacity());
+        assertEquals(0, buffer1.remaining());
+        assertNotSame(buffer1, buffer2);
+        assertEquals(1, bufferPool.getSlabCount());
+        assertEquals(2048, bufferPool.getUsedMemory());
+
+        // Writing to one chunk does not affect the other chunks.
+        BufferUtil.append(buffer1, new byte[1024], 0, 1024);
+        assertEquals(0, buffer2.remaining());
+
+        bufferPool.release(buffer1);
+        assertEquals(1024, bufferPool.getUsedMemory());
+        ByteBuffer buffer3 = bufferPool.acquire(512, true);
+        assertSame(buffer1, buffer3);
+        assertEquals(0, buffer3.remaining());
+    }
+
+    @Test
+    public void testFullSlabAllocatesNewSlab()
+    {
+        ArenaByteBufferPool bufferPool = new ArenaByteBufferPool(1024, 8 * 1024, 16 * 1024, 1);
+
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < 17; ++i)
+        {
+            buffers.add(bufferPool.acquire(1024, true));
+        }
+        assertEquals(2, bufferPool.getSlabCount());
+        assertEquals(2, bufferPool.getSlabUsage().size());
+        assertEquals(17 * 1024, bufferPool.getUsedMemory());
+
+        buffers.forEach(bufferPool::release);
+        // Up to twice maxIdleSlabs idle slabs are retained.
+        assertEquals(2, bufferPool.getSlabCount());
+        assertEquals(0, bufferPool.getReclaimedSlabCount());
+        assertEquals(0, bufferPool.getUsedMemory());
+
+        buffers.clear();
+        for (int i = 0; i < 33; ++i)
+        {
+            buffers.add(bufferPool.acquire(1024, true));
+        }
+        assertEquals(3, bufferPool.getSlabCount());
+        buffers.forEach(bufferPool::release);
+        // The idle slabs are reclaimed down to maxIdleSlabs.
+        assertEquals(1, bufferPool.getSlabCount());
+        assertEquals(2, bufferPool.getReclaimedSlabCount());
+        assertEquals(0, bufferPool.getUsedMemory());
+
+        bufferPool.clear();
+        assertEquals(0, bufferPool.getSlabCount());
+    }
+
+    @Test
+    public void testHeapAndLargeBuffersAreDelegated()
+    {
+        ArrayByteBufferPool delegate = new ArrayByteBufferPool(0, 1024, 64 * 1024);
+        ArenaByteBufferPool bufferPool = new ArenaByteBufferPool(1024, 8 * 1024, 16 * 1024, 1, delegate);
+
+        ByteBuffer heap = bufferPool.acquire(1024, false);
+        assertFalse(heap.isDirect());
+        ByteBuffer large = bufferPool.acquire(32 * 1024, true);
+        assertTrue(large.isDirect());
+        assertEquals(0, bufferPool.getSlabCount());
+
+        bufferPool.release(heap);
+        bufferPool.release(large);
+        assertEquals(1, delegate.getHeapByteBufferCount());
+        assertEquals(1, delegate.getDirectByteBufferCount());
+    }
+
+    @Test
+    public void testForeignDirectBufferIsDelegated()
+    {
+        ArrayByteBufferPool delegate = new ArrayByteBufferPool();
+        ArenaByteBufferPool bufferPool = new ArenaByteBufferPool(1024, 8 * 1024, 16 * 1024, 1, delegate);
+
+        bufferPool.release(ByteBuffer.allocateDirect(1024));
+        assertEquals(1, delegate.getDirectByteBufferCount());
+    }
+
+    @Test
+    public void testDoubleRelease()
+    {
+        ArenaByteBufferPool bufferPool = new ArenaByteBufferPool(1024, 8 * 1024, 16 * 1024, 1);
+
+        ByteBuffer buffer1 = bufferPool.acquire(1024, true);
+        bufferPool.acquire(1024, true);
+        bufferPool.release(buffer1);
+        assertThrows(IllegalStateException.class, () -> bufferPool.release(buffer1));
+    }
+
+    @Test
+    public void testRetainable()
+    {
+        ArenaByteBufferPool bufferPool = new ArenaByteBufferPool(1024, 8 * 1024, 16 * 1024, 1);
+
+        RetainableByteBuffer retainable = bufferPool.acquireRetainable(2048);
+        assertTrue(retainable.getBuffer().isDirect());
+        assertEquals(2048, bufferPool.getUsedMemory());
+
+        retainable.retain();
+        assertEquals(1, retainable.release());
+        assertEquals(2048, bufferPool.getUsedMemory());
+        assertEquals(0, retainable.release());
+        assertEquals(0, bufferPool.getUsedMemory());
+    }
+
+    @Test
+    public void testConcurrentAcquireRelease() throws Exception
+    {
+        ArenaByteBufferPool bufferPool = new ArenaByteBufferPool(1024, 8 * 1024, 16 * 1024, 1);
+
+        int threads = 8;
+        int iterations = 10_000;
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; ++t)
+            {
+                int id = t;
+                futures.add(executor.submit(() ->
+                {
+                    barrier.await();
+                    List<ByteBuffer> buffers = new ArrayList<>();
+                    for (int i = 0; i < iterations; ++i)
+                    {
+                        ByteBuffer buffer = bufferPool.acquire(1024 * (1 + (i + id) % 2), true);
+                        BufferUtil.append(buffer, new byte[]{(byte)id}, 0, 1);
+                        buffers.add(buffer);
+                        if (buffers.size() == 20 || i == iterations - 1)
+                        {
+                            for (ByteBuffer b : buffers)
+                            {
+                                // No other thread was handed the same chunk.
+                                assertEquals(id, b.get(0));
+                                bufferPool.release(b);
+                            }
+                            buffers.clear();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures)
+            {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        assertEquals(0, bufferPool.getUsedMemory());
+        // At most twice maxIdleSlabs idle slabs per capacity are retained.
+        assertTrue(bufferPool.getSlabCount() <= 4);
+    }
+}
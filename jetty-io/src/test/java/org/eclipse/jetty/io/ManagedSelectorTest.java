@@ -0,0 +1,108 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.TimerScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ManagedSelectorTest
+{
+    private QueuedThreadPool executor = new QueuedThreadPool();
+    private TimerScheduler scheduler = new TimerScheduler();
+    private SelectorManager selectorManager;
+    private ManagedSelector selector;
+
+    @BeforeEach
+    public void prepare() throws Exception
+    {
+        executor.start();
+        scheduler.start();
+        selectorManager = new SelectorManager(executor, scheduler, 1)
+        {
+            @Override
+            protected EndPoint newEndPoint(SelectableChannel channel, ManagedSelector selector, SelectionKey key)
+            {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Connection newConnection(SelectableChannel channel, EndPoint endpoint, Object attachment)
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+        selectorManager.start();
+        selector = selectorManager.getBean(ManagedSelector.class);
+        selector.resetStatistics();
+    }
+
+    @AfterEach
+    public void dispose() throws Exception
+    {
+        selectorManager.stop();
+        scheduler.stop();
+        executor.stop();
+    }
+
+    @Test
+    public void testSubmitWakesUpBlockedSelector() throws Exception
+    {
+        // Let the selector block in select().
+        Thread.sleep(500);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        selector.submit(s -> latch.countDown());
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, selector.getWakeups());
+    }
+
+    @Test
+    public void testSubmitWhileNotSelectingDoesNotWakeUp() throws Exception
+    {
+        Thread.sleep(500);
+
+        int count = 10;
+        CountDownLatch latch = new CountDownLatch(count);
+        selector.submit(s ->
+        {
+            // The selector is processing updates, so these
+            // updates must be processed without a wakeup.
+            for (int i = 0; i < count; ++i)
+            {
+                selector.submit(u -> latch.countDown());
+            }
+        });
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, selector.getWakeups());
+        assertEquals(count, selector.getUpdatesPerCycleMax());
+    }
+}
@@ -0,0 +1,275 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ReservedThreadExecutor;
+import org.eclipse.jetty.util.thread.TimerScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SelectorChooserTest
+{
+    private QueuedThreadPool executor = new QueuedThreadPool();
+    private TimerScheduler scheduler = new TimerScheduler();
+    private SelectorManager selectorManager;
+
+    @BeforeEach
+    public void prepare() throws Exception
+    {
+        executor.start();
+        scheduler.start();
+        selectorManager = new SelectorManager(executor, scheduler, 4)
+        {
+            @Override
+            protected EndPoint newEndPoint(SelectableChannel channel, ManagedSelector selector, SelectionKey key)
+            {
+                return new SocketChannelEndPoint(channel, selector, key, getScheduler());
+            }
+
+            @Override
+            public Connection newConnection(SelectableChannel channel, EndPoint endpoint, Object attachment)
+            {
+                return new AbstractConnection(endpoint, executor)
+                {
+                    @Override
+                    public void onFillable()
+                    {
+                    }
+                };
+            }
+        };
+    }
+
+    @AfterEach
+    public void dispose() throws Exception
+    {
+        selectorManager.stop();
+        scheduler.stop();
+        executor.stop();
+    }
+
+    private ManagedSelector[] newSelectors(int count)
+    {
+        ManagedSelector[] selectors = new ManagedSelector[count];
+        for (int i = 0; i < count; ++i)
+        {
+            selectors[i] = new ManagedSelector(selectorManager, i);
+        }
+        return selectors;
+    }
+
+    @Test
+    public void testRoundRobin()
+    {
+        ManagedSelector[] selectors = newSelectors(3);
+        SelectorChooser chooser = new SelectorChooser.RoundRobin();
+        for (int i = 1; i <= 6; ++i)
+        {
+            assertSame(selectors[i % 3], chooser.choose(selectors, null));
+        }
+    }
+
+    @Test
+    public void testLeastConnections()
+    {
+        ManagedSelector[] selectors = newSelectors(3);
+        SelectorChooser chooser = new SelectorChooser.LeastConnections();
+        // Selectors that are not started have no keys, so the first one is chosen.
+        assertSame(selectors[0], chooser.choose(selectors, null));
+    }
+
+    @Test
+    public void testLeastConnectionsCountsPendingAccepts() throws IOException
+    {
+        ManagedSelector[] selectors = newSelectors(3);
+        SelectorChooser chooser = new SelectorChooser.LeastConnections();
+
+        // A burst of accepts that arrives before the selectors run:
+        // none of the channels is registered yet, but they are spread evenly.
+        List<ManagedSelector.Accept> accepts = new ArrayList<>();
+        for (int i = 0; i < 9; ++i)
+        {
+            ManagedSelector selector = chooser.choose(selectors, null);
+            assertSame(selectors[i % 3], selector);
+            ManagedSelector.Accept accept = selector.new Accept(SocketChannel.open(), null);
+            selector.submit(accept);
+            accepts.add(accept);
+        }
+        for (ManagedSelector selector : selectors)
+        {
+            assertEquals(0, selector.size());
+            assertEquals(3, selector.getConnectionCount());
+        }
+
+        // Closing the pending accepts releases their connections.
+        accepts.remove(4).close();
+        accepts.remove(1).close();
+        assertEquals(1, selectors[1].getConnectionCount());
+        assertSame(selectors[1], chooser.choose(selectors, null));
+
+        accepts.forEach(ManagedSelector.Accept::close);
+        for (ManagedSelector selector : selectors)
+        {
+            assertEquals(0, selector.getConnectionCount());
+        }
+    }
+
+    @Test
+    public void testConnectionReleasedOnceWhenOpenFails() throws Exception
+    {
+        CountDownLatch failed = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(1);
+        SelectorManager failingManager = new SelectorManager(executor, scheduler, 1)
+        {
+            @Override
+            protected EndPoint newEndPoint(SelectableChannel channel, ManagedSelector selector, SelectionKey key)
+            {
+                return new SocketChannelEndPoint(channel, selector, key, getScheduler());
+            }
+
+            @Override
+            public Connection newConnection(SelectableChannel channel, EndPoint endpoint, Object attachment)
+            {
+                return new AbstractConnection(endpoint, executor)
+                {
+                    @Override
+                    public void onFillable()
+                    {
+                    }
+                };
+            }
+
+            @Override
+            public void connectionOpened(Connection connection)
+            {
+                throw new IllegalStateException("explicitly_thrown_by_test");
+            }
+
+            @Override
+            protected void onAcceptFailed(SelectableChannel channel, Throwable cause)
+            {
+                super.onAcceptFailed(channel, cause);
+                failed.countDown();
+            }
+
+            @Override
+            protected void endPointClosed(EndPoint endpoint)
+            {
+                super.endPointClosed(endpoint);
+                closed.countDown();
+            }
+        };
+        failingManager.start();
+        try (ServerSocketChannel server = ServerSocketChannel.open())
+        {
+            server.bind(new InetSocketAddress("localhost", 0));
+            try (SocketChannel client = SocketChannel.open(server.getLocalAddress()))
+            {
+                SocketChannel accepted = server.accept();
+                accepted.configureBlocking(false);
+                failingManager.accept(accepted);
+
+                // The endpoint is destroyed, and the connection is released only once.
+                assertTrue(failed.await(5, TimeUnit.SECONDS));
+                assertTrue(closed.await(5, TimeUnit.SECONDS));
+                ManagedSelector selector = failingManager.getBean(ManagedSelector.class);
+                assertEquals(0, selector.getConnectionCount());
+            }
+        }
+        finally
+        {
+            failingManager.stop();
+        }
+    }
+
+    @Test
+    public void testRemoteAddressHash() throws IOException
+    {
+        ManagedSelector[] selectors = newSelectors(4);
+        SelectorChooser chooser = new SelectorChooser.RemoteAddressHash();
+
+        try (ServerSocketChannel server = ServerSocketChannel.open())
+        {
+            server.bind(new InetSocketAddress("localhost", 0));
+            try (SocketChannel client1 = SocketChannel.open(server.getLocalAddress());
+                 SocketChannel client2 = SocketChannel.open(server.getLocalAddress());
+                 SocketChannel accepted1 = server.accept();
+                 SocketChannel accepted2 = server.accept())
+            {
+                // Same remote host, different remote ports: same selector.
+                ManagedSelector selector = chooser.choose(selectors, accepted1);
+                assertSame(selector, chooser.choose(selectors, accepted2));
+                assertSame(selector, chooser.choose(selectors, accepted1));
+            }
+
+            // The server channel has no remote address, so it falls back to round robin.
+            assertSame(selectors[1], chooser.choose(selectors, server));
+            assertSame(selectors[2], chooser.choose(selectors, server));
+        }
+    }
+
+    @Test
+    public void testSelectorAffinity() throws Exception
+    {
+        assertEquals(0, selectorManager.getSelectorAffinity());
+        selectorManager.setSelectorAffinity(2);
+        selectorManager.start();
+
+        for (ManagedSelector selector : selectorManager.getBeans(ManagedSelector.class))
+        {
+            ReservedThreadExecutor reserved = selector.getBean(ReservedThreadExecutor.class);
+            assertNotNull(reserved);
+            assertEquals(2, reserved.getCapacity());
+            assertSame(executor, reserved.getExecutor());
+        }
+
+        assertThrows(IllegalStateException.class, () -> selectorManager.setSelectorAffinity(1));
+    }
+
+    @Test
+    public void testNoSelectorAffinity() throws Exception
+    {
+        selectorManager.start();
+
+        for (ManagedSelector selector : selectorManager.getBeans(ManagedSelector.class))
+        {
+            assertNull(selector.getBean(ReservedThreadExecutor.class));
+        }
+    }
+}
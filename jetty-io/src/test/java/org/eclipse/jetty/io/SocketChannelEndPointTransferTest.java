@@ -0,0 +1,191 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.Scheduler;
+import org.eclipse.jetty.util.thread.TimerScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SocketChannelEndPointTransferTest
+{
+    private QueuedThreadPool threadPool;
+    private Scheduler scheduler;
+    private ServerSocketChannel connector;
+    private SelectorManager selectorManager;
+    private final AtomicReference<SocketChannelEndPoint> endPoint = new AtomicReference<>();
+    private final AtomicBoolean writeBlocked = new AtomicBoolean();
+    private File file;
+    private byte[] content;
+
+    @BeforeEach
+    public void init() throws Exception
+    {
+        content = new byte[8 * 1024 * 1024];
+        new Random().nextBytes(content);
+        file = File.createTempFile("transfer", ".bin");
+        file.deleteOnExit();
+        Files.write(file.toPath(), content);
+
+        threadPool = new QueuedThreadPool();
+        threadPool.start();
+
+        scheduler = new TimerScheduler();
+        scheduler.start();
+
+        connector = ServerSocketChannel.open();
+        connector.bind(new InetSocketAddress("localhost", 0));
+
+        selectorManager = new SelectorManager(threadPool, scheduler)
+        {
+            @Override
+            protected EndPoint newEndPoint(SelectableChannel channel, ManagedSelector selector, SelectionKey key)
+            {
+                SocketChannelEndPoint endp = new SocketChannelEndPoint(channel, selector, key, getScheduler())
+                {
+                    @Override
+                    protected void onIncompleteFlush()
+                    {
+                        writeBlocked.set(true);
+                        super.onIncompleteFlush();
+                    }
+                };
+                endp.setIdleTimeout(60000);
+                endPoint.set(endp);
+                return endp;
+            }
+
+            @Override
+            public Connection newConnection(SelectableChannel channel, EndPoint endPoint, Object attachment)
+            {
+                return new AbstractConnection(endPoint, getExecutor())
+                {
+                    @Override
+                    public void onFillable()
+                    {
+                    }
+                };
+            }
+        };
+        selectorManager.start();
+    }
+
+    @AfterEach
+    public void destroy() throws Exception
+    {
+        if (scheduler != null)
+            scheduler.stop();
+        if (selectorManager != null)
+            selectorManager.stop();
+        if (connector != null)
+            connector.close();
+        if (threadPool != null)
+            threadPool.stop();
+    }
+
+    private void testTransfer(int position, int count) throws Exception
+    {
+        try (Socket client = new Socket();
+             FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            client.connect(connector.getLocalAddress());
+            client.setSoTimeout(5000);
+            try (SocketChannel server = connector.accept())
+            {
+                server.configureBlocking(false);
+                selectorManager.accept(server);
+
+                long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                while (endPoint.get() == null && System.nanoTime() < end)
+                {
+                    Thread.sleep(10);
+                }
+                SocketChannelEndPoint endp = endPoint.get();
+                assertNotNull(endp);
+                assertTrue(endp.isFileTransferSupported());
+
+                CountDownLatch latch = new CountDownLatch(1);
+                AtomicReference<Throwable> failure = new AtomicReference<>();
+                endp.transferFrom(new Callback()
+                {
+                    @Override
+                    public void succeeded()
+                    {
+                        latch.countDown();
+                    }
+
+                    @Override
+                    public void failed(Throwable x)
+                    {
+                        failure.set(x);
+                        latch.countDown();
+                    }
+                }, fileChannel, position, count);
+
+                // The client does not read yet, so the transfer cannot complete.
+                Thread.sleep(500);
+                assertTrue(writeBlocked.get());
+
+                byte[] received = new byte[count];
+                new DataInputStream(client.getInputStream()).readFully(received);
+                assertTrue(latch.await(5, TimeUnit.SECONDS));
+                assertNull(failure.get());
+                assertArrayEquals(Arrays.copyOfRange(content, position, position + count), received);
+            }
+        }
+    }
+
+    @Test
+    public void testTransferWholeFile() throws Exception
+    {
+        testTransfer(0, content.length);
+    }
+
+    @Test
+    public void testTransferRegion() throws Exception
+    {
+        testTransfer(1234567, 5 * 1024 * 1024 + 89);
+    }
+}
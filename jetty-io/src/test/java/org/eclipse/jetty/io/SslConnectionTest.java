@@ -31,6 +31,10 @@ import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -39,6 +43,7 @@ import javax.net.ssl.SSLException;
 import javax.net.ssl.SSLSocket;
 
 import org.eclipse.jetty.io.ssl.SslConnection;
+import org.eclipse.jetty.io.ssl.SslHandshakeStatistics;
 import org.eclipse.jetty.toolchain.test.MavenTestingUtils;
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.FutureCallback;
@@ -52,6 +57,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -67,6 +74,10 @@ public class SslConnectionTest
     protected volatile EndPoint _lastEndp;
     private volatile boolean _testFill = true;
     private volatile boolean _onXWriteThenShutdown = false;
+    private volatile boolean _coalescingWrites = false;
+    private volatile String _writeOnConnect = "Hello Client";
+    private final SslHandshakeStatistics _handshakeStatistics = new SslHandshakeStatistics();
+    private volatile Executor _handshakeExecutor;
 
     private volatile FutureCallback _writeCallback;
     protected ServerSocketChannel _connector;
@@ -91,6 +102,9 @@ public class SslConnectionTest
             SslConnection sslConnection = new SslConnection(__byteBufferPool, getExecutor(), endpoint, engine);
             sslConnection.setRenegotiationAllowed(_sslCtxFactory.isRenegotiationAllowed());
             sslConnection.setRenegotiationLimit(_sslCtxFactory.getRenegotiationLimit());
+            sslConnection.setCoalescingWrites(_coalescingWrites);
+            sslConnection.addHandshakeListener(_handshakeStatistics);
+            sslConnection.setHandshakeExecutor(_handshakeExecutor);
             Connection appConnection = new TestConnection(sslConnection.getDecryptedEndPoint());
             sslConnection.getDecryptedEndPoint().setConnection(appConnection);
             return sslConnection;
@@ -109,6 +123,7 @@ public class SslConnectionTest
     static final AtomicInteger __startBlocking = new AtomicInteger();
     static final AtomicInteger __blockFor = new AtomicInteger();
     static final AtomicBoolean __onIncompleteFlush = new AtomicBoolean();
+    static final AtomicInteger __maxFlushSize = new AtomicInteger();
 
     private static class TestEP extends SocketChannelEndPoint
     {
@@ -128,6 +143,7 @@ public class SslConnectionTest
         public boolean flush(ByteBuffer... buffers) throws IOException
         {
             __onIncompleteFlush.set(false);
+            __maxFlushSize.accumulateAndGet((int)BufferUtil.remaining(buffers), Math::max);
             if (__startBlocking.get() == 0 || __startBlocking.decrementAndGet() == 0)
             {
                 if (__blockFor.get() > 0 && __blockFor.getAndDecrement() > 0)
@@ -156,10 +172,12 @@ public class SslConnectionTest
         _testFill = true;
         _writeCallback = null;
         _lastEndp = null;
+        __maxFlushSize.set(0);
         _connector = ServerSocketChannel.open();
         _connector.socket().bind(null);
         _threadPool.start();
         _scheduler.start();
+        _handshakeStatistics.start();
         _manager.start();
     }
 
@@ -180,6 +198,7 @@ public class SslConnectionTest
         if (_lastEndp != null && _lastEndp.isOpen())
             _lastEndp.close();
         _manager.stop();
+        _handshakeStatistics.stop();
         _scheduler.stop();
         _threadPool.stop();
         _connector.close();
@@ -202,7 +221,7 @@ public class SslConnectionTest
                 fillInterested();
             else
             {
-                getExecutor().execute(() -> getEndPoint().write(_writeCallback, BufferUtil.toBuffer("Hello Client")));
+                getExecutor().execute(() -> getEndPoint().write(_writeCallback, BufferUtil.toBuffer(_writeOnConnect)));
             }
         }
 
@@ -302,6 +321,101 @@ public class SslConnectionTest
         }
     }
 
+    @Test
+    public void testHandshakeStatistics() throws Exception
+    {
+        startSSL();
+        for (int i = 0; i < 2; i++)
+        {
+            try (Socket client = newClient())
+            {
+                client.setSoTimeout(TIMEOUT);
+                try (SocketChannel server = _connector.accept())
+                {
+                    server.configureBlocking(false);
+                    _manager.accept(server);
+
+                    client.getOutputStream().write("Hello".getBytes(StandardCharsets.UTF_8));
+                    byte[] buffer = new byte[1024];
+                    int len = client.getInputStream().read(buffer);
+                    assertEquals("Hello", new String(buffer, 0, len, StandardCharsets.UTF_8));
+                }
+            }
+        }
+
+        // The second connection resumes the TLS session of the first.
+        assertThat(_handshakeStatistics.getFullHandshakes(), is(1L));
+        assertThat(_handshakeStatistics.getResumedHandshakes(), is(1L));
+        assertThat(_handshakeStatistics.getFailedHandshakes(), is(0L));
+    }
+
+    @Test
+    public void testHandshakeExecutor() throws Exception
+    {
+        AtomicInteger tasks = new AtomicInteger();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        _handshakeExecutor = task ->
+        {
+            tasks.incrementAndGet();
+            executor.execute(task);
+        };
+        startSSL();
+        try (Socket client = newClient())
+        {
+            client.setSoTimeout(TIMEOUT);
+            try (SocketChannel server = _connector.accept())
+            {
+                server.configureBlocking(false);
+                _manager.accept(server);
+
+                client.getOutputStream().write("Hello".getBytes(StandardCharsets.UTF_8));
+                byte[] buffer = new byte[1024];
+                int len = client.getInputStream().read(buffer);
+                assertEquals("Hello", new String(buffer, 0, len, StandardCharsets.UTF_8));
+
+                client.getOutputStream().write("World".getBytes(StandardCharsets.UTF_8));
+                len = client.getInputStream().read(buffer);
+                assertEquals("World", new String(buffer, 0, len, StandardCharsets.UTF_8));
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        assertThat(tasks.get(), greaterThan(0));
+        assertThat(_handshakeStatistics.getFullHandshakes(), is(1L));
+    }
+
+    @Test
+    public void testHandshakeExecutorRejection() throws Exception
+    {
+        _handshakeExecutor = task ->
+        {
+            throw new RejectedExecutionException();
+        };
+        startSSL();
+        try (Socket client = newClient())
+        {
+            client.setSoTimeout(TIMEOUT);
+            try (SocketChannel server = _connector.accept())
+            {
+                server.configureBlocking(false);
+                _manager.accept(server);
+
+                // The server closes the connection during the TLS handshake.
+                assertThrows(IOException.class, () ->
+                {
+                    client.getOutputStream().write("Hello".getBytes(StandardCharsets.UTF_8));
+                    if (client.getInputStream().read() < 0)
+                        throw new IOException("closed");
+                });
+            }
+        }
+
+        assertThat(_handshakeStatistics.getFailedHandshakes(), is(1L));
+    }
+
     @Test
     public void testRenegotiate() throws Exception
     {
@@ -431,6 +545,75 @@ public class SslConnectionTest
         }
     }
 
+    @Test
+    public void testCoalescingWrites() throws Exception
+    {
+        _testFill = false;
+        _coalescingWrites = true;
+        StringBuilder content = new StringBuilder();
+        while (content.length() < 48 * 1024)
+        {
+            content.append("0123456789ABCDEF");
+        }
+        _writeOnConnect = content.toString();
+        _writeCallback = new FutureCallback();
+        startSSL();
+        try (SSLSocket client = newClient())
+        {
+            client.setSoTimeout(TIMEOUT);
+            try (SocketChannel server = _connector.accept())
+            {
+                server.configureBlocking(false);
+                _manager.accept(server);
+
+                byte[] buffer = new byte[_writeOnConnect.length()];
+                int len = 0;
+                while (len < buffer.length)
+                {
+                    int read = client.getInputStream().read(buffer, len, buffer.length - len);
+                    if (read < 0)
+                        break;
+                    len += read;
+                }
+                assertEquals(_writeOnConnect, new String(buffer, 0, len, StandardCharsets.UTF_8));
+                assertNull(_writeCallback.get(1, TimeUnit.SECONDS));
+
+                // The 48 KiB of content span multiple TLS records, written together.
+                int packetBufferSize = client.getSession().getPacketBufferSize();
+                assertThat(__maxFlushSize.get(), greaterThan(packetBufferSize));
+            }
+        }
+    }
+
+    @Test
+    public void testIdleConnectionReleasesBuffers() throws Exception
+    {
+        startSSL();
+        try (Socket client = newClient())
+        {
+            client.setSoTimeout(TIMEOUT);
+            try (SocketChannel server = _connector.accept())
+            {
+                server.configureBlocking(false);
+                _manager.accept(server);
+
+                client.getOutputStream().write("Hello".getBytes(StandardCharsets.UTF_8));
+                byte[] buffer = new byte[1024];
+                int len = client.getInputStream().read(buffer);
+                assertEquals("Hello", new String(buffer, 0, len, StandardCharsets.UTF_8));
+
+                // Once idle, the connection does not retain any buffer.
+                SslConnection sslConnection = (SslConnection)_lastEndp.getConnection();
+                long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                while (!sslConnection.toConnectionString().contains("eio=-1/-1,di=-1") && System.nanoTime() < end)
+                {
+                    Thread.sleep(10);
+                }
+                assertThat(sslConnection.toConnectionString(), containsString("eio=-1/-1,di=-1"));
+            }
+        }
+    }
+
     @Test
     public void testBlockedWrite() throws Exception
     {
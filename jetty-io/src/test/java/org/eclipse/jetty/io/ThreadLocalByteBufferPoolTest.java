@@ -0,0 +1,142 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ThreadLocalByteBufferPoolTest
+{
+    @Test
+    public void testAcquireReleaseSameThread()
+    {
+        ArrayByteBufferPool delegate = new ArrayByteBufferPool();
+        ThreadLocalByteBufferPool bufferPool = new ThreadLocalByteBufferPool(delegate);
+
+        ByteBuffer buffer = bufferPool.acquire(1500, true);
+        assertTrue(buffer.isDirect());
+        assertEquals(2048, buffer.capacity());
+        BufferUtil.append(buffer, new byte[]{1, 2, 3}, 0, 3);
+
+        bufferPool.release(buffer);
+        assertEquals(2048, bufferPool.getDirectMemory());
+        // The buffer is held by the thread magazine, not by the delegate.
+        assertEquals(0, delegate.getDirectByteBufferCount());
+
+        ByteBuffer buffer2 = bufferPool.acquire(2000, true);
+        assertSame(buffer, buffer2);
+        assertEquals(0, buffer2.remaining());
+        assertEquals(0, bufferPool.getDirectMemory());
+    }
+
+    @Test
+    public void testDirectAndHeapAreSeparated()
+    {
+        ThreadLocalByteBufferPool bufferPool = new ThreadLocalByteBufferPool();
+
+        ByteBuffer direct = bufferPool.acquire(1024, true);
+        bufferPool.release(direct);
+
+        ByteBuffer heap = bufferPool.acquire(1024, false);
+        assertNotSame(direct, heap);
+        assertFalse(heap.isDirect());
+    }
+
+    @Test
+    public void testFullMagazineFlushesToDelegate()
+    {
+        ArrayByteBufferPool delegate = new ArrayByteBufferPool();
+        ThreadLocalByteBufferPool bufferPool = new ThreadLocalByteBufferPool(delegate, 1024, 64 * 1024, 4);
+
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < 5; ++i)
+        {
+            buffers.add(bufferPool.acquire(1024, false));
+        }
+        buffers.forEach(bufferPool::release);
+
+        assertEquals(1, bufferPool.getFlushCount());
+        assertEquals(2, delegate.getHeapByteBufferCount());
+        assertEquals(3 * 1024, bufferPool.getHeapMemory());
+    }
+
+    @Test
+    public void testLargeBuffersBypassMagazine()
+    {
+        ArrayByteBufferPool delegate = new ArrayByteBufferPool(0, 1024, 128 * 1024);
+        ThreadLocalByteBufferPool bufferPool = new ThreadLocalByteBufferPool(delegate, 1024, 32 * 1024, 8);
+
+        ByteBuffer buffer = bufferPool.acquire(64 * 1024, true);
+        assertThat(buffer.capacity(), greaterThanOrEqualTo(64 * 1024));
+        bufferPool.release(buffer);
+
+        assertEquals(0, bufferPool.getDirectMemory());
+        assertEquals(1, delegate.getDirectByteBufferCount());
+    }
+
+    @Test
+    public void testReleaseFromOtherThread() throws Exception
+    {
+        ArrayByteBufferPool delegate = new ArrayByteBufferPool();
+        ThreadLocalByteBufferPool bufferPool = new ThreadLocalByteBufferPool(delegate);
+
+        ByteBuffer buffer = bufferPool.acquire(4096, true);
+        AtomicReference<ByteBuffer> reacquired = new AtomicReference<>();
+        Thread thread = new Thread(() ->
+        {
+            bufferPool.release(buffer);
+            reacquired.set(bufferPool.acquire(4096, true));
+        });
+        thread.start();
+        thread.join();
+
+        assertSame(buffer, reacquired.get());
+        // Only the magazine of this thread remains, the one
+        // of the exited thread is forgotten.
+        assertEquals(1, bufferPool.getMagazineCount());
+    }
+
+    @Test
+    public void testClearDropsMagazines()
+    {
+        ThreadLocalByteBufferPool bufferPool = new ThreadLocalByteBufferPool();
+
+        ByteBuffer buffer = bufferPool.acquire(1024, true);
+        bufferPool.release(buffer);
+        assertEquals(1024, bufferPool.getDirectMemory());
+
+        bufferPool.clear();
+        ByteBuffer buffer2 = bufferPool.acquire(1024, true);
+        assertNotSame(buffer, buffer2);
+        assertEquals(0, bufferPool.getDirectMemory());
+    }
+}
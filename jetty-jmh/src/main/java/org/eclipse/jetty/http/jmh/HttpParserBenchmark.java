@@ -0,0 +1,267 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http.jmh;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFieldCache;
+import org.eclipse.jetty.http.HttpParser;
+import org.eclipse.jetty.http.HttpVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>Parses HTTP/1.1 requests with realistic sets of headers, either from browsers,
+ * from an API gateway that adds its own headers, or with large cookies and bearer
+ * tokens, with a new parser every {@code requestsPerConnection} requests to simulate
+ * short or long lived connections.</p>
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+public class HttpParserBenchmark
+{
+    private static final String[] HOSTS = {"api.example.com", "www.example.com", "static.example.com", "shop.example.com"};
+    private static final String[] USER_AGENTS = {
+        "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/75.0.3770.100 Safari/537.36",
+        "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_14_5) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/12.1.1 Safari/605.1.15",
+        "Mozilla/5.0 (X11; Linux x86_64; rv:67.0) Gecko/20100101 Firefox/67.0",
+        "Mozilla/5.0 (iPhone; CPU iPhone OS 12_3_1 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Mobile/15E148",
+        "okhttp/3.14.2",
+        "Apache-HttpClient/4.5.9 (Java/1.8.0_212)"
+    };
+    private static final int REQUESTS = 256;
+
+    @Param({"browser", "gateway", "large"})
+    String headers;
+
+    @Param({"false", "true"})
+    boolean direct;
+
+    @Param({"1", "100"})
+    int requestsPerConnection;
+
+    @Param({"false", "true"})
+    boolean sharedCache;
+
+    ByteBuffer[] requests;
+    HttpFieldCache fieldCache;
+
+    @Setup
+    public void prepare()
+    {
+        requests = new ByteBuffer[REQUESTS];
+        for (int i = 0; i < REQUESTS; ++i)
+        {
+            String request;
+            switch (headers)
+            {
+                case "browser":
+                    request = browserRequest(i);
+                    break;
+                case "gateway":
+                    request = gatewayRequest(i);
+                    break;
+                case "large":
+                    request = largeRequest(i);
+                    break;
+                default:
+                    throw new IllegalArgumentException(headers);
+            }
+            byte[] bytes = request.getBytes(StandardCharsets.ISO_8859_1);
+            requests[i] = direct ? ByteBuffer.allocateDirect(bytes.length) : ByteBuffer.allocate(bytes.length);
+            requests[i].put(bytes).flip();
+        }
+        fieldCache = sharedCache ? new HttpFieldCache() : null;
+    }
+
+    @TearDown
+    public void dispose()
+    {
+        if (fieldCache != null)
+            System.err.printf("%n%s%n", fieldCache);
+    }
+
+    private static String browserRequest(int i)
+    {
+        return "GET /products/" + i + "?page=" + (i % 7) + " HTTP/1.1\r\n" +
+            "Host: " + HOSTS[i % HOSTS.length] + "\r\n" +
+            "Connection: keep-alive\r\n" +
+            "Upgrade-Insecure-Requests: 1\r\n" +
+            "User-Agent: " + USER_AGENTS[i % 4] + "\r\n" +
+            "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,image/apng,*/*;q=0.8\r\n" +
+            "Referer: https://" + HOSTS[i % HOSTS.length] + "/products\r\n" +
+            "Accept-Encoding: gzip, deflate, br\r\n" +
+            "Accept-Language: en-US,en;q=0.9\r\n" +
+            "Cookie: JSESSIONID=node0" + Integer.toHexString(i * 7919) + "abcdef0123456789.node0\r\n" +
+            "\r\n";
+    }
+
+    private static String gatewayRequest(int i)
+    {
+        return "POST /api/v1/orders/" + i + " HTTP/1.1\r\n" +
+            "Host: " + HOSTS[0] + "\r\n" +
+            "User-Agent: " + USER_AGENTS[4 + i % 2] + "\r\n" +
+            "Accept: application/json\r\n" +
+            "Accept-Encoding: gzip\r\n" +
+            "Content-Type: application/json\r\n" +
+            "Content-Length: 0\r\n" +
+            "X-Forwarded-Proto: https\r\n" +
+            "X-Forwarded-Port: 443\r\n" +
+            "X-Forwarded-For: 10.0." + (i % 4) + "." + (i % 64) + "\r\n" +
+            "X-Gateway-Region: eu-west-1\r\n" +
+            "X-Gateway-Version: 2.7.1\r\n" +
+            "X-Request-Id: 5f0c6c1e-" + Integer.toHexString(i * 104729) + "\r\n" +
+            "\r\n";
+    }
+
+    private static String largeRequest(int i)
+    {
+        StringBuilder cookie = new StringBuilder();
+        for (int c = 0; c < 24; c++)
+        {
+            if (c > 0)
+                cookie.append("; ");
+            cookie.append("_preference_").append(c).append('=').append(Integer.toHexString(i * 131 + c)).append("-0123456789abcdef0123456789abcdef");
+        }
+        String token = "eyJhbGciOiJSUzI1NiIsInR5cCI6IkpXVCJ9." +
+            "eyJzdWIiOiIxMjM0NTY3ODkwIiwibmFtZSI6IkpvaG4gRG9lIiwiYWRtaW4iOnRydWUsImlhdCI6MTUxNjIzOTAyMiwianRpIjoi" + Integer.toHexString(i * 7919) + "In0." +
+            "POstGetfAytaZS82wHcjoTyoqhMyxXiWdR7Nn7A29DNSl0EiXLdwJ6xC6AfgZWF1bOsS_TuYI3OG85AmiExREkrS6tDfTQ2B3WXlrr";
+        return "GET /api/v2/search?q=" + token.substring(0, 64) + "&page=" + i + " HTTP/1.1\r\n" +
+            "Host: " + HOSTS[i % HOSTS.length] + "\r\n" +
+            "User-Agent: " + USER_AGENTS[i % 4] + "\r\n" +
+            "Accept: application/json\r\n" +
+            "Authorization: Bearer " + token + "\r\n" +
+            "Cookie: " + cookie + "\r\n" +
+            "\r\n";
+    }
+
+    @State(Scope.Thread)
+    public static class Connection implements HttpParser.RequestHandler
+    {
+        HttpParser parser;
+        int requests;
+        int next;
+        int fields;
+
+        @Override
+        public boolean startRequest(String method, String uri, HttpVersion version)
+        {
+            return false;
+        }
+
+        @Override
+        public void parsedHeader(HttpField field)
+        {
+            fields++;
+        }
+
+        @Override
+        public boolean headerComplete()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean content(ByteBuffer item)
+        {
+            return false;
+        }
+
+        @Override
+        public boolean contentComplete()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean messageComplete()
+        {
+            return true;
+        }
+
+        @Override
+        public void earlyEOF()
+        {
+        }
+
+        @Override
+        public int getHeaderCacheSize()
+        {
+            return 1024;
+        }
+
+        int parse(HttpParserBenchmark benchmark)
+        {
+            if (parser == null || requests++ == benchmark.requestsPerConnection)
+            {
+                parser = new HttpParser(this);
+                parser.setSharedFieldCache(benchmark.fieldCache);
+                requests = 1;
+            }
+            else
+            {
+                parser.reset();
+            }
+
+            ByteBuffer buffer = benchmark.requests[next++ % REQUESTS].slice();
+            fields = 0;
+            while (buffer.hasRemaining())
+            {
+                if (parser.parseNext(buffer))
+                    break;
+            }
+            return fields;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(4)
+    public int testParse(Connection connection)
+    {
+        return connection.parse(this);
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+            .include(HttpParserBenchmark.class.getSimpleName())
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
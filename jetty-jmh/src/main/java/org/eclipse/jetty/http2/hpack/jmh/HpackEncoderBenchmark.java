@@ -0,0 +1,171 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http2.hpack.jmh;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.http.PreEncodedHttpField;
+import org.eclipse.jetty.http2.hpack.HpackEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>Encodes typical HTTP/2 responses, of static resources and of API calls, with a
+ * new encoder every {@code responsesPerConnection} responses to simulate short or long
+ * lived connections.</p>
+ * <p>Run with {@code -prof gc} to compare the allocation per response; the average
+ * number of encoded bytes per response is printed at the end of each trial.</p>
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+public class HpackEncoderBenchmark
+{
+    private static final int RESPONSES = 256;
+    private static final PreEncodedHttpField SERVER = new PreEncodedHttpField(HttpHeader.SERVER, "Jetty(9.4.x)");
+    private static final String[] CONTENT_TYPES = {"text/html;charset=utf-8", "text/css", "application/javascript", "image/png"};
+
+    @Param({"static", "api"})
+    String responses;
+
+    @Param({"1", "100"})
+    int responsesPerConnection;
+
+    MetaData.Response[] metaDatas;
+
+    @Setup
+    public void prepare()
+    {
+        metaDatas = new MetaData.Response[RESPONSES];
+        for (int i = 0; i < RESPONSES; ++i)
+        {
+            HttpFields fields = new HttpFields();
+            fields.put(SERVER);
+            fields.put(HttpHeader.DATE, "Tue, 16 Jul 2019 10:" + (10 + i / 64) + ":00 GMT");
+            switch (responses)
+            {
+                case "static":
+                {
+                    int resource = i % 16;
+                    fields.put(HttpHeader.CONTENT_TYPE, CONTENT_TYPES[resource % CONTENT_TYPES.length]);
+                    fields.put(HttpHeader.CONTENT_LENGTH, Integer.toString(1024 + resource * 4099));
+                    fields.put(HttpHeader.LAST_MODIFIED, "Mon, 01 Jul 2019 0" + (resource % 10) + ":00:00 GMT");
+                    fields.put(HttpHeader.ETAG, "W/\"" + Integer.toHexString(resource * 7919) + "\"");
+                    fields.put(HttpHeader.ACCEPT_RANGES, "bytes");
+                    fields.put(HttpHeader.CACHE_CONTROL, "max-age=3600");
+                    break;
+                }
+                case "api":
+                {
+                    fields.put(HttpHeader.CONTENT_TYPE, "application/json");
+                    fields.put(HttpHeader.CONTENT_LENGTH, Integer.toString(200 + i));
+                    fields.put(HttpHeader.CACHE_CONTROL, "no-store");
+                    fields.put(HttpHeader.VARY, "Accept-Encoding");
+                    fields.put("X-Request-Id", "5f0c6c1e-" + Integer.toHexString(i * 104729));
+                    fields.put("X-RateLimit-Remaining", Integer.toString(1000 - i));
+                    fields.put(HttpHeader.SET_COOKIE, "session=" + Integer.toHexString(i * 7919) + "; Path=/; Secure; HttpOnly");
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException(responses);
+            }
+            metaDatas[i] = new MetaData.Response(HttpVersion.HTTP_2, 200, fields);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Connection
+    {
+        final ByteBuffer buffer = ByteBuffer.allocate(16 * 1024);
+        HpackEncoder encoder;
+        int responses;
+        int next;
+        long encoded;
+        long count;
+
+        @Setup(Level.Trial)
+        public void reset()
+        {
+            encoded = 0;
+            count = 0;
+        }
+
+        @TearDown(Level.Trial)
+        public void report()
+        {
+            if (count > 0)
+                System.err.printf("%n%d bytes per response%n", encoded / count);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public int testEncode(HpackEncoderBenchmark benchmark, Connection connection)
+    {
+        if (connection.encoder == null || connection.responses == benchmark.responsesPerConnection)
+        {
+            connection.encoder = new HpackEncoder();
+            connection.responses = 0;
+        }
+        connection.responses++;
+
+        MetaData.Response metaData = benchmark.metaDatas[connection.next];
+        connection.next = (connection.next + 1) % RESPONSES;
+
+        ByteBuffer buffer = connection.buffer;
+        buffer.clear();
+        connection.encoder.encode(buffer, metaData);
+        connection.encoded += buffer.position();
+        connection.count++;
+        return buffer.position();
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+            .include(HpackEncoderBenchmark.class.getSimpleName())
+            .warmupIterations(5)
+            .measurementIterations(5)
+            .forks(1)
+            .threads(1)
+            .addProfiler(GCProfiler.class)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
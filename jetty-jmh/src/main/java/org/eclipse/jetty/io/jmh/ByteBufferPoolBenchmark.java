@@ -0,0 +1,155 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.io.jmh;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.io.ArenaByteBufferPool;
+import org.eclipse.jetty.io.ArrayByteBufferPool;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.eclipse.jetty.io.ThreadLocalByteBufferPool;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+@State(Scope.Benchmark)
+@Warmup(iterations = 7, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 7, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+public class ByteBufferPoolBenchmark
+{
+    public enum Type
+    {
+        ARRAY, MAPPED, ARENA, THREAD_LOCAL_ARRAY, THREAD_LOCAL_MAPPED
+    }
+
+    @Param({"ARRAY", "MAPPED", "ARENA", "THREAD_LOCAL_ARRAY", "THREAD_LOCAL_MAPPED"})
+    Type type;
+
+    @Param({"true", "false"})
+    boolean direct;
+
+    ByteBufferPool pool;
+
+    @Setup
+    public void buildPool()
+    {
+        switch (type)
+        {
+            case ARRAY:
+                pool = new ArrayByteBufferPool();
+                break;
+            case MAPPED:
+                pool = new MappedByteBufferPool();
+                break;
+            case ARENA:
+                pool = new ArenaByteBufferPool();
+                break;
+            case THREAD_LOCAL_ARRAY:
+                pool = new ThreadLocalByteBufferPool(new ArrayByteBufferPool());
+                break;
+            case THREAD_LOCAL_MAPPED:
+                pool = new ThreadLocalByteBufferPool(new MappedByteBufferPool());
+                break;
+        }
+        LifeCycle.start(pool);
+    }
+
+    @TearDown
+    public void shutdownPool()
+    {
+        LifeCycle.stop(pool);
+        pool = null;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(1)
+    public long testOne()
+    {
+        return doJob();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(4)
+    public long testFew()
+    {
+        return doJob();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(16)
+    public long testSome()
+    {
+        return doJob();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(64)
+    public long testMany()
+    {
+        return doJob();
+    }
+
+    /**
+     * Mimics a connection that acquires a network buffer and
+     * an aggregation buffer, uses them and releases them.
+     */
+    long doJob()
+    {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        ByteBuffer input = pool.acquire(4096, direct);
+        ByteBuffer output = pool.acquire(1 + random.nextInt(32 * 1024), direct);
+        input.limit(1);
+        input.put(0, (byte)random.nextInt());
+        long result = input.get(0) + output.capacity();
+        pool.release(output);
+        pool.release(input);
+        return result;
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+            .include(ByteBufferPoolBenchmark.class.getSimpleName())
+            .forks(1)
+            // .addProfiler(GCProfiler.class)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
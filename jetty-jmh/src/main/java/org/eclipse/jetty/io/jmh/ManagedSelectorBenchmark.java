@@ -0,0 +1,260 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.io.jmh;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.io.AbstractConnection;
+import org.eclipse.jetty.io.Connection;
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.io.ManagedSelector;
+import org.eclipse.jetty.io.SelectorManager;
+import org.eclipse.jetty.io.SocketChannelEndPoint;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.IO;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>Drives a {@link ManagedSelector} with a number of idle connections
+ * and a number of active connections that exchange small echo messages,
+ * so that every exchange submits interest updates to the selector.</p>
+ * <p>The selector statistics (wakeups, updates per cycle, keys per select)
+ * are printed at the end of each trial.</p>
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+public class ManagedSelectorBenchmark
+{
+    private static final int MESSAGE_SIZE = 64;
+
+    @Param({"0", "1000", "4000"})
+    int idle;
+
+    @Param({"1"})
+    int selectors;
+
+    QueuedThreadPool threadPool;
+    ScheduledExecutorScheduler scheduler;
+    SelectorManager selectorManager;
+    ServerSocketChannel server;
+    List<SocketChannel> idleClients = new ArrayList<>();
+
+    @Setup
+    public void prepare() throws Exception
+    {
+        threadPool = new QueuedThreadPool();
+        threadPool.start();
+        scheduler = new ScheduledExecutorScheduler();
+        scheduler.start();
+        selectorManager = new SelectorManager(threadPool, scheduler, selectors)
+        {
+            @Override
+            protected EndPoint newEndPoint(SelectableChannel channel, ManagedSelector selector, SelectionKey key)
+            {
+                SocketChannelEndPoint endPoint = new SocketChannelEndPoint(channel, selector, key, getScheduler());
+                endPoint.setIdleTimeout(TimeUnit.MINUTES.toMillis(10));
+                return endPoint;
+            }
+
+            @Override
+            public Connection newConnection(SelectableChannel channel, EndPoint endPoint, Object attachment)
+            {
+                return new EchoConnection(endPoint, getExecutor());
+            }
+        };
+        selectorManager.start();
+
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("localhost", 0), 8192);
+
+        for (int i = 0; i < idle; ++i)
+        {
+            idleClients.add(connect());
+        }
+    }
+
+    @TearDown
+    public void dispose() throws Exception
+    {
+        for (ManagedSelector selector : selectorManager.getBeans(ManagedSelector.class))
+        {
+            System.err.printf("%n%s: cycles=%d wakeups=%d updates/cycle=%.2f(max=%d) keys/select=%.2f(max=%d)%n",
+                selector,
+                selector.getSelectCycles(),
+                selector.getWakeups(),
+                selector.getUpdatesPerCycleMean(),
+                selector.getUpdatesPerCycleMax(),
+                selector.getSelectedKeysMean(),
+                selector.getSelectedKeysMax());
+        }
+        for (SocketChannel client : idleClients)
+        {
+            IO.close(client);
+        }
+        idleClients.clear();
+        IO.close(server);
+        selectorManager.stop();
+        scheduler.stop();
+        threadPool.stop();
+    }
+
+    synchronized SocketChannel connect() throws IOException
+    {
+        SocketChannel client = SocketChannel.open(server.getLocalAddress());
+        client.socket().setTcpNoDelay(true);
+        SocketChannel accepted = server.accept();
+        accepted.configureBlocking(false);
+        accepted.socket().setTcpNoDelay(true);
+        selectorManager.accept(accepted);
+        return client;
+    }
+
+    @State(Scope.Thread)
+    public static class Client
+    {
+        SocketChannel channel;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(MESSAGE_SIZE);
+
+        @Setup
+        public void connect(ManagedSelectorBenchmark benchmark) throws IOException
+        {
+            channel = benchmark.connect();
+        }
+
+        @TearDown
+        public void close()
+        {
+            IO.close(channel);
+        }
+
+        void exchange() throws IOException
+        {
+            buffer.clear();
+            while (buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+            buffer.clear();
+            while (buffer.hasRemaining())
+            {
+                if (channel.read(buffer) < 0)
+                    throw new IOException("closed");
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(1)
+    public void testOneActive(Client client) throws Exception
+    {
+        client.exchange();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(16)
+    public void testSomeActive(Client client) throws Exception
+    {
+        client.exchange();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(64)
+    public void testManyActive(Client client) throws Exception
+    {
+        client.exchange();
+    }
+
+    private static class EchoConnection extends AbstractConnection
+    {
+        private final ByteBuffer _buffer = BufferUtil.allocateDirect(MESSAGE_SIZE);
+        private final Callback _written = Callback.from(this::fillInterested, x -> close());
+
+        private EchoConnection(EndPoint endPoint, Executor executor)
+        {
+            super(endPoint, executor);
+        }
+
+        @Override
+        public void onOpen()
+        {
+            super.onOpen();
+            fillInterested();
+        }
+
+        @Override
+        public void onFillable()
+        {
+            try
+            {
+                int filled = getEndPoint().fill(_buffer);
+                if (filled > 0)
+                    getEndPoint().write(_written, _buffer);
+                else if (filled == 0)
+                    fillInterested();
+                else
+                    close();
+            }
+            catch (IOException x)
+            {
+                close();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+            .include(ManagedSelectorBenchmark.class.getSimpleName())
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
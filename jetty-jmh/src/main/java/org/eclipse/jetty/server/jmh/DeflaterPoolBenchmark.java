@@ -18,9 +18,15 @@
 
 package org.eclipse.jetty.server.jmh;
 
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.zip.Deflater;
 
+import org.eclipse.jetty.util.compression.CompressionPool;
 import org.eclipse.jetty.util.compression.DeflaterPool;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
@@ -48,8 +54,11 @@ public class DeflaterPoolBenchmark
 {
     public static final String COMPRESSION_STRING = "hello world";
     DeflaterPool _pool;
+    QueueDeflaterPool _queuePool;
+    Supplier<Deflater> _acquire;
+    Consumer<Deflater> _release;
 
-    @Param({"NO_POOL", "DEFLATER_POOL_10", "DEFLATER_POOL_20", "DEFLATER_POOL_50"})
+    @Param({"NO_POOL", "QUEUE_POOL_50", "QUEUE_POOL_INFINITE", "DEFLATER_POOL_10", "DEFLATER_POOL_20", "DEFLATER_POOL_50", "DEFLATER_POOL_INFINITE"})
     public static String poolType;
 
     @Setup(Level.Trial)
@@ -63,6 +72,11 @@ public class DeflaterPoolBenchmark
                 capacity = 0;
                 break;
 
+            case "QUEUE_POOL_50":
+            case "DEFLATER_POOL_50":
+                capacity = 50;
+                break;
+
             case "DEFLATER_POOL_10":
                 capacity = 10;
                 break;
@@ -71,20 +85,38 @@ public class DeflaterPoolBenchmark
                 capacity = 20;
                 break;
 
-            case "DEFLATER_POOL_50":
-                capacity = 50;
+            case "QUEUE_POOL_INFINITE":
+            case "DEFLATER_POOL_INFINITE":
+                capacity = CompressionPool.INFINITE_CAPACITY;
                 break;
 
             default:
                 throw new IllegalStateException("Unknown poolType Parameter");
         }
 
-        _pool = new DeflaterPool(capacity, Deflater.DEFAULT_COMPRESSION, true);
+        if (poolType.startsWith("QUEUE_POOL"))
+        {
+            _queuePool = new QueueDeflaterPool(capacity);
+            _acquire = _queuePool::acquire;
+            _release = _queuePool::release;
+        }
+        else
+        {
+            _pool = new DeflaterPool(capacity, Deflater.DEFAULT_COMPRESSION, true);
+            // The pool only pools when it is running.
+            _pool.start();
+            _acquire = _pool::acquire;
+            _release = _pool::release;
+        }
     }
 
     @TearDown(Level.Trial)
-    public static void stopTrial() throws Exception
+    public void stopTrial() throws Exception
     {
+        if (_pool != null)
+            _pool.stop();
+        if (_queuePool != null)
+            _queuePool.stop();
     }
 
     @Benchmark
@@ -92,17 +124,77 @@ public class DeflaterPoolBenchmark
     @SuppressWarnings("deprecation")
     public long testPool() throws Exception
     {
-        Deflater deflater = _pool.acquire();
+        Deflater deflater = _acquire.get();
         deflater.setInput(COMPRESSION_STRING.getBytes());
         deflater.finish();
 
         byte[] output = new byte[COMPRESSION_STRING.length() + 1];
         int compressedDataLength = deflater.deflate(output);
-        _pool.release(deflater);
+        _release.accept(deflater);
 
         return compressedDataLength;
     }
 
+    /**
+     * The previous pool implementation, a queue with a CAS loop on a counter, as a baseline.
+     */
+    static class QueueDeflaterPool
+    {
+        private final Queue<Deflater> _queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger _numObjects = new AtomicInteger();
+        private final int _capacity;
+
+        QueueDeflaterPool(int capacity)
+        {
+            _capacity = capacity;
+        }
+
+        Deflater acquire()
+        {
+            Deflater deflater = _queue.poll();
+            if (deflater == null)
+                return new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            if (_capacity > 0)
+                _numObjects.decrementAndGet();
+            return deflater;
+        }
+
+        void release(Deflater deflater)
+        {
+            if (_capacity < 0)
+            {
+                deflater.reset();
+                _queue.add(deflater);
+                return;
+            }
+            while (true)
+            {
+                int d = _numObjects.get();
+                if (d >= _capacity)
+                {
+                    deflater.end();
+                    return;
+                }
+                if (_numObjects.compareAndSet(d, d + 1))
+                {
+                    deflater.reset();
+                    _queue.add(deflater);
+                    return;
+                }
+            }
+        }
+
+        void stop()
+        {
+            Deflater deflater = _queue.poll();
+            while (deflater != null)
+            {
+                deflater.end();
+                deflater = _queue.poll();
+            }
+        }
+    }
+
     public static void main(String[] args) throws RunnerException
     {
         Options opt = new OptionsBuilder()
@@ -24,6 +24,7 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.jetty.util.BlockingArrayQueue;
+import org.eclipse.jetty.util.ConcurrentArrayBlockingQueue;
 import org.eclipse.jetty.util.component.LifeCycle;
 import org.eclipse.jetty.util.thread.ExecutorThreadPool;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
@@ -51,10 +52,10 @@ public class ThreadPoolBenchmark
 {
     public enum Type
     {
-        QTP, ETP, LQTP, LETP, AQTP, AETP
+        QTP, ETP, LQTP, LETP, AQTP, AETP, CQTP, CETP
     }
 
-    @Param({"QTP", "ETP" /*, "LQTP", "LETP", "AQTP", "AETP" */})
+    @Param({"QTP", "ETP", "CQTP" /*, "LQTP", "LETP", "AQTP", "AETP", "CETP" */})
     Type type;
 
     @Param({"200"})
@@ -102,6 +103,18 @@ public class ThreadPoolBenchmark
             case AETP:
                 pool = new ExecutorThreadPool(size, size, new ArrayBlockingQueue<>(32768));
                 break;
+
+            case CQTP:
+            {
+                QueuedThreadPool qtp = new QueuedThreadPool(size, size, new ConcurrentArrayBlockingQueue<>(32768));
+                qtp.setReservedThreads(0);
+                pool = qtp;
+                break;
+            }
+
+            case CETP:
+                pool = new ExecutorThreadPool(size, size, new ConcurrentArrayBlockingQueue<>(32768));
+                break;
         }
         LifeCycle.start(pool);
     }
@@ -0,0 +1,188 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.websocket.jmh;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.io.ByteArrayEndPoint;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.eclipse.jetty.util.thread.Scheduler;
+import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import org.eclipse.jetty.websocket.api.WebSocketPolicy;
+import org.eclipse.jetty.websocket.api.extensions.ExtensionConfig;
+import org.eclipse.jetty.websocket.common.Broadcaster;
+import org.eclipse.jetty.websocket.common.WebSocketSession;
+import org.eclipse.jetty.websocket.common.events.EventDriverFactory;
+import org.eclipse.jetty.websocket.common.extensions.ExtensionStack;
+import org.eclipse.jetty.websocket.common.extensions.WebSocketExtensionFactory;
+import org.eclipse.jetty.websocket.common.scopes.SimpleContainerScope;
+import org.eclipse.jetty.websocket.server.WebSocketServerConnection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>Sends the same text message to many server side sessions, either with a
+ * {@link Broadcaster} or with a send for each session, through connections that
+ * discard the bytes written, to measure the cost of the fan-out.</p>
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+public class BroadcastBenchmark
+{
+    @Param({"1000"})
+    int sessionCount;
+
+    @Param({"none", "permessage-deflate; client_no_context_takeover"})
+    String extension;
+
+    @Param({"128", "4096"})
+    int messageSize;
+
+    final List<WebSocketSession> sessions = new ArrayList<>();
+    ByteBufferPool bufferPool;
+    Scheduler scheduler;
+    Broadcaster broadcaster;
+    String message;
+
+    @Setup
+    public void prepare() throws Exception
+    {
+        bufferPool = new MappedByteBufferPool();
+        scheduler = new ScheduledExecutorScheduler();
+        scheduler.start();
+        broadcaster = new Broadcaster(bufferPool);
+
+        WebSocketPolicy policy = WebSocketPolicy.newServerPolicy();
+        SimpleContainerScope containerScope = new SimpleContainerScope(policy, bufferPool);
+        containerScope.start();
+        EventDriverFactory eventDriverFactory = new EventDriverFactory(containerScope);
+        WebSocketExtensionFactory extensionFactory = new WebSocketExtensionFactory(containerScope);
+
+        List<ExtensionConfig> configs = new ArrayList<>();
+        if (!"none".equals(extension))
+            configs.add(ExtensionConfig.parse(extension));
+
+        for (int i = 0; i < sessionCount; ++i)
+        {
+            ExtensionStack extensionStack = new ExtensionStack(extensionFactory);
+            extensionStack.negotiate(configs);
+            WebSocketServerConnection connection = new WebSocketServerConnection(new DiscardEndPoint(), containerScope.getExecutor(), scheduler, policy, bufferPool);
+            extensionStack.setPolicy(policy);
+            extensionStack.configure(connection.getParser());
+            extensionStack.configure(connection.getGenerator());
+
+            WebSocketSession session = new WebSocketSession(containerScope, URI.create("ws://localhost/broadcast"), eventDriverFactory.wrap(new WebSocketAdapter()), connection);
+            connection.setNextIncomingFrames(extensionStack);
+            extensionStack.setNextIncoming(session);
+            session.setOutgoingHandler(extensionStack);
+            extensionStack.setNextOutgoing(connection);
+            session.addManaged(extensionStack);
+            session.start();
+            session.open();
+            sessions.add(session);
+        }
+
+        StringBuilder builder = new StringBuilder(messageSize);
+        while (builder.length() < messageSize)
+        {
+            builder.append("{\"symbol\":\"JTY\",\"bid\":").append(builder.length()).append(",\"ask\":").append(builder.length() + 1).append('}');
+        }
+        message = builder.substring(0, messageSize);
+    }
+
+    @TearDown
+    public void dispose() throws Exception
+    {
+        for (WebSocketSession session : sessions)
+        {
+            session.stop();
+        }
+        sessions.clear();
+        scheduler.stop();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public long testBroadcast()
+    {
+        broadcaster.sendString(message, sessions);
+        return broadcaster.getPreEncodedSends();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public int testSendPerSession()
+    {
+        for (WebSocketSession session : sessions)
+        {
+            session.getRemote().sendString(message, null);
+        }
+        return sessions.size();
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+            .include(BroadcastBenchmark.class.getSimpleName())
+            .warmupIterations(5)
+            .measurementIterations(5)
+            .addProfiler(GCProfiler.class)
+            .forks(1)
+            .threads(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+
+    /**
+     * An EndPoint that writes all the bytes immediately and discards them.
+     */
+    private static class DiscardEndPoint extends ByteArrayEndPoint
+    {
+        @Override
+        public boolean flush(ByteBuffer... buffers)
+        {
+            for (ByteBuffer buffer : buffers)
+            {
+                buffer.position(buffer.limit());
+            }
+            return true;
+        }
+    }
+}
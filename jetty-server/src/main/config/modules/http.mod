@@ -36,6 +36,9 @@ etc/jetty-http.xml
 ## ServerSocketChannel backlog (0 picks platform default)
 # jetty.http.acceptorQueueSize=0
 
+## Whether to listen on one SO_REUSEPORT channel per selector (requires acceptors=0)
+# jetty.http.reusePort=false
+
 ## Thread priority delta to give to acceptor threads
 # jetty.http.acceptorPriorityDelta=0
 
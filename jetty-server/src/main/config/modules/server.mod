@@ -60,6 +60,9 @@ patch-module: servlet.api=lib/jetty-schemas-3.1.jar
 ## Whether, for requests with content, delay dispatch until some content has arrived
 # jetty.httpConfig.delayDispatchUntilContent=true
 
+## Whether to write static files directly from the file system to cleartext connections
+# jetty.httpConfig.useFileTransfer=false
+
 ## Maximum number of error dispatches to prevent looping
 # jetty.httpConfig.maxErrorDispatches=10
 
@@ -0,0 +1,35 @@
+DO NOT EDIT - See: https://www.eclipse.org/jetty/documentation/current/startup-modules.html
+
+[description]
+Enables the Server thread pool with a lock-free bounded job queue.
+Enable instead of the threadpool module.
+
+[provides]
+threadpool
+
+[xml]
+etc/jetty-threadpool-concurrent-queue.xml
+
+[ini-template]
+
+### Server Thread Pool Configuration
+## Minimum Number of Threads
+#jetty.threadPool.minThreads=10
+
+## Maximum Number of Threads
+#jetty.threadPool.maxThreads=200
+
+## Number of reserved threads (-1 for heuristic)
+# jetty.threadPool.reservedThreads=-1
+
+## Thread Idle Timeout (in milliseconds)
+#jetty.threadPool.idleTimeout=60000
+
+## Whether to Output a Detailed Dump
+#jetty.threadPool.detailedDump=false
+
+## Max number of queued jobs, rounded up to a power of 2; more jobs are rejected
+#jetty.threadPool.queueCapacity=65536
+
+## Number of polls attempted by an idle thread before it parks
+#jetty.threadPool.queueSpins=64
@@ -26,12 +26,15 @@ import java.nio.channels.ReadableByteChannel;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.SortedSet;
-import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.eclipse.jetty.http.CompressedContentFormat;
 import org.eclipse.jetty.http.DateGenerator;
@@ -44,15 +47,29 @@ import org.eclipse.jetty.http.PreEncodedHttpField;
 import org.eclipse.jetty.http.PrecompressedHttpContent;
 import org.eclipse.jetty.http.ResourceHttpContent;
 import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 import org.eclipse.jetty.util.resource.Resource;
 import org.eclipse.jetty.util.resource.ResourceFactory;
 
+/**
+ * <p>A {@link HttpContent.ContentFactory} that caches the content of resources in memory.</p>
+ * <p>When the cache exceeds its limits, the content to evict is chosen by a
+ * {@link ContentEvictionPolicy}, by default a {@link ContentEvictionPolicy.WindowTinyLfu}.
+ * Cache accesses and updates are recorded in buffers that are drained to the policy
+ * by whichever thread acquires the eviction lock without waiting, so that request
+ * threads never contend on the policy.</p>
+ */
+@ManagedObject("Cache of static content")
 public class CachedContentFactory implements HttpContent.ContentFactory
 {
     private static final Logger LOG = Log.getLogger(CachedContentFactory.class);
     private static final Map<CompressedContentFormat, CachedPrecompressedHttpContent> NO_PRECOMPRESSED = Collections.unmodifiableMap(Collections.emptyMap());
+    private static final int READ_BUFFER_SIZE = 128;
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
 
     private final ConcurrentMap<String, CachedHttpContent> _cache;
     private final AtomicInteger _cachedSize;
@@ -63,6 +80,17 @@ public class CachedContentFactory implements HttpContent.ContentFactory
     private final boolean _etags;
     private final CompressedContentFormat[] _precompressedFormats;
     private final boolean _useFileMappedBuffer;
+    private final ReentrantLock _evictionLock = new ReentrantLock();
+    private final AtomicBoolean _maintenanceRequired = new AtomicBoolean();
+    private final AtomicReferenceArray<CachedHttpContent> _readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    private final AtomicInteger _readIndex = new AtomicInteger();
+    private final ConcurrentLinkedQueue<Runnable> _writeBuffer = new ConcurrentLinkedQueue<>();
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _hitBytes = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+    private final LongAdder _missBytes = new LongAdder();
+    private final LongAdder _evictions = new LongAdder();
+    private ContentEvictionPolicy _evictionPolicy = new ContentEvictionPolicy.WindowTinyLfu();
 
     private int _maxCachedFileSize = 128 * 1024 * 1024;
     private int _maxCachedFiles = 2048;
@@ -91,16 +119,19 @@ public class CachedContentFactory implements HttpContent.ContentFactory
         _precompressedFormats = precompressedFormats;
     }
 
+    @ManagedAttribute("The size in bytes of the cached content")
     public int getCachedSize()
     {
         return _cachedSize.get();
     }
 
+    @ManagedAttribute("The number of cached files")
     public int getCachedFiles()
     {
         return _cachedFiles.get();
     }
 
+    @ManagedAttribute("The max size in bytes of a cached file")
     public int getMaxCachedFileSize()
     {
         return _maxCachedFileSize;
@@ -109,9 +140,10 @@ public class CachedContentFactory implements HttpContent.ContentFactory
     public void setMaxCachedFileSize(int maxCachedFileSize)
     {
         _maxCachedFileSize = maxCachedFileSize;
-        shrinkCache();
+        maintain();
     }
 
+    @ManagedAttribute("The max size in bytes of the cached content")
     public int getMaxCacheSize()
     {
         return _maxCacheSize;
@@ -120,12 +152,13 @@ public class CachedContentFactory implements HttpContent.ContentFactory
     public void setMaxCacheSize(int maxCacheSize)
     {
         _maxCacheSize = maxCacheSize;
-        shrinkCache();
+        maintain();
     }
 
     /**
      * @return the max number of cached files.
      */
+    @ManagedAttribute("The max number of cached files")
     public int getMaxCachedFiles()
     {
         return _maxCachedFiles;
@@ -137,7 +170,7 @@ public class CachedContentFactory implements HttpContent.ContentFactory
     public void setMaxCachedFiles(int maxCachedFiles)
     {
         _maxCachedFiles = maxCachedFiles;
-        shrinkCache();
+        maintain();
     }
 
     public boolean isUseFileMappedBuffer()
@@ -145,6 +178,86 @@ public class CachedContentFactory implements HttpContent.ContentFactory
         return _useFileMappedBuffer;
     }
 
+    /**
+     * @return the policy that chooses the content to evict
+     */
+    public ContentEvictionPolicy getEvictionPolicy()
+    {
+        return _evictionPolicy;
+    }
+
+    /**
+     * <p>Replaces the eviction policy, that is informed of the content already cached.</p>
+     *
+     * @param evictionPolicy the policy that chooses the content to evict
+     */
+    public void setEvictionPolicy(ContentEvictionPolicy evictionPolicy)
+    {
+        _evictionLock.lock();
+        try
+        {
+            drainWriteBuffer();
+            drainReadBuffer();
+            _evictionPolicy = evictionPolicy;
+            for (CachedHttpContent content : _cache.values())
+            {
+                evictionPolicy.onAdded(content);
+            }
+        }
+        finally
+        {
+            _evictionLock.unlock();
+        }
+        maintain();
+    }
+
+    @ManagedAttribute("The number of requests for content found in the cache")
+    public long getHits()
+    {
+        return _hits.sum();
+    }
+
+    @ManagedAttribute("The number of requests for content not found in the cache")
+    public long getMisses()
+    {
+        return _misses.sum();
+    }
+
+    @ManagedAttribute("The ratio of requests for content found in the cache")
+    public double getHitRatio()
+    {
+        return ratio(getHits(), getMisses());
+    }
+
+    @ManagedAttribute("The ratio of the bytes of requested content found in the cache")
+    public double getByteHitRatio()
+    {
+        return ratio(_hitBytes.sum(), _missBytes.sum());
+    }
+
+    @ManagedAttribute("The number of contents evicted from the cache")
+    public long getEvictions()
+    {
+        return _evictions.sum();
+    }
+
+    private static double ratio(long hits, long misses)
+    {
+        long total = hits + misses;
+        return total == 0 ? 0.0D : (double)hits / total;
+    }
+
+    @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
+    public void resetStatistics()
+    {
+        _hits.reset();
+        _hitBytes.reset();
+        _misses.reset();
+        _missBytes.reset();
+        _evictions.reset();
+    }
+
+    @ManagedOperation(value = "Removes all the content from the cache", impact = "ACTION")
     public void flushCache()
     {
         while (_cache.size() > 0)
@@ -182,13 +295,21 @@ public class CachedContentFactory implements HttpContent.ContentFactory
         // Is the content in this cache?
         CachedHttpContent content = _cache.get(pathInContext);
         if (content != null && (content).isValid())
+        {
+            _hits.increment();
+            _hitBytes.add(content.getContentLengthValue());
             return content;
+        }
 
         // try loading the content from our factory.
         Resource resource = _factory.getResource(pathInContext);
         HttpContent loaded = load(pathInContext, resource, maxBufferSize);
         if (loaded != null)
+        {
+            _misses.increment();
+            _missBytes.add(Math.max(0, loaded.getContentLengthValue()));
             return loaded;
+        }
 
         // Is the content in the parent cache?
         if (_parent != null)
@@ -251,6 +372,10 @@ public class CachedContentFactory implements HttpContent.ContentFactory
                                 compressedContent.invalidate();
                                 compressedContent = added;
                             }
+                            else
+                            {
+                                added(compressedContent);
+                            }
                         }
                     }
                     if (compressedContent != null)
@@ -268,6 +393,10 @@ public class CachedContentFactory implements HttpContent.ContentFactory
                 content.invalidate();
                 content = added;
             }
+            else
+            {
+                added(content);
+            }
 
             return content;
         }
@@ -299,34 +428,93 @@ public class CachedContentFactory implements HttpContent.ContentFactory
         return new ResourceHttpContent(resource, mt, maxBufferSize);
     }
 
-    private void shrinkCache()
+    private void added(CachedHttpContent content)
     {
-        // While we need to shrink
-        while (_cache.size() > 0 && (_cachedFiles.get() > _maxCachedFiles || _cachedSize.get() > _maxCacheSize))
+        _writeBuffer.offer(() ->
         {
-            // Scan the entire cache and generate an ordered list by last accessed time.
-            SortedSet<CachedHttpContent> sorted = new TreeSet<>((c1, c2) ->
-            {
-                if (c1._lastAccessed < c2._lastAccessed)
-                    return -1;
+            // The content may have been removed before this event is drained.
+            if (_cache.get(content.getKey()) == content)
+                _evictionPolicy.onAdded(content);
+        });
+        maintain();
+    }
+
+    private void removed(CachedHttpContent content)
+    {
+        _writeBuffer.offer(() -> _evictionPolicy.onRemoved(content));
+        // Evicted content is removed while maintaining the cache.
+        if (!_evictionLock.isHeldByCurrentThread())
+            maintain();
+    }
+
+    private void accessed(CachedHttpContent content)
+    {
+        // Accesses may overwrite each other when the buffer is not drained in time,
+        // which only loses some precision of the eviction policy.
+        int index = _readIndex.getAndIncrement() & READ_BUFFER_MASK;
+        _readBuffer.lazySet(index, content);
+        if (index == READ_BUFFER_MASK)
+            maintain();
+    }
 
-                if (c1._lastAccessed > c2._lastAccessed)
-                    return 1;
+    /**
+     * <p>Drains the buffered events to the eviction policy and evicts content until
+     * the cache is within its limits, unless another thread is already doing it,
+     * in which case that thread will also perform the maintenance requested here.</p>
+     */
+    private void maintain()
+    {
+        _maintenanceRequired.set(true);
+        while (_maintenanceRequired.get() && _evictionLock.tryLock())
+        {
+            try
+            {
+                _maintenanceRequired.set(false);
+                drainWriteBuffer();
+                drainReadBuffer();
+                evict();
+            }
+            finally
+            {
+                _evictionLock.unlock();
+            }
+        }
+    }
 
-                if (c1._contentLengthValue < c2._contentLengthValue)
-                    return -1;
+    private void drainWriteBuffer()
+    {
+        while (true)
+        {
+            Runnable event = _writeBuffer.poll();
+            if (event == null)
+                break;
+            event.run();
+        }
+    }
 
-                return c1._key.compareTo(c2._key);
-            });
-            sorted.addAll(_cache.values());
+    private void drainReadBuffer()
+    {
+        // Start from the oldest access.
+        int start = _readIndex.get();
+        for (int i = 0; i < READ_BUFFER_SIZE; ++i)
+        {
+            CachedHttpContent content = _readBuffer.getAndSet((start + i) & READ_BUFFER_MASK, null);
+            if (content != null && _cache.get(content.getKey()) == content)
+                _evictionPolicy.onAccessed(content);
+        }
+    }
 
-            // Invalidate least recently used first
-            for (CachedHttpContent content : sorted)
+    private void evict()
+    {
+        while (_cachedFiles.get() > _maxCachedFiles || _cachedSize.get() > _maxCacheSize)
+        {
+            CachedHttpContent victim = _evictionPolicy.evict();
+            if (victim == null)
+                break;
+            if (_cache.remove(victim.getKey(), victim))
             {
-                if (_cachedFiles.get() <= _maxCachedFiles && _cachedSize.get() <= _maxCacheSize)
-                    break;
-                if (content == _cache.remove(content.getKey()))
-                    content.invalidate();
+                victim.invalidate();
+                _evictions.increment();
             }
         }
     }
@@ -376,7 +564,7 @@ public class CachedContentFactory implements HttpContent.ContentFactory
     @Override
     public String toString()
     {
-        return "ResourceCache[" + _parent + "," + _factory + "]@" + hashCode();
+        return "ResourceCache[" + _parent + "," + _factory + "," + _evictionPolicy + "]@" + hashCode();
     }
 
     /**
@@ -398,7 +586,6 @@ public class CachedContentFactory implements HttpContent.ContentFactory
         private final AtomicReference<ByteBuffer> _indirectBuffer = new AtomicReference<>();
         private final AtomicReference<ByteBuffer> _directBuffer = new AtomicReference<>();
         private final AtomicReference<ByteBuffer> _mappedBuffer = new AtomicReference<>();
-        private volatile long _lastAccessed;
 
         CachedHttpContent(String pathInContext, Resource resource, Map<CompressedContentFormat, CachedHttpContent> precompressedResources)
         {
@@ -419,9 +606,7 @@ public class CachedContentFactory implements HttpContent.ContentFactory
             _contentLength = new PreEncodedHttpField(HttpHeader.CONTENT_LENGTH, Long.toString(_contentLengthValue));
 
             if (_cachedFiles.incrementAndGet() > _maxCachedFiles)
-                shrinkCache();
-
-            _lastAccessed = System.currentTimeMillis();
+                maintain();
 
             _etag = CachedContentFactory.this._etags ? new PreEncodedHttpField(HttpHeader.ETAG, resource.getWeakETag()) : null;
 
@@ -449,6 +634,11 @@ public class CachedContentFactory implements HttpContent.ContentFactory
             return _key != null;
         }
 
+        boolean isBuffered()
+        {
+            return _indirectBuffer.get() != null || _directBuffer.get() != null || _mappedBuffer.get() != null;
+        }
+
         @Override
         public Resource getResource()
         {
@@ -471,7 +661,7 @@ public class CachedContentFactory implements HttpContent.ContentFactory
         {
             if (_lastModifiedValue == _resource.lastModified() && _contentLengthValue == _resource.length())
             {
-                _lastAccessed = System.currentTimeMillis();
+                accessed(this);
                 return true;
             }
 
@@ -494,6 +684,7 @@ public class CachedContentFactory implements HttpContent.ContentFactory
 
             _cachedFiles.decrementAndGet();
             _resource.close();
+            removed(this);
         }
 
         @Override
@@ -563,7 +754,7 @@ public class CachedContentFactory implements HttpContent.ContentFactory
                 {
                     buffer = buffer2;
                     if (_cachedSize.addAndGet(BufferUtil.length(buffer)) > _maxCacheSize)
-                        shrinkCache();
+                        maintain();
                 }
                 else
                     buffer = _indirectBuffer.get();
@@ -598,7 +789,7 @@ public class CachedContentFactory implements HttpContent.ContentFactory
                         {
                             buffer = direct;
                             if (_cachedSize.addAndGet(BufferUtil.length(buffer)) > _maxCacheSize)
-                                shrinkCache();
+                                maintain();
                         }
                         else
                         {
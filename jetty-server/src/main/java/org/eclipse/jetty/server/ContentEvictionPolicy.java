@@ -0,0 +1,238 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jetty.server.CachedContentFactory.CachedHttpContent;
+import org.eclipse.jetty.util.FrequencySketch;
+
+/**
+ * <p>Decides which content a {@link CachedContentFactory} evicts when it exceeds its limits.</p>
+ * <p>The methods of a policy are only called by the factory while holding its eviction lock,
+ * so implementations need not be thread safe. Accesses are buffered and may be reported
+ * late or, under heavy load, not at all; additions and removals are always reported,
+ * but a removal may be reported for content that the policy has already forgotten.</p>
+ */
+public interface ContentEvictionPolicy
+{
+    /**
+     * @param content the content added to the cache
+     */
+    void onAdded(CachedHttpContent content);
+
+    /**
+     * @param content the cached content that has been accessed
+     */
+    void onAccessed(CachedHttpContent content);
+
+    /**
+     * @param content the content removed from the cache
+     */
+    void onRemoved(CachedHttpContent content);
+
+    /**
+     * <p>Forgets and returns the next content to evict.</p>
+     *
+     * @return the content to evict, or null if there is no content to evict
+     */
+    CachedHttpContent evict();
+
+    /**
+     * <p>Evicts the least recently used content.</p>
+     */
+    class LeastRecentlyUsed implements ContentEvictionPolicy
+    {
+        private final Map<CachedHttpContent, Boolean> _contents = new LinkedHashMap<>(16, 0.75F, true);
+
+        @Override
+        public void onAdded(CachedHttpContent content)
+        {
+            _contents.put(content, Boolean.TRUE);
+        }
+
+        @Override
+        public void onAccessed(CachedHttpContent content)
+        {
+            _contents.get(content);
+        }
+
+        @Override
+        public void onRemoved(CachedHttpContent content)
+        {
+            _contents.remove(content);
+        }
+
+        @Override
+        public CachedHttpContent evict()
+        {
+            return removeEldest(_contents);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x{size=%d}", getClass().getSimpleName(), hashCode(), _contents.size());
+        }
+    }
+
+    /**
+     * <p>A size aware W-TinyLFU policy, that protects frequently used content from
+     * being evicted by a scan of content that is used only once.</p>
+     * <p>New content is added to a LRU window. When content must be evicted, the least
+     * recently used content of the window is a candidate for the main space, that
+     * competes with the least recently used content of the main space: the one that a
+     * {@link FrequencySketch} estimates to be less frequently used is evicted, or the
+     * larger one when they are estimated as frequently used. The main space is split in
+     * a probation segment and a protected segment, for content accessed again while
+     * in probation.</p>
+     */
+    class WindowTinyLfu implements ContentEvictionPolicy
+    {
+        private static final int WINDOW_PERCENT = 1;
+        private static final int PROTECTED_PERCENT = 80;
+
+        private final Map<CachedHttpContent, Boolean> _window = new LinkedHashMap<>(16, 0.75F, true);
+        private final Map<CachedHttpContent, Boolean> _probation = new LinkedHashMap<>(16, 0.75F, true);
+        private final Map<CachedHttpContent, Boolean> _protected = new LinkedHashMap<>(16, 0.75F, true);
+        private FrequencySketch _sketch;
+        private int _sketchSize;
+
+        public WindowTinyLfu()
+        {
+            this(2048);
+        }
+
+        /**
+         * @param expectedSize the expected number of cached contents, used to size the frequency sketch
+         */
+        public WindowTinyLfu(int expectedSize)
+        {
+            _sketchSize = Math.max(16, expectedSize);
+            _sketch = new FrequencySketch(_sketchSize);
+        }
+
+        private int size()
+        {
+            return _window.size() + _probation.size() + _protected.size();
+        }
+
+        private static int hash(CachedHttpContent content)
+        {
+            return content.getKey().hashCode();
+        }
+
+        @Override
+        public void onAdded(CachedHttpContent content)
+        {
+            if (size() >= _sketchSize)
+            {
+                // The history is lost, but the sketch is only resized when the cache grows.
+                _sketchSize *= 2;
+                _sketch = new FrequencySketch(_sketchSize);
+            }
+            _sketch.increment(hash(content));
+            _window.put(content, Boolean.TRUE);
+        }
+
+        @Override
+        public void onAccessed(CachedHttpContent content)
+        {
+            _sketch.increment(hash(content));
+            if (_window.get(content) != null || _protected.get(content) != null)
+                return;
+            if (_probation.remove(content) != null)
+            {
+                _protected.put(content, Boolean.TRUE);
+                int mainSize = _probation.size() + _protected.size();
+                if (_protected.size() > mainSize * PROTECTED_PERCENT / 100)
+                {
+                    CachedHttpContent demoted = removeEldest(_protected);
+                    _probation.put(demoted, Boolean.TRUE);
+                }
+            }
+        }
+
+        @Override
+        public void onRemoved(CachedHttpContent content)
+        {
+            if (_window.remove(content) == null && _probation.remove(content) == null)
+                _protected.remove(content);
+        }
+
+        @Override
+        public CachedHttpContent evict()
+        {
+            int windowMax = Math.max(1, size() * WINDOW_PERCENT / 100);
+            if (_probation.isEmpty() && _protected.isEmpty())
+            {
+                // The cache is full for the first time, move all but a small window to the main space.
+                while (_window.size() > windowMax)
+                {
+                    _probation.put(removeEldest(_window), Boolean.TRUE);
+                }
+            }
+
+            Map<CachedHttpContent, Boolean> main = _probation.isEmpty() ? _protected : _probation;
+            CachedHttpContent victim = eldest(main);
+            CachedHttpContent candidate = removeEldest(_window);
+            if (candidate == null)
+                return victim == null ? null : removeEldest(main);
+            if (victim == null || !admit(candidate, victim))
+                return candidate;
+            main.remove(victim);
+            _probation.put(candidate, Boolean.TRUE);
+            return victim;
+        }
+
+        private boolean admit(CachedHttpContent candidate, CachedHttpContent victim)
+        {
+            int candidateFrequency = _sketch.frequency(hash(candidate));
+            int victimFrequency = _sketch.frequency(hash(victim));
+            if (candidateFrequency != victimFrequency)
+                return candidateFrequency > victimFrequency;
+            // Keeping the smaller content leaves more space for other content.
+            return candidate.getContentLengthValue() < victim.getContentLengthValue();
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x{window=%d,probation=%d,protected=%d}", getClass().getSimpleName(), hashCode(), _window.size(), _probation.size(), _protected.size());
+        }
+    }
+
+    static CachedHttpContent eldest(Map<CachedHttpContent, Boolean> contents)
+    {
+        Iterator<CachedHttpContent> iterator = contents.keySet().iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    static CachedHttpContent removeEldest(Map<CachedHttpContent, Boolean> contents)
+    {
+        Iterator<CachedHttpContent> iterator = contents.keySet().iterator();
+        if (!iterator.hasNext())
+            return null;
+        CachedHttpContent eldest = iterator.next();
+        iterator.remove();
+        return eldest;
+    }
+}
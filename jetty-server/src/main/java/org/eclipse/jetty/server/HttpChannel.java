@@ -56,6 +56,7 @@ import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.SharedBlockingCallback.Blocker;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.thread.Invocable;
 import org.eclipse.jetty.util.thread.Scheduler;
 
 /**
@@ -67,7 +68,7 @@ import org.eclipse.jetty.util.thread.Scheduler;
  * HttpParser.RequestHandler callbacks.   The completion of the active phase is signalled by a call to
  * HttpTransport.completed().
  */
-public class HttpChannel implements Runnable, HttpOutput.Interceptor
+public class HttpChannel implements Runnable, Invocable, HttpOutput.Interceptor
 {
     private static final Logger LOG = Log.getLogger(HttpChannel.class);
 
@@ -151,6 +152,17 @@ public class HttpChannel implements Runnable, HttpOutput.Interceptor
         return _written;
     }
 
+    /**
+     * <p>Accounts for response content written directly to the transport
+     * with {@link HttpConnection#transferFile(java.nio.channels.FileChannel, long, long, Callback)}.</p>
+     *
+     * @param bytes the number of bytes written
+     */
+    void onContentTransferred(long bytes)
+    {
+        _written += bytes;
+    }
+
     /**
      * @return the number of requests handled by this connection
      */
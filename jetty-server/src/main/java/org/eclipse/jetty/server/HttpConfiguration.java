@@ -68,6 +68,7 @@ public class HttpConfiguration implements Dumpable
     private boolean _sendXPoweredBy = false;
     private boolean _sendDateHeader = true;
     private boolean _delayDispatchUntilContent = true;
+    private boolean _useFileTransfer;
     private boolean _persistentConnectionsEnabled = true;
     private int _maxErrorDispatches = 10;
     private long _minRequestDataRate;
@@ -134,6 +135,7 @@ public class HttpConfiguration implements Dumpable
         _sendServerVersion = config._sendServerVersion;
         _sendXPoweredBy = config._sendXPoweredBy;
         _delayDispatchUntilContent = config._delayDispatchUntilContent;
+        _useFileTransfer = config._useFileTransfer;
         _persistentConnectionsEnabled = config._persistentConnectionsEnabled;
         _maxErrorDispatches = config._maxErrorDispatches;
         _minRequestDataRate = config._minRequestDataRate;
@@ -343,6 +345,26 @@ public class HttpConfiguration implements Dumpable
         return _delayDispatchUntilContent;
     }
 
+    /**
+     * <p>Sets whether static content is written directly from files to the network with
+     * {@link java.nio.channels.FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)},
+     * without copying it through buffers.</p>
+     * <p>This is only possible for HTTP/1.1 connections that are not encrypted and
+     * responses whose content is not transformed, for example by compression.</p>
+     *
+     * @param useFileTransfer true to write static content directly from files (default false)
+     */
+    public void setUseFileTransfer(boolean useFileTransfer)
+    {
+        _useFileTransfer = useFileTransfer;
+    }
+
+    @ManagedAttribute("Whether to write static content directly from files to the network")
+    public boolean isUseFileTransfer()
+    {
+        return _useFileTransfer;
+    }
+
     /**
      * <p>Sets the {@link Customizer}s that are invoked for every
      * request received.</p>
@@ -654,6 +676,7 @@ public class HttpConfiguration implements Dumpable
             "sendServerVersion=" + _sendServerVersion,
             "sendXPoweredBy=" + _sendXPoweredBy,
             "delayDispatchUntilContent=" + _delayDispatchUntilContent,
+            "useFileTransfer=" + _useFileTransfer,
             "persistentConnectionsEnabled=" + _persistentConnectionsEnabled,
             "maxErrorDispatches=" + _maxErrorDispatches,
             "minRequestDataRate=" + _minRequestDataRate,
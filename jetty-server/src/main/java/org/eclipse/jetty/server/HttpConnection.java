@@ -20,6 +20,7 @@ package org.eclipse.jetty.server;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.WritePendingException;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -37,6 +38,7 @@ import org.eclipse.jetty.http.MetaData;
 import org.eclipse.jetty.http.PreEncodedHttpField;
 import org.eclipse.jetty.io.AbstractConnection;
 import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.ChannelEndPoint;
 import org.eclipse.jetty.io.Connection;
 import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.io.EofException;
@@ -204,6 +206,30 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
             BufferUtil.append(getRequestBuffer(), buffer);
     }
 
+    /**
+     * @return whether response content can be written with {@link #transferFile(FileChannel, long, long, Callback)}
+     * @see HttpConfiguration#isUseFileTransfer()
+     */
+    boolean isFileTransferSupported()
+    {
+        EndPoint endPoint = getEndPoint();
+        return _config.isUseFileTransfer() && endPoint instanceof ChannelEndPoint && ((ChannelEndPoint)endPoint).isFileTransferSupported();
+    }
+
+    /**
+     * <p>Writes response content directly from a file to the network, bypassing the
+     * generator, after the response has been committed and before it is completed.</p>
+     *
+     * @param file the file to write
+     * @param position the position in the file of the content
+     * @param count the length of the content
+     * @param callback the callback to notify when the content has been written
+     */
+    void transferFile(FileChannel file, long position, long count, Callback callback)
+    {
+        ((ChannelEndPoint)getEndPoint()).transferFrom(callback, file, position, count);
+    }
+
     @Override
     public void onFlushed(long bytes) throws IOException
     {
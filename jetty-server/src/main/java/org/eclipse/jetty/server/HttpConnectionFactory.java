@@ -19,6 +19,7 @@
 package org.eclipse.jetty.server;
 
 import org.eclipse.jetty.http.HttpCompliance;
+import org.eclipse.jetty.http.HttpFieldCache;
 import org.eclipse.jetty.http.HttpVersion;
 import org.eclipse.jetty.io.Connection;
 import org.eclipse.jetty.io.EndPoint;
@@ -35,6 +36,7 @@ public class HttpConnectionFactory extends AbstractConnectionFactory implements
     private final HttpConfiguration _config;
     private HttpCompliance _httpCompliance;
     private boolean _recordHttpComplianceViolations = false;
+    private HttpFieldCache _sharedFieldCache;
 
     public HttpConnectionFactory()
     {
@@ -80,10 +82,29 @@ public class HttpConnectionFactory extends AbstractConnectionFactory implements
         _httpCompliance = httpCompliance;
     }
 
+    public HttpFieldCache getSharedFieldCache()
+    {
+        return _sharedFieldCache;
+    }
+
+    /**
+     * <p>Sets a cache of HTTP fields shared by the parsers of all the connections created by this factory.</p>
+     * <p>The per connection field cache is discarded when a connection is closed, so a shared cache
+     * is beneficial when clients open many short lived connections with similar headers.</p>
+     *
+     * @param sharedFieldCache the shared field cache, or null for no shared field cache
+     */
+    public void setSharedFieldCache(HttpFieldCache sharedFieldCache)
+    {
+        updateBean(_sharedFieldCache, sharedFieldCache);
+        _sharedFieldCache = sharedFieldCache;
+    }
+
     @Override
     public Connection newConnection(Connector connector, EndPoint endPoint)
     {
         HttpConnection conn = new HttpConnection(_config, connector, endPoint, _httpCompliance, isRecordHttpComplianceViolations());
+        conn.getParser().setSharedFieldCache(_sharedFieldCache);
         return configure(conn, connector, endPoint);
     }
 
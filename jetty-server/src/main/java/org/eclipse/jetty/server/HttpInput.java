@@ -27,6 +27,7 @@ import java.util.Objects;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
 import javax.servlet.ReadListener;
 import javax.servlet.ServletInputStream;
 
@@ -39,6 +40,7 @@ import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.component.Destroyable;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.thread.Locker;
 
 /**
  * {@link HttpInput} provides an implementation of {@link ServletInputStream} for {@link HttpChannel}.
@@ -130,6 +132,10 @@ public class HttpInput extends ServletInputStream implements Runnable
     private Content _content;
     private Content _intercepted;
     private final Deque<Content> _inputQ = new ArrayDeque<>();
+    // A lock rather than a monitor, so that a thread blocked for content parks
+    // and does not pin the carrier thread when it is a lightweight thread.
+    private final Locker _locker = new Locker();
+    private final Condition _contentAvailable = _locker.newCondition();
     private final HttpChannelState _channelState;
     private ReadListener _listener;
     private State _state = STREAM;
@@ -152,7 +158,7 @@ public class HttpInput extends ServletInputStream implements Runnable
 
     public void recycle()
     {
-        synchronized (_inputQ)
+        try (Locker.Lock lock = _locker.lock())
         {
             if (_content != null)
                 _content.failed(null);
@@ -213,7 +219,7 @@ public class HttpInput extends ServletInputStream implements Runnable
     {
         int available = 0;
         boolean woken = false;
-        synchronized (_inputQ)
+        try (Locker.Lock lock = _locker.lock())
         {
             if (_content == null)
                 _content = _inputQ.poll();
@@ -266,7 +272,7 @@ public class HttpInput extends ServletInputStream implements Runnable
     {
         boolean wake = false;
         int l;
-        synchronized (_inputQ)
+        try (Locker.Lock lock = _locker.lock())
         {
             if (!isAsync())
             {
@@ -349,7 +355,7 @@ public class HttpInput extends ServletInputStream implements Runnable
      */
     public void asyncReadProduce() throws IOException
     {
-        synchronized (_inputQ)
+        try (Locker.Lock lock = _locker.lock())
         {
             produceContent();
         }
@@ -562,9 +568,9 @@ public class HttpInput extends ServletInputStream implements Runnable
                 if (LOG.isDebugEnabled())
                     LOG.debug("{} blocking for content timeout={}", this, timeout);
                 if (timeout > 0)
-                    _inputQ.wait(timeout);
+                    _contentAvailable.await(timeout, TimeUnit.MILLISECONDS);
                 else
-                    _inputQ.wait();
+                    _contentAvailable.await();
 
                 loop = true;
             }
@@ -583,7 +589,7 @@ public class HttpInput extends ServletInputStream implements Runnable
      */
     public boolean addContent(Content content)
     {
-        synchronized (_inputQ)
+        try (Locker.Lock lock = _locker.lock())
         {
             _waitingForContent = false;
             if (_firstByteTimeStamp == -1)
@@ -617,7 +623,7 @@ public class HttpInput extends ServletInputStream implements Runnable
 
     public boolean hasContent()
     {
-        synchronized (_inputQ)
+        try (Locker.Lock lock = _locker.lock())
         {
             return _content != null || _inputQ.size() > 0;
         }
@@ -625,15 +631,15 @@ public class HttpInput extends ServletInputStream implements Runnable
 
     public void unblock()
     {
-        synchronized (_inputQ)
+        try (Locker.Lock lock = _locker.lock())
         {
-            _inputQ.notify();
+            _contentAvailable.signal();
         }
     }
 
     public long getContentConsumed()
     {
-        synchronized (_inputQ)
+        try (Locker.Lock lock = _locker.lock())
         {
             return _contentConsumed;
         }
@@ -663,7 +669,7 @@ public class HttpInput extends ServletInputStream implements Runnable
 
     public boolean consumeAll()
     {
-        synchronized (_inputQ)
+        try (Locker.Lock lock = _locker.lock())
         {
             try
             {
@@ -692,7 +698,7 @@ public class HttpInput extends ServletInputStream implements Runnable
 
     public boolean isError()
     {
-        synchronized (_inputQ)
+        try (Locker.Lock lock = _locker.lock())
         {
             return _state instanceof ErrorState;
         }
@@ -700,7 +706,7 @@ public class HttpInput extends ServletInputStream implements Runnable
 
     public boolean isAsync()
     {
-        synchronized (_inputQ)
+        try (Locker.Lock lock = _locker.lock())
         {
             return _state == ASYNC;
         }
@@ -709,7 +715,7 @@ public class HttpInput extends ServletInputStream implements Runnable
     @Override
     public boolean isFinished()
     {
-        synchronized (_inputQ)
+        try (Locker.Lock lock = _locker.lock())
         {
             return _state instanceof EOFState;
         }
@@ -720,7 +726,7 @@ public class HttpInput extends ServletInputStream implements Runnable
     {
         try
         {
-            synchronized (_inputQ)
+            try (Locker.Lock lock = _locker.lock())
             {
                 if (_listener == null)
                     return true;
@@ -748,7 +754,7 @@ public class HttpInput extends ServletInputStream implements Runnable
         boolean woken = false;
         try
         {
-            synchronized (_inputQ)
+            try (Locker.Lock lock = _locker.lock())
             {
                 if (_listener != null)
                     throw new IllegalStateException("ReadListener already set");
@@ -785,7 +791,7 @@ public class HttpInput extends ServletInputStream implements Runnable
 
     public boolean onIdleTimeout(Throwable x)
     {
-        synchronized (_inputQ)
+        try (Locker.Lock lock = _locker.lock())
         {
             boolean neverDispatched = getHttpChannelState().isIdle();
             if ((_waitingForContent || neverDispatched) && !isError())
@@ -800,7 +806,7 @@ public class HttpInput extends ServletInputStream implements Runnable
 
     public boolean failed(Throwable x)
     {
-        synchronized (_inputQ)
+        try (Locker.Lock lock = _locker.lock())
         {
             // Errors may be reported multiple times, for example
             // a local idle timeout and a remote I/O failure.
@@ -830,7 +836,7 @@ public class HttpInput extends ServletInputStream implements Runnable
     {
         if (_listener != null)
             return _channelState.onContentAdded();
-        _inputQ.notify();
+        _contentAvailable.signal();
         return false;
     }
 
@@ -845,7 +851,7 @@ public class HttpInput extends ServletInputStream implements Runnable
         Throwable error;
         boolean aeof = false;
 
-        synchronized (_inputQ)
+        try (Locker.Lock lock = _locker.lock())
         {
             listener = _listener;
 
@@ -929,7 +935,7 @@ public class HttpInput extends ServletInputStream implements Runnable
         long consumed;
         int q;
         Content content;
-        synchronized (_inputQ)
+        try (Locker.Lock lock = _locker.lock())
         {
             state = _state;
             consumed = _contentConsumed;
@@ -18,16 +18,19 @@
 
 package org.eclipse.jetty.server;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritePendingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetEncoder;
 import java.nio.charset.CoderResult;
 import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
 import java.util.ResourceBundle;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
@@ -48,6 +51,7 @@ import org.eclipse.jetty.util.SharedBlockingCallback;
 import org.eclipse.jetty.util.SharedBlockingCallback.Blocker;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.resource.Resource;
 
 /**
  * <p>{@link HttpOutput} implements {@link ServletOutputStream}
@@ -996,6 +1000,13 @@ public class HttpOutput extends ServletOutputStream implements Runnable
 
         try
         {
+            FileChannel file = openFileTransfer(httpContent, httpContent.getContentLengthValue());
+            if (file != null)
+            {
+                new FileTransferCB(file, 0, httpContent.getContentLengthValue(), callback).iterate();
+                return;
+            }
+
             ReadableByteChannel rbc = httpContent.getReadableByteChannel();
             if (rbc != null)
             {
@@ -1020,6 +1031,76 @@ public class HttpOutput extends ServletOutputStream implements Runnable
         }
     }
 
+    /**
+     * <p>Blocking send of a range of HTTP content directly from its file to the network,
+     * if the connection supports it.</p>
+     *
+     * @param httpContent The HTTP content to send a range of
+     * @param offset The offset of the range in the content
+     * @param length The length of the range, that must be the response content length
+     * @return true if the range has been sent, or false if it cannot be sent directly from a file,
+     * in which case nothing has been sent
+     * @throws IOException if the send fails
+     * @see HttpConfiguration#isUseFileTransfer()
+     */
+    public boolean transferContent(HttpContent httpContent, long offset, long length) throws IOException
+    {
+        if (BufferUtil.hasContent(_aggregate) || _channel.isCommitted())
+            return false;
+
+        FileChannel file = openFileTransfer(httpContent, length);
+        if (file == null)
+            return false;
+
+        if (!_state.compareAndSet(OutputState.OPEN, OutputState.PENDING))
+        {
+            IO.close(file);
+            return false;
+        }
+
+        try (Blocker blocker = _writeBlocker.acquire())
+        {
+            new FileTransferCB(file, offset, length, blocker).iterate();
+            blocker.block();
+            return true;
+        }
+        catch (Throwable failure)
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug(failure);
+            abort(failure);
+            throw failure;
+        }
+    }
+
+    /**
+     * @param httpContent the content to transfer
+     * @param length the length of the content to transfer
+     * @return the file of the content if it can be written directly to the network, or null
+     * @throws IOException if the file cannot be opened
+     */
+    private FileChannel openFileTransfer(HttpContent httpContent, long length) throws IOException
+    {
+        HttpTransport transport = _channel.getHttpTransport();
+        if (!(transport instanceof HttpConnection) || !((HttpConnection)transport).isFileTransferSupported())
+            return null;
+
+        // The content must not be transformed nor discarded, and must
+        // be delimited by the Content-Length header and not by chunks.
+        if (_interceptor != _channel || _channel.getRequest().isHead())
+            return null;
+        if (length <= 0 || _channel.getResponse().getLongContentLength() != length)
+            return null;
+
+        // Check the file before opening a channel, so that the content
+        // of other resources is not opened here and then again to be sent.
+        Resource resource = httpContent.getResource();
+        File file = resource == null ? null : resource.getFile();
+        if (file == null)
+            return null;
+        return FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    }
+
     public int getBufferSize()
     {
         return _bufferSize;
@@ -1516,6 +1597,70 @@ public class HttpOutput extends ServletOutputStream implements Runnable
         }
     }
 
+    /**
+     * An iterating callback that commits the response, writes a region of a file
+     * directly to the connection with {@link HttpConnection#transferFile(FileChannel, long, long, Callback)}
+     * and then completes the response.
+     */
+    private class FileTransferCB extends IteratingNestedCallback
+    {
+        private final FileChannel _file;
+        private final long _position;
+        private final long _length;
+        private boolean _committed;
+        private boolean _transferred;
+        private boolean _completed;
+
+        public FileTransferCB(FileChannel file, long position, long length, Callback callback)
+        {
+            super(callback);
+            _file = file;
+            _position = position;
+            _length = length;
+        }
+
+        @Override
+        protected Action process() throws Exception
+        {
+            if (!_committed)
+            {
+                _committed = true;
+                write(BufferUtil.EMPTY_BUFFER, false, this);
+                return Action.SCHEDULED;
+            }
+
+            if (!_transferred)
+            {
+                _transferred = true;
+                ((HttpConnection)_channel.getHttpTransport()).transferFile(_file, _position, _length, this);
+                return Action.SCHEDULED;
+            }
+
+            if (!_completed)
+            {
+                _completed = true;
+                _written += _length;
+                _channel.onContentTransferred(_length);
+                write(BufferUtil.EMPTY_BUFFER, true, this);
+                return Action.SCHEDULED;
+            }
+
+            if (LOG.isDebugEnabled())
+                LOG.debug("EOF of {}", this);
+            _file.close();
+            closed();
+            return Action.SUCCEEDED;
+        }
+
+        @Override
+        public void onCompleteFailure(Throwable x)
+        {
+            abort(x);
+            IO.close(_file);
+            super.onCompleteFailure(x);
+        }
+    }
+
     private static class WriteBlocker extends SharedBlockingCallback
     {
         private final HttpChannel _channel;
@@ -0,0 +1,449 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.resource.Resource;
+
+/**
+ * <p>A server wide cache of memory mapped files, that can be shared by the
+ * {@link ResourceService}s of all the contexts by adding it as a bean of the {@link Server}.</p>
+ * <p>Files are mapped read only and are keyed by their canonical path, so that a file
+ * served by several contexts is mapped once. A mapping is valid while the last modified
+ * time and the length of its file do not change. Mappings have their own budget, separate
+ * from the heap budget of {@link CachedContentFactory}, and the least recently used
+ * mappings are evicted when the budget is exceeded, so that a large set of files can
+ * be served from the page cache with a small heap.</p>
+ * <p>The cache is a concurrent map, so that acquiring a cached mapping does not lock;
+ * the recency of the mappings is only sorted when the budget is exceeded.</p>
+ * <p>Mappings are reference counted: they are {@link #acquire(Resource) acquired} for the
+ * time needed to write a response and they are unmapped as soon as they have been evicted
+ * or invalidated and released by all the responses, rather than when they are garbage
+ * collected.</p>
+ */
+@ManagedObject("Cache of memory mapped files")
+public class MappedFileCache extends AbstractLifeCycle
+{
+    private static final Logger LOG = Log.getLogger(MappedFileCache.class);
+    private static final MethodHandle UNMAP = findUnmap();
+
+    private final ConcurrentMap<String, Mapping> _mappings = new ConcurrentHashMap<>();
+    private final AtomicLong _cachedBytes = new AtomicLong();
+    private final AtomicLong _mappedBytes = new AtomicLong();
+    private final AtomicInteger _mappedFiles = new AtomicInteger();
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+    private final LongAdder _evictions = new LongAdder();
+    private final LongAdder _invalidations = new LongAdder();
+    private long _maxCachedBytes = 4L * 1024 * 1024 * 1024;
+    private long _minFileSize = 16 * 1024;
+
+    private static MethodHandle findUnmap()
+    {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try
+        {
+            // Java 9 and later.
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            MethodHandle invokeCleaner = lookup.findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class));
+            return invokeCleaner.bindTo(theUnsafe.get(null));
+        }
+        catch (Throwable x)
+        {
+            LOG.ignore(x);
+        }
+
+        try
+        {
+            // Java 8.
+            Class<?> directBufferClass = Class.forName("sun.nio.ch.DirectBuffer");
+            Class<?> cleanerClass = Class.forName("sun.misc.Cleaner");
+            MethodHandle cleaner = lookup.unreflect(directBufferClass.getMethod("cleaner"));
+            MethodHandle clean = lookup.unreflect(cleanerClass.getMethod("clean"));
+            return MethodHandles.filterReturnValue(cleaner, clean).asType(MethodType.methodType(void.class, ByteBuffer.class));
+        }
+        catch (Throwable x)
+        {
+            LOG.warn("Mapped files cannot be unmapped, they will be unmapped when garbage collected: {}", x.toString());
+            return null;
+        }
+    }
+
+    @ManagedAttribute("The max number of bytes of mapped files kept in the cache")
+    public long getMaxCachedBytes()
+    {
+        return _maxCachedBytes;
+    }
+
+    public void setMaxCachedBytes(long maxCachedBytes)
+    {
+        _maxCachedBytes = maxCachedBytes;
+        evict();
+    }
+
+    @ManagedAttribute("The min size of the files to map, smaller files are better served from heap buffers")
+    public long getMinFileSize()
+    {
+        return _minFileSize;
+    }
+
+    public void setMinFileSize(long minFileSize)
+    {
+        _minFileSize = minFileSize;
+    }
+
+    @ManagedAttribute("The number of bytes of mapped files kept in the cache")
+    public long getCachedBytes()
+    {
+        return _cachedBytes.get();
+    }
+
+    @ManagedAttribute("The number of files kept in the cache")
+    public int getCachedFiles()
+    {
+        return _mappings.size();
+    }
+
+    @ManagedAttribute("The number of bytes of mapped files, including the ones evicted but still in use")
+    public long getMappedBytes()
+    {
+        return _mappedBytes.get();
+    }
+
+    @ManagedAttribute("The number of mapped files, including the ones evicted but still in use")
+    public int getMappedFiles()
+    {
+        return _mappedFiles.get();
+    }
+
+    @ManagedAttribute("The number of mappings acquired from the cache")
+    public long getHits()
+    {
+        return _hits.sum();
+    }
+
+    @ManagedAttribute("The number of files mapped because they were not in the cache")
+    public long getMisses()
+    {
+        return _misses.sum();
+    }
+
+    @ManagedAttribute("The ratio of mappings acquired from the cache")
+    public double getHitRatio()
+    {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0.0D : (double)hits / total;
+    }
+
+    @ManagedAttribute("The number of mappings evicted from the cache")
+    public long getEvictions()
+    {
+        return _evictions.sum();
+    }
+
+    @ManagedAttribute("The number of mappings invalidated because their file changed")
+    public long getInvalidations()
+    {
+        return _invalidations.sum();
+    }
+
+    @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
+    public void resetStatistics()
+    {
+        _hits.reset();
+        _misses.reset();
+        _evictions.reset();
+        _invalidations.reset();
+    }
+
+    /**
+     * <p>Acquires the mapping of the file of a resource, mapping the file if needed.</p>
+     * <p>The mapping must be {@link Mapping#release() released} once its buffers are no
+     * longer used, as they are unmapped when the mapping is released and it is no longer
+     * cached.</p>
+     *
+     * @param resource the resource to map
+     * @return the mapping of the resource, or null if the resource cannot be mapped
+     */
+    public Mapping acquire(Resource resource)
+    {
+        File file;
+        String key;
+        try
+        {
+            file = resource.getFile();
+            if (file == null)
+                return null;
+            key = file.getCanonicalPath();
+        }
+        catch (IOException x)
+        {
+            LOG.ignore(x);
+            return null;
+        }
+
+        long length = file.length();
+        long lastModified = file.lastModified();
+        if (length < _minFileSize || length > Integer.MAX_VALUE || length > _maxCachedBytes)
+            return null;
+
+        Mapping mapping = _mappings.get(key);
+        if (mapping != null)
+        {
+            if (mapping.isValid(lastModified, length) && mapping.retain())
+            {
+                mapping.accessed();
+                _hits.increment();
+                return mapping;
+            }
+            if (remove(mapping))
+                _invalidations.increment();
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            // The file may have changed since its length was read.
+            if (channel.size() != length)
+                return null;
+            mapping = new Mapping(key, channel.map(MapMode.READ_ONLY, 0, length), lastModified, length);
+        }
+        catch (IOException x)
+        {
+            LOG.debug(x);
+            return null;
+        }
+        _misses.increment();
+
+        // The reference of the cache is taken by the constructor, the reference of the
+        // caller must be taken before the mapping can be evicted by other threads.
+        mapping.retain();
+        _cachedBytes.addAndGet(length);
+        while (true)
+        {
+            Mapping cached = _mappings.putIfAbsent(key, mapping);
+            if (cached == null)
+                break;
+            if (cached.isValid(lastModified, length) && cached.retain())
+            {
+                // Another thread concurrently mapped the same file, unmap this one.
+                _cachedBytes.addAndGet(-length);
+                mapping.release();
+                mapping.release();
+                cached.accessed();
+                return cached;
+            }
+            if (remove(cached))
+                _invalidations.increment();
+        }
+        evict();
+        return mapping;
+    }
+
+    private boolean remove(Mapping mapping)
+    {
+        // Only the thread that removes the mapping from the map releases the reference of the cache.
+        if (!_mappings.remove(mapping._key, mapping))
+            return false;
+        _cachedBytes.addAndGet(-mapping._length);
+        mapping.release();
+        return true;
+    }
+
+    private void evict()
+    {
+        if (_cachedBytes.get() <= _maxCachedBytes)
+            return;
+        // Sort a snapshot of the access times, as they change while sorting.
+        List<Map.Entry<Long, Mapping>> mappings = new ArrayList<>();
+        for (Mapping mapping : _mappings.values())
+        {
+            mappings.add(new AbstractMap.SimpleImmutableEntry<>(mapping._lastAccessed, mapping));
+        }
+        mappings.sort(Map.Entry.comparingByKey());
+        for (Map.Entry<Long, Mapping> entry : mappings)
+        {
+            if (_cachedBytes.get() <= _maxCachedBytes)
+                break;
+            if (remove(entry.getValue()))
+                _evictions.increment();
+        }
+    }
+
+    /**
+     * <p>Removes all the mappings from the cache, unmapping the ones that are not in use.</p>
+     */
+    @ManagedOperation(value = "Removes all the mappings from the cache", impact = "ACTION")
+    public void clear()
+    {
+        for (Mapping mapping : _mappings.values())
+        {
+            remove(mapping);
+        }
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        clear();
+        super.doStop();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{files=%d,bytes=%d/%d,mapped=%d}", getClass().getSimpleName(), hashCode(), getCachedFiles(), getCachedBytes(), getMaxCachedBytes(), getMappedBytes());
+    }
+
+    /**
+     * <p>A reference counted memory mapped file.</p>
+     */
+    public class Mapping
+    {
+        // One reference is held by the cache.
+        private final AtomicInteger _references = new AtomicInteger(1);
+        private final String _key;
+        private final ByteBuffer _buffer;
+        private final long _lastModified;
+        private final long _length;
+        private volatile long _lastAccessed = System.nanoTime();
+
+        private Mapping(String key, ByteBuffer buffer, long lastModified, long length)
+        {
+            _key = key;
+            _buffer = buffer;
+            _lastModified = lastModified;
+            _length = length;
+            _mappedBytes.addAndGet(length);
+            _mappedFiles.incrementAndGet();
+        }
+
+        private boolean isValid(long lastModified, long length)
+        {
+            return _lastModified == lastModified && _length == length;
+        }
+
+        private void accessed()
+        {
+            _lastAccessed = System.nanoTime();
+        }
+
+        private boolean retain()
+        {
+            while (true)
+            {
+                int references = _references.get();
+                // Already unmapped.
+                if (references == 0)
+                    return false;
+                if (_references.compareAndSet(references, references + 1))
+                    return true;
+            }
+        }
+
+        /**
+         * @return the length of the mapped file
+         */
+        public long getLength()
+        {
+            return _length;
+        }
+
+        /**
+         * <p>Returns a read only buffer over a region of the mapped file, without copying it.</p>
+         *
+         * @param offset the offset of the region in the file
+         * @param length the length of the region
+         * @return a buffer over the region, that must not be used after the mapping is released
+         */
+        public ByteBuffer slice(long offset, long length)
+        {
+            if (offset < 0 || length < 0 || offset + length > _length)
+                throw new IndexOutOfBoundsException("offset=" + offset + ",length=" + length + " for " + this);
+            ByteBuffer slice = _buffer.asReadOnlyBuffer();
+            slice.limit((int)(offset + length));
+            slice.position((int)offset);
+            return slice.slice();
+        }
+
+        /**
+         * <p>Releases this mapping, that is unmapped if it is no longer cached nor in use.</p>
+         */
+        public void release()
+        {
+            int references = _references.decrementAndGet();
+            if (references < 0)
+                throw new IllegalStateException("Released too many times " + this);
+            if (references == 0)
+                unmap();
+        }
+
+        private void unmap()
+        {
+            _mappedBytes.addAndGet(-_length);
+            _mappedFiles.decrementAndGet();
+            if (LOG.isDebugEnabled())
+                LOG.debug("Unmapping {}", this);
+            if (UNMAP != null)
+            {
+                try
+                {
+                    UNMAP.invokeExact(_buffer);
+                }
+                catch (Throwable x)
+                {
+                    LOG.ignore(x);
+                }
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x{%s,length=%d,refs=%d}", getClass().getSimpleName(), hashCode(), _key, _length, _references.get());
+        }
+    }
+}
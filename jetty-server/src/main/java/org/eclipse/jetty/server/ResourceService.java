@@ -44,6 +44,7 @@ import org.eclipse.jetty.http.HttpField;
 import org.eclipse.jetty.http.HttpFields;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.PreEncodedHttpField;
+import org.eclipse.jetty.http.PrecompressedHttpContent;
 import org.eclipse.jetty.http.QuotedCSV;
 import org.eclipse.jetty.http.QuotedQualityCSV;
 import org.eclipse.jetty.io.WriterOutputStream;
@@ -70,6 +71,7 @@ public class ResourceService
     private static final PreEncodedHttpField ACCEPT_RANGES = new PreEncodedHttpField(HttpHeader.ACCEPT_RANGES, "bytes");
 
     private HttpContent.ContentFactory _contentFactory;
+    private MappedFileCache _mappedFileCache;
     private WelcomeFactory _welcomeFactory;
     private boolean _acceptRanges = true;
     private boolean _dirAllowed = true;
@@ -93,6 +95,19 @@ public class ResourceService
         _contentFactory = contentFactory;
     }
 
+    public MappedFileCache getMappedFileCache()
+    {
+        return _mappedFileCache;
+    }
+
+    /**
+     * @param mappedFileCache the cache of memory mapped files used to send large files, or null to not map files
+     */
+    public void setMappedFileCache(MappedFileCache mappedFileCache)
+    {
+        _mappedFileCache = mappedFileCache;
+    }
+
     public WelcomeFactory getWelcomeFactory()
     {
         return _welcomeFactory;
@@ -687,19 +702,21 @@ public class ResourceService
                 // write the headers
                 putHeaders(response, content, 0);
 
+                final MappedFileCache.Mapping mapping = acquireMapping(content);
+
                 // write the content asynchronously if supported
                 if (request.isAsyncSupported() && content.getContentLengthValue() > response.getBufferSize())
                 {
                     final AsyncContext context = request.startAsync();
                     context.setTimeout(0);
 
-                    ((HttpOutput)out).sendContent(content, new Callback()
+                    Callback callback = new Callback()
                     {
                         @Override
                         public void succeeded()
                         {
                             context.complete();
-                            content.release();
+                            release();
                         }
 
                         @Override
@@ -710,6 +727,13 @@ public class ResourceService
                             else
                                 LOG.warn(x);
                             context.complete();
+                            release();
+                        }
+
+                        private void release()
+                        {
+                            if (mapping != null)
+                                mapping.release();
                             content.release();
                         }
 
@@ -718,11 +742,29 @@ public class ResourceService
                         {
                             return String.format("ResourceService@%x$CB", ResourceService.this.hashCode());
                         }
-                    });
+                    };
+                    if (mapping != null)
+                        ((HttpOutput)out).sendContent(mapping.slice(0, content_length), callback);
+                    else
+                        ((HttpOutput)out).sendContent(content, callback);
                     return false;
                 }
                 // otherwise write content blocking
-                ((HttpOutput)out).sendContent(content);
+                if (mapping != null)
+                {
+                    try
+                    {
+                        ((HttpOutput)out).sendContent(mapping.slice(0, content_length));
+                    }
+                    finally
+                    {
+                        mapping.release();
+                    }
+                }
+                else
+                {
+                    ((HttpOutput)out).sendContent(content);
+                }
             }
         }
         else
@@ -752,7 +794,26 @@ public class ResourceService
                     response.addDateHeader(HttpHeader.DATE.asString(), System.currentTimeMillis());
                 response.setHeader(HttpHeader.CONTENT_RANGE.asString(),
                     singleSatisfiableRange.toHeaderRangeString(content_length));
-                content.getResource().writeTo(out, singleSatisfiableRange.getFirst(), singleLength);
+                MappedFileCache.Mapping mapping = acquireMapping(content);
+                if (mapping != null)
+                {
+                    try
+                    {
+                        // slice the range out of the mapped file without copying it
+                        ByteBuffer slice = mapping.slice(singleSatisfiableRange.getFirst(), singleLength);
+                        if (include || written || !(out instanceof HttpOutput))
+                            BufferUtil.writeTo(slice, out);
+                        else
+                            ((HttpOutput)out).sendContent(slice);
+                    }
+                    finally
+                    {
+                        mapping.release();
+                    }
+                }
+                else if (include || written || !(out instanceof HttpOutput) ||
+                    !((HttpOutput)out).transferContent(content, singleSatisfiableRange.getFirst(), singleLength))
+                    content.getResource().writeTo(out, singleSatisfiableRange.getFirst(), singleLength);
                 return true;
             }
 
@@ -779,7 +840,8 @@ public class ResourceService
                 ctp = "multipart/byteranges; boundary=";
             response.setContentType(ctp + multi.getBoundary());
 
-            InputStream in = content.getResource().getInputStream();
+            MappedFileCache.Mapping mapping = acquireMapping(content);
+            InputStream in = mapping == null ? content.getResource().getInputStream() : null;
             long pos = 0;
 
             // calculate the content-length
@@ -801,36 +863,49 @@ public class ResourceService
             length += 2 + 2 + multi.getBoundary().length() + 2 + 2;
             response.setContentLength(length);
 
-            i = 0;
-            for (InclusiveByteRange ibr : ranges)
+            try
             {
-                multi.startPart(mimetype, new String[]{HttpHeader.CONTENT_RANGE + ": " + header[i]});
-
-                long start = ibr.getFirst();
-                long size = ibr.getSize();
-                if (in != null)
+                i = 0;
+                for (InclusiveByteRange ibr : ranges)
                 {
-                    // Handle non cached resource
-                    if (start < pos)
+                    multi.startPart(mimetype, new String[]{HttpHeader.CONTENT_RANGE + ": " + header[i]});
+
+                    long start = ibr.getFirst();
+                    long size = ibr.getSize();
+                    if (mapping != null)
                     {
-                        in.close();
-                        in = content.getResource().getInputStream();
-                        pos = 0;
+                        // Handle mapped resource
+                        BufferUtil.writeTo(mapping.slice(start, size), multi);
                     }
-                    if (pos < start)
+                    else if (in != null)
                     {
-                        in.skip(start - pos);
-                        pos = start;
+                        // Handle non cached resource
+                        if (start < pos)
+                        {
+                            in.close();
+                            in = content.getResource().getInputStream();
+                            pos = 0;
+                        }
+                        if (pos < start)
+                        {
+                            in.skip(start - pos);
+                            pos = start;
+                        }
+
+                        IO.copy(in, multi, size);
+                        pos += size;
                     }
+                    else
+                        // Handle cached resource
+                        content.getResource().writeTo(multi, start, size);
 
-                    IO.copy(in, multi, size);
-                    pos += size;
+                    i++;
                 }
-                else
-                    // Handle cached resource
-                    content.getResource().writeTo(multi, start, size);
-
-                i++;
+            }
+            finally
+            {
+                if (mapping != null)
+                    mapping.release();
             }
             if (in != null)
                 in.close();
@@ -839,6 +914,26 @@ public class ResourceService
         return true;
     }
 
+    private MappedFileCache.Mapping acquireMapping(HttpContent content)
+    {
+        MappedFileCache cache = _mappedFileCache;
+        // The resource of precompressed content is the uncompressed file.
+        if (cache == null || content instanceof PrecompressedHttpContent)
+            return null;
+        // Content already buffered by the CachedContentFactory is written from its buffer.
+        if (content instanceof CachedContentFactory.CachedHttpContent && ((CachedContentFactory.CachedHttpContent)content).isBuffered())
+            return null;
+        MappedFileCache.Mapping mapping = cache.acquire(content.getResource());
+        // The file may have changed since the headers were generated from the content,
+        // the mapping must not be used as slicing it could then fail while writing.
+        if (mapping != null && mapping.getLength() != content.getContentLengthValue())
+        {
+            mapping.release();
+            return null;
+        }
+        return mapping;
+    }
+
     protected void putHeaders(HttpServletResponse response, HttpContent content, long contentLength)
     {
         if (response instanceof Response)
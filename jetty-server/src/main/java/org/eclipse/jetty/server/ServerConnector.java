@@ -25,11 +25,14 @@ import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.net.SocketOption;
 import java.nio.channels.Channel;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.EventListener;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicReference;
@@ -37,6 +40,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import org.eclipse.jetty.io.ByteBufferPool;
 import org.eclipse.jetty.io.ChannelEndPoint;
 import org.eclipse.jetty.io.Connection;
+import org.eclipse.jetty.io.ConnectionStatistics;
 import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.io.ManagedSelector;
 import org.eclipse.jetty.io.SelectorManager;
@@ -72,6 +76,14 @@ import org.eclipse.jetty.util.thread.Scheduler;
  * which should allow optimal performance even if all the connections used are performing
  * significant non-blocking work in the callback tasks.
  * </p>
+ * <h2>Reuse Port</h2>
+ * <p>
+ * When there are no acceptor threads and {@link #setReusePort(boolean) reusePort} is enabled,
+ * the connector opens one listening channel per selector, all bound to the same port with the
+ * {@code SO_REUSEPORT} socket option, so that the operating system spreads the incoming
+ * connections over the listening channels. Each selector accepts from its own listening channel
+ * and handles the accepted connections, so there is no contention on a single listening channel.
+ * </p>
  */
 @ManagedObject("HTTP connector using NIO ByteChannels and Selectors")
 public class ServerConnector extends AbstractNetworkConnector
@@ -83,6 +95,10 @@ public class ServerConnector extends AbstractNetworkConnector
     private volatile int _localPort = -1;
     private volatile int _acceptQueueSize = 0;
     private volatile boolean _reuseAddress = true;
+    private volatile boolean _reusePort = false;
+    private volatile ServerSocketChannel[] _reusePortChannels;
+    private volatile String[] _reusePortChannelNames;
+    private volatile Collection<ConnectionStatistics> _statistics = Collections.emptyList();
 
     /**
      * <p>Construct a ServerConnector with a private instance of {@link HttpConnectionFactory} as the only factory.</p>
@@ -232,9 +248,42 @@ public class ServerConnector extends AbstractNetworkConnector
 
         if (getAcceptors() == 0)
         {
-            _acceptChannel.configureBlocking(false);
-            _acceptor.set(_manager.acceptor(_acceptChannel));
+            ServerSocketChannel[] channels = _reusePortChannels;
+            if (channels == null)
+            {
+                _acceptChannel.configureBlocking(false);
+            }
+            else
+            {
+                _statistics = getBeans(ConnectionStatistics.class);
+                for (ServerSocketChannel channel : channels)
+                {
+                    channel.configureBlocking(false);
+                }
+            }
+            _acceptor.set(newAcceptor());
+        }
+    }
+
+    private Closeable newAcceptor() throws IOException
+    {
+        ServerSocketChannel[] channels = _reusePortChannels;
+        if (channels == null)
+            return _manager.acceptor(_acceptChannel);
+
+        // Each listening channel is accepted by its own selector.
+        Closeable[] acceptors = new Closeable[channels.length];
+        for (int i = 0; i < channels.length; ++i)
+        {
+            acceptors[i] = _manager.acceptor(channels[i], i);
         }
+        return () ->
+        {
+            for (Closeable acceptor : acceptors)
+            {
+                acceptor.close();
+            }
+        };
     }
 
     @Override
@@ -310,7 +359,64 @@ public class ServerConnector extends AbstractNetworkConnector
             if (_localPort <= 0)
                 throw new IOException("Server channel not bound");
             addBean(_acceptChannel);
+            if (getAcceptors() == 0 && isReusePort())
+                openReusePortChannels();
+        }
+    }
+
+    private void openReusePortChannels() throws IOException
+    {
+        SocketOption<Boolean> reusePort = getReusePortOption(_acceptChannel);
+        if (reusePort == null || !_acceptChannel.getOption(reusePort))
+        {
+            LOG.warn("SO_REUSEPORT not available, using a single listening channel for {}", this);
+            return;
+        }
+
+        InetSocketAddress bindAddress = (InetSocketAddress)_acceptChannel.getLocalAddress();
+        ServerSocketChannel[] channels = new ServerSocketChannel[_manager.getSelectorCount()];
+        String[] names = new String[channels.length];
+        channels[0] = _acceptChannel;
+        for (int i = 0; i < channels.length; ++i)
+        {
+            names[i] = String.format("%s:%d#%d", bindAddress.getAddress().getHostAddress(), bindAddress.getPort(), i);
+            if (i == 0)
+                continue;
+            ServerSocketChannel channel = ServerSocketChannel.open();
+            try
+            {
+                channel.socket().setReuseAddress(getReuseAddress());
+                channel.setOption(reusePort, true);
+                channel.socket().bind(bindAddress, getAcceptQueueSize());
+                channel.configureBlocking(true);
+            }
+            catch (IOException e)
+            {
+                closeChannel(channel);
+                for (int j = 1; j < i; ++j)
+                {
+                    removeBean(channels[j]);
+                    closeChannel(channels[j]);
+                }
+                throw new IOException("Failed to bind to " + bindAddress, e);
+            }
+            channels[i] = channel;
+            addBean(channel);
         }
+        _reusePortChannelNames = names;
+        _reusePortChannels = channels;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SocketOption<Boolean> getReusePortOption(ServerSocketChannel channel)
+    {
+        // StandardSocketOptions.SO_REUSEPORT is only available from Java 9.
+        for (SocketOption<?> option : channel.supportedOptions())
+        {
+            if ("SO_REUSEPORT".equals(option.name()) && option.type() == Boolean.class)
+                return (SocketOption<Boolean>)option;
+        }
+        return null;
     }
 
     /**
@@ -337,6 +443,12 @@ public class ServerConnector extends AbstractNetworkConnector
 
             InetSocketAddress bindAddress = getHost() == null ? new InetSocketAddress(getPort()) : new InetSocketAddress(getHost(), getPort());
             serverChannel.socket().setReuseAddress(getReuseAddress());
+            if (getAcceptors() == 0 && isReusePort())
+            {
+                SocketOption<Boolean> reusePort = getReusePortOption(serverChannel);
+                if (reusePort != null)
+                    serverChannel.setOption(reusePort, true);
+            }
             try
             {
                 serverChannel.socket().bind(bindAddress, getAcceptQueueSize());
@@ -355,25 +467,42 @@ public class ServerConnector extends AbstractNetworkConnector
     {
         super.close();
 
+        ServerSocketChannel[] channels = _reusePortChannels;
+        _reusePortChannels = null;
+        _reusePortChannelNames = null;
+        if (channels != null)
+        {
+            // The first channel is the accept channel.
+            for (int i = 1; i < channels.length; ++i)
+            {
+                removeBean(channels[i]);
+                closeChannel(channels[i]);
+            }
+        }
+
         ServerSocketChannel serverChannel = _acceptChannel;
         _acceptChannel = null;
         if (serverChannel != null)
         {
             removeBean(serverChannel);
+            closeChannel(serverChannel);
+        }
+        _localPort = -2;
+    }
 
-            if (serverChannel.isOpen())
+    private void closeChannel(ServerSocketChannel channel)
+    {
+        if (channel.isOpen())
+        {
+            try
             {
-                try
-                {
-                    serverChannel.close();
-                }
-                catch (IOException e)
-                {
-                    LOG.warn(e);
-                }
+                channel.close();
+            }
+            catch (IOException e)
+            {
+                LOG.warn(e);
             }
         }
-        _localPort = -2;
     }
 
     @Override
@@ -395,6 +524,27 @@ public class ServerConnector extends AbstractNetworkConnector
         _manager.accept(channel);
     }
 
+    private void accepted(SocketChannel channel, ManagedSelector selector) throws IOException
+    {
+        String[] names = _reusePortChannelNames;
+        if (names == null)
+        {
+            accepted(channel);
+            return;
+        }
+
+        // Handle the channel in the same selector that accepted it.
+        channel.configureBlocking(false);
+        Socket socket = channel.socket();
+        configure(socket);
+        String name = names[selector.getId()];
+        for (ConnectionStatistics statistics : _statistics)
+        {
+            statistics.onAccepted(name);
+        }
+        _manager.accept(channel, null, selector);
+    }
+
     protected void configure(Socket socket)
     {
         try
@@ -493,6 +643,31 @@ public class ServerConnector extends AbstractNetworkConnector
         _reuseAddress = reuseAddress;
     }
 
+    /**
+     * @return whether the connector listens on one channel per selector bound with {@code SO_REUSEPORT}
+     * @see #setReusePort(boolean)
+     */
+    @ManagedAttribute("Whether the connector listens on one SO_REUSEPORT channel per selector")
+    public boolean isReusePort()
+    {
+        return _reusePort;
+    }
+
+    /**
+     * <p>Sets whether the connector listens on one channel per selector, all bound
+     * to the same port with the {@code SO_REUSEPORT} socket option.</p>
+     * <p>This is only effective when the connector has no acceptor threads and
+     * the platform supports {@code SO_REUSEPORT}, otherwise a single listening channel is used.
+     * The number of connections accepted by each listening channel is reported
+     * by the {@link ConnectionStatistics} beans of this connector.</p>
+     *
+     * @param reusePort whether the connector listens on one {@code SO_REUSEPORT} channel per selector
+     */
+    public void setReusePort(boolean reusePort)
+    {
+        _reusePort = reusePort;
+    }
+
     @Override
     public void setAccepting(boolean accepting)
     {
@@ -506,7 +681,7 @@ public class ServerConnector extends AbstractNetworkConnector
             {
                 if (_acceptor.get() == null)
                 {
-                    Closeable acceptor = _manager.acceptor(_acceptChannel);
+                    Closeable acceptor = newAcceptor();
                     if (!_acceptor.compareAndSet(null, acceptor))
                         acceptor.close();
                 }
@@ -537,6 +712,12 @@ public class ServerConnector extends AbstractNetworkConnector
             ServerConnector.this.accepted((SocketChannel)channel);
         }
 
+        @Override
+        protected void accepted(SelectableChannel channel, ManagedSelector selector) throws IOException
+        {
+            ServerConnector.this.accepted((SocketChannel)channel, selector);
+        }
+
         @Override
         protected ChannelEndPoint newEndPoint(SelectableChannel channel, ManagedSelector selectSet, SelectionKey selectionKey) throws IOException
         {
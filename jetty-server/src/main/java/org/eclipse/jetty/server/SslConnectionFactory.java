@@ -18,6 +18,7 @@
 
 package org.eclipse.jetty.server;
 
+import java.util.concurrent.Executor;
 import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLSession;
 
@@ -37,6 +38,8 @@ public class SslConnectionFactory extends AbstractConnectionFactory
     private final String _nextProtocol;
     private boolean _directBuffersForEncryption = false;
     private boolean _directBuffersForDecryption = false;
+    private boolean _coalescingWrites = false;
+    private Executor _handshakeExecutor;
 
     public SslConnectionFactory()
     {
@@ -81,6 +84,44 @@ public class SslConnectionFactory extends AbstractConnectionFactory
         return _directBuffersForEncryption;
     }
 
+    public boolean isCoalescingWrites()
+    {
+        return _coalescingWrites;
+    }
+
+    /**
+     * @param coalescingWrites whether the connections coalesce the TLS records of a flush
+     * @see SslConnection#setCoalescingWrites(boolean)
+     */
+    public void setCoalescingWrites(boolean coalescingWrites)
+    {
+        _coalescingWrites = coalescingWrites;
+    }
+
+    public Executor getHandshakeExecutor()
+    {
+        return _handshakeExecutor;
+    }
+
+    /**
+     * <p>Sets the executor that runs the expensive tasks of the TLS handshakes, so that
+     * a burst of new connections does not starve the threads that serve the established
+     * connections.</p>
+     * <p>The executor should be bounded, for example a {@link org.eclipse.jetty.util.thread.QueuedThreadPool}
+     * with a bounded queue: when it rejects a task, the TLS handshake fails and the new
+     * connection is closed. Its queue size reports the TLS handshakes waiting to be
+     * processed.</p>
+     *
+     * @param handshakeExecutor the executor of the TLS handshake tasks, or null to run
+     * them in the thread that processes the connection
+     * @see SslConnection#setHandshakeExecutor(Executor)
+     */
+    public void setHandshakeExecutor(Executor handshakeExecutor)
+    {
+        updateBean(_handshakeExecutor, handshakeExecutor);
+        _handshakeExecutor = handshakeExecutor;
+    }
+
     public String getNextProtocol()
     {
         return _nextProtocol;
@@ -108,6 +149,8 @@ public class SslConnectionFactory extends AbstractConnectionFactory
         SslConnection sslConnection = newSslConnection(connector, endPoint, engine);
         sslConnection.setRenegotiationAllowed(_sslContextFactory.isRenegotiationAllowed());
         sslConnection.setRenegotiationLimit(_sslContextFactory.getRenegotiationLimit());
+        sslConnection.setCoalescingWrites(isCoalescingWrites());
+        sslConnection.setHandshakeExecutor(getHandshakeExecutor());
         configure(sslConnection, connector, endPoint);
 
         ConnectionFactory next = connector.getConnectionFactory(_nextProtocol);
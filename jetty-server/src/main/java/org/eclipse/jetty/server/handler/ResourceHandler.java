@@ -31,6 +31,7 @@ import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpMethod;
 import org.eclipse.jetty.http.MimeTypes;
 import org.eclipse.jetty.http.PreEncodedHttpField;
+import org.eclipse.jetty.server.MappedFileCache;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.ResourceContentFactory;
 import org.eclipse.jetty.server.ResourceService;
@@ -104,6 +105,8 @@ public class ResourceHandler extends HandlerWrapper implements ResourceFactory,
 
         _resourceService.setContentFactory(new ResourceContentFactory(this, _mimeTypes, _resourceService.getPrecompressedFormats()));
         _resourceService.setWelcomeFactory(this);
+        if (_resourceService.getMappedFileCache() == null && getServer() != null)
+            _resourceService.setMappedFileCache(getServer().getBean(MappedFileCache.class));
 
         super.doStart();
     }
@@ -0,0 +1,254 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server.handler.gzip;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+
+/**
+ * <p>A bounded cache of gzipped responses, used by {@link GzipHandler} to compress
+ * once the responses that are byte identical.</p>
+ * <p>Only the 200 responses to GET requests without {@code Range} that have a strong
+ * {@code ETag} are cached, keyed by the scheme, server name and port, the request URI,
+ * the {@code ETag}, the content encoding and the values of the request headers named by
+ * the {@code Vary} header of the response. A later response
+ * with the same key is generated by the application as usual, but its content is discarded
+ * and the cached gzipped bytes are sent instead, so that it is not compressed again.
+ * Applications must therefore only use strong {@code ETag}s for content that is byte
+ * identical.</p>
+ * <p>The cache is bounded by the total size of the gzipped bytes, evicting the least
+ * recently used responses, and responses larger than {@link #getMaxEntrySize()} once
+ * gzipped are not cached.</p>
+ */
+@ManagedObject("Cache of gzipped responses")
+public class GzipContentCache
+{
+    private final Map<String, Entry> _entries = new LinkedHashMap<>(16, 0.75F, true);
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+    private final LongAdder _bytesSaved = new LongAdder();
+    private long _maxCacheSize = 16 * 1024 * 1024;
+    private int _maxEntrySize = 1024 * 1024;
+    private long _cachedSize;
+
+    @ManagedAttribute("The max number of gzipped bytes kept in the cache")
+    public long getMaxCacheSize()
+    {
+        return _maxCacheSize;
+    }
+
+    public void setMaxCacheSize(long maxCacheSize)
+    {
+        synchronized (this)
+        {
+            _maxCacheSize = maxCacheSize;
+            evict();
+        }
+    }
+
+    @ManagedAttribute("The max number of gzipped bytes of a cached response")
+    public int getMaxEntrySize()
+    {
+        return _maxEntrySize;
+    }
+
+    public void setMaxEntrySize(int maxEntrySize)
+    {
+        _maxEntrySize = maxEntrySize;
+    }
+
+    @ManagedAttribute("The number of gzipped bytes kept in the cache")
+    public synchronized long getCachedSize()
+    {
+        return _cachedSize;
+    }
+
+    @ManagedAttribute("The number of responses kept in the cache")
+    public synchronized int getCachedEntries()
+    {
+        return _entries.size();
+    }
+
+    @ManagedAttribute("The number of responses sent from the cache")
+    public long getHits()
+    {
+        return _hits.sum();
+    }
+
+    @ManagedAttribute("The number of cacheable responses that were not in the cache")
+    public long getMisses()
+    {
+        return _misses.sum();
+    }
+
+    @ManagedAttribute("The ratio of cacheable responses sent from the cache")
+    public double getHitRatio()
+    {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0.0D : (double)hits / total;
+    }
+
+    @ManagedAttribute("The number of bytes that did not need to be compressed")
+    public long getBytesSaved()
+    {
+        return _bytesSaved.sum();
+    }
+
+    @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
+    public void resetStatistics()
+    {
+        _hits.reset();
+        _misses.reset();
+        _bytesSaved.reset();
+    }
+
+    @ManagedOperation(value = "Removes all the responses from the cache", impact = "ACTION")
+    public synchronized void clear()
+    {
+        _entries.clear();
+        _cachedSize = 0;
+    }
+
+    /**
+     * <p>Computes the cache key of a response that is about to be committed.</p>
+     *
+     * @param request the request
+     * @param response the response
+     * @param encoding the content encoding of the response
+     * @return the cache key, or null if the response cannot be cached
+     */
+    public String getKey(Request request, Response response, String encoding)
+    {
+        if (!HttpMethod.GET.is(request.getMethod()))
+            return null;
+
+        // A partial response has the ETag of the whole resource, but not its content.
+        if (response.getStatus() != HttpStatus.OK_200 || request.getHeader(HttpHeader.RANGE.asString()) != null)
+            return null;
+
+        String etag = response.getHttpFields().get(HttpHeader.ETAG);
+        if (etag == null || etag.startsWith("W/"))
+            return null;
+
+        // The same URI may be a different resource on a different virtual host.
+        StringBuilder key = new StringBuilder(128);
+        key.append(request.getScheme()).append("://");
+        key.append(request.getServerName()).append(':').append(request.getServerPort());
+        key.append(request.getRequestURI());
+        String query = request.getQueryString();
+        if (query != null)
+            key.append('?').append(query);
+        key.append('\n').append(etag);
+        key.append('\n').append(encoding);
+
+        for (String name : response.getHttpFields().getCSV(HttpHeader.VARY, false))
+        {
+            if ("*".equals(name))
+                return null;
+            // The compressed content does not depend on the headers that decide how to compress.
+            if (HttpHeader.ACCEPT_ENCODING.is(name) || HttpHeader.USER_AGENT.is(name))
+                continue;
+            key.append('\n').append(name).append(':');
+            String value = request.getHeader(name);
+            if (value != null)
+                key.append(value);
+        }
+        return key.toString();
+    }
+
+    /**
+     * @param key the cache key
+     * @return the gzipped bytes of the response, or null if the response is not cached
+     */
+    public byte[] get(String key)
+    {
+        Entry entry;
+        synchronized (this)
+        {
+            entry = _entries.get(key);
+        }
+        if (entry == null)
+        {
+            _misses.increment();
+            return null;
+        }
+        _hits.increment();
+        _bytesSaved.add(entry._uncompressedSize);
+        return entry._gzipped;
+    }
+
+    /**
+     * @param key the cache key
+     * @param gzipped the gzipped bytes of the response
+     * @param uncompressedSize the number of bytes of the response before compression
+     */
+    public void put(String key, byte[] gzipped, long uncompressedSize)
+    {
+        if (gzipped.length > _maxEntrySize)
+            return;
+        synchronized (this)
+        {
+            Entry old = _entries.put(key, new Entry(gzipped, uncompressedSize));
+            if (old != null)
+                _cachedSize -= old._gzipped.length;
+            _cachedSize += gzipped.length;
+            evict();
+        }
+    }
+
+    private void evict()
+    {
+        Iterator<Entry> iterator = _entries.values().iterator();
+        while (_cachedSize > _maxCacheSize && iterator.hasNext())
+        {
+            _cachedSize -= iterator.next()._gzipped.length;
+            iterator.remove();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{entries=%d,size=%d/%d}", getClass().getSimpleName(), hashCode(), getCachedEntries(), getCachedSize(), getMaxCacheSize());
+    }
+
+    private static class Entry
+    {
+        private final byte[] _gzipped;
+        private final long _uncompressedSize;
+
+        private Entry(byte[] gzipped, long uncompressedSize)
+        {
+            _gzipped = gzipped;
+            _uncompressedSize = uncompressedSize;
+        }
+    }
+}
@@ -20,6 +20,9 @@ package org.eclipse.jetty.server.handler.gzip;
 
 import java.util.zip.Deflater;
 
+import org.eclipse.jetty.http.CompressedContentFormat;
+import org.eclipse.jetty.http.CompressionCodec;
+import org.eclipse.jetty.http.GzipCompressionCodec;
 import org.eclipse.jetty.server.Request;
 
 public interface GzipFactory
@@ -29,4 +32,23 @@ public interface GzipFactory
     boolean isMimeTypeGzipable(String mimetype);
 
     void recycle(Deflater deflater);
+
+    /**
+     * @param request the request
+     * @param contentLength the content length of the response, or -1 if unknown
+     * @return the encoder to compress the response with, or null to not compress it
+     */
+    default CompressionCodec.Encoder getEncoder(Request request, long contentLength)
+    {
+        Deflater deflater = getDeflater(request, contentLength);
+        return deflater == null ? null : GzipCompressionCodec.newEncoder(deflater, this::recycle);
+    }
+
+    /**
+     * @return the formats of the encodings that responses may be compressed with
+     */
+    default CompressedContentFormat[] getCompressedContentFormats()
+    {
+        return new CompressedContentFormat[]{CompressedContentFormat.GZIP};
+    }
 }
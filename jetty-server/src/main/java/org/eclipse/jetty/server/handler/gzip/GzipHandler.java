@@ -20,8 +20,10 @@ package org.eclipse.jetty.server.handler.gzip;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.ListIterator;
 import java.util.Set;
 import java.util.regex.Pattern;
@@ -34,12 +36,14 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.eclipse.jetty.http.CompressedContentFormat;
+import org.eclipse.jetty.http.CompressionCodec;
 import org.eclipse.jetty.http.HttpField;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpHeaderValue;
 import org.eclipse.jetty.http.HttpMethod;
 import org.eclipse.jetty.http.MimeTypes;
 import org.eclipse.jetty.http.PreEncodedHttpField;
+import org.eclipse.jetty.http.QuotedQualityCSV;
 import org.eclipse.jetty.http.pathmap.PathSpecSet;
 import org.eclipse.jetty.server.HttpOutput;
 import org.eclipse.jetty.server.Request;
@@ -126,6 +130,13 @@ import org.eclipse.jetty.util.log.Logger;
  * and sent to the User Agent.
  * </p>
  * <p>
+ * Responses are compressed with {@code gzip} unless other {@link CompressionCodec}s are
+ * {@link #addCodec(CompressionCodec) added}, in which case the codec is negotiated from the
+ * quality values of the Request {@code Accept-Encoding} header, preferring the added codecs
+ * over {@code gzip} when the qualities are equal. Each codec has its own compression level
+ * and min size, and adds its own suffix to the ETag, such as {@code --br}.
+ * </p>
+ * <p>
  * This implementation relies on an Jetty internal {@link org.eclipse.jetty.server.HttpOutput.Interceptor}
  * mechanism to allow for effective and efficient compression of the response on all Output API usages:
  * </p>
@@ -180,6 +191,10 @@ public class GzipHandler extends HandlerWrapper implements GzipFactory
     private final IncludeExclude<String> _paths = new IncludeExclude<>(PathSpecSet.class);
     private final IncludeExclude<String> _mimeTypes = new IncludeExclude<>();
     private HttpField _vary;
+    private GzipContentCache _contentCache;
+    private final List<CompressionCodec> _codecs = new ArrayList<>();
+    private CompressedContentFormat[] _formats = new CompressedContentFormat[]{CompressedContentFormat.GZIP};
+    private String[] _preferredEncodings;
 
     /**
      * Instantiates a new GzipHandler.
@@ -421,10 +436,28 @@ public class GzipHandler extends HandlerWrapper implements GzipFactory
     protected void doStart() throws Exception
     {
         _deflaterPool = newDeflaterPool(_poolCapacity);
+        // The pool only pools when it is running.
+        addBean(_deflaterPool);
         _vary = (_agentPatterns.size() > 0) ? GzipHttpOutputInterceptor.VARY_ACCEPT_ENCODING_USER_AGENT : GzipHttpOutputInterceptor.VARY_ACCEPT_ENCODING;
+        _formats = new CompressedContentFormat[_codecs.size() + 1];
+        _preferredEncodings = new String[_codecs.size() + 1];
+        for (int i = 0; i < _codecs.size(); i++)
+        {
+            _formats[i] = _codecs.get(i).getFormat();
+            _preferredEncodings[i] = _codecs.get(i).getEncoding();
+        }
+        _formats[_codecs.size()] = CompressedContentFormat.GZIP;
+        _preferredEncodings[_codecs.size()] = GZIP;
         super.doStart();
     }
 
+    @Override
+    protected void doStop() throws Exception
+    {
+        super.doStop();
+        removeBean(_deflaterPool);
+    }
+
     /**
      * @deprecated feature will be removed in Jetty 10.x, with no replacement.
      */
@@ -700,18 +733,24 @@ public class GzipHandler extends HandlerWrapper implements GzipFactory
             if (field.getHeader() == HttpHeader.IF_NONE_MATCH || field.getHeader() == HttpHeader.IF_MATCH)
             {
                 String etag = field.getValue();
-                int i = etag.indexOf(CompressedContentFormat.GZIP._etagQuote);
-                if (i > 0)
+                boolean compressed = false;
+                for (CompressedContentFormat format : _formats)
                 {
-                    baseRequest.setAttribute("o.e.j.s.h.gzip.GzipHandler.etag", etag);
-                    while (i >= 0)
+                    int i = etag.indexOf(format._etagQuote);
+                    if (i > 0)
                     {
-                        etag = etag.substring(0, i) + etag.substring(i + CompressedContentFormat.GZIP._etag.length());
-                        i = etag.indexOf(CompressedContentFormat.GZIP._etagQuote, i);
+                        if (!compressed)
+                            baseRequest.setAttribute("o.e.j.s.h.gzip.GzipHandler.etag", field.getValue());
+                        compressed = true;
+                        while (i >= 0)
+                        {
+                            etag = etag.substring(0, i) + etag.substring(i + format._etag.length());
+                            i = etag.indexOf(format._etagQuote, i);
+                        }
                     }
-
-                    fields.set(new HttpField(field.getHeader(), etag));
                 }
+                if (compressed)
+                    fields.set(new HttpField(field.getHeader(), etag));
             }
         }
 
@@ -766,7 +805,9 @@ public class GzipHandler extends HandlerWrapper implements GzipFactory
         try
         {
             // install interceptor and handle
-            out.setInterceptor(new GzipHttpOutputInterceptor(this, getVaryField(), baseRequest.getHttpChannel(), origInterceptor, isSyncFlush()));
+            GzipHttpOutputInterceptor gzipInterceptor = new GzipHttpOutputInterceptor(this, getVaryField(), baseRequest.getHttpChannel(), origInterceptor, isSyncFlush());
+            gzipInterceptor.setContentCache(_contentCache);
+            out.setInterceptor(gzipInterceptor);
 
             if (_handler != null)
                 _handler.handle(target, baseRequest, request, response);
@@ -825,6 +866,86 @@ public class GzipHandler extends HandlerWrapper implements GzipFactory
         _deflaterPool.release(deflater);
     }
 
+    @Override
+    public CompressionCodec.Encoder getEncoder(Request request, long contentLength)
+    {
+        if (_codecs.isEmpty())
+            return GzipFactory.super.getEncoder(request, contentLength);
+
+        String ua = request.getHttpFields().get(HttpHeader.USER_AGENT);
+        if (ua != null && !isAgentGzipable(ua))
+        {
+            LOG.debug("{} excluded user agent {}", this, request);
+            return null;
+        }
+
+        List<String> accepts = request.getHttpFields().getValuesList(HttpHeader.ACCEPT_ENCODING);
+        if (accepts.isEmpty())
+        {
+            LOG.debug("{} excluded !accept {}", this, request);
+            return null;
+        }
+
+        QuotedQualityCSV encodings = new QuotedQualityCSV(_preferredEncodings);
+        for (String accept : accepts)
+        {
+            encodings.addValue(accept);
+        }
+        for (String encoding : encodings)
+        {
+            if (GZIP.equalsIgnoreCase(encoding))
+            {
+                CompressionCodec.Encoder encoder = GzipFactory.super.getEncoder(request, contentLength);
+                if (encoder != null)
+                    return encoder;
+                continue;
+            }
+
+            for (CompressionCodec codec : _codecs)
+            {
+                if (codec.getEncoding().equalsIgnoreCase(encoding))
+                {
+                    if (contentLength >= 0 && contentLength < codec.getMinCompressSize())
+                    {
+                        LOG.debug("{} excluded min size {} of {} {}", this, codec.getMinCompressSize(), codec, request);
+                        break;
+                    }
+                    return codec.newEncoder();
+                }
+            }
+        }
+        LOG.debug("{} excluded no accepted encoding {}", this, request);
+        return null;
+    }
+
+    @Override
+    public CompressedContentFormat[] getCompressedContentFormats()
+    {
+        return _formats;
+    }
+
+    /**
+     * @return the codecs used in addition to {@code gzip}, in order of preference
+     */
+    public List<CompressionCodec> getCodecs()
+    {
+        return new ArrayList<>(_codecs);
+    }
+
+    /**
+     * <p>Adds a codec to compress responses with, that is preferred over {@code gzip}
+     * and over the codecs added before it when the client accepts them equally.</p>
+     *
+     * @param codec the codec to add
+     */
+    public void addCodec(CompressionCodec codec)
+    {
+        if (isStarted())
+            throw new IllegalStateException(getState());
+        _codecs.add(codec);
+        addBean(codec);
+    }
+
     /**
      * Set the Check if {@code *.gz} file for the incoming file exists.
      *
@@ -1027,6 +1148,27 @@ public class GzipHandler extends HandlerWrapper implements GzipFactory
         _poolCapacity = capacity;
     }
 
+    /**
+     * @return the cache of gzipped responses, or null if responses are not cached
+     */
+    public GzipContentCache getContentCache()
+    {
+        return _contentCache;
+    }
+
+    /**
+     * <p>Sets the cache of gzipped responses, so that the responses that have a strong
+     * {@code ETag} are compressed once.</p>
+     *
+     * @param contentCache the cache of gzipped responses, or null to compress every response
+     * @see GzipContentCache
+     */
+    public void setContentCache(GzipContentCache contentCache)
+    {
+        updateBean(_contentCache, contentCache);
+        _contentCache = contentCache;
+    }
+
     protected DeflaterPool newDeflaterPool(int capacity)
     {
         return new DeflaterPool(capacity, getCompressionLevel(), true);
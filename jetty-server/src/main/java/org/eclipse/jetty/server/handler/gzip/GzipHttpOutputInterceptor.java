@@ -18,12 +18,13 @@
 
 package org.eclipse.jetty.server.handler.gzip;
 
+import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritePendingException;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.zip.CRC32;
-import java.util.zip.Deflater;
 
+import org.eclipse.jetty.http.CompressedContentFormat;
+import org.eclipse.jetty.http.CompressionCodec;
 import org.eclipse.jetty.http.HttpField;
 import org.eclipse.jetty.http.HttpFields;
 import org.eclipse.jetty.http.HttpHeader;
@@ -39,23 +40,19 @@ import org.eclipse.jetty.util.StringUtil;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 
-import static org.eclipse.jetty.http.CompressedContentFormat.GZIP;
-
 public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
 {
     public static Logger LOG = Log.getLogger(GzipHttpOutputInterceptor.class);
-    private static final byte[] GZIP_HEADER = new byte[]{(byte)0x1f, (byte)0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
 
     public static final HttpField VARY_ACCEPT_ENCODING_USER_AGENT = new PreEncodedHttpField(HttpHeader.VARY, HttpHeader.ACCEPT_ENCODING + ", " + HttpHeader.USER_AGENT);
     public static final HttpField VARY_ACCEPT_ENCODING = new PreEncodedHttpField(HttpHeader.VARY, HttpHeader.ACCEPT_ENCODING.asString());
 
     private enum GZState
     {
-        MIGHT_COMPRESS, NOT_COMPRESSING, COMMITTING, COMPRESSING, FINISHED
+        MIGHT_COMPRESS, NOT_COMPRESSING, COMMITTING, COMPRESSING, CACHED, FINISHED
     }
 
     private final AtomicReference<GZState> _state = new AtomicReference<>(GZState.MIGHT_COMPRESS);
-    private final CRC32 _crc = new CRC32();
 
     private final GzipFactory _factory;
     private final HttpOutput.Interceptor _interceptor;
@@ -64,7 +61,11 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
     private final int _bufferSize;
     private final boolean _syncFlush;
 
-    private Deflater _deflater;
+    private GzipContentCache _cache;
+    private String _cacheKey;
+    private ByteArrayOutputStream _cacheContent;
+    private byte[] _cached;
+    private CompressionCodec.Encoder _encoder;
     private ByteBuffer _buffer;
 
     public GzipHttpOutputInterceptor(GzipFactory factory, HttpChannel channel, HttpOutput.Interceptor next, boolean syncFlush)
@@ -87,6 +88,19 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
         _syncFlush = syncFlush;
     }
 
+    public GzipContentCache getContentCache()
+    {
+        return _cache;
+    }
+
+    /**
+     * @param cache the cache of gzipped responses, or null to compress every response
+     */
+    public void setContentCache(GzipContentCache cache)
+    {
+        _cache = cache;
+    }
+
     @Override
     public HttpOutput.Interceptor getNextInterceptor()
     {
@@ -120,30 +134,16 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
                 gzip(content, complete, callback);
                 break;
 
+            case CACHED:
+                sendCached(content, complete, callback);
+                break;
+
             default:
                 callback.failed(new IllegalStateException("state=" + _state.get()));
                 break;
         }
     }
 
-    private void addTrailer()
-    {
-        int i = _buffer.limit();
-        _buffer.limit(i + 8);
-
-        int v = (int)_crc.getValue();
-        _buffer.put(i++, (byte)(v & 0xFF));
-        _buffer.put(i++, (byte)((v >>> 8) & 0xFF));
-        _buffer.put(i++, (byte)((v >>> 16) & 0xFF));
-        _buffer.put(i++, (byte)((v >>> 24) & 0xFF));
-
-        v = _deflater.getTotalIn();
-        _buffer.put(i++, (byte)(v & 0xFF));
-        _buffer.put(i++, (byte)((v >>> 8) & 0xFF));
-        _buffer.put(i++, (byte)((v >>> 16) & 0xFF));
-        _buffer.put(i++, (byte)((v >>> 24) & 0xFF));
-    }
-
     private void gzip(ByteBuffer content, boolean complete, final Callback callback)
     {
         if (content.hasRemaining() || complete)
@@ -152,6 +152,37 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
             callback.succeeded();
     }
 
+    private void sendCached(ByteBuffer content, boolean complete, Callback callback)
+    {
+        // The content is the same as the cached one, that is sent instead.
+        BufferUtil.clear(content);
+        byte[] cached = _cached;
+        if (complete && cached != null)
+        {
+            _cached = null;
+            _interceptor.write(ByteBuffer.wrap(cached), true, callback);
+        }
+        else
+        {
+            callback.succeeded();
+        }
+    }
+
+    private void cache(ByteBuffer gzipped, boolean finished)
+    {
+        if (_cacheContent.size() + gzipped.remaining() > _cache.getMaxEntrySize())
+        {
+            _cacheContent = null;
+            return;
+        }
+        _cacheContent.write(gzipped.array(), gzipped.arrayOffset() + gzipped.position(), gzipped.remaining());
+        if (finished)
+        {
+            _cache.put(_cacheKey, _cacheContent.toByteArray(), _encoder.getBytesRead());
+            _cacheContent = null;
+        }
+    }
+
     protected void commit(ByteBuffer content, boolean complete, Callback callback)
     {
         // Are we excluding because of status?
@@ -168,9 +199,15 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
                 String responseEtag = response.getHttpFields().get(HttpHeader.ETAG);
                 if (requestEtags != null && responseEtag != null)
                 {
-                    String responseEtagGzip = etagGzip(responseEtag);
-                    if (requestEtags.contains(responseEtagGzip))
-                        response.getHttpFields().put(HttpHeader.ETAG, responseEtagGzip);
+                    for (CompressedContentFormat format : _factory.getCompressedContentFormats())
+                    {
+                        String responseEtagCompressed = etagCompressed(responseEtag, format);
+                        if (requestEtags.contains(responseEtagCompressed))
+                        {
+                            response.getHttpFields().put(HttpHeader.ETAG, responseEtagCompressed);
+                            break;
+                        }
+                    }
                 }
             }
 
@@ -219,28 +256,50 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
             if (contentLength < 0 && complete)
                 contentLength = content.remaining();
 
-            _deflater = _factory.getDeflater(_channel.getRequest(), contentLength);
+            _encoder = _factory.getEncoder(_channel.getRequest(), contentLength);
 
-            if (_deflater == null)
+            if (_encoder == null)
             {
-                LOG.debug("{} exclude no deflater", this);
+                LOG.debug("{} exclude no encoder", this);
                 _state.set(GZState.NOT_COMPRESSING);
                 _interceptor.write(content, complete, callback);
                 return;
             }
 
-            fields.put(GZIP._contentEncoding);
-            _crc.reset();
+            CompressedContentFormat format = _encoder.getFormat();
+            fields.put(format._contentEncoding);
+
+            if (_cache != null)
+            {
+                _cacheKey = _cache.getKey(_channel.getRequest(), response, format._encoding);
+                if (_cacheKey != null)
+                {
+                    _cached = _cache.get(_cacheKey);
+                    if (_cached != null)
+                    {
+                        LOG.debug("{} sending cached {}", this, _cacheKey);
+                        _encoder.release();
+                        _encoder = null;
+                        response.setContentLength(_cached.length);
+                        String etag = fields.get(HttpHeader.ETAG);
+                        fields.put(HttpHeader.ETAG, etagCompressed(etag, format));
+                        _state.set(GZState.CACHED);
+                        sendCached(content, complete, callback);
+                        return;
+                    }
+                    _cacheContent = new ByteArrayOutputStream(Math.min(_bufferSize, _cache.getMaxEntrySize()));
+                }
+            }
+
             _buffer = _channel.getByteBufferPool().acquire(_bufferSize, false);
-            BufferUtil.fill(_buffer, GZIP_HEADER, 0, GZIP_HEADER.length);
 
             // Adjust headers
             response.setContentLength(-1);
             String etag = fields.get(HttpHeader.ETAG);
             if (etag != null)
-                fields.put(HttpHeader.ETAG, etagGzip(etag));
+                fields.put(HttpHeader.ETAG, etagCompressed(etag, format));
 
-            LOG.debug("{} compressing {}", this, _deflater);
+            LOG.debug("{} compressing {}", this, _encoder);
             _state.set(GZState.COMPRESSING);
 
             gzip(content, complete, callback);
@@ -249,10 +308,10 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
             callback.failed(new WritePendingException());
     }
 
-    private String etagGzip(String etag)
+    private String etagCompressed(String etag, CompressedContentFormat format)
     {
         int end = etag.length() - 1;
-        return (etag.charAt(end) == '"') ? etag.substring(0, end) + GZIP._etag + '"' : etag + GZIP._etag;
+        return (etag.charAt(end) == '"') ? etag.substring(0, end) + format._etag + '"' : etag + format._etag;
     }
 
     public void noCompression()
@@ -282,6 +341,7 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
             switch (_state.get())
             {
                 case COMPRESSING:
+                case CACHED:
                 case NOT_COMPRESSING:
                     return;
 
@@ -317,25 +377,26 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
         @Override
         protected void onCompleteFailure(Throwable x)
         {
-            _factory.recycle(_deflater);
-            _deflater = null;
+            if (_encoder != null)
+                _encoder.release();
+            _encoder = null;
             super.onCompleteFailure(x);
         }
 
         @Override
         protected Action process() throws Exception
         {
-            if (_deflater == null)
+            if (_encoder == null)
                 return Action.SUCCEEDED;
 
-            if (_deflater.needsInput())
+            if (_encoder.needsInput())
             {
                 if (BufferUtil.isEmpty(_content))
                 {
-                    if (_deflater.finished())
+                    if (_encoder.finished())
                     {
-                        _factory.recycle(_deflater);
-                        _deflater = null;
+                        _encoder.release();
+                        _encoder = null;
                         _channel.getByteBufferPool().release(_buffer);
                         _buffer = null;
                         if (_copy != null)
@@ -351,7 +412,7 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
                         return Action.SUCCEEDED;
                     }
 
-                    _deflater.finish();
+                    _encoder.finish();
                 }
                 else if (_content.hasArray())
                 {
@@ -360,10 +421,9 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
                     int len = _content.remaining();
                     BufferUtil.clear(_content);
 
-                    _crc.update(array, off, len);
-                    _deflater.setInput(array, off, len);
+                    _encoder.setInput(array, off, len);
                     if (_last)
-                        _deflater.finish();
+                        _encoder.finish();
                 }
                 else
                 {
@@ -379,25 +439,24 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
                     int off = _copy.arrayOffset() + _copy.position();
                     int len = _copy.remaining();
 
-                    _crc.update(array, off, len);
-                    _deflater.setInput(array, off, len);
+                    _encoder.setInput(array, off, len);
                     if (_last && BufferUtil.isEmpty(_content))
-                        _deflater.finish();
+                        _encoder.finish();
                 }
             }
 
             BufferUtil.compact(_buffer);
             int off = _buffer.arrayOffset() + _buffer.limit();
-            int len = _buffer.capacity() - _buffer.limit() - (_last ? 8 : 0);
+            int len = _buffer.capacity() - _buffer.limit();
             if (len > 0)
             {
-                int produced = _deflater.deflate(_buffer.array(), off, len, _syncFlush ? Deflater.SYNC_FLUSH : Deflater.NO_FLUSH);
+                int produced = _encoder.encode(_buffer.array(), off, len, _syncFlush);
                 _buffer.limit(_buffer.limit() + produced);
             }
-            boolean finished = _deflater.finished();
+            boolean finished = _encoder.finished();
 
-            if (finished)
-                addTrailer();
+            if (_cacheContent != null)
+                cache(_buffer, finished);
 
             _interceptor.write(_buffer, finished, this);
             return Action.SCHEDULED;
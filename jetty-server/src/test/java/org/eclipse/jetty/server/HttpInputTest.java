@@ -21,11 +21,19 @@ package org.eclipse.jetty.server;
 import java.io.EOFException;
 import java.io.IOException;
 import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
 import javax.servlet.ReadListener;
 
 import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.thread.LightweightThreadPool;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -243,6 +251,59 @@ public class HttpInputTest
         assertThat(_history.poll(), nullValue());
     }
 
+    @Test
+    public void testBlockingReadParksLightweightThread() throws Exception
+    {
+        // Use a lightweight thread if the JVM has them, otherwise a platform thread.
+        ThreadFactory factory = LightweightThreadPool.newVirtualThreadFactory();
+        if (factory == null)
+            factory = Thread::new;
+
+        AtomicInteger read = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        Thread reader = factory.newThread(() ->
+        {
+            try
+            {
+                read.set(_in.read());
+            }
+            catch (Throwable x)
+            {
+                failure.set(x);
+            }
+            finally
+            {
+                done.countDown();
+            }
+        });
+        reader.start();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!_history.contains("blockForContent") || reader.getState() != Thread.State.WAITING)
+        {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+        // The reader is parked on a Condition rather than waiting on a monitor,
+        // which would pin the carrier of a lightweight thread.
+        assertThat(LockSupport.getBlocker(reader), instanceOf(Condition.class));
+
+        _in.addContent(new TContent("AB"));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertThat(failure.get(), nullValue());
+        assertThat(read.get(), equalTo((int)'A'));
+
+        assertThat(_history.poll(), equalTo("produceContent 0"));
+        assertThat(_history.poll(), equalTo("blockForContent"));
+        assertThat(_history.poll(), nullValue());
+
+        assertThat(_in.read(), equalTo((int)'B'));
+
+        assertThat(_history.poll(), equalTo("Content succeeded AB"));
+        assertThat(_history.poll(), nullValue());
+    }
+
     @Test
     public void testReadEOF() throws Exception
     {
@@ -0,0 +1,227 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.resource.Resource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MappedFileCacheTest
+{
+    private static final int SIZE = 64 * 1024;
+
+    private File directory;
+    private MappedFileCache cache;
+
+    @BeforeEach
+    public void init() throws Exception
+    {
+        directory = Files.createTempDirectory("MappedFileCacheTest").toFile();
+        directory.deleteOnExit();
+        cache = new MappedFileCache();
+        cache.start();
+    }
+
+    @AfterEach
+    public void destroy() throws Exception
+    {
+        cache.stop();
+    }
+
+    private File newFile(String name, byte[] content) throws Exception
+    {
+        File file = new File(directory, name);
+        file.deleteOnExit();
+        Files.write(file.toPath(), content);
+        return file;
+    }
+
+    private static byte[] newContent(int size)
+    {
+        byte[] content = new byte[size];
+        new Random().nextBytes(content);
+        return content;
+    }
+
+    @Test
+    public void testMappingIsShared() throws Exception
+    {
+        byte[] content = newContent(SIZE);
+        Resource resource = Resource.newResource(newFile("shared.bin", content));
+
+        MappedFileCache.Mapping mapping1 = cache.acquire(resource);
+        assertNotNull(mapping1);
+        MappedFileCache.Mapping mapping2 = cache.acquire(Resource.newResource(new File(directory, "./shared.bin")));
+        assertSame(mapping1, mapping2);
+        assertThat(cache.getMisses(), is(1L));
+        assertThat(cache.getHits(), is(1L));
+        assertThat(cache.getCachedFiles(), is(1));
+        assertThat(cache.getCachedBytes(), is((long)SIZE));
+
+        ByteBuffer slice = mapping1.slice(1000, 5000);
+        assertThat(slice.remaining(), is(5000));
+        assertArrayEquals(Arrays.copyOfRange(content, 1000, 6000), BufferUtil.toArray(slice));
+        assertThrows(IndexOutOfBoundsException.class, () -> mapping1.slice(SIZE - 10, 11));
+
+        mapping1.release();
+        mapping2.release();
+        assertThat(cache.getMappedFiles(), is(1));
+    }
+
+    @Test
+    public void testSmallFileIsNotMapped() throws Exception
+    {
+        Resource resource = Resource.newResource(newFile("small.txt", newContent(100)));
+        assertNull(cache.acquire(resource));
+        assertThat(cache.getCachedFiles(), is(0));
+    }
+
+    @Test
+    public void testChangedFileIsRemapped() throws Exception
+    {
+        File file = newFile("changed.bin", newContent(SIZE));
+        Resource resource = Resource.newResource(file);
+
+        MappedFileCache.Mapping mapping1 = cache.acquire(resource);
+        assertNotNull(mapping1);
+
+        byte[] content = newContent(2 * SIZE);
+        Files.write(file.toPath(), content);
+        MappedFileCache.Mapping mapping2 = cache.acquire(resource);
+        assertNotNull(mapping2);
+        assertNotSame(mapping1, mapping2);
+        assertThat(cache.getInvalidations(), is(1L));
+        assertThat(cache.getCachedBytes(), is(2L * SIZE));
+        assertArrayEquals(content, BufferUtil.toArray(mapping2.slice(0, content.length)));
+
+        // The old mapping is still in use.
+        assertThat(cache.getMappedFiles(), is(2));
+        mapping1.release();
+        assertThat(cache.getMappedFiles(), is(1));
+        mapping2.release();
+        assertThrows(IllegalStateException.class, mapping1::release);
+    }
+
+    @Test
+    public void testEvictionByBudget() throws Exception
+    {
+        cache.setMaxCachedBytes(3 * SIZE);
+        Resource[] resources = new Resource[4];
+        for (int i = 0; i < resources.length; i++)
+        {
+            resources[i] = Resource.newResource(newFile("file" + i + ".bin", newContent(SIZE)));
+        }
+
+        MappedFileCache.Mapping inUse = cache.acquire(resources[0]);
+        for (int i = 1; i < resources.length; i++)
+        {
+            cache.acquire(resources[i]).release();
+        }
+
+        assertThat(cache.getEvictions(), is(1L));
+        assertThat(cache.getCachedFiles(), is(3));
+        assertThat(cache.getCachedBytes(), is(3L * SIZE));
+        // The evicted mapping is unmapped only when released.
+        assertThat(cache.getMappedFiles(), is(4));
+        assertThat(cache.getMappedBytes(), is(4L * SIZE));
+        inUse.release();
+        assertThat(cache.getMappedFiles(), is(3));
+
+        cache.clear();
+        assertThat(cache.getCachedFiles(), is(0));
+        assertThat(cache.getMappedFiles(), is(0));
+        assertThat(cache.getMappedBytes(), is(0L));
+    }
+
+    @Test
+    public void testConcurrentAcquire() throws Exception
+    {
+        cache.setMaxCachedBytes(2 * SIZE);
+        byte[][] contents = new byte[4][];
+        Resource[] resources = new Resource[contents.length];
+        for (int i = 0; i < resources.length; i++)
+        {
+            contents[i] = newContent(SIZE);
+            resources[i] = Resource.newResource(newFile("concurrent" + i + ".bin", contents[i]));
+        }
+
+        int threads = 8;
+        int iterations = 500;
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++)
+            {
+                futures.add(executor.submit(() ->
+                {
+                    barrier.await();
+                    for (int i = 0; i < iterations; i++)
+                    {
+                        int index = i % resources.length;
+                        MappedFileCache.Mapping mapping = cache.acquire(resources[index]);
+                        // The file must still be mapped while the mapping is acquired.
+                        assertThat(mapping.slice(SIZE - 1, 1).get(), is(contents[index][SIZE - 1]));
+                        mapping.release();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures)
+            {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        assertThat(cache.getCachedBytes(), is(cache.getCachedFiles() * (long)SIZE));
+        assertThat(cache.getMappedFiles(), is(cache.getCachedFiles()));
+        cache.clear();
+        assertThat(cache.getCachedBytes(), is(0L));
+        assertThat(cache.getMappedFiles(), is(0));
+    }
+}
@@ -23,6 +23,7 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.nio.file.Files;
 
 import org.eclipse.jetty.http.CompressedContentFormat;
 import org.eclipse.jetty.http.HttpContent;
@@ -33,7 +34,11 @@ import org.eclipse.jetty.util.resource.Resource;
 import org.eclipse.jetty.util.resource.ResourceCollection;
 import org.junit.jupiter.api.Test;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ResourceCacheTest
@@ -131,6 +136,7 @@ public class ResourceCacheTest
 
         cache = new CachedContentFactory(null, directory, new MimeTypes(), false, false, CompressedContentFormat.NONE);
 
+        cache.setEvictionPolicy(new ContentEvictionPolicy.LeastRecentlyUsed());
         cache.setMaxCacheSize(95);
         cache.setMaxCachedFileSize(85);
         cache.setMaxCachedFiles(4);
@@ -157,6 +163,7 @@ public class ResourceCacheTest
             assertEquals(0, cache.getCachedFiles());
 
             cache = new CachedContentFactory(null, directory, new MimeTypes(), true, false, CompressedContentFormat.NONE);
+            cache.setEvictionPolicy(new ContentEvictionPolicy.LeastRecentlyUsed());
             cache.setMaxCacheSize(95);
             cache.setMaxCachedFileSize(85);
             cache.setMaxCachedFiles(4);
@@ -271,6 +278,100 @@ public class ResourceCacheTest
         cache.flushCache();
     }
 
+    @Test
+    public void testScanDoesNotEvictFrequentContent() throws Exception
+    {
+        File directory = Files.createTempDirectory("ResourceCacheTest").toFile();
+        directory.deleteOnExit();
+        String[] names = new String[60];
+        for (int i = 0; i < names.length; i++)
+        {
+            File file = new File(directory, "R-" + i + ".txt");
+            file.deleteOnExit();
+            names[i] = file.getName();
+            try (OutputStream out = new FileOutputStream(file))
+            {
+                out.write(("content " + i + "\n").getBytes());
+            }
+        }
+
+        for (ContentEvictionPolicy policy : new ContentEvictionPolicy[]{new ContentEvictionPolicy.WindowTinyLfu(), new ContentEvictionPolicy.LeastRecentlyUsed()})
+        {
+            CachedContentFactory cache = new CachedContentFactory(null, Resource.newResource(directory), new MimeTypes(), false, false, CompressedContentFormat.NONE);
+            cache.setEvictionPolicy(policy);
+            cache.setMaxCachedFiles(10);
+
+            // Frequently accessed content.
+            HttpContent[] frequent = new HttpContent[5];
+            for (int i = 0; i < frequent.length; i++)
+            {
+                frequent[i] = cache.getContent(names[i], 4096);
+            }
+            for (int j = 0; j < 5; j++)
+            {
+                for (int i = 0; i < frequent.length; i++)
+                {
+                    assertSame(frequent[i], cache.getContent(names[i], 4096));
+                }
+            }
+
+            // A scan of content accessed only once.
+            for (int i = frequent.length; i < names.length; i++)
+            {
+                cache.getContent(names[i], 4096);
+            }
+            assertEquals(10, cache.getCachedFiles());
+            assertThat(cache.getEvictions(), greaterThan(0L));
+
+            for (int i = 0; i < frequent.length; i++)
+            {
+                if (policy instanceof ContentEvictionPolicy.WindowTinyLfu)
+                    assertSame(frequent[i], cache.getContent(names[i], 4096), policy.toString());
+                else
+                    assertNotSame(frequent[i], cache.getContent(names[i], 4096), policy.toString());
+            }
+
+            cache.flushCache();
+            assertEquals(0, cache.getCachedFiles());
+        }
+    }
+
+    @Test
+    public void testStatistics() throws Exception
+    {
+        File directory = Files.createTempDirectory("ResourceCacheTest").toFile();
+        directory.deleteOnExit();
+        File small = new File(directory, "small.txt");
+        small.deleteOnExit();
+        try (OutputStream out = new FileOutputStream(small))
+        {
+            out.write(new byte[10]);
+        }
+        File large = new File(directory, "large.txt");
+        large.deleteOnExit();
+        try (OutputStream out = new FileOutputStream(large))
+        {
+            out.write(new byte[30]);
+        }
+
+        CachedContentFactory cache = new CachedContentFactory(null, Resource.newResource(directory), new MimeTypes(), false, false, CompressedContentFormat.NONE);
+        cache.getContent("small.txt", 4096);
+        cache.getContent("small.txt", 4096);
+        cache.getContent("small.txt", 4096);
+        cache.getContent("large.txt", 4096);
+
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(0.5D, cache.getHitRatio());
+        assertEquals(20D / 60D, cache.getByteHitRatio(), 0.0001D);
+        assertEquals(0, cache.getEvictions());
+
+        cache.resetStatistics();
+        assertEquals(0, cache.getHits());
+        assertEquals(0D, cache.getHitRatio());
+        cache.flushCache();
+    }
+
     @Test
     public void testNoextension() throws Exception
     {
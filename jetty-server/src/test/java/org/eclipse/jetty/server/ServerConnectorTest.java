@@ -20,6 +20,7 @@ package org.eclipse.jetty.server;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.lang.reflect.Field;
 import java.net.BindException;
@@ -37,6 +38,7 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.eclipse.jetty.io.ConnectionStatistics;
 import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.io.SocketChannelEndPoint;
 import org.eclipse.jetty.server.handler.AbstractHandler;
@@ -58,6 +60,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 public class ServerConnectorTest
 {
@@ -322,4 +325,45 @@ public class ServerConnectorTest
             assertThat(x.getMessage(), containsString("0.0.0.0:" + port));
         }
     }
+
+    @Test
+    public void testReusePort() throws Exception
+    {
+        Server server = new Server();
+        ServerConnector connector = new ServerConnector(server, 0, 2);
+        connector.setReusePort(true);
+        ConnectionStatistics statistics = new ConnectionStatistics();
+        connector.addBean(statistics);
+        server.addConnector(connector);
+        server.setHandler(new DefaultHandler());
+        server.start();
+
+        try
+        {
+            assumeTrue(connector.getBeans(ServerSocketChannel.class).size() == 2, "SO_REUSEPORT not supported");
+
+            int requests = 10;
+            for (int i = 0; i < requests; ++i)
+            {
+                try (Socket client = new Socket("localhost", connector.getLocalPort()))
+                {
+                    OutputStream output = client.getOutputStream();
+                    output.write(("GET / HTTP/1.1\r\n" +
+                        "Host: localhost\r\n" +
+                        "Connection: close\r\n" +
+                        "\r\n").getBytes(StandardCharsets.UTF_8));
+                    output.flush();
+                    String response = IO.toString(client.getInputStream(), StandardCharsets.UTF_8);
+                    assertThat(response, containsString("HTTP/1.1 404 "));
+                }
+            }
+
+            long accepted = statistics.getAcceptedConnections().values().stream().mapToLong(Long::longValue).sum();
+            assertEquals(requests, accepted);
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
 }
@@ -0,0 +1,116 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server.handler;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.http.HttpTester;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.toolchain.test.FS;
+import org.eclipse.jetty.toolchain.test.MavenTestingUtils;
+import org.eclipse.jetty.util.resource.Resource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+public class ResourceHandlerFileTransferTest
+{
+    private Server server;
+    private ServerConnector connector;
+    private byte[] content;
+
+    @BeforeEach
+    public void startServer() throws Exception
+    {
+        File dir = MavenTestingUtils.getTargetTestingDir(ResourceHandlerFileTransferTest.class.getSimpleName());
+        FS.ensureEmpty(dir);
+        content = new byte[4 * 1024 * 1024];
+        new Random().nextBytes(content);
+        Files.write(new File(dir, "large.bin").toPath(), content);
+
+        server = new Server();
+        HttpConfiguration config = new HttpConfiguration();
+        config.setUseFileTransfer(true);
+        connector = new ServerConnector(server, new HttpConnectionFactory(config));
+        server.addConnector(connector);
+
+        ResourceHandler resourceHandler = new ResourceHandler();
+        ContextHandler contextHandler = new ContextHandler("/");
+        contextHandler.setBaseResource(Resource.newResource(dir));
+        contextHandler.setHandler(resourceHandler);
+        server.setHandler(contextHandler);
+        server.start();
+    }
+
+    @AfterEach
+    public void stopServer() throws Exception
+    {
+        server.stop();
+    }
+
+    @Test
+    public void testTransferFileAndRange() throws Exception
+    {
+        try (Socket socket = new Socket("localhost", connector.getLocalPort()))
+        {
+            socket.setSoTimeout(10000);
+            OutputStream output = socket.getOutputStream();
+            HttpTester.Input input = HttpTester.from(socket.getInputStream());
+
+            // Twice on the same connection, to verify that it is reusable after a transfer.
+            for (int i = 0; i < 2; i++)
+            {
+                output.write(("GET /large.bin HTTP/1.1\r\n" +
+                    "Host: localhost\r\n" +
+                    "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                output.flush();
+
+                HttpTester.Response response = HttpTester.parseResponse(input);
+                assertThat(response.getStatus(), is(HttpStatus.OK_200));
+                assertThat(response.getLongField("Content-Length"), is((long)content.length));
+                assertArrayEquals(content, response.getContentBytes());
+            }
+
+            output.write(("GET /large.bin HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "Range: bytes=1000-1999999\r\n" +
+                "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            output.flush();
+
+            HttpTester.Response response = HttpTester.parseResponse(input);
+            assertThat(response.getStatus(), is(HttpStatus.PARTIAL_CONTENT_206));
+            assertThat(response.get("Content-Range"), is("bytes 1000-1999999/" + content.length));
+            assertArrayEquals(Arrays.copyOfRange(content, 1000, 2000000), response.getContentBytes());
+        }
+    }
+}
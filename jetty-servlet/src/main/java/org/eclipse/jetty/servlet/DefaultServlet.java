@@ -37,6 +37,8 @@ import org.eclipse.jetty.http.MimeTypes;
 import org.eclipse.jetty.http.PreEncodedHttpField;
 import org.eclipse.jetty.http.pathmap.MappedResource;
 import org.eclipse.jetty.server.CachedContentFactory;
+import org.eclipse.jetty.server.ContentEvictionPolicy;
+import org.eclipse.jetty.server.MappedFileCache;
 import org.eclipse.jetty.server.ResourceContentFactory;
 import org.eclipse.jetty.server.ResourceService;
 import org.eclipse.jetty.server.ResourceService.WelcomeFactory;
@@ -108,6 +110,11 @@ import org.eclipse.jetty.util.resource.ResourceFactory;
  *  maxCachedFileSize The maximum size of a file to cache
  *  maxCachedFiles    The maximum number of files to cache
  *
+ *  cacheEvictionPolicy
+ *                    The policy that chooses the files evicted from the cache: "tinylfu"
+ *                    (the default) to keep frequently used files, or "lru" to keep recently
+ *                    used files.
+ *
  *  useFileMappedBuffer
  *                    If set to true, it will use mapped file buffer to serve static content
  *                    when using NIO connector. Setting this value to false means that
@@ -264,7 +271,11 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory, Welc
                     _cache.setMaxCachedFileSize(maxCachedFileSize);
                 if (maxCachedFiles >= -1)
                     _cache.setMaxCachedFiles(maxCachedFiles);
+                if ("lru".equalsIgnoreCase(getInitParameter("cacheEvictionPolicy")))
+                    _cache.setEvictionPolicy(new ContentEvictionPolicy.LeastRecentlyUsed());
                 _servletContext.setAttribute(resourceCache == null ? "resourceCache" : resourceCache, _cache);
+                // Expose the cache statistics via JMX.
+                _contextHandler.addBean(_cache);
             }
         }
         catch (Exception e)
@@ -282,6 +293,8 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory, Welc
         }
         _resourceService.setContentFactory(contentFactory);
         _resourceService.setWelcomeFactory(this);
+        if (_contextHandler.getServer() != null)
+            _resourceService.setMappedFileCache(_contextHandler.getServer().getBean(MappedFileCache.class));
 
         List<String> gzipEquivalentFileExtensions = new ArrayList<String>();
         String otherGzipExtensions = getInitParameter("otherGzipFileExtensions");
@@ -485,7 +498,10 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory, Welc
     public void destroy()
     {
         if (_cache != null)
+        {
             _cache.flushCache();
+            _contextHandler.removeBean(_cache);
+        }
         super.destroy();
     }
 
@@ -30,6 +30,7 @@ import java.util.EnumSet;
 import java.util.Enumeration;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
 import javax.servlet.DispatcherType;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -41,9 +42,11 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.eclipse.jetty.http.DeflateCompressionCodec;
 import org.eclipse.jetty.http.HttpTester;
 import org.eclipse.jetty.server.LocalConnector;
 import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.gzip.GzipContentCache;
 import org.eclipse.jetty.server.handler.gzip.GzipHandler;
 import org.eclipse.jetty.util.IO;
 import org.hamcrest.Matchers;
@@ -89,14 +92,26 @@ public class GzipHandlerTest
     @BeforeEach
     public void init() throws Exception
     {
-        _server = new Server();
-        _connector = new LocalConnector(_server);
-        _server.addConnector(_connector);
+        startServer(newGzipHandler());
+    }
 
+    private GzipHandler newGzipHandler()
+    {
         GzipHandler gzipHandler = new GzipHandler();
         gzipHandler.setExcludedAgentPatterns();
         gzipHandler.setMinGzipSize(16);
         gzipHandler.setInflateBufferSize(4096);
+        return gzipHandler;
+    }
+
+    private void startServer(GzipHandler gzipHandler) throws Exception
+    {
+        if (_server != null)
+            _server.stop();
+
+        _server = new Server();
+        _connector = new LocalConnector(_server);
+        _server.addConnector(_connector);
 
         ServletContextHandler context = new ServletContextHandler(gzipHandler, "/ctx");
         ServletHandler servlets = context.getServletHandler();
@@ -106,6 +121,7 @@ public class GzipHandlerTest
         servlets.addServletWithMapping(MicroServlet.class, "/micro");
         servlets.addServletWithMapping(MicroChunkedServlet.class, "/microchunked");
         servlets.addServletWithMapping(TestServlet.class, "/content");
+        servlets.addServletWithMapping(StrongETagServlet.class, "/strong");
         servlets.addServletWithMapping(ForwardServlet.class, "/forward");
         servlets.addServletWithMapping(IncludeServlet.class, "/include");
         servlets.addServletWithMapping(EchoServlet.class, "/echo/*");
@@ -172,6 +188,26 @@ public class GzipHandlerTest
         }
     }
 
+    public static class StrongETagServlet extends HttpServlet
+    {
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse response) throws ServletException, IOException
+        {
+            response.setHeader("Vary", "Other");
+            response.setHeader("ETag", String.format("\"%x\"", __content.hashCode()));
+            if ("bytes=0-99".equals(req.getHeader("Range")))
+            {
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader("Content-Range", String.format("bytes 0-99/%d", __content.length()));
+                response.getWriter().write(__content.substring(0, 100));
+            }
+            else
+            {
+                response.getWriter().write(__content);
+            }
+        }
+    }
+
     public static class EchoServlet extends HttpServlet
     {
         @Override
@@ -282,6 +318,168 @@ public class GzipHandlerTest
         assertEquals(__content, testOut.toString("UTF8"));
     }
 
+    @Test
+    public void testGzipContentCache() throws Exception
+    {
+        GzipContentCache contentCache = new GzipContentCache();
+        GzipHandler gzipHandler = newGzipHandler();
+        gzipHandler.setContentCache(contentCache);
+        startServer(gzipHandler);
+
+        HttpTester.Request request = HttpTester.newRequest();
+        request.setMethod("GET");
+        request.setURI("/ctx/strong");
+        request.setVersion("HTTP/1.0");
+        request.setHeader("Host", "tester");
+        request.setHeader("Accept-Encoding", "gzip");
+        request.setHeader("Other", "one");
+
+        for (int i = 0; i < 2; i++)
+        {
+            HttpTester.Response response = HttpTester.parseResponse(_connector.getResponse(request.generate()));
+
+            assertThat(response.getStatus(), is(200));
+            assertThat(response.get("Content-Encoding"), Matchers.equalToIgnoringCase("gzip"));
+            assertThat(response.get("ETag"), is(String.format("\"%x--gzip\"", __content.hashCode())));
+            assertThat(response.getCSV("Vary", false), Matchers.contains("Other", "Accept-Encoding"));
+
+            InputStream testIn = new GZIPInputStream(new ByteArrayInputStream(response.getContentBytes()));
+            ByteArrayOutputStream testOut = new ByteArrayOutputStream();
+            IO.copy(testIn, testOut);
+            assertEquals(__content, testOut.toString("UTF8"));
+        }
+        assertThat(contentCache.getMisses(), is(1L));
+        assertThat(contentCache.getHits(), is(1L));
+        assertThat(contentCache.getBytesSaved(), is((long)__content.length()));
+
+        // A different value of a header in Vary is a different response.
+        request.setHeader("Other", "two");
+        HttpTester.Response response = HttpTester.parseResponse(_connector.getResponse(request.generate()));
+        assertThat(response.getStatus(), is(200));
+        assertThat(contentCache.getMisses(), is(2L));
+        assertThat(contentCache.getCachedEntries(), is(2));
+    }
+
+    @Test
+    public void testGzipContentCacheVirtualHosts() throws Exception
+    {
+        GzipContentCache contentCache = new GzipContentCache();
+        GzipHandler gzipHandler = newGzipHandler();
+        gzipHandler.setContentCache(contentCache);
+        startServer(gzipHandler);
+
+        HttpTester.Request request = HttpTester.newRequest();
+        request.setMethod("GET");
+        request.setURI("/ctx/strong");
+        request.setVersion("HTTP/1.0");
+        request.setHeader("Accept-Encoding", "gzip");
+        request.setHeader("Other", "one");
+
+        // The same URI on a different host is a different response.
+        for (String host : new String[]{"one.example.com", "two.example.com", "one.example.com"})
+        {
+            request.setHeader("Host", host);
+            HttpTester.Response response = HttpTester.parseResponse(_connector.getResponse(request.generate()));
+            assertThat(response.getStatus(), is(200));
+            assertThat(response.get("Content-Encoding"), Matchers.equalToIgnoringCase("gzip"));
+        }
+        assertThat(contentCache.getMisses(), is(2L));
+        assertThat(contentCache.getHits(), is(1L));
+        assertThat(contentCache.getCachedEntries(), is(2));
+    }
+
+    @Test
+    public void testGzipContentCacheRange() throws Exception
+    {
+        GzipContentCache contentCache = new GzipContentCache();
+        GzipHandler gzipHandler = newGzipHandler();
+        gzipHandler.setContentCache(contentCache);
+        startServer(gzipHandler);
+
+        HttpTester.Request request = HttpTester.newRequest();
+        request.setMethod("GET");
+        request.setURI("/ctx/strong");
+        request.setVersion("HTTP/1.0");
+        request.setHeader("Host", "tester");
+        request.setHeader("Accept-Encoding", "gzip");
+
+        // A partial response has the same ETag as the whole resource, but is not cached.
+        request.setHeader("Range", "bytes=0-99");
+        HttpTester.Response response = HttpTester.parseResponse(_connector.getResponse(request.generate()));
+        assertThat(response.getStatus(), is(206));
+        assertEquals(__content.substring(0, 100), gunzip(response));
+        assertThat(contentCache.getCachedEntries(), is(0));
+
+        request = HttpTester.newRequest();
+        request.setMethod("GET");
+        request.setURI("/ctx/strong");
+        request.setVersion("HTTP/1.0");
+        request.setHeader("Host", "tester");
+        request.setHeader("Accept-Encoding", "gzip");
+        for (int i = 0; i < 2; i++)
+        {
+            response = HttpTester.parseResponse(_connector.getResponse(request.generate()));
+            assertThat(response.getStatus(), is(200));
+            assertEquals(__content, gunzip(response));
+        }
+        assertThat(contentCache.getMisses(), is(1L));
+        assertThat(contentCache.getHits(), is(1L));
+
+        // The cached full response is not sent to a range request.
+        request.setHeader("Range", "bytes=0-99");
+        response = HttpTester.parseResponse(_connector.getResponse(request.generate()));
+        assertThat(response.getStatus(), is(206));
+        assertEquals(__content.substring(0, 100), gunzip(response));
+        assertThat(contentCache.getHits(), is(1L));
+    }
+
+    private static String gunzip(HttpTester.Response response) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IO.copy(new GZIPInputStream(new ByteArrayInputStream(response.getContentBytes())), out);
+        return out.toString("UTF8");
+    }
+
+    @Test
+    public void testCodecNegotiation() throws Exception
+    {
+        GzipHandler gzipHandler = newGzipHandler();
+        gzipHandler.addCodec(new DeflateCompressionCodec());
+        startServer(gzipHandler);
+
+        HttpTester.Request request = HttpTester.newRequest();
+        request.setMethod("GET");
+        request.setURI("/ctx/content");
+        request.setVersion("HTTP/1.0");
+        request.setHeader("Host", "tester");
+
+        // The quality values decide.
+        request.setHeader("Accept-Encoding", "gzip;q=0.5, deflate");
+        HttpTester.Response response = HttpTester.parseResponse(_connector.getResponse(request.generate()));
+        assertThat(response.getStatus(), is(200));
+        assertThat(response.get("Content-Encoding"), is("deflate"));
+        assertThat(response.get("ETag"), is(String.format("W/\"%x--deflate\"", __content.hashCode())));
+        ByteArrayOutputStream testOut = new ByteArrayOutputStream();
+        IO.copy(new InflaterInputStream(new ByteArrayInputStream(response.getContentBytes())), testOut);
+        assertEquals(__content, testOut.toString("UTF8"));
+
+        // The added codecs are preferred on equal quality.
+        request.setHeader("Accept-Encoding", "gzip, deflate");
+        response = HttpTester.parseResponse(_connector.getResponse(request.generate()));
+        assertThat(response.get("Content-Encoding"), is("deflate"));
+
+        request.setHeader("Accept-Encoding", "deflate;q=0, gzip");
+        response = HttpTester.parseResponse(_connector.getResponse(request.generate()));
+        assertThat(response.get("Content-Encoding"), is("gzip"));
+
+        // The compressed ETag of any codec is recognized.
+        request.setHeader("Accept-Encoding", "deflate");
+        request.setHeader("If-None-Match", String.format("W/\"%x--deflate\"", __content.hashCode()));
+        response = HttpTester.parseResponse(_connector.getResponse(request.generate()));
+        assertThat(response.getStatus(), is(304));
+        assertThat(response.get("ETag"), is(String.format("W/\"%x--deflate\"", __content.hashCode())));
+    }
+
     @Test
     public void testGzipNotMicro() throws Exception
     {
@@ -0,0 +1,467 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.jetty.util.annotation.Name;
+
+/**
+ * <p>A bounded, lock-free, multi-producer multi-consumer BlockingQueue backed by a circular array.</p>
+ * <p>Each slot of the array has a sequence number that tells producers whether the slot is
+ * free and consumers whether the slot is full, so that {@link #offer(Object)} and {@link #poll()}
+ * only need one compare-and-set on the tail or head index respectively, and never take a lock.</p>
+ * <p>Consumers that block in {@link #poll(long, TimeUnit)} or {@link #take()} first spin for a
+ * configurable number of attempts, then yield, and only then park on a condition.
+ * Producers signal the condition only when there are parked consumers, so the lock is never
+ * taken when consumers keep up with producers.</p>
+ * <p>The capacity is rounded up to the next power of 2 and the queue does not grow.</p>
+ * <p>Iteration is weakly consistent. Arbitrary elements are removed, for example by
+ * {@link java.util.concurrent.ThreadPoolExecutor#remove(Runnable)}, by replacing them in their
+ * slot with a marker that consumers discard, so that removed elements still count against
+ * the capacity, and therefore the {@link #remainingCapacity()}, until the consumers reach them,
+ * but not against the {@link #size()}.</p>
+ *
+ * @param <E> The element type
+ */
+public class ConcurrentArrayBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E>
+{
+    /**
+     * The head offset in the {@link #_indexes} array, displaced by a cache line
+     * to avoid false sharing with the array length.
+     */
+    private static final int HEAD_OFFSET = MemoryUtils.getLongsPerCacheLine() - 1;
+    /**
+     * The tail offset in the {@link #_indexes} array, displaced by a cache line from the head to avoid false sharing with it.
+     */
+    private static final int TAIL_OFFSET = HEAD_OFFSET + MemoryUtils.getLongsPerCacheLine();
+    /**
+     * Default number of spins before a consumer parks, 64.
+     */
+    public static final int DEFAULT_SPINS = 64;
+    /**
+     * The marker of a removed element, discarded by consumers.
+     */
+    private static final Object REMOVED = new Object();
+
+    private final AtomicLongArray _indexes = new AtomicLongArray(TAIL_OFFSET + 1);
+    private final AtomicLongArray _sequences;
+    private final AtomicReferenceArray<Object> _elements;
+    private final int _mask;
+    private final int _spins;
+    private final AtomicInteger _waiters = new AtomicInteger();
+    private final AtomicInteger _removed = new AtomicInteger();
+    private final ReentrantLock _lock = new ReentrantLock();
+    private final Condition _notEmpty = _lock.newCondition();
+
+    /**
+     * Creates a queue with the given capacity and the {@link #DEFAULT_SPINS default spins}.
+     *
+     * @param capacity the capacity, rounded up to the next power of 2
+     */
+    public ConcurrentArrayBlockingQueue(@Name("capacity") int capacity)
+    {
+        this(capacity, DEFAULT_SPINS);
+    }
+
+    /**
+     * Creates a queue with the given capacity and spins.
+     *
+     * @param capacity the capacity, rounded up to the next power of 2
+     * @param spins the number of polls attempted by a blocked consumer before parking
+     */
+    public ConcurrentArrayBlockingQueue(@Name("capacity") int capacity, @Name("spins") int spins)
+    {
+        if (capacity <= 0 || capacity > (1 << 30))
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        int size = 1;
+        while (size < capacity)
+        {
+            size <<= 1;
+        }
+        _mask = size - 1;
+        _spins = Math.max(0, spins);
+        _sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; ++i)
+        {
+            _sequences.set(i, i);
+        }
+        _elements = new AtomicReferenceArray<>(size);
+    }
+
+    public int getCapacity()
+    {
+        return _mask + 1;
+    }
+
+    public int getSpins()
+    {
+        return _spins;
+    }
+
+    @Override
+    public boolean offer(E e)
+    {
+        Objects.requireNonNull(e);
+        while (true)
+        {
+            long tail = _indexes.get(TAIL_OFFSET);
+            int index = (int)tail & _mask;
+            long delta = _sequences.get(index) - tail;
+            if (delta == 0)
+            {
+                if (_indexes.compareAndSet(TAIL_OFFSET, tail, tail + 1))
+                {
+                    _elements.lazySet(index, e);
+                    _sequences.set(index, tail + 1);
+                    break;
+                }
+            }
+            else if (delta < 0)
+            {
+                // The slot has not been consumed yet, the queue is full.
+                return false;
+            }
+        }
+
+        if (_waiters.get() > 0)
+            signalNotEmpty();
+        return true;
+    }
+
+    private void signalNotEmpty()
+    {
+        _lock.lock();
+        try
+        {
+            _notEmpty.signal();
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    public E poll()
+    {
+        while (true)
+        {
+            long head = _indexes.get(HEAD_OFFSET);
+            int index = (int)head & _mask;
+            long delta = _sequences.get(index) - (head + 1);
+            if (delta == 0)
+            {
+                if (_indexes.compareAndSet(HEAD_OFFSET, head, head + 1))
+                {
+                    // Atomically take the element, so that a concurrent remove() either wins or fails.
+                    Object e = _elements.getAndSet(index, null);
+                    _sequences.set(index, head + _mask + 1);
+                    if (e != REMOVED)
+                        return cast(e);
+                    _removed.decrementAndGet();
+                }
+            }
+            else if (delta < 0)
+            {
+                // The slot has not been produced yet, the queue is empty.
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public E peek()
+    {
+        while (true)
+        {
+            long head = _indexes.get(HEAD_OFFSET);
+            int index = (int)head & _mask;
+            long delta = _sequences.get(index) - (head + 1);
+            if (delta < 0)
+                return null;
+            Object e = _elements.get(index);
+            if (delta == 0 && e != null && _indexes.get(HEAD_OFFSET) == head)
+            {
+                if (e != REMOVED)
+                    return cast(e);
+                // Discard the removed element at the head.
+                if (_indexes.compareAndSet(HEAD_OFFSET, head, head + 1))
+                {
+                    _elements.set(index, null);
+                    _sequences.set(index, head + _mask + 1);
+                    _removed.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private E cast(Object e)
+    {
+        return (E)e;
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException
+    {
+        while (!offer(e))
+        {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!offer(e))
+        {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            if (deadline - System.nanoTime() <= 0)
+                return false;
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+        }
+        return true;
+    }
+
+    @Override
+    public E take() throws InterruptedException
+    {
+        return poll(-1, null);
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        E e = spinPoll();
+        if (e != null)
+            return e;
+
+        long nanos = unit == null ? Long.MAX_VALUE : unit.toNanos(timeout);
+        _lock.lockInterruptibly();
+        try
+        {
+            // The waiters must be incremented before polling again,
+            // so that producers either see the waiter or we see the element.
+            _waiters.incrementAndGet();
+            try
+            {
+                while ((e = poll()) == null)
+                {
+                    if (unit == null)
+                        _notEmpty.await();
+                    else if (nanos <= 0)
+                        return null;
+                    else
+                        nanos = _notEmpty.awaitNanos(nanos);
+                }
+                return e;
+            }
+            finally
+            {
+                _waiters.decrementAndGet();
+            }
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+    }
+
+    private E spinPoll()
+    {
+        for (int i = 0; i <= _spins; ++i)
+        {
+            E e = poll();
+            if (e != null)
+                return e;
+            // Spin for the first half, then yield.
+            if (i > _spins / 2)
+                Thread.yield();
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of slots between the head and the tail,
+     * including the ones of the removed elements
+     */
+    private int slots()
+    {
+        while (true)
+        {
+            long head = _indexes.get(HEAD_OFFSET);
+            long tail = _indexes.get(TAIL_OFFSET);
+            if (head == _indexes.get(HEAD_OFFSET))
+                return (int)Math.max(0, Math.min(tail - head, getCapacity()));
+        }
+    }
+
+    @Override
+    public int size()
+    {
+        return Math.max(0, slots() - _removed.get());
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        // Unlike peek(), does not discard the removed elements at the head.
+        long head = _indexes.get(HEAD_OFFSET);
+        long tail = _indexes.get(TAIL_OFFSET);
+        for (long i = head; i < tail && i - head <= _mask; ++i)
+        {
+            Object e = _elements.get((int)i & _mask);
+            if (e != null && e != REMOVED)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of elements that can be offered without blocking,
+     * which does not count the slots of the removed elements until consumers reach them
+     */
+    @Override
+    public int remainingCapacity()
+    {
+        return getCapacity() - slots();
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c)
+    {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements)
+    {
+        int count = 0;
+        while (count < maxElements)
+        {
+            E e = poll();
+            if (e == null)
+                break;
+            c.add(e);
+            ++count;
+        }
+        return count;
+    }
+
+    @Override
+    public boolean remove(Object o)
+    {
+        return o != null && remove(o, false);
+    }
+
+    /**
+     * <p>Removes an element by replacing it in its slot with the {@link #REMOVED} marker.</p>
+     *
+     * @param o the element to remove
+     * @param identity whether to compare the elements by identity rather than equality
+     * @return whether the element was removed
+     */
+    private boolean remove(Object o, boolean identity)
+    {
+        long head = _indexes.get(HEAD_OFFSET);
+        long tail = _indexes.get(TAIL_OFFSET);
+        for (long i = head; i < tail && i - head <= _mask; ++i)
+        {
+            int index = (int)i & _mask;
+            Object e = _elements.get(index);
+            if (e == null || e == REMOVED || !(identity ? e == o : o.equals(e)))
+                continue;
+            // The slot must still hold the element produced at position i.
+            if (_sequences.get(index) == i + 1 && _elements.compareAndSet(index, e, REMOVED))
+            {
+                _removed.incrementAndGet();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return a weakly consistent iterator over a snapshot of the elements,
+     * whose {@link Iterator#remove()} removes the element from this queue if it is still queued
+     */
+    @Override
+    public Iterator<E> iterator()
+    {
+        List<E> snapshot = new ArrayList<>();
+        long head = _indexes.get(HEAD_OFFSET);
+        long tail = _indexes.get(TAIL_OFFSET);
+        for (long i = head; i < tail && i - head <= _mask; ++i)
+        {
+            Object e = _elements.get((int)i & _mask);
+            if (e != null && e != REMOVED)
+                snapshot.add(cast(e));
+        }
+        Iterator<E> iterator = snapshot.iterator();
+        return new Iterator<E>()
+        {
+            private E last;
+
+            @Override
+            public boolean hasNext()
+            {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public E next()
+            {
+                return last = iterator.next();
+            }
+
+            @Override
+            public void remove()
+            {
+                if (last == null)
+                    throw new IllegalStateException();
+                ConcurrentArrayBlockingQueue.this.remove(last, true);
+                last = null;
+            }
+        };
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{size=%d,capacity=%d,spins=%d}", getClass().getSimpleName(), hashCode(), size(), getCapacity(), _spins);
+    }
+}
@@ -0,0 +1,146 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import java.util.Arrays;
+
+/**
+ * <p>A probabilistic estimate of the frequency of elements, used to decide
+ * whether an element is worth admitting into a bounded cache.</p>
+ * <p>This is a count-min sketch of depth 4, with 4 bit counters packed 16 to a {@code long}.
+ * A frequency is therefore never under estimated and saturates at {@link #MAX_FREQUENCY}.
+ * After a number of increments proportional to the expected number of elements, all the
+ * counters are halved, so that the estimates reflect the recent history.</p>
+ * <p>This class is not thread safe and callers must synchronize: concurrent increments
+ * may be lost, and an increment racing with {@link #age()} may write back a counter
+ * that was not halved.</p>
+ */
+public class FrequencySketch
+{
+    /**
+     * The maximum frequency estimated by the sketch, 15.
+     */
+    public static final int MAX_FREQUENCY = 15;
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] _table;
+    private final int _sampleSize;
+    private int _size;
+
+    /**
+     * @param maximumSize the expected maximum number of distinct elements of interest
+     */
+    public FrequencySketch(int maximumSize)
+    {
+        int length = 8;
+        while (length < maximumSize && length < (1 << 30))
+        {
+            length <<= 1;
+        }
+        _table = new long[length];
+        _sampleSize = 10 * Math.max(1, maximumSize);
+    }
+
+    /**
+     * @param hashCode the hash code of the element
+     * @return the estimated frequency of the element, from 0 to {@link #MAX_FREQUENCY}
+     */
+    public int frequency(int hashCode)
+    {
+        int hash = spread(hashCode);
+        int start = (hash & 3) << 2;
+        int frequency = MAX_FREQUENCY;
+        for (int i = 0; i < 4; ++i)
+        {
+            int index = indexOf(hash, i);
+            int shift = (start + i) << 2;
+            frequency = Math.min(frequency, (int)((_table[index] >>> shift) & 0xFL));
+        }
+        return frequency;
+    }
+
+    /**
+     * <p>Increments the frequency of the element, if not already at the maximum.</p>
+     *
+     * @param hashCode the hash code of the element
+     */
+    public void increment(int hashCode)
+    {
+        int hash = spread(hashCode);
+        int start = (hash & 3) << 2;
+        boolean incremented = false;
+        for (int i = 0; i < 4; ++i)
+        {
+            int index = indexOf(hash, i);
+            int shift = (start + i) << 2;
+            long mask = 0xFL << shift;
+            long value = _table[index];
+            if ((value & mask) != mask)
+            {
+                _table[index] = value + (1L << shift);
+                incremented = true;
+            }
+        }
+
+        if (incremented && ++_size >= _sampleSize)
+            age();
+    }
+
+    /**
+     * <p>Halves all the frequencies.</p>
+     */
+    public void age()
+    {
+        for (int i = 0; i < _table.length; ++i)
+        {
+            _table[i] = (_table[i] >>> 1) & RESET_MASK;
+        }
+        _size /= 2;
+    }
+
+    /**
+     * <p>Resets all the frequencies to zero.</p>
+     */
+    public void clear()
+    {
+        Arrays.fill(_table, 0L);
+        _size = 0;
+    }
+
+    private int indexOf(int hash, int i)
+    {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int)h & (_table.length - 1);
+    }
+
+    private static int spread(int hash)
+    {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{width=%d,size=%d/%d}", getClass().getSimpleName(), hashCode(), _table.length, _size, _sampleSize);
+    }
+}
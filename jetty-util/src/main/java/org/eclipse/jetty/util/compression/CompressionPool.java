@@ -20,17 +20,45 @@ package org.eclipse.jetty.util.compression;
 
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+import org.eclipse.jetty.util.ProcessorUtils;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
 import org.eclipse.jetty.util.component.AbstractLifeCycle;
 
+/**
+ * <p>A pool of compression objects, such as {@link java.util.zip.Deflater}s and
+ * {@link java.util.zip.Inflater}s, that hold native memory and are expensive to create.</p>
+ * <p>Pooled objects are kept in a fixed array of slots, where each thread starts
+ * looking for an object or a free slot from its own slot, scanning the slots after it.
+ * Threads therefore mostly reuse the objects that they released, without contending
+ * with other threads and without allocating, while objects released by a thread are
+ * still available to the other threads. An object is only created when no slot holds
+ * one, and only ended when all the slots are taken.</p>
+ * <p>Pools with {@link #INFINITE_CAPACITY} have a slot per thread for a few threads per
+ * core, and keep the objects that do not fit in the slots in an overflow queue.</p>
+ * <p>A pool may be {@link #setPreWarmSize(int) pre-warmed} with objects created when it
+ * starts, and the objects that have not been used for the {@link #setIdleTimeout(long)
+ * idle timeout} may be trimmed.</p>
+ *
+ * @param <T> the type of the pooled objects
+ */
+@ManagedObject
 public abstract class CompressionPool<T> extends AbstractLifeCycle
 {
     public static final int INFINITE_CAPACITY = -1;
 
-    private final Queue<T> _pool;
-    private final AtomicInteger _numObjects = new AtomicInteger(0);
+    private final AtomicReferenceArray<T> _slots;
+    private final AtomicLongArray _releaseTimes;
+    private final Queue<T> _overflow;
+    private final AtomicLong _lastTrim = new AtomicLong(System.nanoTime());
     private final int _capacity;
+    private int _preWarmSize;
+    private long _idleTimeout = -1;
 
     /**
      * Create a Pool of {@link T} instances.
@@ -44,7 +72,10 @@ public abstract class CompressionPool<T> extends AbstractLifeCycle
     public CompressionPool(int capacity)
     {
         _capacity = capacity;
-        _pool = (_capacity == 0) ? null : new ConcurrentLinkedQueue<>();
+        int slots = capacity >= 0 ? capacity : Math.max(16, 4 * ProcessorUtils.availableProcessors());
+        _slots = slots == 0 ? null : new AtomicReferenceArray<>(slots);
+        _releaseTimes = slots == 0 ? null : new AtomicLongArray(slots);
+        _overflow = capacity < 0 ? new ConcurrentLinkedQueue<>() : null;
     }
 
     abstract protected T newObject();
@@ -53,25 +84,96 @@ public abstract class CompressionPool<T> extends AbstractLifeCycle
 
     abstract protected void reset(T object);
 
+    @ManagedAttribute("The max number of pooled objects, or -1 for no limit")
+    public int getCapacity()
+    {
+        return _capacity;
+    }
+
+    @ManagedAttribute("The number of objects created when the pool starts")
+    public int getPreWarmSize()
+    {
+        return _preWarmSize;
+    }
+
+    /**
+     * @param preWarmSize the number of objects created when the pool starts, so that they
+     * are not created on demand when the load increases
+     */
+    public void setPreWarmSize(int preWarmSize)
+    {
+        _preWarmSize = preWarmSize;
+    }
+
+    @ManagedAttribute("The time in ms after which unused objects are ended, or -1 to keep them")
+    public long getIdleTimeout()
+    {
+        return _idleTimeout;
+    }
+
+    /**
+     * <p>Sets the time after which the objects that have not been used are ended.</p>
+     * <p>The pool is trimmed when objects are released, at most once per idle timeout,
+     * and the objects in the overflow queue of pools with {@link #INFINITE_CAPACITY}
+     * are all ended when the pool is trimmed.</p>
+     *
+     * @param idleTimeout the idle timeout in ms, or -1 to keep the objects
+     */
+    public void setIdleTimeout(long idleTimeout)
+    {
+        _idleTimeout = idleTimeout;
+    }
+
+    @ManagedAttribute("The number of pooled objects")
+    public int getPooledCount()
+    {
+        int count = 0;
+        if (_slots != null)
+        {
+            for (int i = 0; i < _slots.length(); i++)
+            {
+                if (_slots.get(i) != null)
+                    count++;
+            }
+        }
+        if (_overflow != null)
+            count += _overflow.size();
+        return count;
+    }
+
+    private int slot()
+    {
+        return (int)(Thread.currentThread().getId() % _slots.length());
+    }
+
     /**
      * @return Object taken from the pool if it is not empty or a newly created Object
      */
     public T acquire()
     {
-        T object;
+        if (_slots == null)
+            return newObject();
 
-        if (_capacity == 0)
-            object = newObject();
-        else
+        int length = _slots.length();
+        int slot = slot();
+        // The slots close to the thread slot are the most likely to be used by this thread.
+        for (int i = 0; i < length; i++)
         {
-            object = _pool.poll();
-            if (object == null)
-                object = newObject();
-            else if (_capacity > 0)
-                _numObjects.decrementAndGet();
+            T object = _slots.get(slot);
+            if (object != null && _slots.compareAndSet(slot, object, null))
+                return object;
+            if (++slot == length)
+                slot = 0;
         }
 
-        return object;
+        if (_overflow != null)
+        {
+            T object = _overflow.poll();
+            if (object != null)
+                return object;
+        }
+
+        return newObject();
     }
 
     /**
@@ -82,47 +184,117 @@ public abstract class CompressionPool<T> extends AbstractLifeCycle
         if (object == null)
             return;
 
-        if (_capacity == 0 || !isRunning())
+        if (_slots == null || !isRunning())
         {
             end(object);
             return;
         }
-        else if (_capacity < 0)
-        {
-            reset(object);
-            _pool.add(object);
-        }
-        else
+
+        reset(object);
+
+        long now = System.nanoTime();
+        int length = _slots.length();
+        int slot = slot();
+        boolean pooled = false;
+        for (int i = 0; i < length; i++)
         {
-            while (true)
+            if (_slots.get(slot) == null)
             {
-                int d = _numObjects.get();
-
-                if (d >= _capacity)
+                // Set the time first, so that the object is not seen as idle.
+                _releaseTimes.set(slot, now);
+                if (_slots.compareAndSet(slot, null, object))
                 {
-                    end(object);
+                    pooled = true;
                     break;
                 }
+            }
+            if (++slot == length)
+                slot = 0;
+        }
 
-                if (_numObjects.compareAndSet(d, d + 1))
-                {
-                    reset(object);
-                    _pool.add(object);
-                    break;
-                }
+        if (!pooled)
+        {
+            if (_overflow != null)
+                _overflow.offer(object);
+            else
+                end(object);
+        }
+
+        long idleTimeout = _idleTimeout;
+        if (idleTimeout > 0)
+        {
+            long lastTrim = _lastTrim.get();
+            if (now - lastTrim > TimeUnit.MILLISECONDS.toNanos(idleTimeout) && _lastTrim.compareAndSet(lastTrim, now))
+                trim(now - TimeUnit.MILLISECONDS.toNanos(idleTimeout));
+        }
+    }
+
+    private void trim(long idleSince)
+    {
+        for (int i = 0; i < _slots.length(); i++)
+        {
+            T object = _slots.get(i);
+            if (object != null && _releaseTimes.get(i) - idleSince < 0 && _slots.compareAndSet(i, object, null))
+                end(object);
+        }
+        if (_overflow != null)
+        {
+            T object = _overflow.poll();
+            while (object != null)
+            {
+                end(object);
+                object = _overflow.poll();
+            }
+        }
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        if (_slots != null)
+        {
+            int length = _slots.length();
+            int preWarmSize = Math.min(_preWarmSize, length);
+            long now = System.nanoTime();
+            for (int i = 0; i < preWarmSize; i++)
+            {
+                // Spread the objects, so that every thread finds one close to its slot.
+                int slot = i * length / preWarmSize;
+                _releaseTimes.set(slot, now);
+                T object = newObject();
+                if (!_slots.compareAndSet(slot, null, object))
+                    end(object);
             }
         }
+        super.doStart();
     }
 
     @Override
     public void doStop()
     {
-        T t = _pool.poll();
-        while (t != null)
+        if (_slots != null)
         {
-            end(t);
-            t = _pool.poll();
+            for (int i = 0; i < _slots.length(); i++)
+            {
+                T object = _slots.getAndSet(i, null);
+                if (object != null)
+                    end(object);
+            }
+        }
+        if (_overflow != null)
+        {
+            T object = _overflow.poll();
+            while (object != null)
+            {
+                end(object);
+                object = _overflow.poll();
+            }
         }
-        _numObjects.set(0);
     }
-}
\ No newline at end of file
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{%s,pooled=%d,capacity=%d}", getClass().getSimpleName(), hashCode(), getState(), getPooledCount(), getCapacity());
+    }
+}
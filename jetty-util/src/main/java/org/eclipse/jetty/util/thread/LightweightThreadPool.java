@@ -0,0 +1,343 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util.thread;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.Name;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.component.DumpableCollection;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+/**
+ * <p>A {@link ThreadPool} that runs blocking application tasks on lightweight threads
+ * (for example the virtual threads of Project Loom), and all the other tasks on a
+ * {@link QueuedThreadPool} of platform threads.</p>
+ * <p>A task is run on a lightweight thread if it is an {@link Invocable} with
+ * {@link Invocable.InvocationType#BLOCKING} invocation type, such as the fill task of
+ * an EndPoint whose Connection blocks or an {@code HttpChannel} dispatch.
+ * Tasks that are not {@link Invocable}, such as selector loops and execution strategy
+ * producers, are run on the platform threads, so that the selector and
+ * {@link org.eclipse.jetty.util.thread.strategy.EatWhatYouKill} model are preserved.</p>
+ * <p>As a {@link TryExecutor}, this pool immediately accepts blocking application
+ * tasks, since lightweight threads are always available, and refuses all other tasks.
+ * When EatWhatYouKill produces a blocking task, it therefore executes it on a lightweight
+ * thread and continues producing on the platform thread, rather than handing the
+ * production to a reserved thread.
+ * For this reason the platform pool must be configured with no reserved threads, see
+ * {@link QueuedThreadPool#setReservedThreads(int)}, otherwise its reserved threads would
+ * lease platform threads from the {@link ThreadPoolBudget} without ever being used;
+ * this pool fails to start if they are not.</p>
+ * <p>The {@link ThreadPoolBudget}, the min/max threads and the low on threads state
+ * all refer to the platform threads, as lightweight threads are not a scarce resource,
+ * unless {@link #setMaxLightweightThreads(int) a maximum} is configured.</p>
+ * <p>If no lightweight thread factory is available, all tasks are run on the platform threads.</p>
+ */
+@ManagedObject("A thread pool that runs blocking tasks on lightweight threads")
+public class LightweightThreadPool extends ContainerLifeCycle implements ThreadPool.SizedThreadPool, TryExecutor
+{
+    private static final Logger LOG = Log.getLogger(LightweightThreadPool.class);
+
+    private final Set<Thread> _threads = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger _lightweightThreads = new AtomicInteger();
+    private final LongAdder _lightweightTasks = new LongAdder();
+    private final QueuedThreadPool _platform;
+    private final ThreadFactory _threadFactory;
+    private int _maxLightweightThreads = -1;
+
+    public LightweightThreadPool()
+    {
+        this(newPlatformThreadPool());
+    }
+
+    public LightweightThreadPool(@Name("platformThreadPool") QueuedThreadPool platform)
+    {
+        this(platform, newVirtualThreadFactory());
+    }
+
+    /**
+     * @param platform the pool of platform threads for selectors and non blocking tasks, with no reserved threads
+     * @param threadFactory the factory of lightweight threads, or null to run all tasks on platform threads
+     */
+    public LightweightThreadPool(@Name("platformThreadPool") QueuedThreadPool platform, @Name("threadFactory") ThreadFactory threadFactory)
+    {
+        _platform = platform;
+        _threadFactory = threadFactory;
+        addBean(_platform);
+    }
+
+    private static QueuedThreadPool newPlatformThreadPool()
+    {
+        QueuedThreadPool platform = new QueuedThreadPool();
+        platform.setReservedThreads(0);
+        return platform;
+    }
+
+    /**
+     * @return a factory of virtual threads if the JVM supports them, or null
+     */
+    public static ThreadFactory newVirtualThreadFactory()
+    {
+        try
+        {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Object builder = ofVirtual.invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory)factory.invoke(builder);
+        }
+        catch (Throwable x)
+        {
+            LOG.ignore(x);
+            return null;
+        }
+    }
+
+    public QueuedThreadPool getPlatformThreadPool()
+    {
+        return _platform;
+    }
+
+    public ThreadFactory getThreadFactory()
+    {
+        return _threadFactory;
+    }
+
+    /**
+     * @return the maximum number of concurrent lightweight threads, or -1 for no limit
+     */
+    @ManagedAttribute("maximum number of lightweight threads")
+    public int getMaxLightweightThreads()
+    {
+        return _maxLightweightThreads;
+    }
+
+    /**
+     * <p>Sets the maximum number of concurrent lightweight threads.</p>
+     * <p>When the maximum is reached, blocking tasks are queued to the platform threads.</p>
+     *
+     * @param maxLightweightThreads the maximum number of concurrent lightweight threads, or -1 for no limit
+     */
+    public void setMaxLightweightThreads(int maxLightweightThreads)
+    {
+        _maxLightweightThreads = maxLightweightThreads;
+    }
+
+    @ManagedAttribute("number of lightweight threads")
+    public int getLightweightThreads()
+    {
+        return _lightweightThreads.get();
+    }
+
+    @ManagedAttribute("number of tasks run on lightweight threads")
+    public long getLightweightTasks()
+    {
+        return _lightweightTasks.sum();
+    }
+
+    @Override
+    @ManagedAttribute("minimum number of platform threads")
+    public int getMinThreads()
+    {
+        return _platform.getMinThreads();
+    }
+
+    @Override
+    @ManagedAttribute("maximum number of platform threads")
+    public int getMaxThreads()
+    {
+        return _platform.getMaxThreads();
+    }
+
+    @Override
+    public void setMinThreads(int threads)
+    {
+        _platform.setMinThreads(threads);
+    }
+
+    @Override
+    public void setMaxThreads(int threads)
+    {
+        _platform.setMaxThreads(threads);
+    }
+
+    @Override
+    @ManagedAttribute("number of platform threads")
+    public int getThreads()
+    {
+        return _platform.getThreads();
+    }
+
+    @Override
+    @ManagedAttribute("number of idle platform threads")
+    public int getIdleThreads()
+    {
+        return _platform.getIdleThreads();
+    }
+
+    /**
+     * @return always 0, as blocking tasks are never handed to reserved threads
+     */
+    @ManagedAttribute("number of reserved threads")
+    public int getReservedThreads()
+    {
+        return 0;
+    }
+
+    @Override
+    @ManagedAttribute("whether the pool is low on threads")
+    public boolean isLowOnThreads()
+    {
+        if (_platform.isLowOnThreads())
+            return true;
+        int max = getMaxLightweightThreads();
+        return max >= 0 && _lightweightThreads.get() >= max;
+    }
+
+    @Override
+    public ThreadPoolBudget getThreadPoolBudget()
+    {
+        return _platform.getThreadPoolBudget();
+    }
+
+    @Override
+    public void join() throws InterruptedException
+    {
+        _platform.join();
+    }
+
+    @Override
+    public void execute(Runnable task)
+    {
+        if (!isRunning() || !isLightweight(task) || !startLightweightThread(task))
+            _platform.execute(task);
+    }
+
+    @Override
+    public boolean tryExecute(Runnable task)
+    {
+        return isRunning() && isLightweight(task) && startLightweightThread(task);
+    }
+
+    /**
+     * @param task the task to execute
+     * @return whether the given task should run on a lightweight thread
+     */
+    protected boolean isLightweight(Runnable task)
+    {
+        return _threadFactory != null &&
+            task instanceof Invocable &&
+            ((Invocable)task).getInvocationType() == Invocable.InvocationType.BLOCKING;
+    }
+
+    private boolean startLightweightThread(Runnable task)
+    {
+        int max = getMaxLightweightThreads();
+        while (true)
+        {
+            int threads = _lightweightThreads.get();
+            if (max >= 0 && threads >= max)
+                return false;
+            if (_lightweightThreads.compareAndSet(threads, threads + 1))
+                break;
+        }
+
+        try
+        {
+            Thread thread = _threadFactory.newThread(() -> runLightweight(task));
+            thread.start();
+            _lightweightTasks.increment();
+            return true;
+        }
+        catch (Throwable x)
+        {
+            _lightweightThreads.decrementAndGet();
+            LOG.warn("Could not start lightweight thread for " + task, x);
+            return false;
+        }
+    }
+
+    private void runLightweight(Runnable task)
+    {
+        Thread thread = Thread.currentThread();
+        _threads.add(thread);
+        try
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("run {} in {}", task, thread);
+            task.run();
+        }
+        catch (Throwable x)
+        {
+            LOG.warn(x);
+        }
+        finally
+        {
+            _threads.remove(thread);
+            _lightweightThreads.decrementAndGet();
+        }
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        // The platform pool may be shared, so it is not reconfigured.
+        if (_platform.getReservedThreads() != 0)
+            throw new IllegalStateException("The platform thread pool must have no reserved threads: " + _platform);
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        for (Thread thread : _threads)
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("Interrupting {}", thread);
+            thread.interrupt();
+        }
+        super.doStop();
+    }
+
+    @Override
+    public void dump(Appendable out, String indent) throws IOException
+    {
+        dumpObjects(out, indent, new DumpableCollection("lightweight", _threads));
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{%s,lw=%d/%d,%s}",
+            getClass().getSimpleName(),
+            hashCode(),
+            getState(),
+            getLightweightThreads(),
+            getMaxLightweightThreads(),
+            _platform);
+    }
+}
@@ -0,0 +1,320 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jetty.util.thread.ExecutorThreadPool;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrentArrayBlockingQueueTest
+{
+    @Test
+    public void testCapacityIsPowerOfTwo()
+    {
+        assertEquals(4, new ConcurrentArrayBlockingQueue<String>(3).getCapacity());
+        assertEquals(8, new ConcurrentArrayBlockingQueue<String>(8).getCapacity());
+    }
+
+    @Test
+    public void testWrap()
+    {
+        ConcurrentArrayBlockingQueue<String> queue = new ConcurrentArrayBlockingQueue<>(4);
+
+        for (int i = 0; i < 10; i++)
+        {
+            assertTrue(queue.offer("one"));
+            assertTrue(queue.offer("two"));
+            assertTrue(queue.offer("three"));
+            assertEquals(3, queue.size());
+            assertEquals(1, queue.remainingCapacity());
+
+            assertEquals("one", queue.peek());
+            assertEquals("one", queue.poll());
+            assertEquals("two", queue.poll());
+            assertEquals("three", queue.poll());
+            assertEquals(0, queue.size());
+            assertTrue(queue.isEmpty());
+            assertNull(queue.poll());
+        }
+    }
+
+    @Test
+    public void testFull()
+    {
+        ConcurrentArrayBlockingQueue<String> queue = new ConcurrentArrayBlockingQueue<>(2);
+
+        assertTrue(queue.offer("one"));
+        assertTrue(queue.offer("two"));
+        assertFalse(queue.offer("three"));
+        assertEquals(2, queue.size());
+
+        assertEquals("one", queue.poll());
+        assertTrue(queue.offer("three"));
+        assertEquals("two", queue.poll());
+        assertEquals("three", queue.poll());
+    }
+
+    @Test
+    public void testIteratorAndDrain()
+    {
+        ConcurrentArrayBlockingQueue<String> queue = new ConcurrentArrayBlockingQueue<>(8);
+        queue.offer("one");
+        queue.offer("two");
+        queue.offer("three");
+
+        List<String> iterated = new ArrayList<>();
+        queue.iterator().forEachRemaining(iterated::add);
+        assertEquals(3, iterated.size());
+        assertEquals("one", iterated.get(0));
+        assertEquals(3, queue.size());
+
+        List<String> drained = new ArrayList<>();
+        assertEquals(2, queue.drainTo(drained, 2));
+        assertEquals(iterated.subList(0, 2), drained);
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void testRemove()
+    {
+        ConcurrentArrayBlockingQueue<String> queue = new ConcurrentArrayBlockingQueue<>(8);
+        queue.offer("one");
+        queue.offer("two");
+        queue.offer("three");
+        queue.offer("two");
+
+        assertTrue(queue.remove("two"));
+        assertFalse(queue.remove("four"));
+        assertEquals(Arrays.asList("one", "three", "two"), new ArrayList<>(queue));
+        // The removed element is not counted by the size, but still takes its slot.
+        assertEquals(3, queue.size());
+        assertEquals(4, queue.remainingCapacity());
+
+        Iterator<String> iterator = queue.iterator();
+        assertEquals("one", iterator.next());
+        iterator.remove();
+        assertEquals("three", queue.peek());
+
+        assertTrue(queue.removeIf("three"::equals));
+        assertEquals(1, queue.size());
+        assertEquals("two", queue.poll());
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testIsEmptyWithRemovedElements()
+    {
+        ConcurrentArrayBlockingQueue<String> queue = new ConcurrentArrayBlockingQueue<>(4);
+        queue.offer("one");
+        queue.offer("two");
+        assertTrue(queue.remove("one"));
+        assertFalse(queue.isEmpty());
+        assertTrue(queue.remove("two"));
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.size());
+
+        // isEmpty() does not discard the removed elements, which still take their slots.
+        assertEquals(2, queue.remainingCapacity());
+        assertNull(queue.poll());
+        assertEquals(4, queue.remainingCapacity());
+    }
+
+    @Test
+    public void testThreadPoolExecutorRemove() throws Exception
+    {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new ConcurrentArrayBlockingQueue<>(16));
+        ExecutorThreadPool threadPool = new ExecutorThreadPool(executor, 0);
+        threadPool.start();
+        try
+        {
+            CountDownLatch blocked = new CountDownLatch(1);
+            CountDownLatch unblock = new CountDownLatch(1);
+            threadPool.execute(() ->
+            {
+                blocked.countDown();
+                try
+                {
+                    unblock.await();
+                }
+                catch (InterruptedException x)
+                {
+                    throw new RuntimeException(x);
+                }
+            });
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+            AtomicBoolean removedRan = new AtomicBoolean();
+            CountDownLatch keptRan = new CountDownLatch(1);
+            Runnable removed = () -> removedRan.set(true);
+            Runnable kept = keptRan::countDown;
+            threadPool.execute(removed);
+            Future<?> cancelled = executor.submit(() -> removedRan.set(true));
+            threadPool.execute(kept);
+
+            assertTrue(executor.remove(removed));
+            cancelled.cancel(false);
+            executor.purge();
+            assertEquals(Collections.singletonList(kept), new ArrayList<>(executor.getQueue()));
+
+            unblock.countDown();
+            assertTrue(keptRan.await(5, TimeUnit.SECONDS));
+            assertFalse(removedRan.get());
+        }
+        finally
+        {
+            threadPool.stop();
+        }
+    }
+
+    @Test
+    public void testPollTimeout() throws Exception
+    {
+        ConcurrentArrayBlockingQueue<String> queue = new ConcurrentArrayBlockingQueue<>(8, 4);
+
+        long start = System.nanoTime();
+        assertNull(queue.poll(100, TimeUnit.MILLISECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 90);
+    }
+
+    @Test
+    public void testTakeIsWokenByOffer() throws Exception
+    {
+        ConcurrentArrayBlockingQueue<String> queue = new ConcurrentArrayBlockingQueue<>(8, 0);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<String> taken = new AtomicReference<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread consumer = new Thread(() ->
+        {
+            try
+            {
+                latch.countDown();
+                taken.set(queue.take());
+            }
+            catch (InterruptedException x)
+            {
+                failure.set(x);
+            }
+        });
+        consumer.start();
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        // Give the consumer a chance to park.
+        Thread.sleep(100);
+
+        queue.offer("one");
+        consumer.join(5000);
+        assertFalse(consumer.isAlive());
+        assertNull(failure.get());
+        assertEquals("one", taken.get());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception
+    {
+        ConcurrentArrayBlockingQueue<Long> queue = new ConcurrentArrayBlockingQueue<>(64, 8);
+        int threads = 4;
+        int count = 100_000;
+        AtomicLong sum = new AtomicLong();
+        AtomicLong consumed = new AtomicLong();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        List<Thread> consumers = new ArrayList<>();
+        for (int t = 0; t < threads; ++t)
+        {
+            Thread consumer = new Thread(() ->
+            {
+                try
+                {
+                    while (true)
+                    {
+                        Long value = queue.poll(5, TimeUnit.SECONDS);
+                        if (value == null || value < 0)
+                            break;
+                        sum.addAndGet(value);
+                        consumed.incrementAndGet();
+                    }
+                }
+                catch (InterruptedException x)
+                {
+                    failure.compareAndSet(null, x);
+                }
+            });
+            consumer.start();
+            consumers.add(consumer);
+        }
+
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < threads; ++t)
+        {
+            Thread producer = new Thread(() ->
+            {
+                try
+                {
+                    for (long i = 1; i <= count; ++i)
+                    {
+                        queue.put(i);
+                    }
+                }
+                catch (InterruptedException x)
+                {
+                    failure.compareAndSet(null, x);
+                }
+            });
+            producer.start();
+            producers.add(producer);
+        }
+
+        for (Thread producer : producers)
+        {
+            producer.join();
+        }
+        for (int t = 0; t < threads; ++t)
+        {
+            queue.put(-1L);
+        }
+        for (Thread consumer : consumers)
+        {
+            consumer.join();
+        }
+
+        assertNull(failure.get());
+        assertEquals((long)threads * count, consumed.get());
+        assertEquals((long)threads * count * (count + 1) / 2, sum.get());
+        assertTrue(queue.isEmpty());
+    }
+}
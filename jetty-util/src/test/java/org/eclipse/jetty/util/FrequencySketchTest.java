@@ -0,0 +1,91 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FrequencySketchTest
+{
+    @Test
+    public void testIncrement()
+    {
+        FrequencySketch sketch = new FrequencySketch(64);
+        assertEquals(0, sketch.frequency(42));
+        for (int i = 1; i <= 5; ++i)
+        {
+            sketch.increment(42);
+            assertThat(sketch.frequency(42), greaterThanOrEqualTo(i));
+        }
+    }
+
+    @Test
+    public void testSaturation()
+    {
+        FrequencySketch sketch = new FrequencySketch(64);
+        for (int i = 0; i < 2 * FrequencySketch.MAX_FREQUENCY; ++i)
+        {
+            sketch.increment(42);
+        }
+        assertEquals(FrequencySketch.MAX_FREQUENCY, sketch.frequency(42));
+    }
+
+    @Test
+    public void testAge()
+    {
+        FrequencySketch sketch = new FrequencySketch(64);
+        for (int i = 0; i < 10; ++i)
+        {
+            sketch.increment(42);
+        }
+        int frequency = sketch.frequency(42);
+        sketch.age();
+        assertEquals(frequency / 2, sketch.frequency(42));
+
+        sketch.clear();
+        assertEquals(0, sketch.frequency(42));
+    }
+
+    @Test
+    public void testFrequentElementsStandOut()
+    {
+        FrequencySketch sketch = new FrequencySketch(256);
+        for (int i = 0; i < 100; ++i)
+        {
+            // A frequent element among many infrequent ones.
+            sketch.increment(-1);
+            for (int j = 0; j < 10; ++j)
+            {
+                sketch.increment(i * 10 + j);
+            }
+        }
+
+        int frequent = sketch.frequency(-1);
+        int infrequent = 0;
+        for (int i = 0; i < 1000; ++i)
+        {
+            infrequent = Math.max(infrequent, sketch.frequency(i));
+        }
+        assertThat(infrequent, lessThan(frequent));
+    }
+}
@@ -0,0 +1,204 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util.compression;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class CompressionPoolTest
+{
+    private static class CountingPool extends CompressionPool<Object>
+    {
+        private final AtomicInteger created = new AtomicInteger();
+        private final AtomicInteger ended = new AtomicInteger();
+        private final AtomicInteger reset = new AtomicInteger();
+
+        private CountingPool(int capacity)
+        {
+            super(capacity);
+        }
+
+        @Override
+        protected Object newObject()
+        {
+            created.incrementAndGet();
+            return new Object();
+        }
+
+        @Override
+        protected void end(Object object)
+        {
+            ended.incrementAndGet();
+        }
+
+        @Override
+        protected void reset(Object object)
+        {
+            reset.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void testReuse() throws Exception
+    {
+        CountingPool pool = new CountingPool(CompressionPool.INFINITE_CAPACITY);
+        pool.start();
+
+        Object object = pool.acquire();
+        pool.release(object);
+        assertThat(pool.reset.get(), is(1));
+        assertSame(object, pool.acquire());
+        assertNotSame(object, pool.acquire());
+        assertThat(pool.created.get(), is(2));
+
+        pool.stop();
+    }
+
+    @Test
+    public void testNoPooling() throws Exception
+    {
+        CountingPool pool = new CountingPool(0);
+        pool.start();
+
+        Object object = pool.acquire();
+        pool.release(object);
+        assertNotSame(object, pool.acquire());
+        assertThat(pool.ended.get(), is(1));
+
+        pool.stop();
+    }
+
+    @Test
+    public void testCapacity() throws Exception
+    {
+        CountingPool pool = new CountingPool(4);
+        pool.start();
+
+        List<Object> objects = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+        {
+            objects.add(pool.acquire());
+        }
+        objects.forEach(pool::release);
+        assertThat(pool.getPooledCount(), is(4));
+        assertThat(pool.ended.get(), is(6));
+
+        pool.stop();
+        assertThat(pool.getPooledCount(), is(0));
+        assertThat(pool.ended.get(), is(10));
+    }
+
+    @Test
+    public void testAllSlotsUsed() throws Exception
+    {
+        CountingPool pool = new CountingPool(32);
+        pool.start();
+
+        // A single thread starts from the same slot, but uses all of them.
+        List<Object> objects = new ArrayList<>();
+        for (int i = 0; i < 32; i++)
+        {
+            objects.add(pool.acquire());
+        }
+        objects.forEach(pool::release);
+        assertThat(pool.getPooledCount(), is(32));
+        assertThat(pool.ended.get(), is(0));
+        for (int i = 0; i < 32; i++)
+        {
+            pool.acquire();
+        }
+        assertThat(pool.created.get(), is(32));
+        assertThat(pool.getPooledCount(), is(0));
+
+        pool.stop();
+    }
+
+    @Test
+    public void testInfiniteCapacityOverflow() throws Exception
+    {
+        CountingPool pool = new CountingPool(CompressionPool.INFINITE_CAPACITY);
+        pool.start();
+
+        List<Object> objects = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+        {
+            objects.add(pool.acquire());
+        }
+        objects.forEach(pool::release);
+        assertThat(pool.getPooledCount(), is(100));
+        assertThat(pool.ended.get(), is(0));
+        for (int i = 0; i < 100; i++)
+        {
+            pool.acquire();
+        }
+        assertThat(pool.created.get(), is(100));
+
+        pool.stop();
+    }
+
+    @Test
+    public void testPreWarm() throws Exception
+    {
+        CountingPool pool = new CountingPool(16);
+        pool.setPreWarmSize(4);
+        pool.start();
+        assertThat(pool.created.get(), is(4));
+        assertThat(pool.getPooledCount(), is(4));
+
+        // Every thread finds a pre-warmed object within its probes.
+        pool.acquire();
+        assertThat(pool.created.get(), is(4));
+
+        pool.stop();
+        assertThat(pool.ended.get(), is(3));
+    }
+
+    @Test
+    public void testIdleTrim() throws Exception
+    {
+        CountingPool pool = new CountingPool(CompressionPool.INFINITE_CAPACITY);
+        pool.setIdleTimeout(100);
+        pool.start();
+
+        Object idle1 = pool.acquire();
+        Object idle2 = pool.acquire();
+        pool.release(idle1);
+        pool.release(idle2);
+        assertThat(pool.getPooledCount(), is(2));
+
+        Thread.sleep(300);
+
+        // Releasing an object trims the idle ones.
+        Object object = new Object();
+        pool.release(object);
+        assertThat(pool.ended.get(), is(2));
+        assertThat(pool.getPooledCount(), is(1));
+        assertSame(object, pool.acquire());
+
+        pool.stop();
+    }
+}
@@ -0,0 +1,216 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util.thread;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LightweightThreadPoolTest
+{
+    private final AtomicInteger _created = new AtomicInteger();
+    private final ThreadFactory _factory = task ->
+    {
+        Thread thread = new Thread(task, "lightweight-" + _created.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    };
+    private LightweightThreadPool _pool;
+
+    private interface InvocableRunnable extends Runnable, Invocable
+    {
+    }
+
+    @AfterEach
+    public void dispose() throws Exception
+    {
+        if (_pool != null)
+            _pool.stop();
+    }
+
+    private LightweightThreadPool newPool(ThreadFactory factory) throws Exception
+    {
+        QueuedThreadPool platform = new QueuedThreadPool(8, 2);
+        platform.setReservedThreads(0);
+        _pool = new LightweightThreadPool(platform, factory);
+        _pool.start();
+        return _pool;
+    }
+
+    private static Runnable newTask(Invocable.InvocationType type, CountDownLatch latch, AtomicReference<Thread> thread)
+    {
+        return new InvocableRunnable()
+        {
+            @Override
+            public void run()
+            {
+                thread.set(Thread.currentThread());
+                latch.countDown();
+            }
+
+            @Override
+            public InvocationType getInvocationType()
+            {
+                return type;
+            }
+        };
+    }
+
+    @Test
+    public void testBlockingTaskRunsOnLightweightThread() throws Exception
+    {
+        LightweightThreadPool pool = newPool(_factory);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        pool.execute(newTask(Invocable.InvocationType.BLOCKING, latch, thread));
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(thread.get().getName().startsWith("lightweight-"));
+        assertEquals(1, pool.getLightweightTasks());
+    }
+
+    @Test
+    public void testOtherTasksRunOnPlatformThreads() throws Exception
+    {
+        LightweightThreadPool pool = newPool(_factory);
+
+        CountDownLatch latch = new CountDownLatch(2);
+        AtomicReference<Thread> thread1 = new AtomicReference<>();
+        AtomicReference<Thread> thread2 = new AtomicReference<>();
+        pool.execute(newTask(Invocable.InvocationType.NON_BLOCKING, latch, thread1));
+        pool.execute(() ->
+        {
+            thread2.set(Thread.currentThread());
+            latch.countDown();
+        });
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(thread1.get().getName().startsWith("qtp"));
+        assertTrue(thread2.get().getName().startsWith("qtp"));
+        assertEquals(0, _created.get());
+    }
+
+    @Test
+    public void testTryExecute() throws Exception
+    {
+        LightweightThreadPool pool = newPool(_factory);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        assertTrue(pool.tryExecute(newTask(Invocable.InvocationType.BLOCKING, latch, thread)));
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        // Producers are not handed to reserved threads.
+        assertFalse(pool.tryExecute(() -> {}));
+        assertEquals(0, pool.getReservedThreads());
+    }
+
+    @Test
+    public void testPlatformPoolWithReservedThreadsIsRejected()
+    {
+        QueuedThreadPool platform = new QueuedThreadPool(8, 2);
+        LightweightThreadPool pool = new LightweightThreadPool(platform, _factory);
+
+        assertThrows(IllegalStateException.class, pool::start);
+        // The platform pool is not reconfigured.
+        assertEquals(-1, platform.getReservedThreads());
+    }
+
+    @Test
+    public void testMaxLightweightThreads() throws Exception
+    {
+        LightweightThreadPool pool = newPool(_factory);
+        pool.setMaxLightweightThreads(1);
+
+        CountDownLatch block = new CountDownLatch(1);
+        CountDownLatch unblocked = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Runnable blocker = new InvocableRunnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    block.await();
+                }
+                catch (InterruptedException x)
+                {
+                    failure.set(x);
+                }
+                finally
+                {
+                    unblocked.countDown();
+                }
+            }
+        };
+        assertTrue(pool.tryExecute(blocker));
+        assertTrue(pool.isLowOnThreads());
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        Runnable task = newTask(Invocable.InvocationType.BLOCKING, latch, thread);
+        assertFalse(pool.tryExecute(task));
+        pool.execute(task);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(thread.get().getName().startsWith("qtp"));
+
+        block.countDown();
+        assertTrue(unblocked.await(5, TimeUnit.SECONDS));
+        assertNull(failure.get());
+    }
+
+    @Test
+    public void testNoThreadFactory() throws Exception
+    {
+        LightweightThreadPool pool = newPool(null);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        pool.execute(newTask(Invocable.InvocationType.BLOCKING, latch, thread));
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(thread.get().getName().startsWith("qtp"));
+    }
+
+    @Test
+    public void testBudgetRefersToPlatformThreads() throws Exception
+    {
+        LightweightThreadPool pool = newPool(_factory);
+
+        assertEquals(8, pool.getMaxThreads());
+        ThreadPoolBudget budget = pool.getThreadPoolBudget();
+        assertNotNull(budget);
+        budget.leaseTo(this, 7);
+        assertEquals(pool.getPlatformThreadPool(), budget.getSizedThreadPool());
+    }
+}
@@ -24,6 +24,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.eclipse.jetty.util.ConcurrentArrayBlockingQueue;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 import org.eclipse.jetty.util.log.StacklessLogging;
@@ -579,6 +580,24 @@ public class QueuedThreadPoolTest extends AbstractThreadPoolTest
         assertTrue(latch.await(5, TimeUnit.SECONDS));
     }
 
+    @Test
+    public void testConcurrentArrayBlockingQueue() throws Exception
+    {
+        QueuedThreadPool pool = new QueuedThreadPool(4, 2, 60000, new ConcurrentArrayBlockingQueue<>(1024));
+        pool.start();
+
+        int jobs = 1000;
+        final CountDownLatch latch = new CountDownLatch(jobs);
+        for (int i = 0; i < jobs; ++i)
+        {
+            pool.execute(latch::countDown);
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(0, pool.getQueueSize());
+        pool.stop();
+    }
+
     @Test
     public void testConstructorMinMaxThreadsValidation()
     {
@@ -20,14 +20,14 @@ package org.eclipse.jetty.websocket.jsr356;
 
 import java.util.Collections;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.jetty.util.component.AbstractLifeCycle;
 import org.eclipse.jetty.util.component.LifeCycle;
 
 public class JsrSessionTracker extends AbstractLifeCycle implements JsrSessionListener
 {
-    private CopyOnWriteArraySet<JsrSession> sessions = new CopyOnWriteArraySet<>();
+    private final Set<JsrSession> sessions = ConcurrentHashMap.newKeySet();
 
     public Set<javax.websocket.Session> getSessions()
     {
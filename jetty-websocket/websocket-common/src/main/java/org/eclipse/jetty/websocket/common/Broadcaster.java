@@ -0,0 +1,398 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.websocket.common;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.compression.DeflaterPool;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketBehavior;
+import org.eclipse.jetty.websocket.api.WebSocketPolicy;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.api.extensions.Extension;
+import org.eclipse.jetty.websocket.api.extensions.OutgoingFrames;
+import org.eclipse.jetty.websocket.common.extensions.ExtensionStack;
+import org.eclipse.jetty.websocket.common.extensions.compress.PerMessageDeflateExtension;
+import org.eclipse.jetty.websocket.common.frames.BinaryFrame;
+import org.eclipse.jetty.websocket.common.frames.DataFrame;
+import org.eclipse.jetty.websocket.common.frames.PreEncodedFrame;
+import org.eclipse.jetty.websocket.common.frames.TextFrame;
+
+/**
+ * <p>Sends the same message to many server side sessions, generating the frame once.</p>
+ * <p>The frame bytes of a message are generated once for the sessions without extensions,
+ * and compressed once for each {@link DeflaterPool} of the sessions that negotiated only
+ * {@code permessage-deflate} without outgoing context takeover. These sessions are sent
+ * read-only views of the same buffer, which is released when all the writes are complete.
+ * The other sessions, for example those that negotiated other extensions or that retain
+ * the compression context, are sent the message via their {@link RemoteEndpoint} as usual.</p>
+ * <p>Messages are sent asynchronously, as with {@link RemoteEndpoint#sendString(String, WriteCallback)},
+ * and the optional callback is notified once for each session.</p>
+ */
+@ManagedObject("Sends messages to many WebSocket sessions")
+public class Broadcaster
+{
+    private static final Logger LOG = Log.getLogger(Broadcaster.class);
+    private static final byte[] TAIL_BYTES = new byte[]{0x00, 0x00, (byte)0xFF, (byte)0xFF};
+    private static final Object NO_EXTENSIONS = new Object();
+
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder encodings = new LongAdder();
+    private final LongAdder preEncodedSends = new LongAdder();
+    private final LongAdder remoteSends = new LongAdder();
+    private final ByteBufferPool bufferPool;
+    private final Generator generator;
+
+    public Broadcaster(ByteBufferPool bufferPool)
+    {
+        this.bufferPool = bufferPool;
+        this.generator = new Generator(WebSocketPolicy.newServerPolicy(), bufferPool, false);
+    }
+
+    @ManagedAttribute("The number of messages broadcast")
+    public long getMessages()
+    {
+        return messages.sum();
+    }
+
+    @ManagedAttribute("The number of times the frame of a message has been generated")
+    public long getEncodings()
+    {
+        return encodings.sum();
+    }
+
+    @ManagedAttribute("The number of sends of pre-encoded frames")
+    public long getPreEncodedSends()
+    {
+        return preEncodedSends.sum();
+    }
+
+    @ManagedAttribute("The number of sends via the remote endpoint of the session")
+    public long getRemoteSends()
+    {
+        return remoteSends.sum();
+    }
+
+    @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
+    public void resetStatistics()
+    {
+        messages.reset();
+        encodings.reset();
+        preEncodedSends.reset();
+        remoteSends.reset();
+    }
+
+    /**
+     * @param text the text message to send
+     * @param sessions the sessions to send the message to
+     * @see #sendString(String, Iterable, WriteCallback)
+     */
+    public void sendString(String text, Iterable<? extends Session> sessions)
+    {
+        sendString(text, sessions, null);
+    }
+
+    /**
+     * @param text the text message to send
+     * @param sessions the sessions to send the message to
+     * @param callback the callback notified when the write to each session completes, or null
+     */
+    public void sendString(String text, Iterable<? extends Session> sessions, WriteCallback callback)
+    {
+        TextFrame frame = new TextFrame().setPayload(text);
+        broadcast(frame, sessions, callback, remote -> remote.sendString(text, callback));
+    }
+
+    /**
+     * @param data the binary message to send
+     * @param sessions the sessions to send the message to
+     * @see #sendBytes(ByteBuffer, Iterable, WriteCallback)
+     */
+    public void sendBytes(ByteBuffer data, Iterable<? extends Session> sessions)
+    {
+        sendBytes(data, sessions, null);
+    }
+
+    /**
+     * @param data the binary message to send, which is not consumed
+     * @param sessions the sessions to send the message to
+     * @param callback the callback notified when the write to each session completes, or null
+     */
+    public void sendBytes(ByteBuffer data, Iterable<? extends Session> sessions, WriteCallback callback)
+    {
+        BinaryFrame frame = new BinaryFrame();
+        frame.setPayload(data.slice());
+        broadcast(frame, sessions, callback, remote -> remote.sendBytes(data.slice(), callback));
+    }
+
+    private void broadcast(DataFrame frame, Iterable<? extends Session> sessions, WriteCallback callback, RemoteSender sender)
+    {
+        messages.increment();
+        Map<Object, Encoding> encodings = new HashMap<>(4);
+        try
+        {
+            for (Session session : sessions)
+            {
+                try
+                {
+                    Object key = getEncodingKey(session);
+                    if (key == null)
+                    {
+                        remoteSends.increment();
+                        sender.send(session.getRemote());
+                        continue;
+                    }
+
+                    Encoding encoding = encodings.get(key);
+                    if (encoding == null)
+                    {
+                        encoding = encode(frame, key == NO_EXTENSIONS ? null : (DeflaterPool)key);
+                        encodings.put(key, encoding);
+                    }
+                    preEncodedSends.increment();
+                    encoding.send((WebSocketSession)session, callback);
+                }
+                catch (Throwable x)
+                {
+                    if (LOG.isDebugEnabled())
+                        LOG.debug("Could not broadcast to " + session, x);
+                    notifyCallbackFailure(callback, x);
+                }
+            }
+        }
+        finally
+        {
+            for (Encoding encoding : encodings.values())
+            {
+                encoding.release();
+            }
+        }
+    }
+
+    /**
+     * @param session the session
+     * @return the key of the encoding that can be sent to the session, or null if the session cannot be sent pre-encoded frames
+     */
+    private Object getEncodingKey(Session session)
+    {
+        if (!(session instanceof WebSocketSession))
+            return null;
+        WebSocketSession webSocketSession = (WebSocketSession)session;
+        // Clients must mask their frames with a different key for each frame.
+        if (webSocketSession.getPolicy().getBehavior() != WebSocketBehavior.SERVER)
+            return null;
+        if (!(webSocketSession.getRemote() instanceof WebSocketRemoteEndpoint))
+            return null;
+        OutgoingFrames outgoing = webSocketSession.getOutgoingHandler();
+        if (!(outgoing instanceof ExtensionStack))
+            return null;
+
+        List<Extension> extensions = ((ExtensionStack)outgoing).getExtensions();
+        if (extensions.isEmpty())
+            return NO_EXTENSIONS;
+        if (extensions.size() == 1 && extensions.get(0) instanceof PerMessageDeflateExtension)
+        {
+            PerMessageDeflateExtension deflate = (PerMessageDeflateExtension)extensions.get(0);
+            // A message compressed without the session compression context
+            // can only be sent if that context is not retained across messages.
+            if (!deflate.isOutgoingContextTakeover() && deflate.getDeflaterPool() != null)
+                return deflate.getDeflaterPool();
+        }
+        return null;
+    }
+
+    private Encoding encode(DataFrame frame, DeflaterPool deflaterPool)
+    {
+        encodings.increment();
+
+        DataFrame encoded = frame;
+        if (deflaterPool != null)
+        {
+            encoded = new DataFrame(frame);
+            encoded.setRsv1(true);
+            encoded.setPayload(deflate(deflaterPool, frame.getPayload().slice()));
+        }
+
+        ByteBuffer payload = encoded.getPayload();
+        ByteBuffer buffer = bufferPool.acquire(Generator.MAX_HEADER_LENGTH + payload.remaining(), true);
+        generator.generateHeaderBytes(encoded, buffer);
+        int headerLength = buffer.remaining();
+        BufferUtil.append(buffer, payload.slice());
+
+        ByteBuffer bytes = buffer.asReadOnlyBuffer();
+        bytes.limit(headerLength);
+        ByteBuffer header = bytes.slice();
+        bytes.limit(buffer.limit()).position(headerLength);
+        return new Encoding(encoded, buffer, header, bytes.slice());
+    }
+
+    private static ByteBuffer deflate(DeflaterPool deflaterPool, ByteBuffer data)
+    {
+        Deflater deflater = deflaterPool.acquire();
+        try
+        {
+            byte[] input = BufferUtil.toArray(data);
+            deflater.setInput(input);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 2 + TAIL_BYTES.length);
+            byte[] output = new byte[Math.min(Math.max(256, input.length), 64 * 1024)];
+            while (true)
+            {
+                int compressed = deflater.deflate(output, 0, output.length, Deflater.SYNC_FLUSH);
+                out.write(output, 0, compressed);
+                if (compressed < output.length)
+                    break;
+            }
+
+            byte[] bytes = out.toByteArray();
+            int length = bytes.length;
+            // Drop the tail bytes of the last (and only) frame of the message, see RFC 7692, 7.2.1.
+            if (endsWithTail(bytes, length))
+                length -= TAIL_BYTES.length;
+            // See RFC 7692, 7.2.3.6.
+            if (length == 0)
+                return ByteBuffer.wrap(new byte[]{0x00});
+            return ByteBuffer.wrap(bytes, 0, length);
+        }
+        finally
+        {
+            deflaterPool.release(deflater);
+        }
+    }
+
+    private static boolean endsWithTail(byte[] bytes, int length)
+    {
+        if (length < TAIL_BYTES.length)
+            return false;
+        for (int i = 0; i < TAIL_BYTES.length; ++i)
+        {
+            if (bytes[length - TAIL_BYTES.length + i] != TAIL_BYTES[i])
+                return false;
+        }
+        return true;
+    }
+
+    private static void notifyCallbackFailure(WriteCallback callback, Throwable failure)
+    {
+        try
+        {
+            if (callback != null)
+                callback.writeFailed(failure);
+        }
+        catch (Throwable x)
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("Exception while notifying failure of callback " + callback, x);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[messages=%d,encodings=%d,preEncoded=%d,remote=%d]",
+            getClass().getSimpleName(),
+            hashCode(),
+            getMessages(),
+            getEncodings(),
+            getPreEncodedSends(),
+            getRemoteSends());
+    }
+
+    @FunctionalInterface
+    private interface RemoteSender
+    {
+        void send(RemoteEndpoint remote);
+    }
+
+    /**
+     * <p>The frame bytes of a message, shared by the sessions it is sent to.</p>
+     * <p>The buffer is released to the pool when the broadcast is over and
+     * the writes to all the sessions are complete.</p>
+     */
+    private class Encoding
+    {
+        private final AtomicInteger references = new AtomicInteger(1);
+        private final DataFrame frame;
+        private final ByteBuffer buffer;
+        private final ByteBuffer header;
+        private final ByteBuffer payload;
+
+        private Encoding(DataFrame frame, ByteBuffer buffer, ByteBuffer header, ByteBuffer payload)
+        {
+            this.frame = frame;
+            this.buffer = buffer;
+            this.header = header;
+            this.payload = payload;
+        }
+
+        private void send(WebSocketSession session, WriteCallback callback)
+        {
+            references.incrementAndGet();
+            PreEncodedFrame preEncoded = new PreEncodedFrame(frame, header, payload.slice());
+            WriteCallback releaser = new WriteCallback()
+            {
+                @Override
+                public void writeSuccess()
+                {
+                    release();
+                    if (callback != null)
+                        callback.writeSuccess();
+                }
+
+                @Override
+                public void writeFailed(Throwable x)
+                {
+                    release();
+                    if (callback != null)
+                        callback.writeFailed(x);
+                }
+            };
+
+            try
+            {
+                ((WebSocketRemoteEndpoint)session.getRemote()).sendPreEncodedFrame(preEncoded, releaser);
+            }
+            catch (Throwable x)
+            {
+                release();
+                throw x;
+            }
+        }
+
+        private void release()
+        {
+            if (references.decrementAndGet() == 0)
+                bufferPool.release(buffer);
+        }
+    }
+}
@@ -0,0 +1,343 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.websocket.common;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+
+/**
+ * <p>A concurrent set of {@link WebSocketSession}s.</p>
+ * <p>Adding and removing a session does not copy the set, so that the cost does
+ * not grow with the number of sessions, and the iteration is weakly consistent:
+ * it never throws {@link java.util.ConcurrentModificationException} and may or may
+ * not reflect the sessions added or removed while iterating.</p>
+ * <p>Sessions may optionally be indexed by the path of their request URI and by
+ * the class of their application WebSocket object, to iterate over a subset of the
+ * sessions, for example to {@link Broadcaster broadcast} to them. Indexing must be
+ * configured before sessions are added.</p>
+ */
+@ManagedObject("Registry of WebSocket sessions")
+public class SessionRegistry implements Iterable<WebSocketSession>
+{
+    private final ConcurrentMap<WebSocketSession, Boolean> sessions = new ConcurrentHashMap<>();
+    private final Index byPath = new Index(session -> session.getRequestURI().getPath());
+    private final Index byEndpointClass = new Index(WebSocketSession::getEndpointClass);
+    private final Rate added = new Rate();
+    private final Rate removed = new Rate();
+    private boolean indexByPath;
+    private boolean indexByEndpointClass;
+
+    @ManagedAttribute("Whether sessions are indexed by request URI path")
+    public boolean isIndexByPath()
+    {
+        return indexByPath;
+    }
+
+    public void setIndexByPath(boolean indexByPath)
+    {
+        checkEmpty();
+        this.indexByPath = indexByPath;
+    }
+
+    @ManagedAttribute("Whether sessions are indexed by endpoint class")
+    public boolean isIndexByEndpointClass()
+    {
+        return indexByEndpointClass;
+    }
+
+    public void setIndexByEndpointClass(boolean indexByEndpointClass)
+    {
+        checkEmpty();
+        this.indexByEndpointClass = indexByEndpointClass;
+    }
+
+    private void checkEmpty()
+    {
+        if (!sessions.isEmpty())
+            throw new IllegalStateException("Sessions already registered");
+    }
+
+    /**
+     * @param session the session to add
+     * @return whether the session was added
+     */
+    public boolean add(WebSocketSession session)
+    {
+        boolean[] result = new boolean[1];
+        // Index within the atomic update of the session entry,
+        // so that a concurrent remove() does not leave it indexed.
+        sessions.computeIfAbsent(session, key ->
+        {
+            if (indexByPath)
+                byPath.add(session);
+            if (indexByEndpointClass)
+                byEndpointClass.add(session);
+            result[0] = true;
+            return Boolean.TRUE;
+        });
+        if (result[0])
+            added.record();
+        return result[0];
+    }
+
+    /**
+     * @param session the session to remove
+     * @return whether the session was removed
+     */
+    public boolean remove(WebSocketSession session)
+    {
+        boolean[] result = new boolean[1];
+        sessions.computeIfPresent(session, (key, value) ->
+        {
+            if (indexByPath)
+                byPath.remove(session);
+            if (indexByEndpointClass)
+                byEndpointClass.remove(session);
+            result[0] = true;
+            return null;
+        });
+        if (result[0])
+            removed.record();
+        return result[0];
+    }
+
+    public boolean contains(WebSocketSession session)
+    {
+        return sessions.containsKey(session);
+    }
+
+    @ManagedAttribute("The number of sessions")
+    public int size()
+    {
+        return sessions.size();
+    }
+
+    @Override
+    public Iterator<WebSocketSession> iterator()
+    {
+        return getSessions().iterator();
+    }
+
+    /**
+     * @return an unmodifiable view of the sessions
+     */
+    public Set<WebSocketSession> getSessions()
+    {
+        return Collections.unmodifiableSet(sessions.keySet());
+    }
+
+    /**
+     * @param path the request URI path
+     * @return an unmodifiable live view of the sessions with the given path
+     * @throws IllegalStateException if sessions are not indexed by path
+     */
+    public Set<WebSocketSession> getSessionsByPath(String path)
+    {
+        if (!indexByPath)
+            throw new IllegalStateException("Sessions not indexed by path");
+        return byPath.get(path);
+    }
+
+    /**
+     * @param endpointClass the class of the application WebSocket object
+     * @return an unmodifiable live view of the sessions with the given endpoint class
+     * @throws IllegalStateException if sessions are not indexed by endpoint class
+     */
+    public Set<WebSocketSession> getSessionsByEndpointClass(Class<?> endpointClass)
+    {
+        if (!indexByEndpointClass)
+            throw new IllegalStateException("Sessions not indexed by endpoint class");
+        return byEndpointClass.get(endpointClass);
+    }
+
+    @ManagedAttribute("The total number of sessions added")
+    public long getSessionsAdded()
+    {
+        return added.getTotal();
+    }
+
+    @ManagedAttribute("The total number of sessions removed")
+    public long getSessionsRemoved()
+    {
+        return removed.getTotal();
+    }
+
+    @ManagedAttribute("The number of sessions added in the last second")
+    public long getSessionsAddedRate()
+    {
+        return added.getRate();
+    }
+
+    @ManagedAttribute("The number of sessions removed in the last second")
+    public long getSessionsRemovedRate()
+    {
+        return removed.getRate();
+    }
+
+    @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
+    public void resetStatistics()
+    {
+        added.reset();
+        removed.reset();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[size=%d,added=%d,removed=%d]", getClass().getSimpleName(), hashCode(), size(), getSessionsAdded(), getSessionsRemoved());
+    }
+
+    private static class Index
+    {
+        private final ConcurrentMap<Object, Set<WebSocketSession>> sessions = new ConcurrentHashMap<>();
+        private final Function<WebSocketSession, Object> keyFunction;
+
+        private Index(Function<WebSocketSession, Object> keyFunction)
+        {
+            this.keyFunction = keyFunction;
+        }
+
+        private void add(WebSocketSession session)
+        {
+            sessions.compute(keyFunction.apply(session), (key, set) ->
+            {
+                if (set == null)
+                    set = ConcurrentHashMap.newKeySet();
+                set.add(session);
+                return set;
+            });
+        }
+
+        private void remove(WebSocketSession session)
+        {
+            sessions.computeIfPresent(keyFunction.apply(session), (key, set) ->
+            {
+                set.remove(session);
+                return set.isEmpty() ? null : set;
+            });
+        }
+
+        /**
+         * <p>Returns a view that looks up the sessions of the key every time it is used,
+         * because the set of a key is discarded when it becomes empty, and replaced
+         * when a session with that key is added again.</p>
+         */
+        private Set<WebSocketSession> get(Object key)
+        {
+            return new AbstractSet<WebSocketSession>()
+            {
+                @Override
+                public Iterator<WebSocketSession> iterator()
+                {
+                    return lookup().iterator();
+                }
+
+                @Override
+                public int size()
+                {
+                    return lookup().size();
+                }
+
+                @Override
+                public boolean contains(Object o)
+                {
+                    return lookup().contains(o);
+                }
+
+                private Set<WebSocketSession> lookup()
+                {
+                    Set<WebSocketSession> set = sessions.get(key);
+                    return set == null ? Collections.emptySet() : Collections.unmodifiableSet(set);
+                }
+            };
+        }
+    }
+
+    /**
+     * <p>Counts events in total and in the last complete second.</p>
+     */
+    private static class Rate
+    {
+        private final LongAdder total = new LongAdder();
+        private final LongAdder current = new LongAdder();
+        private volatile long second = now();
+        private volatile long previous;
+
+        private static long now()
+        {
+            return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+        }
+
+        private void record()
+        {
+            roll();
+            current.increment();
+            total.increment();
+        }
+
+        private long getTotal()
+        {
+            return total.sum();
+        }
+
+        private long getRate()
+        {
+            roll();
+            return previous;
+        }
+
+        private void roll()
+        {
+            long now = now();
+            if (now == second)
+                return;
+            synchronized (this)
+            {
+                long last = second;
+                if (now == last)
+                    return;
+                long count = current.sumThenReset();
+                previous = now == last + 1 ? count : 0;
+                second = now;
+            }
+        }
+
+        private void reset()
+        {
+            synchronized (this)
+            {
+                total.reset();
+                current.reset();
+                previous = 0;
+                second = now();
+            }
+        }
+    }
+}
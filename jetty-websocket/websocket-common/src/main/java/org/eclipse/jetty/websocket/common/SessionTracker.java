@@ -19,9 +19,7 @@
 package org.eclipse.jetty.websocket.common;
 
 import java.io.IOException;
-import java.util.Collections;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
 
 import org.eclipse.jetty.util.component.AbstractLifeCycle;
 import org.eclipse.jetty.util.component.Dumpable;
@@ -29,11 +27,16 @@ import org.eclipse.jetty.util.component.LifeCycle;
 
 public class SessionTracker extends AbstractLifeCycle implements WebSocketSessionListener, Dumpable
 {
-    private CopyOnWriteArraySet<WebSocketSession> sessions = new CopyOnWriteArraySet<>();
+    private final SessionRegistry sessions = new SessionRegistry();
 
     public Set<WebSocketSession> getSessions()
     {
-        return Collections.unmodifiableSet(sessions);
+        return sessions.getSessions();
+    }
+
+    public SessionRegistry getSessionRegistry()
+    {
+        return sessions;
     }
 
     @Override
@@ -63,6 +66,6 @@ public class SessionTracker extends AbstractLifeCycle implements WebSocketSessio
     @Override
     public void dump(Appendable out, String indent) throws IOException
     {
-        Dumpable.dumpObjects(out, indent, this, sessions);
+        Dumpable.dumpObjects(out, indent, this, sessions.getSessions());
     }
-}
\ No newline at end of file
+}
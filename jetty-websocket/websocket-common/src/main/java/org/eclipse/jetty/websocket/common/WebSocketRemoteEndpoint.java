@@ -38,6 +38,7 @@ import org.eclipse.jetty.websocket.common.frames.ContinuationFrame;
 import org.eclipse.jetty.websocket.common.frames.DataFrame;
 import org.eclipse.jetty.websocket.common.frames.PingFrame;
 import org.eclipse.jetty.websocket.common.frames.PongFrame;
+import org.eclipse.jetty.websocket.common.frames.PreEncodedFrame;
 import org.eclipse.jetty.websocket.common.frames.TextFrame;
 import org.eclipse.jetty.websocket.common.io.FrameFlusher;
 import org.eclipse.jetty.websocket.common.io.FutureWriteCallback;
@@ -298,6 +299,30 @@ public class WebSocketRemoteEndpoint implements RemoteEndpoint
         }
     }
 
+    /**
+     * Asynchronous write of a frame whose bytes have already been generated,
+     * typically by a {@link Broadcaster} for many remote endpoints.
+     *
+     * @param frame the pre-encoded frame
+     * @param callback the callback notified when the write completes
+     */
+    public void sendPreEncodedFrame(PreEncodedFrame frame, WriteCallback callback)
+    {
+        lockMsg(MsgType.ASYNC);
+        try
+        {
+            if (LOG.isDebugEnabled())
+            {
+                LOG.debug("sendPreEncodedFrame({}, {})", frame, callback);
+            }
+            uncheckedSendFrame(frame, callback == null ? NOOP_CALLBACK : callback);
+        }
+        finally
+        {
+            unlockMsg(MsgType.ASYNC);
+        }
+    }
+
     public void uncheckedSendFrame(WebSocketFrame frame, WriteCallback callback)
     {
         BatchMode batchMode = BatchMode.OFF;
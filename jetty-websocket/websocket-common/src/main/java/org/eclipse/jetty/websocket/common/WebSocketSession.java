@@ -53,6 +53,7 @@ import org.eclipse.jetty.websocket.api.extensions.ExtensionFactory;
 import org.eclipse.jetty.websocket.api.extensions.Frame;
 import org.eclipse.jetty.websocket.api.extensions.IncomingFrames;
 import org.eclipse.jetty.websocket.api.extensions.OutgoingFrames;
+import org.eclipse.jetty.websocket.common.events.AbstractEventDriver;
 import org.eclipse.jetty.websocket.common.events.EventDriver;
 import org.eclipse.jetty.websocket.common.io.DisconnectCallback;
 import org.eclipse.jetty.websocket.common.scopes.WebSocketContainerScope;
@@ -221,6 +222,16 @@ public class WebSocketSession extends ContainerLifeCycle implements Session, Rem
         return this.containerScope;
     }
 
+    /**
+     * @return the class of the application WebSocket object of this session
+     */
+    public Class<?> getEndpointClass()
+    {
+        if (websocket instanceof AbstractEventDriver)
+            return ((AbstractEventDriver)websocket).getWebSocketObject().getClass();
+        return websocket.getClass();
+    }
+
     public ExtensionFactory getExtensionFactory()
     {
         return extensionFactory;
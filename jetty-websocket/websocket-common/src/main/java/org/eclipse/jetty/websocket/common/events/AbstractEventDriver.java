@@ -78,6 +78,14 @@ public abstract class AbstractEventDriver extends AbstractLifeCycle implements I
         return policy;
     }
 
+    /**
+     * @return the application WebSocket object that this driver invokes
+     */
+    public Object getWebSocketObject()
+    {
+        return websocket;
+    }
+
     @Override
     public WebSocketSession getSession()
     {
@@ -42,6 +42,7 @@ import org.eclipse.jetty.websocket.api.extensions.IncomingFrames;
 import org.eclipse.jetty.websocket.api.extensions.OutgoingFrames;
 import org.eclipse.jetty.websocket.common.Generator;
 import org.eclipse.jetty.websocket.common.Parser;
+import org.eclipse.jetty.websocket.common.extensions.compress.CompressExtension;
 
 /**
  * Represents the stack of Extensions.
@@ -202,6 +203,13 @@ public class ExtensionStack extends ContainerLifeCycle implements IncomingFrames
         nextIncoming.incomingFrame(frame);
     }
 
+    private void discard(Extension ext)
+    {
+        // The extension is configured, but will never be started nor stopped.
+        if (ext instanceof CompressExtension)
+            ((CompressExtension)ext).releaseMemory();
+    }
+
     /**
      * Perform the extension negotiation.
      * <p>
@@ -231,16 +239,19 @@ public class ExtensionStack extends ContainerLifeCycle implements IncomingFrames
             if (ext.isRsv1User() && (rsvClaims[0] != null))
             {
                 LOG.debug("Not adding extension {}. Extension {} already claimed RSV1", config, rsvClaims[0]);
+                discard(ext);
                 continue;
             }
             if (ext.isRsv2User() && (rsvClaims[1] != null))
             {
                 LOG.debug("Not adding extension {}. Extension {} already claimed RSV2", config, rsvClaims[1]);
+                discard(ext);
                 continue;
             }
             if (ext.isRsv3User() && (rsvClaims[2] != null))
             {
                 LOG.debug("Not adding extension {}. Extension {} already claimed RSV3", config, rsvClaims[2]);
+                discard(ext);
                 continue;
             }
 
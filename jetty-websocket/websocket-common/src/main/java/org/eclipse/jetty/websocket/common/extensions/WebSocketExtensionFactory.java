@@ -35,6 +35,7 @@ import org.eclipse.jetty.websocket.api.extensions.Extension;
 import org.eclipse.jetty.websocket.api.extensions.ExtensionConfig;
 import org.eclipse.jetty.websocket.api.extensions.ExtensionFactory;
 import org.eclipse.jetty.websocket.common.extensions.compress.CompressExtension;
+import org.eclipse.jetty.websocket.common.extensions.compress.CompressionMemoryBudget;
 import org.eclipse.jetty.websocket.common.scopes.WebSocketContainerScope;
 
 public class WebSocketExtensionFactory extends ContainerLifeCycle implements ExtensionFactory
@@ -44,6 +45,7 @@ public class WebSocketExtensionFactory extends ContainerLifeCycle implements Ext
     private Map<String, Class<? extends Extension>> availableExtensions;
     private final InflaterPool inflaterPool = new InflaterPool(CompressionPool.INFINITE_CAPACITY, true);
     private final DeflaterPool deflaterPool = new DeflaterPool(CompressionPool.INFINITE_CAPACITY, Deflater.DEFAULT_COMPRESSION, true);
+    private final CompressionMemoryBudget compressionMemoryBudget = new CompressionMemoryBudget();
 
     public WebSocketExtensionFactory(WebSocketContainerScope container)
     {
@@ -57,6 +59,15 @@ public class WebSocketExtensionFactory extends ContainerLifeCycle implements Ext
         this.container = container;
         addBean(inflaterPool);
         addBean(deflaterPool);
+        addBean(compressionMemoryBudget);
+    }
+
+    /**
+     * @return the native memory budget of the compression contexts of the extensions created by this factory
+     */
+    public CompressionMemoryBudget getCompressionMemoryBudget()
+    {
+        return compressionMemoryBudget;
     }
 
     @Override
@@ -106,17 +117,19 @@ public class WebSocketExtensionFactory extends ContainerLifeCycle implements Ext
         try
         {
             Extension ext = container.getObjectFactory().createInstance(extClass);
-            if (ext instanceof AbstractExtension)
-            {
-                AbstractExtension aext = (AbstractExtension)ext;
-                aext.init(container);
-                aext.setConfig(config);
-            }
             if (ext instanceof CompressExtension)
             {
+                // Set before the config, which may be negotiated depending on the memory budget.
                 CompressExtension cext = (CompressExtension)ext;
                 cext.setInflaterPool(inflaterPool);
                 cext.setDeflaterPool(deflaterPool);
+                cext.setMemoryBudget(compressionMemoryBudget);
+            }
+            if (ext instanceof AbstractExtension)
+            {
+                AbstractExtension aext = (AbstractExtension)ext;
+                aext.init(container);
+                aext.setConfig(config);
             }
 
             return ext;
@@ -40,6 +40,7 @@ import org.eclipse.jetty.websocket.api.extensions.Frame;
 import org.eclipse.jetty.websocket.common.OpCode;
 import org.eclipse.jetty.websocket.common.extensions.AbstractExtension;
 import org.eclipse.jetty.websocket.common.frames.DataFrame;
+import org.eclipse.jetty.websocket.common.frames.PreEncodedFrame;
 
 public abstract class CompressExtension extends AbstractExtension
 {
@@ -86,12 +87,21 @@ public abstract class CompressExtension extends AbstractExtension
      */
     private static final int DECOMPRESS_BUF_SIZE = 8 * 1024;
 
+    /**
+     * Deflater : Max Output Buffer Size
+     */
+    private static final int COMPRESS_BUF_SIZE = 8 * 1024;
+
     private final Queue<FrameEntry> entries = new ArrayDeque<>();
     private final IteratingCallback flusher = new Flusher();
     private DeflaterPool deflaterPool;
     private InflaterPool inflaterPool;
+    private CompressionMemoryBudget memoryBudget;
+    private boolean deflaterReserved;
+    private boolean inflaterReserved;
     private Deflater deflaterImpl;
     private Inflater inflaterImpl;
+    private byte[] decompressBuffer;
     protected AtomicInteger decompressCount = new AtomicInteger(0);
     private int tailDrop = TAIL_DROP_NEVER;
     private int rsvUse = RSV_USE_ALWAYS;
@@ -107,16 +117,69 @@ public abstract class CompressExtension extends AbstractExtension
         this.inflaterPool = inflaterPool;
     }
 
+    public DeflaterPool getDeflaterPool()
+    {
+        return deflaterPool;
+    }
+
     public void setDeflaterPool(DeflaterPool deflaterPool)
     {
         this.deflaterPool = deflaterPool;
     }
 
+    public CompressionMemoryBudget getMemoryBudget()
+    {
+        return memoryBudget;
+    }
+
+    public void setMemoryBudget(CompressionMemoryBudget memoryBudget)
+    {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * <p>Reserves in the {@link CompressionMemoryBudget} the memory of the compression
+     * contexts held for the life of the connection, released when this extension is stopped.</p>
+     *
+     * @param deflater whether to reserve the memory of the deflater
+     * @param inflater whether to reserve the memory of the inflater
+     * @return whether the memory was reserved, or false if it would exceed the max memory
+     */
+    protected boolean reserveMemory(boolean deflater, boolean inflater)
+    {
+        if (memoryBudget == null)
+            return true;
+        long memory = (deflater ? CompressionMemoryBudget.DEFLATER_MEMORY : 0) + (inflater ? CompressionMemoryBudget.INFLATER_MEMORY : 0);
+        if (!memoryBudget.reserve(memory))
+            return false;
+        deflaterReserved = deflater;
+        inflaterReserved = inflater;
+        return true;
+    }
+
+    /**
+     * <p>Returns to the {@link CompressionMemoryBudget} the memory reserved by the negotiation.</p>
+     * <p>Called when the extension stops, or by the {@link org.eclipse.jetty.websocket.common.extensions.ExtensionStack}
+     * when the extension is configured but not added, since it is then never started nor stopped.</p>
+     */
+    public void releaseMemory()
+    {
+        if (memoryBudget != null && (deflaterReserved || inflaterReserved))
+        {
+            long memory = (deflaterReserved ? CompressionMemoryBudget.DEFLATER_MEMORY : 0) + (inflaterReserved ? CompressionMemoryBudget.INFLATER_MEMORY : 0);
+            memoryBudget.release(memory);
+        }
+        deflaterReserved = false;
+        inflaterReserved = false;
+    }
+
     public Deflater getDeflater()
     {
         if (deflaterImpl == null)
         {
             deflaterImpl = deflaterPool.acquire();
+            if (memoryBudget != null)
+                memoryBudget.onDeflaterAcquired(deflaterReserved);
         }
         return deflaterImpl;
     }
@@ -126,10 +189,64 @@ public abstract class CompressExtension extends AbstractExtension
         if (inflaterImpl == null)
         {
             inflaterImpl = inflaterPool.acquire();
+            if (memoryBudget != null)
+                memoryBudget.onInflaterAcquired(inflaterReserved);
         }
         return inflaterImpl;
     }
 
+    /**
+     * <p>Returns the deflater to the pool if the {@link CompressionMemoryBudget} is exceeded,
+     * otherwise resets it so that it is reused by the next message.</p>
+     * <p>Must only be called at the end of a message, without context takeover.</p>
+     */
+    protected void recycleDeflater()
+    {
+        if (deflaterImpl == null)
+            return;
+        if (memoryBudget != null && memoryBudget.isExceeded())
+            releaseDeflater(true);
+        else
+            deflaterImpl.reset();
+    }
+
+    /**
+     * <p>Returns the inflater to the pool if the {@link CompressionMemoryBudget} is exceeded,
+     * otherwise resets it so that it is reused by the next message.</p>
+     * <p>Must only be called at the end of a message, without context takeover.</p>
+     */
+    protected void recycleInflater()
+    {
+        if (inflaterImpl == null)
+            return;
+        if (memoryBudget != null && memoryBudget.isExceeded())
+            releaseInflater(true);
+        else
+            inflaterImpl.reset();
+    }
+
+    private void releaseDeflater(boolean endOfMessage)
+    {
+        if (deflaterImpl != null)
+        {
+            deflaterPool.release(deflaterImpl);
+            deflaterImpl = null;
+            if (memoryBudget != null)
+                memoryBudget.onDeflaterReleased(deflaterReserved, endOfMessage);
+        }
+    }
+
+    private void releaseInflater(boolean endOfMessage)
+    {
+        if (inflaterImpl != null)
+        {
+            inflaterPool.release(inflaterImpl);
+            inflaterImpl = null;
+            if (memoryBudget != null)
+                memoryBudget.onInflaterReleased(inflaterReserved, endOfMessage);
+        }
+    }
+
     /**
      * Indicates use of RSV1 flag for indicating deflation is in use.
      */
@@ -185,7 +302,10 @@ public abstract class CompressExtension extends AbstractExtension
         {
             return;
         }
-        byte[] output = new byte[DECOMPRESS_BUF_SIZE];
+        // Frames are decompressed one at a time, so the output buffer is reused.
+        byte[] output = decompressBuffer;
+        if (output == null)
+            output = decompressBuffer = new byte[DECOMPRESS_BUF_SIZE];
 
         Inflater inflater = getInflater();
 
@@ -400,18 +520,9 @@ public abstract class CompressExtension extends AbstractExtension
     @Override
     protected void doStop() throws Exception
     {
-        if (deflaterImpl != null)
-        {
-            deflaterPool.release(deflaterImpl);
-            deflaterImpl = null;
-        }
-
-        if (inflaterImpl != null)
-        {
-            inflaterPool.release(inflaterImpl);
-            inflaterImpl = null;
-        }
-
+        releaseDeflater(false);
+        releaseInflater(false);
+        releaseMemory();
         super.doStop();
     }
 
@@ -445,6 +556,7 @@ public abstract class CompressExtension extends AbstractExtension
     {
         private FrameEntry current;
         private boolean finished = true;
+        private byte[] output;
 
         @Override
         public void failed(Throwable x)
@@ -485,6 +597,13 @@ public abstract class CompressExtension extends AbstractExtension
                 return;
             }
 
+            if (frame instanceof PreEncodedFrame)
+            {
+                // Already deflated, if needed, by whoever encoded it.
+                nextOutgoingFrame(frame, this, batchMode);
+                return;
+            }
+
             compress(entry, true);
         }
 
@@ -499,7 +618,7 @@ public abstract class CompressExtension extends AbstractExtension
                 data = BufferUtil.EMPTY_BUFFER;
 
             int remaining = data.remaining();
-            int outputLength = Math.max(256, data.remaining());
+            int outputLength = Math.min(Math.max(256, data.remaining()), COMPRESS_BUF_SIZE);
             if (LOG.isDebugEnabled())
                 LOG.debug("Compressing {}: {} bytes in {} bytes chunk", entry, remaining, outputLength);
 
@@ -515,7 +634,9 @@ public abstract class CompressExtension extends AbstractExtension
 
             ByteArrayOutputStream out = new ByteArrayOutputStream();
 
-            byte[] output = new byte[outputLength];
+            // Deflate in chunks of a reused output buffer.
+            if (output == null || output.length < outputLength)
+                output = new byte[outputLength];
 
             boolean fin = frame.isFin();
 
@@ -0,0 +1,193 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.websocket.common.extensions.compress;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+
+/**
+ * <p>A budget for the native memory of the {@link java.util.zip.Deflater}s and
+ * {@link java.util.zip.Inflater}s held by {@link CompressExtension}s.</p>
+ * <p>With context takeover a compression context is held by an extension for the whole
+ * life of the connection, about 300 KiB of zlib state per connection. The memory of these
+ * contexts is reserved when {@link PerMessageDeflateExtension} negotiates a new connection,
+ * and released when the extension is stopped; when the reservation would exceed
+ * {@link #getMaxMemory()}, the connection is negotiated without context takeover instead.
+ * The contexts of the extensions without context takeover are counted while they are held,
+ * and are returned to the pools at the end of each message when the memory held exceeds
+ * the max memory, so that they are shared by the messages in progress.</p>
+ * <p>The memory is estimated from the zlib defaults, since {@code java.util.zip} does not
+ * allow to configure the window size, and does not include the pooled contexts.</p>
+ */
+@ManagedObject("Native memory budget of the compression contexts")
+public class CompressionMemoryBudget
+{
+    /**
+     * The zlib memory of a deflater: {@code (1 << (windowBits + 2)) + (1 << (memLevel + 9))}, plus a few KiB.
+     */
+    public static final long DEFLATER_MEMORY = (1 << 17) + (1 << 17) + 6 * 1024;
+    /**
+     * The zlib memory of an inflater: {@code 1 << windowBits}, plus a few KiB.
+     */
+    public static final long INFLATER_MEMORY = (1 << 15) + 7 * 1024;
+
+    private final AtomicLong memory = new AtomicLong();
+    private final AtomicInteger deflaters = new AtomicInteger();
+    private final AtomicInteger inflaters = new AtomicInteger();
+    private final LongAdder degradedNegotiations = new LongAdder();
+    private final LongAdder contextReleases = new LongAdder();
+    private volatile long maxMemory = -1;
+
+    @ManagedAttribute("The max native memory in bytes of the compression contexts held, or -1 for no limit")
+    public long getMaxMemory()
+    {
+        return maxMemory;
+    }
+
+    /**
+     * @param maxMemory the max native memory in bytes of the compression contexts held, or -1 for no limit
+     */
+    public void setMaxMemory(long maxMemory)
+    {
+        this.maxMemory = maxMemory;
+    }
+
+    @ManagedAttribute("The estimated native memory in bytes of the compression contexts held or reserved")
+    public long getMemoryInUse()
+    {
+        return memory.get();
+    }
+
+    @ManagedAttribute("The number of deflaters held")
+    public int getDeflatersInUse()
+    {
+        return deflaters.get();
+    }
+
+    @ManagedAttribute("The number of inflaters held")
+    public int getInflatersInUse()
+    {
+        return inflaters.get();
+    }
+
+    @ManagedAttribute("The number of negotiations degraded to no context takeover")
+    public long getDegradedNegotiations()
+    {
+        return degradedNegotiations.sum();
+    }
+
+    @ManagedAttribute("The number of compression contexts returned to the pools at the end of a message")
+    public long getContextReleases()
+    {
+        return contextReleases.sum();
+    }
+
+    @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
+    public void resetStatistics()
+    {
+        degradedNegotiations.reset();
+        contextReleases.reset();
+    }
+
+    /**
+     * @return whether the memory held exceeds the max memory
+     */
+    public boolean isExceeded()
+    {
+        long max = maxMemory;
+        return max >= 0 && memory.get() > max;
+    }
+
+    /**
+     * <p>Atomically reserves the memory of the compression contexts that a new connection
+     * holds with context takeover, unless that would exceed the max memory, in which case
+     * the negotiation should be degraded to no context takeover.</p>
+     *
+     * @param bytes the memory to reserve
+     * @return whether the memory was reserved
+     */
+    boolean reserve(long bytes)
+    {
+        while (true)
+        {
+            long max = maxMemory;
+            long current = memory.get();
+            long next = current + bytes;
+            if (max >= 0 && next > max)
+            {
+                degradedNegotiations.increment();
+                return false;
+            }
+            if (memory.compareAndSet(current, next))
+                return true;
+        }
+    }
+
+    /**
+     * @param bytes the memory previously reserved with {@link #reserve(long)}
+     */
+    void release(long bytes)
+    {
+        memory.addAndGet(-bytes);
+    }
+
+    void onDeflaterAcquired(boolean reserved)
+    {
+        deflaters.incrementAndGet();
+        if (!reserved)
+            memory.addAndGet(DEFLATER_MEMORY);
+    }
+
+    void onDeflaterReleased(boolean reserved, boolean endOfMessage)
+    {
+        deflaters.decrementAndGet();
+        if (!reserved)
+            memory.addAndGet(-DEFLATER_MEMORY);
+        if (endOfMessage)
+            contextReleases.increment();
+    }
+
+    void onInflaterAcquired(boolean reserved)
+    {
+        inflaters.incrementAndGet();
+        if (!reserved)
+            memory.addAndGet(INFLATER_MEMORY);
+    }
+
+    void onInflaterReleased(boolean reserved, boolean endOfMessage)
+    {
+        inflaters.decrementAndGet();
+        if (!reserved)
+            memory.addAndGet(-INFLATER_MEMORY);
+        if (endOfMessage)
+            contextReleases.increment();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{memory=%d/%d,deflaters=%d,inflaters=%d}", getClass().getSimpleName(), hashCode(),
+            getMemoryInUse(), getMaxMemory(), getDeflatersInUse(), getInflatersInUse());
+    }
+}
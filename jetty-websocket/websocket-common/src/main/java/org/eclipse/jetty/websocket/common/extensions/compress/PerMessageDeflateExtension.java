@@ -26,10 +26,12 @@ import org.eclipse.jetty.util.log.Logger;
 import org.eclipse.jetty.websocket.api.BadPayloadException;
 import org.eclipse.jetty.websocket.api.BatchMode;
 import org.eclipse.jetty.websocket.api.ProtocolException;
+import org.eclipse.jetty.websocket.api.WebSocketBehavior;
 import org.eclipse.jetty.websocket.api.WriteCallback;
 import org.eclipse.jetty.websocket.api.extensions.ExtensionConfig;
 import org.eclipse.jetty.websocket.api.extensions.Frame;
 import org.eclipse.jetty.websocket.common.OpCode;
+import org.eclipse.jetty.websocket.common.frames.PreEncodedFrame;
 
 /**
  * Per Message Deflate Compression extension for WebSocket.
@@ -103,11 +105,12 @@ public class PerMessageDeflateExtension extends CompressExtension
     @Override
     protected void nextIncomingFrame(Frame frame)
     {
-        if (frame.isFin() && !incomingContextTakeover)
+        // Control frames may be interleaved with the frames of a message.
+        if (frame.isFin() && frame.getType().isData() && !incomingContextTakeover)
         {
             LOG.debug("Incoming Context Reset");
             decompressCount.set(0);
-            getInflater().reset();
+            recycleInflater();
         }
         super.nextIncomingFrame(frame);
     }
@@ -115,14 +118,23 @@ public class PerMessageDeflateExtension extends CompressExtension
     @Override
     protected void nextOutgoingFrame(Frame frame, WriteCallback callback, BatchMode batchMode)
     {
-        if (frame.isFin() && !outgoingContextTakeover)
+        // A pre-encoded frame did not use the deflater, so there is no context to reset.
+        if (frame.isFin() && frame.getType().isData() && !outgoingContextTakeover && !(frame instanceof PreEncodedFrame))
         {
             LOG.debug("Outgoing Context Reset");
-            getDeflater().reset();
+            recycleDeflater();
         }
         super.nextOutgoingFrame(frame, callback, batchMode);
     }
 
+    /**
+     * @return whether the compression context is retained across outgoing messages
+     */
+    public boolean isOutgoingContextTakeover()
+    {
+        return outgoingContextTakeover;
+    }
+
     @Override
     int getRsvUseMode()
     {
@@ -188,6 +200,17 @@ public class PerMessageDeflateExtension extends CompressExtension
             }
         }
 
+        // Without context takeover the compression contexts are not held between messages,
+        // so the server may impose it on both directions when short of memory (RFC 7692, 7.1.1).
+        if (getPolicy().getBehavior() == WebSocketBehavior.SERVER && (incomingContextTakeover || outgoingContextTakeover) &&
+            !reserveMemory(outgoingContextTakeover, incomingContextTakeover))
+        {
+            configNegotiated.setParameter("client_no_context_takeover");
+            configNegotiated.setParameter("server_no_context_takeover");
+            incomingContextTakeover = false;
+            outgoingContextTakeover = false;
+        }
+
         LOG.debug("config: outgoingContextTakeover={}, incomingContextTakeover={} : {}", outgoingContextTakeover, incomingContextTakeover, this);
 
         super.setConfig(configNegotiated);
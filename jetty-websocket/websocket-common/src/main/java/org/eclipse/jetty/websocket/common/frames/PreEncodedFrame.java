@@ -0,0 +1,55 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.websocket.common.frames;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.jetty.websocket.api.extensions.Frame;
+
+/**
+ * A Data Frame whose header and payload bytes have already been generated.
+ * <p>
+ * The bytes are written as they are, so the frame is passed through by the
+ * extensions and is not generated again by the {@link org.eclipse.jetty.websocket.common.io.FrameFlusher}.
+ * Typically the bytes are read-only views of a buffer shared by many connections.
+ */
+public class PreEncodedFrame extends DataFrame
+{
+    private final ByteBuffer header;
+
+    /**
+     * @param basedOn the frame the bytes were generated from
+     * @param header the generated header bytes
+     * @param payload the payload bytes, already compressed if the RSV1 flag of the frame is set
+     */
+    public PreEncodedFrame(Frame basedOn, ByteBuffer header, ByteBuffer payload)
+    {
+        super(basedOn);
+        this.header = header;
+        setPayload(payload);
+    }
+
+    /**
+     * @return a view of the generated header bytes
+     */
+    public ByteBuffer getHeader()
+    {
+        return header.slice();
+    }
+}
@@ -39,6 +39,7 @@ import org.eclipse.jetty.websocket.api.extensions.Frame;
 import org.eclipse.jetty.websocket.common.Generator;
 import org.eclipse.jetty.websocket.common.OpCode;
 import org.eclipse.jetty.websocket.common.frames.BinaryFrame;
+import org.eclipse.jetty.websocket.common.frames.PreEncodedFrame;
 
 public class FrameFlusher extends IteratingCallback
 {
@@ -422,12 +423,17 @@ public class FrameFlusher extends IteratingCallback
 
         private ByteBuffer generateHeaderBytes()
         {
+            if (frame instanceof PreEncodedFrame)
+                return ((PreEncodedFrame)frame).getHeader();
             return headerBuffer = generator.generateHeaderBytes(frame);
         }
 
         private void generateHeaderBytes(ByteBuffer buffer)
         {
-            generator.generateHeaderBytes(frame, buffer);
+            if (frame instanceof PreEncodedFrame)
+                BufferUtil.append(buffer, ((PreEncodedFrame)frame).getHeader());
+            else
+                generator.generateHeaderBytes(frame, buffer);
         }
 
         private void release()
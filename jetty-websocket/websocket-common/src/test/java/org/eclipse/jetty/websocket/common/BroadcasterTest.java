@@ -0,0 +1,218 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.websocket.common;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Inflater;
+
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.websocket.api.WebSocketPolicy;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.api.extensions.ExtensionConfig;
+import org.eclipse.jetty.websocket.api.extensions.Frame;
+import org.eclipse.jetty.websocket.common.events.EventDriverFactory;
+import org.eclipse.jetty.websocket.common.extensions.ExtensionStack;
+import org.eclipse.jetty.websocket.common.extensions.WebSocketExtensionFactory;
+import org.eclipse.jetty.websocket.common.io.FrameFlusher;
+import org.eclipse.jetty.websocket.common.io.FrameFlusherTest.CapturingEndPoint;
+import org.eclipse.jetty.websocket.common.io.LocalWebSocketSession;
+import org.eclipse.jetty.websocket.common.message.TrackingSocket;
+import org.eclipse.jetty.websocket.common.scopes.SimpleContainerScope;
+import org.eclipse.jetty.websocket.common.scopes.WebSocketContainerScope;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class BroadcasterTest
+{
+    private final ByteBufferPool bufferPool = new MappedByteBufferPool();
+    private final List<Peer> peers = new ArrayList<>();
+    private WebSocketPolicy policy;
+    private WebSocketContainerScope containerScope;
+    private WebSocketExtensionFactory extensionFactory;
+    private Broadcaster broadcaster;
+
+    @BeforeEach
+    public void init()
+    {
+        policy = WebSocketPolicy.newServerPolicy();
+        containerScope = new SimpleContainerScope(policy, bufferPool);
+        extensionFactory = new WebSocketExtensionFactory(containerScope);
+        broadcaster = new Broadcaster(bufferPool);
+    }
+
+    @AfterEach
+    public void dispose() throws Exception
+    {
+        for (Peer peer : peers)
+        {
+            peer.session.stop();
+        }
+    }
+
+    private Peer newPeer(String... extensions) throws Exception
+    {
+        ExtensionStack stack = new ExtensionStack(extensionFactory);
+        List<ExtensionConfig> configs = new ArrayList<>();
+        for (String extension : extensions)
+        {
+            configs.add(ExtensionConfig.parse(extension));
+        }
+        stack.negotiate(configs);
+
+        CapturingEndPoint endPoint = new CapturingEndPoint(WebSocketPolicy.newClientPolicy(), bufferPool)
+        {
+            @Override
+            public void incomingFrame(Frame frame)
+            {
+                // The parser recycles the frame payload.
+                incomingFrames.offer(WebSocketFrame.copy(frame));
+            }
+        };
+        endPoint.parser.configureFromExtensions(stack.getExtensions());
+        Generator generator = new Generator(policy, bufferPool);
+        generator.configureFromExtensions(stack.getExtensions());
+        FrameFlusher flusher = new FrameFlusher(bufferPool, generator, endPoint, policy.getMaxBinaryMessageBufferSize(), 8);
+        stack.setNextOutgoing((frame, callback, batchMode) ->
+        {
+            if (flusher.enqueue(frame, callback, batchMode))
+                flusher.iterate();
+        });
+
+        String id = "peer" + peers.size();
+        LocalWebSocketSession session = new LocalWebSocketSession(containerScope, id, new EventDriverFactory(containerScope).wrap(new TrackingSocket(id)));
+        session.setPolicy(policy);
+        session.setOutgoingHandler(stack);
+        stack.start();
+        session.start();
+        session.open();
+
+        Peer peer = new Peer(session, endPoint);
+        peers.add(peer);
+        return peer;
+    }
+
+    private static String receive(Peer peer) throws Exception
+    {
+        Frame frame = peer.endPoint.incomingFrames.poll();
+        assertThat(frame.isFin(), is(true));
+        byte[] payload = BufferUtil.toArray(frame.getPayload());
+        if (!frame.isRsv1())
+            return new String(payload, UTF_8);
+
+        Inflater inflater = new Inflater(true);
+        inflater.setInput(payload);
+        byte[] output = new byte[64 * 1024];
+        int length = inflater.inflate(output);
+        inflater.setInput(new byte[]{0x00, 0x00, (byte)0xFF, (byte)0xFF});
+        length += inflater.inflate(output, length, output.length - length);
+        inflater.end();
+        return new String(output, 0, length, UTF_8);
+    }
+
+    @Test
+    public void testFrameIsEncodedOncePerConfiguration() throws Exception
+    {
+        List<Peer> plain = new ArrayList<>();
+        for (int i = 0; i < 3; ++i)
+        {
+            plain.add(newPeer());
+        }
+        List<Peer> deflate = new ArrayList<>();
+        for (int i = 0; i < 2; ++i)
+        {
+            deflate.add(newPeer("permessage-deflate; client_no_context_takeover"));
+        }
+        Peer takeover = newPeer("permessage-deflate");
+
+        String text = String.join("", Collections.nCopies(200, "Hello Broadcast "));
+        AtomicInteger successes = new AtomicInteger();
+        List<LocalWebSocketSession> sessions = new ArrayList<>();
+        for (Peer peer : peers)
+        {
+            sessions.add(peer.session);
+        }
+        broadcaster.sendString(text, sessions, new WriteCallback()
+        {
+            @Override
+            public void writeSuccess()
+            {
+                successes.incrementAndGet();
+            }
+
+            @Override
+            public void writeFailed(Throwable x)
+            {
+            }
+        });
+
+        assertThat(successes.get(), is(peers.size()));
+        assertThat(broadcaster.getMessages(), is(1L));
+        assertThat(broadcaster.getEncodings(), is(2L));
+        assertThat(broadcaster.getPreEncodedSends(), is(5L));
+        assertThat(broadcaster.getRemoteSends(), is(1L));
+
+        for (Peer peer : plain)
+        {
+            assertThat(receive(peer), is(text));
+        }
+        for (Peer peer : deflate)
+        {
+            assertThat(receive(peer), is(text));
+        }
+        assertThat(receive(takeover), is(text));
+    }
+
+    @Test
+    public void testBroadcastBytesDoesNotConsumeData() throws Exception
+    {
+        Peer peer1 = newPeer();
+        Peer peer2 = newPeer("permessage-deflate; client_no_context_takeover");
+
+        ByteBuffer data = BufferUtil.toBuffer("binary content", UTF_8);
+        broadcaster.sendBytes(data, Collections.singletonList(peer1.session));
+        broadcaster.sendBytes(data, Collections.singletonList(peer2.session));
+
+        assertThat(data.remaining(), is(14));
+        assertThat(receive(peer1), is("binary content"));
+        assertThat(receive(peer2), is("binary content"));
+    }
+
+    private static class Peer
+    {
+        private final LocalWebSocketSession session;
+        private final CapturingEndPoint endPoint;
+
+        private Peer(LocalWebSocketSession session, CapturingEndPoint endPoint)
+        {
+            this.session = session;
+            this.endPoint = endPoint;
+        }
+    }
+}
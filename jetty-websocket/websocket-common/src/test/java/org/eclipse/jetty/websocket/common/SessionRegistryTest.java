@@ -0,0 +1,204 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.websocket.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import org.eclipse.jetty.websocket.api.WebSocketPolicy;
+import org.eclipse.jetty.websocket.common.events.EventDriverFactory;
+import org.eclipse.jetty.websocket.common.io.LocalWebSocketSession;
+import org.eclipse.jetty.websocket.common.message.TrackingSocket;
+import org.eclipse.jetty.websocket.common.scopes.SimpleContainerScope;
+import org.eclipse.jetty.websocket.common.scopes.WebSocketContainerScope;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SessionRegistryTest
+{
+    private final ByteBufferPool bufferPool = new MappedByteBufferPool();
+    private WebSocketContainerScope containerScope;
+    private EventDriverFactory eventDriverFactory;
+
+    @BeforeEach
+    public void init()
+    {
+        containerScope = new SimpleContainerScope(WebSocketPolicy.newServerPolicy(), bufferPool);
+        eventDriverFactory = new EventDriverFactory(containerScope);
+    }
+
+    private WebSocketSession newSession(String id, Object websocket)
+    {
+        return new LocalWebSocketSession(containerScope, id, eventDriverFactory.wrap(websocket));
+    }
+
+    @Test
+    public void testAddRemove()
+    {
+        SessionRegistry registry = new SessionRegistry();
+        List<WebSocketSession> sessions = new ArrayList<>();
+        for (int i = 0; i < 10; ++i)
+        {
+            WebSocketSession session = newSession("s" + i, new TrackingSocket());
+            sessions.add(session);
+            assertTrue(registry.add(session));
+        }
+        assertFalse(registry.add(sessions.get(0)));
+        assertThat(registry.size(), is(10));
+
+        // Removing while iterating does not throw.
+        for (WebSocketSession session : registry)
+        {
+            registry.remove(session);
+        }
+        assertThat(registry.getSessions(), empty());
+        assertFalse(registry.remove(sessions.get(0)));
+        assertThat(registry.getSessionsAdded(), is(10L));
+        assertThat(registry.getSessionsRemoved(), is(10L));
+    }
+
+    @Test
+    public void testIndexes()
+    {
+        SessionRegistry registry = new SessionRegistry();
+        assertThrows(IllegalStateException.class, () -> registry.getSessionsByPath("/"));
+        registry.setIndexByPath(true);
+        registry.setIndexByEndpointClass(true);
+
+        WebSocketSession session1 = newSession("a", new TrackingSocket());
+        WebSocketSession session2 = newSession("a", new WebSocketAdapter());
+        WebSocketSession session3 = newSession("b", new TrackingSocket());
+        registry.add(session1);
+        registry.add(session2);
+        registry.add(session3);
+        assertThrows(IllegalStateException.class, () -> registry.setIndexByPath(false));
+
+        String pathA = session1.getRequestURI().getPath();
+        String pathB = session3.getRequestURI().getPath();
+        assertThat(registry.getSessionsByPath(pathA), containsInAnyOrder(session1, session2));
+        assertThat(registry.getSessionsByPath(pathB), containsInAnyOrder(session3));
+        assertThat(registry.getSessionsByEndpointClass(TrackingSocket.class), containsInAnyOrder(session1, session3));
+        assertThat(registry.getSessionsByEndpointClass(WebSocketAdapter.class), containsInAnyOrder(session2));
+
+        registry.remove(session3);
+        assertThat(registry.getSessionsByPath(pathB), empty());
+        assertThat(registry.getSessionsByEndpointClass(TrackingSocket.class), containsInAnyOrder(session1));
+    }
+
+    @Test
+    public void testIndexViewIsLive()
+    {
+        SessionRegistry registry = new SessionRegistry();
+        registry.setIndexByPath(true);
+
+        WebSocketSession session1 = newSession("a", new TrackingSocket());
+        String path = session1.getRequestURI().getPath();
+        Set<WebSocketSession> view = registry.getSessionsByPath(path);
+        assertThat(view, empty());
+
+        registry.add(session1);
+        assertThat(view, containsInAnyOrder(session1));
+
+        // The view survives the key becoming empty and being indexed again.
+        registry.remove(session1);
+        assertThat(view, empty());
+        WebSocketSession session2 = newSession("a", new TrackingSocket());
+        registry.add(session2);
+        assertThat(view, containsInAnyOrder(session2));
+        assertThrows(UnsupportedOperationException.class, () -> view.remove(session2));
+    }
+
+    @Test
+    public void testConcurrentAddRemove() throws Exception
+    {
+        SessionRegistry registry = new SessionRegistry();
+        registry.setIndexByPath(true);
+        registry.setIndexByEndpointClass(true);
+
+        List<WebSocketSession> sessions = new ArrayList<>();
+        for (int i = 0; i < 16; ++i)
+        {
+            sessions.add(newSession("s" + (i % 4), new TrackingSocket()));
+        }
+
+        int iterations = 2000;
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            Future<?> adder = executor.submit(() ->
+            {
+                for (int i = 0; i < iterations; ++i)
+                {
+                    barrier.await();
+                    sessions.forEach(registry::add);
+                }
+                return null;
+            });
+            Future<?> remover = executor.submit(() ->
+            {
+                for (int i = 0; i < iterations; ++i)
+                {
+                    barrier.await();
+                    sessions.forEach(registry::remove);
+                }
+                return null;
+            });
+            adder.get(30, TimeUnit.SECONDS);
+            remover.get(30, TimeUnit.SECONDS);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        // The indexes agree with the registry, whatever the interleaving.
+        for (WebSocketSession session : sessions)
+        {
+            boolean registered = registry.contains(session);
+            assertThat(registry.getSessionsByPath(session.getRequestURI().getPath()).contains(session), is(registered));
+            assertThat(registry.getSessionsByEndpointClass(TrackingSocket.class).contains(session), is(registered));
+        }
+
+        sessions.forEach(registry::remove);
+        assertThat(registry.getSessions(), empty());
+        for (WebSocketSession session : sessions)
+        {
+            assertThat(registry.getSessionsByPath(session.getRequestURI().getPath()), empty());
+        }
+        assertThat(registry.getSessionsByEndpointClass(TrackingSocket.class), empty());
+    }
+}
@@ -28,6 +28,7 @@ import org.eclipse.jetty.util.log.Logger;
 import org.eclipse.jetty.websocket.api.WebSocketPolicy;
 import org.eclipse.jetty.websocket.api.extensions.Extension;
 import org.eclipse.jetty.websocket.api.extensions.ExtensionConfig;
+import org.eclipse.jetty.websocket.common.extensions.compress.CompressionMemoryBudget;
 import org.eclipse.jetty.websocket.common.extensions.identity.IdentityExtension;
 import org.eclipse.jetty.websocket.common.scopes.SimpleContainerScope;
 import org.eclipse.jetty.websocket.common.scopes.WebSocketContainerScope;
@@ -189,4 +190,27 @@ public class ExtensionStackTest
         assertThat("Negotiated Extensions", response, is("permessage-deflate"));
         LOG.debug("Shouldn't cause a NPE: {}", stack.toString());
     }
+
+    @Test
+    public void testRejectedExtensionReleasesMemory() throws Exception
+    {
+        WebSocketContainerScope container = new SimpleContainerScope(WebSocketPolicy.newServerPolicy(), bufferPool);
+        WebSocketExtensionFactory factory = new WebSocketExtensionFactory(container);
+        CompressionMemoryBudget budget = factory.getCompressionMemoryBudget();
+        ExtensionStack stack = new ExtensionStack(factory);
+
+        // The second offer also claims RSV1, so it is not added.
+        List<ExtensionConfig> configs = new ArrayList<>();
+        configs.add(ExtensionConfig.parse("permessage-deflate"));
+        configs.add(ExtensionConfig.parse("permessage-deflate"));
+        stack.negotiate(configs);
+        assertThat(stack.getExtensions().size(), is(1));
+        assertThat(budget.getMemoryInUse(), is(CompressionMemoryBudget.DEFLATER_MEMORY + CompressionMemoryBudget.INFLATER_MEMORY));
+
+        stack.setNextOutgoing(new DummyOutgoingFrames("Connection"));
+        stack.setNextIncoming(new DummyIncomingFrames("Session"));
+        stack.start();
+        stack.stop();
+        assertThat(budget.getMemoryInUse(), is(0L));
+    }
 }
@@ -0,0 +1,190 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.websocket.common.extensions.compress;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.eclipse.jetty.util.compression.CompressionPool;
+import org.eclipse.jetty.util.compression.DeflaterPool;
+import org.eclipse.jetty.util.compression.InflaterPool;
+import org.eclipse.jetty.websocket.api.BatchMode;
+import org.eclipse.jetty.websocket.api.WebSocketPolicy;
+import org.eclipse.jetty.websocket.api.extensions.ExtensionConfig;
+import org.eclipse.jetty.websocket.common.WebSocketFrame;
+import org.eclipse.jetty.websocket.common.frames.TextFrame;
+import org.eclipse.jetty.websocket.common.test.IncomingFramesCapture;
+import org.eclipse.jetty.websocket.common.test.OutgoingFramesCapture;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+public class CompressionMemoryBudgetTest
+{
+    private static final String MESSAGE = "Hello, Hello, Hello, Hello, Hello, Hello, Hello";
+
+    private final ByteBufferPool bufferPool = new MappedByteBufferPool();
+    private final DeflaterPool deflaterPool = new DeflaterPool(CompressionPool.INFINITE_CAPACITY, Deflater.DEFAULT_COMPRESSION, true);
+    private final InflaterPool inflaterPool = new InflaterPool(CompressionPool.INFINITE_CAPACITY, true);
+    private final CompressionMemoryBudget budget = new CompressionMemoryBudget();
+
+    private PerMessageDeflateExtension newExtension(String config) throws Exception
+    {
+        PerMessageDeflateExtension ext = new PerMessageDeflateExtension();
+        ext.setBufferPool(bufferPool);
+        ext.setDeflaterPool(deflaterPool);
+        ext.setInflaterPool(inflaterPool);
+        ext.setMemoryBudget(budget);
+        ext.setPolicy(WebSocketPolicy.newServerPolicy());
+        ext.setConfig(ExtensionConfig.parse(config));
+        ext.start();
+        return ext;
+    }
+
+    private void roundTrip(PerMessageDeflateExtension ext)
+    {
+        OutgoingFramesCapture outgoing = new OutgoingFramesCapture();
+        ext.setNextOutgoingFrames(outgoing);
+        ext.outgoingFrame(new TextFrame().setPayload(MESSAGE), null, BatchMode.OFF);
+        WebSocketFrame compressed = outgoing.getFrames().poll();
+        assertThat(compressed.isRsv1(), is(true));
+
+        // Without context takeover, the compressed message can be inflated by the same extension.
+        IncomingFramesCapture incoming = new IncomingFramesCapture();
+        ext.setNextIncomingFrames(incoming);
+        ext.incomingFrame(compressed);
+        assertThat(incoming.getFrames().poll().getPayloadAsUTF8(), is(MESSAGE));
+    }
+
+    @Test
+    public void testNegotiationDegradedWhenOverBudget() throws Exception
+    {
+        budget.setMaxMemory(CompressionMemoryBudget.DEFLATER_MEMORY + CompressionMemoryBudget.INFLATER_MEMORY);
+
+        // The memory is reserved by the negotiation, not when the contexts are used.
+        PerMessageDeflateExtension ext1 = newExtension("permessage-deflate");
+        assertThat(ext1.isOutgoingContextTakeover(), is(true));
+        assertThat(budget.getMemoryInUse(), is(budget.getMaxMemory()));
+        ext1.getDeflater();
+        ext1.getInflater();
+        assertThat(budget.getMemoryInUse(), is(budget.getMaxMemory()));
+        assertThat(budget.getDeflatersInUse(), is(1));
+
+        PerMessageDeflateExtension ext2 = newExtension("permessage-deflate");
+        assertThat(ext2.isOutgoingContextTakeover(), is(false));
+        String negotiated = ext2.getConfig().getParameterizedName();
+        assertThat(negotiated, containsString("client_no_context_takeover"));
+        assertThat(negotiated, containsString("server_no_context_takeover"));
+        assertThat(budget.getDegradedNegotiations(), is(1L));
+
+        ext1.stop();
+        assertThat(budget.getMemoryInUse(), is(0L));
+        PerMessageDeflateExtension ext3 = newExtension("permessage-deflate");
+        assertThat(ext3.isOutgoingContextTakeover(), is(true));
+        assertThat(ext3.getConfig().getParameterizedName(), not(containsString("no_context_takeover")));
+        ext2.stop();
+        ext3.stop();
+        assertThat(budget.getMemoryInUse(), is(0L));
+    }
+
+    @Test
+    public void testConcurrentNegotiations() throws Exception
+    {
+        int budgeted = 3;
+        int negotiations = 32;
+        budget.setMaxMemory(budgeted * (CompressionMemoryBudget.DEFLATER_MEMORY + CompressionMemoryBudget.INFLATER_MEMORY));
+
+        CyclicBarrier barrier = new CyclicBarrier(negotiations);
+        ExecutorService executor = Executors.newFixedThreadPool(negotiations);
+        List<PerMessageDeflateExtension> extensions = new ArrayList<>();
+        try
+        {
+            List<Future<PerMessageDeflateExtension>> futures = new ArrayList<>();
+            for (int i = 0; i < negotiations; ++i)
+            {
+                futures.add(executor.submit(() ->
+                {
+                    barrier.await();
+                    return newExtension("permessage-deflate");
+                }));
+            }
+            for (Future<PerMessageDeflateExtension> future : futures)
+            {
+                extensions.add(future.get(10, TimeUnit.SECONDS));
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        // Concurrent negotiations do not overcommit the budget.
+        long takeovers = extensions.stream().filter(PerMessageDeflateExtension::isOutgoingContextTakeover).count();
+        assertThat(takeovers, is((long)budgeted));
+        assertThat(budget.getDegradedNegotiations(), is((long)(negotiations - budgeted)));
+        assertThat(budget.getMemoryInUse(), is(budget.getMaxMemory()));
+
+        for (PerMessageDeflateExtension extension : extensions)
+        {
+            extension.stop();
+        }
+        assertThat(budget.getMemoryInUse(), is(0L));
+    }
+
+    @Test
+    public void testContextsKeptWithinBudget() throws Exception
+    {
+        PerMessageDeflateExtension ext = newExtension("permessage-deflate; client_no_context_takeover; server_no_context_takeover");
+        roundTrip(ext);
+        assertThat(budget.getDeflatersInUse(), is(1));
+        assertThat(budget.getInflatersInUse(), is(1));
+        assertThat(budget.getContextReleases(), is(0L));
+
+        ext.stop();
+        assertThat(budget.getDeflatersInUse(), is(0));
+        assertThat(budget.getInflatersInUse(), is(0));
+        assertThat(budget.getMemoryInUse(), is(0L));
+        assertThat(budget.getContextReleases(), is(0L));
+    }
+
+    @Test
+    public void testContextsReleasedAtEndOfMessageWhenOverBudget() throws Exception
+    {
+        budget.setMaxMemory(0);
+        PerMessageDeflateExtension ext = newExtension("permessage-deflate; client_no_context_takeover; server_no_context_takeover");
+        roundTrip(ext);
+        roundTrip(ext);
+        assertThat(budget.getDeflatersInUse(), is(0));
+        assertThat(budget.getInflatersInUse(), is(0));
+        assertThat(budget.getMemoryInUse(), is(0L));
+        assertThat(budget.getContextReleases(), is(4L));
+        ext.stop();
+    }
+}
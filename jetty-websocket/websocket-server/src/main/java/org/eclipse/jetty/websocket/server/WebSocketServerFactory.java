@@ -61,8 +61,10 @@ import org.eclipse.jetty.websocket.api.WebSocketException;
 import org.eclipse.jetty.websocket.api.WebSocketPolicy;
 import org.eclipse.jetty.websocket.api.extensions.ExtensionFactory;
 import org.eclipse.jetty.websocket.api.util.QuoteUtil;
+import org.eclipse.jetty.websocket.common.Broadcaster;
 import org.eclipse.jetty.websocket.common.LogicalConnection;
 import org.eclipse.jetty.websocket.common.SessionFactory;
+import org.eclipse.jetty.websocket.common.SessionRegistry;
 import org.eclipse.jetty.websocket.common.SessionTracker;
 import org.eclipse.jetty.websocket.common.WebSocketSession;
 import org.eclipse.jetty.websocket.common.WebSocketSessionFactory;
@@ -98,6 +100,7 @@ public class WebSocketServerFactory extends ContainerLifeCycle implements WebSoc
     private final ServletContext context; // can be null when this factory is used from WebSocketHandler
     private final List<SessionFactory> sessionFactories = new ArrayList<>();
     private final SessionTracker sessionTracker = new SessionTracker();
+    private final Broadcaster broadcaster;
     private final List<Class<?>> registeredSocketClasses = new ArrayList<>();
     private Executor executor;
     private DecoratedObjectFactory objectFactory;
@@ -156,6 +159,7 @@ public class WebSocketServerFactory extends ContainerLifeCycle implements WebSoc
         this.objectFactory = objectFactory;
         this.executor = executor;
         this.bufferPool = bufferPool;
+        this.broadcaster = new Broadcaster(bufferPool);
 
         this.creator = this;
         this.contextClassloader = Thread.currentThread().getContextClassLoader();
@@ -186,6 +190,8 @@ public class WebSocketServerFactory extends ContainerLifeCycle implements WebSoc
         addBean(scheduler);
         addBean(bufferPool);
         addBean(sessionTracker);
+        addBean(sessionTracker.getSessionRegistry());
+        addBean(broadcaster);
         addBean(extensionFactory);
         listeners.add(this.sessionTracker);
     }
@@ -456,11 +462,27 @@ public class WebSocketServerFactory extends ContainerLifeCycle implements WebSoc
         return extensionFactory;
     }
 
+    /**
+     * @return the broadcaster to send the same message to many sessions, for example to the {@link #getOpenSessions() open sessions}
+     */
+    public Broadcaster getBroadcaster()
+    {
+        return broadcaster;
+    }
+
     public Collection<WebSocketSession> getOpenSessions()
     {
         return this.sessionTracker.getSessions();
     }
 
+    /**
+     * @return the registry of the open sessions, that may be configured to index the sessions by path or endpoint class
+     */
+    public SessionRegistry getSessionRegistry()
+    {
+        return this.sessionTracker.getSessionRegistry();
+    }
+
     @Override
     public WebSocketPolicy getPolicy()
     {